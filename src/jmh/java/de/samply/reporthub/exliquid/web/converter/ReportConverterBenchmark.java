@@ -0,0 +1,45 @@
+package de.samply.reporthub.exliquid.web.converter;
+
+import de.samply.reporthub.exliquid.web.model.Report;
+import de.samply.reporthub.model.fhir.Fixtures;
+import de.samply.reporthub.model.fhir.MeasureReport;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the conversion of EXLIQUID MeasureReports into the report shown in the web UI.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportConverterBenchmark {
+
+  @Param({"10", "10000"})
+  public int diagnoses;
+
+  private MeasureReport report;
+
+  @Setup
+  public void setUp() {
+    report = Fixtures.exliquidReport(diagnoses);
+  }
+
+  @Benchmark
+  public Optional<Report> convert() {
+    return ReportConverter.convert(report);
+  }
+}
@@ -0,0 +1,54 @@
+package de.samply.reporthub.model.fhir;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the lookup of resources in Bundles of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BundleBenchmark {
+
+  @Param({"1", "100", "1000"})
+  public int entries;
+
+  private Bundle bundle;
+  private Reference lastEntry;
+
+  @Setup
+  public void setUp() {
+    bundle = Fixtures.message(entries);
+    lastEntry = Reference.ofReference(Fixtures.fullUrl(entries - 1));
+  }
+
+  @Benchmark
+  public Optional<? extends Resource<?>> resolveResource() {
+    return bundle.resolveResource(lastEntry);
+  }
+
+  @Benchmark
+  public Optional<Task> resolveTypedResource() {
+    return bundle.resolveResource(Task.class, lastEntry);
+  }
+
+  @Benchmark
+  public Optional<MessageHeader> firstResourceAs() {
+    return bundle.firstResourceAs(MessageHeader.class);
+  }
+}
@@ -0,0 +1,76 @@
+package de.samply.reporthub.model.fhir;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import de.samply.reporthub.Util;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the Jackson (de)serialization of the FHIR model, including the custom serializers and
+ * deserializers of primitive types and extensions, with and without the Blackbird module the
+ * application registers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+  @Param({"task", "bundle", "measure-report-small", "measure-report-10k", "capability-statement"})
+  public String fixture;
+
+  @Param({"false", "true"})
+  public boolean blackbird;
+
+  private ObjectReader reader;
+  private ObjectWriter writer;
+  private Object value;
+  private String json;
+
+  @Setup
+  public void setUp() throws JsonProcessingException {
+    var mapper = Util.mapper();
+    if (blackbird) {
+      mapper.registerModule(new BlackbirdModule());
+    }
+    switch (fixture) {
+      case "task" -> value = Fixtures.task();
+      case "bundle" -> value = Fixtures.message(100);
+      case "measure-report-small" -> value = Fixtures.exliquidReport(10);
+      case "measure-report-10k" -> value = Fixtures.exliquidReport(10_000);
+      case "capability-statement" -> value = mapper.readValue(Fixtures.capabilityStatementJson(150),
+          CapabilityStatement.class);
+      default -> throw new IllegalArgumentException("Unknown fixture: " + fixture);
+    }
+    reader = mapper.readerFor(value.getClass());
+    writer = mapper.writerFor(value.getClass());
+    json = fixture.equals("capability-statement")
+        ? Fixtures.capabilityStatementJson(150)
+        : writer.writeValueAsString(value);
+  }
+
+  @Benchmark
+  public Object parse() throws JsonProcessingException {
+    return reader.readValue(json);
+  }
+
+  @Benchmark
+  public String serialize() throws JsonProcessingException {
+    return writer.writeValueAsString(value);
+  }
+}
@@ -0,0 +1,176 @@
+package de.samply.reporthub.model.fhir;
+
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.BLOOD_PLASMA;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.EXLIQUID_MEASURE_GROUP;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.EXLIQUID_STRATIFIER;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.MEASURE_POPULATION;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.PERIPHERAL_BLOOD_CELLS_VITAL;
+
+import de.samply.reporthub.Util;
+import de.samply.reporthub.dktk.model.fhir.TaskCode;
+import de.samply.reporthub.dktk.model.fhir.TaskInput;
+import de.samply.reporthub.dktk.model.fhir.TaskOutput;
+import de.samply.reporthub.model.fhir.MeasureReport.Group;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Population;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum.Component;
+import de.samply.reporthub.model.fhir.Task.Input;
+import de.samply.reporthub.model.fhir.Task.Output;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Resources used in benchmarks, shaped like the ones the ReportHub processes in production.
+ */
+public interface Fixtures {
+
+  OffsetDateTime DATE = OffsetDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC);
+
+  CodeableConcept PATIENT_GROUP_CODE =
+      CodeableConcept.coding(Coding.of(EXLIQUID_MEASURE_GROUP, "patient"));
+  CodeableConcept SPECIMEN_GROUP_CODE =
+      CodeableConcept.coding(Coding.of(EXLIQUID_MEASURE_GROUP, "specimen"));
+  CodeableConcept INITIAL_POPULATION_CODE =
+      CodeableConcept.coding(Coding.of(MEASURE_POPULATION, "initial-population"));
+  CodeableConcept DIAGNOSIS_STRATIFIER_CODE =
+      CodeableConcept.coding(Coding.of(EXLIQUID_STRATIFIER, "diagnosis"));
+  CodeableConcept SAMPLE_DIAGNOSIS_STRATIFIER_CODE =
+      CodeableConcept.coding(Coding.of(EXLIQUID_STRATIFIER, "sample-diagnosis"));
+  CodeableConcept SAMPLE_TYPE_STRATIFIER_CODE =
+      CodeableConcept.coding(Coding.of(EXLIQUID_STRATIFIER, "sample-type"));
+
+  /**
+   * Returns an EXLIQUID dashboard MeasureReport with {@code diagnoses} strata in the patient
+   * diagnosis stratifier and two strata per diagnosis in the sample diagnosis stratifier.
+   */
+  static MeasureReport exliquidReport(int diagnoses) {
+    return MeasureReport.builder(MeasureReportStatus.COMPLETE.code(),
+            MeasureReportType.SUMMARY.code(),
+            Canonical.valueOf("https://dktk.dkfz.de/fhir/Measure/exliquid-dashboard"))
+        .withId("0")
+        .withDate(DATE)
+        .withGroup(List.of(
+            Group.builder()
+                .withCode(PATIENT_GROUP_CODE)
+                .withPopulation(List.of(Population.of(INITIAL_POPULATION_CODE, diagnoses * 3)))
+                .withStratifier(List.of(Stratifier.builder()
+                    .withCode(List.of(DIAGNOSIS_STRATIFIER_CODE))
+                    .withStratum(IntStream.range(0, diagnoses)
+                        .mapToObj(i -> Stratum.builder()
+                            .withValue(CodeableConcept.text(diagnosis(i)))
+                            .withPopulation(List.of(Stratum.Population.of(INITIAL_POPULATION_CODE,
+                                3)))
+                            .build())
+                        .toList())
+                    .build()))
+                .build(),
+            Group.builder()
+                .withCode(SPECIMEN_GROUP_CODE)
+                .withPopulation(List.of(Population.of(INITIAL_POPULATION_CODE, diagnoses * 10)))
+                .withStratifier(List.of(Stratifier.builder()
+                    .withCode(List.of(SAMPLE_DIAGNOSIS_STRATIFIER_CODE,
+                        SAMPLE_TYPE_STRATIFIER_CODE))
+                    .withStratum(IntStream.range(0, diagnoses)
+                        .boxed()
+                        .flatMap(i -> List.of(sampleStratum(i, BLOOD_PLASMA, 4),
+                            sampleStratum(i, PERIPHERAL_BLOOD_CELLS_VITAL, 6)).stream())
+                        .toList())
+                    .build()))
+                .build()))
+        .build();
+  }
+
+  private static String diagnosis(int i) {
+    return "C%02d.%d-%d".formatted(i / 10 % 100, i % 10, i / 1000);
+  }
+
+  private static Stratum sampleStratum(int diagnosis, String type, int count) {
+    return Stratum.builder()
+        .withComponent(List.of(
+            Component.of(SAMPLE_DIAGNOSIS_STRATIFIER_CODE, CodeableConcept.text(diagnosis(
+                diagnosis))),
+            Component.of(SAMPLE_TYPE_STRATIFIER_CODE, CodeableConcept.text(type))))
+        .withPopulation(List.of(Stratum.Population.of(INITIAL_POPULATION_CODE, count)))
+        .build();
+  }
+
+  /**
+   * Returns a completed evaluate-measure Task as found in the TaskStore.
+   */
+  static Task task() {
+    return Task.builder(TaskStatus.COMPLETED.code())
+        .withId("0")
+        .withMeta(new Meta(Optional.of("1"), Optional.of(Instant.EPOCH)))
+        .withIdentifier(List.of(Identifier.of(Util.BEAM_TASK_ID_SYSTEM,
+            "c3d3e5f4-2a7b-4d3e-9c55-0d6a5e8b3a11")))
+        .withInstantiatesCanonical(
+            "https://dktk.dkfz.de/fhir/ActivityDefinition/generate-exliquid-dashboard-report")
+        .withCode(CodeableConcept.coding(TaskCode.EVALUATE_MEASURE.coding()))
+        .withLastModified(DATE)
+        .withInput(List.of(Input.of(TaskInput.MEASURE.coding(),
+            Canonical.valueOf("https://dktk.dkfz.de/fhir/Measure/exliquid-dashboard"))))
+        .withOutput(List.of(Output.of(TaskOutput.MEASURE_REPORT.coding(),
+            Reference.ofReference("MeasureReport", "0"))))
+        .build();
+  }
+
+  /**
+   * Returns a message Bundle with a MessageHeader focusing the last of {@code tasks} Tasks.
+   */
+  static Bundle message(int tasks) {
+    var entries = new ArrayList<Bundle.Entry>();
+    entries.add(Bundle.Entry.builder()
+        .withFullUrl(Uri.valueOf(fullUrl(tasks)))
+        .withResource(MessageHeader.builder(Coding.of(
+                "https://dktk.dkfz.de/fhir/CodeSystem/message-event", "evaluate-measure"))
+            .withFocus(List.of(Reference.ofReference(fullUrl(tasks - 1))))
+            .build())
+        .build());
+    for (int i = 0; i < tasks; i++) {
+      entries.add(Bundle.Entry.builder()
+          .withFullUrl(Uri.valueOf(fullUrl(i)))
+          .withResource(task().withId(Integer.toString(i)))
+          .build());
+    }
+    return Bundle.message().withId("0").withEntry(entries).build();
+  }
+
+  static String fullUrl(int i) {
+    return "urn:uuid:00000000-0000-0000-0000-%012d".formatted(i);
+  }
+
+  /**
+   * Returns a CapabilityStatement JSON document like the one of Blaze, declaring
+   * {@code resources} resource types. Only the software part is part of the model, so most of the
+   * document has to be skipped while parsing.
+   */
+  static String capabilityStatementJson(int resources) {
+    var resourceJson = IntStream.range(0, resources).mapToObj(i -> """
+        {"type": "Resource%d",
+         "interaction": [{"code": "read"}, {"code": "vread"}, {"code": "update"},
+                         {"code": "delete"}, {"code": "history-instance"},
+                         {"code": "create"}, {"code": "search-type"}],
+         "versioning": "versioned",
+         "conditionalCreate": true,
+         "searchParam": [{"name": "_id", "type": "token"},
+                         {"name": "_lastUpdated", "type": "date"},
+                         {"name": "identifier", "type": "token"}]}""".formatted(i))
+        .toList();
+    return """
+        {"resourceType": "CapabilityStatement",
+         "status": "active",
+         "kind": "instance",
+         "date": "2023-01-01",
+         "software": {"name": "Blaze", "version": "0.19.0", "releaseDate": "2023-01-01"},
+         "fhirVersion": "4.0.1",
+         "format": ["application/fhir+json"],
+         "rest": [{"mode": "server", "resource": [%s]}]}
+        """.formatted(String.join(",", resourceJson));
+  }
+}
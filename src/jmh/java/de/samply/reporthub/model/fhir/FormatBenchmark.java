@@ -0,0 +1,102 @@
+package de.samply.reporthub.model.fhir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import de.samply.reporthub.Util;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the parse and serialization time of JSON with the binary Jackson formats Smile and CBOR.
+ * <p>
+ * The payload sizes don't depend on the run, so they aren't measured by JMH. Run {@link #main main}
+ * to print them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatBenchmark {
+
+  @Param({"task", "measure-report-small", "measure-report-10k"})
+  public String fixture;
+
+  @Param({"json", "smile", "cbor"})
+  public String format;
+
+  private ObjectReader reader;
+  private ObjectWriter writer;
+  private Object value;
+  private byte[] payload;
+
+  @Setup
+  public void setUp() throws IOException {
+    var mapper = mapper(format);
+    value = fixture(fixture);
+    reader = mapper.readerFor(value.getClass());
+    writer = mapper.writerFor(value.getClass());
+    payload = writer.writeValueAsBytes(value);
+  }
+
+  private static Object fixture(String fixture) {
+    return switch (fixture) {
+      case "task" -> Fixtures.task();
+      case "measure-report-small" -> Fixtures.exliquidReport(10);
+      case "measure-report-10k" -> Fixtures.exliquidReport(10_000);
+      default -> throw new IllegalArgumentException("Unknown fixture: " + fixture);
+    };
+  }
+
+  private static ObjectMapper mapper(String format) {
+    var mapper = Util.mapper();
+    return switch (format) {
+      case "json" -> mapper;
+      case "smile" -> mapper.copyWith(new SmileFactory());
+      case "cbor" -> mapper.copyWith(new CBORFactory());
+      default -> throw new IllegalArgumentException("Unknown format: " + format);
+    };
+  }
+
+  /**
+   * Prints the payload size of each fixture in each format.
+   *
+   * @param args not used
+   * @throws IOException if a fixture can't be serialized
+   */
+  public static void main(String[] args) throws IOException {
+    for (var fixture : List.of("task", "measure-report-small", "measure-report-10k")) {
+      var value = fixture(fixture);
+      for (var format : List.of("json", "smile", "cbor")) {
+        var payload = mapper(format).writeValueAsBytes(value);
+        System.out.printf("%-20s %-5s %,12d bytes%n", fixture, format, payload.length);
+      }
+    }
+  }
+
+  @Benchmark
+  public Object parse() throws IOException {
+    return reader.readValue(payload);
+  }
+
+  @Benchmark
+  public byte[] serialize() throws IOException {
+    return writer.writeValueAsBytes(value);
+  }
+}
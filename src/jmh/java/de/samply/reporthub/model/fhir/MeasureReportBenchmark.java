@@ -0,0 +1,95 @@
+package de.samply.reporthub.model.fhir;
+
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.BLOOD_PLASMA;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.EXLIQUID_MEASURE_GROUP;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.EXLIQUID_STRATIFIER;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.INITIAL_POPULATION;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.MEASURE_POPULATION;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.SAMPLE_DIAGNOSIS_STRATIFIER;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.SAMPLE_TYPE_STRATIFIER;
+
+import de.samply.reporthub.model.fhir.MeasureReport.Group;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Population;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the lookup of groups, populations and stratifiers in MeasureReports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeasureReportBenchmark {
+
+  private static final Predicate<CodeableConcept> SPECIMEN_GROUP_PREDICATE =
+      CodeableConcept.containsCoding(EXLIQUID_MEASURE_GROUP, "specimen");
+  private static final Predicate<CodeableConcept> INITIAL_POPULATION_PREDICATE =
+      CodeableConcept.containsCoding(MEASURE_POPULATION, "initial-population");
+  private static final Predicate<CodeableConcept> DIAGNOSIS_STRATIFIER_PREDICATE =
+      CodeableConcept.containsCoding(EXLIQUID_STRATIFIER, "diagnosis");
+
+  @Param({"10", "10000"})
+  public int diagnoses;
+
+  private MeasureReport report;
+  private Group patientGroup;
+  private Stratifier sampleStratifier;
+  private ColumnarStratifier columnarSampleStratifier;
+
+  @Setup
+  public void setUp() {
+    report = Fixtures.exliquidReport(diagnoses);
+    patientGroup = report.group().get(0);
+    sampleStratifier = report.group().get(1).stratifier().get(0);
+    columnarSampleStratifier = ColumnarStratifier.of(sampleStratifier);
+  }
+
+  @Benchmark
+  public Optional<Group> findGroup() {
+    return report.findGroup(SPECIMEN_GROUP_PREDICATE);
+  }
+
+  @Benchmark
+  public Optional<Population> findPopulation() {
+    return patientGroup.findPopulation(INITIAL_POPULATION_PREDICATE);
+  }
+
+  @Benchmark
+  public Optional<Stratifier> findStratifier() {
+    return patientGroup.findStratifier(DIAGNOSIS_STRATIFIER_PREDICATE);
+  }
+
+  @Benchmark
+  public ColumnarStratifier toColumnar() {
+    return ColumnarStratifier.of(sampleStratifier);
+  }
+
+  @Benchmark
+  public long columnarPlasmaCount() {
+    return columnarSampleStratifier
+        .filter(SAMPLE_TYPE_STRATIFIER,
+            type -> type.text().filter(BLOOD_PLASMA::equals).isPresent())
+        .sum(INITIAL_POPULATION);
+  }
+
+  @Benchmark
+  public ColumnarStratifier columnarGroupByDiagnosis() {
+    return columnarSampleStratifier.groupBy(SAMPLE_DIAGNOSIS_STRATIFIER);
+  }
+}
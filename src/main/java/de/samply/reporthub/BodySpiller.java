@@ -0,0 +1,203 @@
+package de.samply.reporthub;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.InvalidDefinitionException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.codec.CodecException;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Buffers bodies for the spilling Jackson decoders.
+ * <p>
+ * Bodies up to {@code maxInMemorySize} bytes are buffered in memory as long as the shared
+ * {@link MemoryBudget} allows it. Larger bodies, or all bodies while the budget is exhausted, are
+ * written to a temporary file which is parsed with a streaming reader and deleted afterwards.
+ * Bodies larger than {@code maxSize} fail with a {@link DataBufferLimitException}.
+ */
+final class BodySpiller {
+
+  private static final Logger logger = LoggerFactory.getLogger(BodySpiller.class);
+
+  private final MemoryBudget budget;
+  private final long maxSize;
+  private final Path tempDirectory;
+
+  BodySpiller(MemoryBudget budget, long maxSize, Path tempDirectory) {
+    this.budget = Objects.requireNonNull(budget);
+    this.maxSize = maxSize;
+    this.tempDirectory = Objects.requireNonNull(tempDirectory);
+  }
+
+  /**
+   * Buffers {@code input} and decodes it either with {@code bufferDecoder} or, if it was spilled,
+   * with the reader of {@code fileReader}.
+   *
+   * @param input           the body to decode
+   * @param maxInMemorySize the maximum number of bytes to buffer in memory
+   * @param bufferDecoder   decodes a body buffered in memory
+   * @param fileReader      supplies the reader of a spilled body
+   * @return the decoded value
+   */
+  Mono<Object> decodeToMono(Publisher<DataBuffer> input, int maxInMemorySize,
+      Function<DataBuffer, Object> bufferDecoder, Supplier<ObjectReader> fileReader) {
+    return Mono.usingWhen(Mono.fromSupplier(() -> new Body(maxInMemorySize)),
+        body -> Flux.from(input).concatMap(body::append)
+            .then(Mono.defer(() -> body.decode(bufferDecoder, fileReader))),
+        body -> body.release(),
+        (body, e) -> body.release(),
+        body -> body.release());
+  }
+
+  private static Object decode(Path file, ObjectReader reader) {
+    try (var in = Files.newInputStream(file)) {
+      return reader.readValue(in);
+    } catch (InvalidDefinitionException e) {
+      throw new CodecException("Type definition error: " + e.getType(), e);
+    } catch (JsonProcessingException e) {
+      throw new DecodingException("JSON decoding error: " + e.getOriginalMessage(), e);
+    } catch (IOException e) {
+      throw new DecodingException("I/O error while parsing input stream", e);
+    }
+  }
+
+  /**
+   * The state of one body being buffered, either in memory or in a temporary file.
+   * <p>
+   * Methods are synchronized because a cancellation can release the body while a buffer is
+   * written on another thread.
+   */
+  private final class Body {
+
+    private final int maxInMemorySize;
+    private final List<DataBuffer> buffers = new ArrayList<>();
+    private long size;
+    private long reserved;
+    private Path file;
+    private OutputStream out;
+    private boolean released;
+
+    private Body(int maxInMemorySize) {
+      this.maxInMemorySize = maxInMemorySize;
+    }
+
+    private synchronized Mono<Void> append(DataBuffer buffer) {
+      int length = buffer.readableByteCount();
+      size += length;
+      if (size > maxSize) {
+        DataBufferUtils.release(buffer);
+        return Mono.error(new DataBufferLimitException(
+            "Exceeded limit on max bytes to buffer : " + maxSize));
+      }
+      if (file == null && size <= maxInMemorySize && budget.tryReserve(length)) {
+        reserved += length;
+        buffers.add(buffer);
+        return Mono.empty();
+      }
+      return Mono.<Void>fromRunnable(() -> spill(buffer))
+          .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private synchronized void spill(DataBuffer buffer) {
+      try {
+        if (released) {
+          return;
+        }
+        if (file == null) {
+          file = Files.createTempFile(tempDirectory, "report-hub-", ".body");
+          out = Files.newOutputStream(file);
+          logger.debug("Spill body of more than {} bytes to `{}`.", size - buffer
+              .readableByteCount(), file);
+          for (var buffered : buffers) {
+            write(buffered);
+          }
+          releaseBuffers();
+        }
+        write(buffer);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        DataBufferUtils.release(buffer);
+      }
+    }
+
+    private void write(DataBuffer buffer) throws IOException {
+      try (var in = buffer.asInputStream()) {
+        in.transferTo(out);
+      }
+    }
+
+    private synchronized Mono<Object> decode(Function<DataBuffer, Object> bufferDecoder,
+        Supplier<ObjectReader> fileReader) {
+      if (file != null) {
+        var file = this.file;
+        return Mono.fromCallable(() -> {
+              closeOut();
+              return BodySpiller.decode(file, fileReader.get());
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+      }
+      if (buffers.isEmpty()) {
+        return Mono.empty();
+      }
+      var joined = buffers.size() == 1 ? buffers.get(0)
+          : buffers.get(0).factory().join(buffers);
+      buffers.clear();
+      return Mono.justOrEmpty(bufferDecoder.apply(joined));
+    }
+
+    private synchronized Mono<Void> release() {
+      released = true;
+      releaseBuffers();
+      if (file == null) {
+        return Mono.empty();
+      }
+      var file = this.file;
+      return Mono.<Void>fromRunnable(() -> {
+            closeOut();
+            try {
+              Files.deleteIfExists(file);
+            } catch (IOException e) {
+              logger.warn("Can't delete the temporary file `{}`: {}", file, e.getMessage());
+            }
+          })
+          .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private void releaseBuffers() {
+      buffers.forEach(DataBufferUtils::release);
+      buffers.clear();
+      budget.release(reserved);
+      reserved = 0;
+    }
+
+    private synchronized void closeOut() {
+      if (out != null) {
+        try {
+          out.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        out = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package de.samply.reporthub;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Connection pool and timeout settings of one {@code WebClient}.
+ * <p>
+ * Each client gets its own named {@link ConnectionProvider}, so a slow or hung backend can only
+ * exhaust its own pool. Pool metrics are published under {@code reactor.netty.connection.provider}
+ * tagged with the pool name.
+ *
+ * @param maxConnections         the maximum number of open connections
+ * @param pendingAcquireMaxCount the maximum number of requests waiting for a connection
+ * @param pendingAcquireTimeout  the maximum time a request waits for a connection
+ * @param maxIdleTime            the time after which an idle connection is closed
+ * @param evictInBackground      the interval in which idle connections are evicted
+ * @param connectTimeout         the maximum time to establish a connection
+ * @param responseTimeout        the maximum time between sending a request and receiving the
+ *                               response headers
+ * @param readTimeout            the maximum time without reading any data from a connection
+ * @param h2c                    whether to use HTTP/2 over cleartext with fallback to HTTP/1.1
+ */
+public record HttpClientProperties(
+    @DefaultValue("50") int maxConnections,
+    @DefaultValue("200") int pendingAcquireMaxCount,
+    @DefaultValue("10s") Duration pendingAcquireTimeout,
+    @DefaultValue("30s") Duration maxIdleTime,
+    @DefaultValue("30s") Duration evictInBackground,
+    @DefaultValue("5s") Duration connectTimeout,
+    @DefaultValue("30s") Duration responseTimeout,
+    @DefaultValue("30s") Duration readTimeout,
+    @DefaultValue("false") boolean h2c) {
+
+  public HttpClientProperties {
+    Objects.requireNonNull(pendingAcquireTimeout);
+    Objects.requireNonNull(maxIdleTime);
+    Objects.requireNonNull(evictInBackground);
+    Objects.requireNonNull(connectTimeout);
+    Objects.requireNonNull(responseTimeout);
+    Objects.requireNonNull(readTimeout);
+  }
+
+  /**
+   * Binds the properties found under {@code prefix}, using defaults for missing ones.
+   *
+   * @param environment the environment to bind from
+   * @param prefix      the canonical property prefix, like {@code app.task-store.http}
+   * @return the bound properties
+   */
+  public static HttpClientProperties bind(Environment environment, String prefix) {
+    return Binder.get(environment).bindOrCreate(prefix, HttpClientProperties.class);
+  }
+
+  /**
+   * Creates a connector with its own connection pool called {@code name}.
+   *
+   * @param name the name of the connection pool used in metrics
+   * @return a new connector
+   */
+  public ReactorClientHttpConnector connector(String name) {
+    var provider = ConnectionProvider.builder(name)
+        .maxConnections(maxConnections)
+        .pendingAcquireMaxCount(pendingAcquireMaxCount)
+        .pendingAcquireTimeout(pendingAcquireTimeout)
+        .maxIdleTime(maxIdleTime)
+        .evictInBackground(evictInBackground)
+        .metrics(true)
+        .build();
+    var client = HttpClient.create(provider)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+        .responseTimeout(responseTimeout)
+        // handlers are removed when the connection is released, so add it for each request
+        .doOnRequest((request, connection) -> connection.addHandlerLast(
+            new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS)));
+    if (h2c) {
+      client = client.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+    }
+    return new ReactorClientHttpConnector(client);
+  }
+}
@@ -0,0 +1,52 @@
+package de.samply.reporthub;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A number of bytes which may be held in memory across all concurrent requests.
+ * <p>
+ * Decoders {@link #tryReserve(long) reserve} bytes before they buffer them and
+ * {@link #release(long) release} them afterwards. If a reservation fails, the decoder has to buffer
+ * elsewhere, for example in a temporary file.
+ */
+public final class MemoryBudget {
+
+  private final long capacity;
+  private final AtomicLong used = new AtomicLong();
+
+  public MemoryBudget(long capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("negative capacity: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  public long capacity() {
+    return capacity;
+  }
+
+  public long used() {
+    return used.get();
+  }
+
+  /**
+   * Tries to reserve {@code bytes}.
+   *
+   * @param bytes the number of bytes to reserve
+   * @return {@code true} if the bytes were reserved and have to be released later
+   */
+  public boolean tryReserve(long bytes) {
+    long current;
+    do {
+      current = used.get();
+      if (current + bytes > capacity) {
+        return false;
+      }
+    } while (!used.compareAndSet(current, current + bytes));
+    return true;
+  }
+
+  public void release(long bytes) {
+    used.addAndGet(-bytes);
+  }
+}
@@ -2,20 +2,29 @@ package de.samply.reporthub;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
+import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import de.samply.reporthub.service.fhir.store.FhirFormat;
+import java.nio.file.Path;
 import java.time.Clock;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
-import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.client.WebClient;
 
 @SpringBootApplication
 public class ReportHubApplication {
 
   private static final int TWO_MEGA_BYTE = 2 * 1024 * 1024;
+  private static final Path TEMP_DIRECTORY = Path.of(System.getProperty("java.io.tmpdir"));
 
   @Value("${app.beam.appId}")
   private String beamAppId;
@@ -28,39 +37,88 @@ public class ReportHubApplication {
   }
 
   @Bean
-  public WebClient beamProxy(@Value("${app.beam.proxy.baseUrl}") String baseUrl) {
+  public WebClient beamProxy(@Value("${app.beam.proxy.baseUrl}") String baseUrl,
+      Environment environment) {
     return WebClient.builder()
         .baseUrl(baseUrl)
+        .clientConnector(HttpClientProperties.bind(environment, "app.beam.proxy.http")
+            .connector("beamProxy"))
         .defaultHeader("Accept", APPLICATION_JSON_VALUE)
         .defaultHeader("Authorization", "ApiKey %s %s".formatted(beamAppId, beamSecret))
         .build();
   }
 
+  /**
+   * The number of bytes the store clients may hold in memory while decoding bodies. Bodies which
+   * don't fit are spilled to temporary files.
+   */
+  @Bean
+  public MemoryBudget codecMemoryBudget(
+      @Value("${app.codec.memoryBudget:64MB}") DataSize memoryBudget) {
+    return new MemoryBudget(memoryBudget.toBytes());
+  }
+
+  @Bean
+  public FhirFormat taskStoreFormat(@Value("${app.taskStore.format:json}") String format) {
+    return FhirFormat.of(format);
+  }
+
   @Bean
   public WebClient taskStoreClient(@Value("${app.taskStore.baseUrl}") String baseUrl,
-      ObjectMapper mapper) {
-    return storeClient(baseUrl, mapper);
+      FhirFormat taskStoreFormat, ObjectMapper mapper, MemoryBudget codecMemoryBudget,
+      @Value("${app.codec.maxSize:1GB}") DataSize maxSize, Environment environment) {
+    return storeClient(baseUrl, taskStoreFormat, mapper, codecMemoryBudget, maxSize.toBytes(),
+        TEMP_DIRECTORY,
+        HttpClientProperties.bind(environment, "app.task-store.http").connector("taskStore"));
   }
 
   @Bean
   public WebClient dataStoreClient(@Value("${app.dataStore.baseUrl}") String baseUrl,
-      ObjectMapper mapper) {
-    return storeClient(baseUrl, mapper);
+      ObjectMapper mapper, MemoryBudget codecMemoryBudget,
+      @Value("${app.codec.maxSize:1GB}") DataSize maxSize, Environment environment) {
+    return storeClient(baseUrl, FhirFormat.JSON, mapper, codecMemoryBudget, maxSize.toBytes(),
+        TEMP_DIRECTORY,
+        HttpClientProperties.bind(environment, "app.data-store.http").connector("dataStore"));
   }
 
-  private static WebClient storeClient(String baseUrl, ObjectMapper mapper) {
+  /**
+   * Creates a client for a FHIR store.
+   * <p>
+   * Bodies up to {@link #TWO_MEGA_BYTE} are decoded in memory. Larger JSON and Smile bodies are
+   * spilled to {@code tempDirectory}. The Smile codecs share the configuration of {@code mapper},
+   * so responses in any {@link FhirFormat} can be decoded. Only {@code format} is asked for.
+   */
+  static WebClient storeClient(String baseUrl, FhirFormat format, ObjectMapper mapper,
+      MemoryBudget budget, long maxSize, Path tempDirectory, ClientHttpConnector connector) {
+    var smileMapper = mapper.copyWith(new SmileFactory());
     return WebClient.builder()
         .baseUrl(baseUrl)
-        .defaultHeader("Accept", "application/fhir+json")
+        .clientConnector(connector)
+        .defaultHeader("Accept", format.accept())
         .codecs(configurer -> {
           var codecs = configurer.defaultCodecs();
           codecs.maxInMemorySize(TWO_MEGA_BYTE);
           codecs.jackson2JsonEncoder(new Jackson2JsonEncoder(mapper));
-          codecs.jackson2JsonDecoder(new Jackson2JsonDecoder(mapper));
+          codecs.jackson2JsonDecoder(new SpillingJackson2JsonDecoder(mapper, budget, maxSize,
+              tempDirectory));
+          // the mime type has to be given, because the codecs default to JSON without it
+          codecs.jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper,
+              FhirFormat.SMILE.mediaType()));
+          codecs.jackson2SmileDecoder(new SpillingJackson2SmileDecoder(smileMapper, budget,
+              maxSize, tempDirectory, FhirFormat.SMILE.mediaType()));
         })
         .build();
   }
 
+  /**
+   * Replaces the reflective getters, setters and creators of the model by generated lambdas. The
+   * module is picked up by the application's {@code ObjectMapper}.
+   */
+  @Bean
+  public Module blackbirdModule() {
+    return new BlackbirdModule();
+  }
+
   @Bean
   public Clock clock() {
     return Clock.systemDefaultZone();
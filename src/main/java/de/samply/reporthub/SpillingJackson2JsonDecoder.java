@@ -0,0 +1,71 @@
+package de.samply.reporthub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.nio.file.Path;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Mono;
+
+/**
+ * A JSON decoder which spills large bodies to temporary files instead of failing.
+ * <p>
+ * Bodies up to {@link #getMaxInMemorySize() maxInMemorySize} bytes are buffered in memory as long
+ * as the shared {@link MemoryBudget} allows it. Larger bodies, or all bodies while the budget is
+ * exhausted, are written to a temporary file which is parsed with a streaming reader and deleted
+ * afterwards. Bodies larger than {@code maxSize} fail with a {@link DataBufferLimitException}.
+ * <p>
+ * Only {@link #decodeToMono(Publisher, ResolvableType, MimeType, Map) decodeToMono} spills. Flux
+ * decoding still buffers each top-level value in memory and fails with a
+ * {@link DataBufferLimitException} for values larger than {@code maxInMemorySize}. So bodies which
+ * can get large, like search Bundles, have to be decoded as {@link Mono}.
+ *
+ * @see SpillingJackson2SmileDecoder
+ */
+public class SpillingJackson2JsonDecoder extends Jackson2JsonDecoder {
+
+  private final BodySpiller spiller;
+
+  /**
+   * Creates a decoder.
+   *
+   * @param mapper        the mapper to use
+   * @param budget        the budget of bytes which may be held in memory, usually shared between
+   *                      decoders
+   * @param maxSize       the maximum size of a body
+   * @param tempDirectory the directory to create the temporary files in
+   */
+  public SpillingJackson2JsonDecoder(ObjectMapper mapper, MemoryBudget budget, long maxSize,
+      Path tempDirectory) {
+    super(mapper);
+    this.spiller = new BodySpiller(budget, maxSize, tempDirectory);
+  }
+
+  @Override
+  public Mono<Object> decodeToMono(Publisher<DataBuffer> input, ResolvableType elementType,
+      @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+    return spiller.decodeToMono(input, getMaxInMemorySize(),
+        buffer -> decode(buffer, elementType, mimeType, hints),
+        () -> reader(elementType, mimeType, hints));
+  }
+
+  private ObjectReader reader(ResolvableType elementType, @Nullable MimeType mimeType,
+      @Nullable Map<String, Object> hints) {
+    var mapper = selectObjectMapper(elementType, mimeType);
+    if (mapper == null) {
+      throw new IllegalStateException("No ObjectMapper for " + elementType);
+    }
+    var javaType = getJavaType(elementType.getType(), null);
+    var jsonView = hints != null ? (Class<?>) hints.get(JSON_VIEW_HINT) : null;
+    ObjectReader reader = jsonView != null
+        ? mapper.readerWithView(jsonView).forType(javaType)
+        : mapper.readerFor(javaType);
+    return customizeReader(reader, elementType, hints);
+  }
+}
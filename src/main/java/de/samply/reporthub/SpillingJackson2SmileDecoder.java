@@ -0,0 +1,62 @@
+package de.samply.reporthub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.nio.file.Path;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Mono;
+
+/**
+ * The Smile counterpart of {@link SpillingJackson2JsonDecoder}.
+ * <p>
+ * Spring only accepts subclasses of {@link Jackson2SmileDecoder} as Smile decoder, so the spilling
+ * can't be done by a JSON decoder with a Smile mapper.
+ */
+public class SpillingJackson2SmileDecoder extends Jackson2SmileDecoder {
+
+  private final BodySpiller spiller;
+
+  /**
+   * Creates a decoder.
+   *
+   * @param mapper        the mapper to use, which has to have a {@code SmileFactory}
+   * @param budget        the budget of bytes which may be held in memory, usually shared between
+   *                      decoders
+   * @param maxSize       the maximum size of a body
+   * @param tempDirectory the directory to create the temporary files in
+   * @param mimeTypes     the mime types to decode
+   */
+  public SpillingJackson2SmileDecoder(ObjectMapper mapper, MemoryBudget budget, long maxSize,
+      Path tempDirectory, MimeType... mimeTypes) {
+    super(mapper, mimeTypes);
+    this.spiller = new BodySpiller(budget, maxSize, tempDirectory);
+  }
+
+  @Override
+  public Mono<Object> decodeToMono(Publisher<DataBuffer> input, ResolvableType elementType,
+      @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+    return spiller.decodeToMono(input, getMaxInMemorySize(),
+        buffer -> decode(buffer, elementType, mimeType, hints),
+        () -> reader(elementType, mimeType, hints));
+  }
+
+  private ObjectReader reader(ResolvableType elementType, @Nullable MimeType mimeType,
+      @Nullable Map<String, Object> hints) {
+    var mapper = selectObjectMapper(elementType, mimeType);
+    if (mapper == null) {
+      throw new IllegalStateException("No ObjectMapper for " + elementType);
+    }
+    var javaType = getJavaType(elementType.getType(), null);
+    var jsonView = hints != null ? (Class<?>) hints.get(JSON_VIEW_HINT) : null;
+    ObjectReader reader = jsonView != null
+        ? mapper.readerWithView(jsonView).forType(javaType)
+        : mapper.readerFor(javaType);
+    return customizeReader(reader, elementType, hints);
+  }
+}
@@ -13,13 +13,15 @@ public enum TaskCode {
   public static final String CODE_SYSTEM_URL = "https://dktk.dkfz.de/fhir/CodeSystem/task-code";
 
   private final String code;
+  private final Coding coding;
 
   TaskCode(String code) {
     this.code = Objects.requireNonNull(code);
+    this.coding = Coding.of(CODE_SYSTEM_URL, code);
   }
 
   public Coding coding() {
-    return Coding.of(CODE_SYSTEM_URL, code);
+    return coding;
   }
 
   public String searchToken() {
@@ -14,13 +14,15 @@ public enum TaskInput implements Predicate<Coding> {
   public static final String CODE_SYSTEM_URL = "https://dktk.dkfz.de/fhir/CodeSystem/task-input";
 
   private final String code;
+  private final Coding coding;
 
   TaskInput(String code) {
     this.code = Objects.requireNonNull(code);
+    this.coding = Coding.of(CODE_SYSTEM_URL, code);
   }
 
   public Coding coding() {
-    return Coding.of(CODE_SYSTEM_URL, code);
+    return coding;
   }
 
   @Override
@@ -15,13 +15,15 @@ public enum TaskOutput implements Predicate<Coding> {
   public static final String CODE_SYSTEM_URL = "https://dktk.dkfz.de/fhir/CodeSystem/task-output";
 
   private final String code;
+  private final Coding coding;
 
   TaskOutput(String code) {
     this.code = Objects.requireNonNull(code);
+    this.coding = Coding.of(CODE_SYSTEM_URL, code);
   }
 
   public Coding coding() {
-    return Coding.of(CODE_SYSTEM_URL, code);
+    return coding;
   }
 
   @Override
@@ -8,37 +8,57 @@ import static org.springframework.web.reactive.function.server.ServerResponse.ok
 import de.samply.reporthub.Util;
 import de.samply.reporthub.dktk.model.fhir.TaskOutput;
 import de.samply.reporthub.dktk.web.model.EvaluateMeasureTask;
+import de.samply.reporthub.dktk.web.controller.TaskHistoryCache.Entry;
 import de.samply.reporthub.dktk.web.model.EvaluateMeasureTask.HistoryListItem;
 import de.samply.reporthub.model.fhir.Canonical;
 import de.samply.reporthub.model.fhir.CodeableConcept;
-import de.samply.reporthub.model.fhir.Measure;
+import de.samply.reporthub.model.fhir.Meta;
 import de.samply.reporthub.model.fhir.Reference;
 import de.samply.reporthub.model.fhir.StringElement;
 import de.samply.reporthub.model.fhir.Task;
 import de.samply.reporthub.model.fhir.Task.Output;
-import de.samply.reporthub.service.fhir.store.DataStore;
+import de.samply.reporthub.service.artifact.ArtifactCache;
+import de.samply.reporthub.service.artifact.MeasureMetadata;
 import de.samply.reporthub.service.fhir.store.ResourceNotFoundException;
 import de.samply.reporthub.service.fhir.store.TaskStore;
-import de.samply.reporthub.util.Optionals;
 import de.samply.reporthub.web.model.Link;
 import java.net.URI;
-import java.util.List;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.thymeleaf.spring6.context.webflux.ReactiveDataDriverContextVariable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
  * This controller fetches one Task from the TaskStore and renders it including it's history.
+ * <p>
+ * The history is fetched together with the Task and the Measure link is resolved as soon as the
+ * Task is in. The history is passed to the template as data-driver, so the page header is rendered
+ * and flushed without waiting for the history, and history items are streamed to the browser in
+ * chunks as they arrive. Each of these calls has its own timeout under {@code app.taskPage}. The
+ * history table stops if fetching the history fails or doesn't finish in time and the page shows
+ * the plain Measure URL if the Measure isn't found or resolving it fails or times out.
+ * <p>
+ * The history only shows the changes of the Task status with their durations. It's fetched in
+ * pages of {@code app.taskPage.historyPageSize} versions, and the transitions of a Task are cached
+ * together with the newest version they were derived from, so only versions newer than that are
+ * read again.
  */
 @Component
 public class EvaluateMeasureTaskController {
@@ -54,12 +74,30 @@ public class EvaluateMeasureTaskController {
   public static final Predicate<CodeableConcept> ERROR_CONCEPT =
       CodeableConcept.containsCoding(TaskOutput.ERROR);
 
+  /**
+   * The number of history items rendered before the output is flushed.
+   */
+  private static final int HISTORY_BUFFER_SIZE = 10;
+
   private final TaskStore taskStore;
-  private final DataStore dataStore;
+  private final ArtifactCache artifactCache;
+  private final Duration taskTimeout;
+  private final Duration historyTimeout;
+  private final Duration measureTimeout;
+  private final int historyPageSize;
+  private final TaskHistoryCache historyCache = new TaskHistoryCache();
 
-  public EvaluateMeasureTaskController(TaskStore taskStore, DataStore dataStore) {
+  public EvaluateMeasureTaskController(TaskStore taskStore, ArtifactCache artifactCache,
+      @Value("${app.taskPage.taskTimeout:PT5S}") Duration taskTimeout,
+      @Value("${app.taskPage.historyTimeout:PT2S}") Duration historyTimeout,
+      @Value("${app.taskPage.measureTimeout:PT1S}") Duration measureTimeout,
+      @Value("${app.taskPage.historyPageSize:50}") int historyPageSize) {
     this.taskStore = Objects.requireNonNull(taskStore);
-    this.dataStore = Objects.requireNonNull(dataStore);
+    this.artifactCache = Objects.requireNonNull(artifactCache);
+    this.taskTimeout = Objects.requireNonNull(taskTimeout);
+    this.historyTimeout = Objects.requireNonNull(historyTimeout);
+    this.measureTimeout = Objects.requireNonNull(measureTimeout);
+    this.historyPageSize = historyPageSize;
   }
 
   /**
@@ -75,26 +113,130 @@ public class EvaluateMeasureTaskController {
   Mono<ServerResponse> handle(ServerRequest request) {
     String id = request.pathVariable("id");
     logger.debug("Request Task with id: {}", id);
-    return task(id)
-        .flatMap(task -> ok().render("dktk/evaluate-measure-task", Map.of("task", task)))
+    // the history is fetched right away and replayed to the template
+    var historyFetch = Disposables.swap();
+    var history = history(id).replay().autoConnect(0, historyFetch::update);
+    return fetchTask(id)
+        .flatMap(this::task)
+        .flatMap(task -> ok().render("dktk/evaluate-measure-task", Map.of("task", task,
+            "history", new ReactiveDataDriverContextVariable(history, HISTORY_BUFFER_SIZE))))
+        .doOnError(e -> historyFetch.dispose())
+        .doOnCancel(historyFetch::dispose)
         .onErrorResume(ResourceNotFoundException.class, EvaluateMeasureTaskController::notFound);
   }
 
-  Mono<EvaluateMeasureTask> task(String id) {
-    return taskStore.fetchTask(id)
-        .flatMap(task -> taskHistory(id)
-            .flatMap(history -> measureUrl(task)
-                .map(url -> new MeasureLinkBuilder().build(url)
-                    .map(measureLink ->
-                        new TaskBuilder().build(task, Optional.of(measureLink), history)))
-                .orElseGet(() ->
-                    Mono.just(new TaskBuilder().build(task, Optional.empty(), history)))));
+  private Mono<Task> fetchTask(String id) {
+    return taskStore.fetchTask(id).timeout(taskTimeout);
+  }
+
+  private Mono<EvaluateMeasureTask> task(Task task) {
+    return measureLink(task).map(measureLink -> new TaskBuilder().build(task, measureLink));
+  }
+
+  /**
+   * Returns the status transitions of the Task with {@code taskId}, newest first.
+   * <p>
+   * The history is only read until the version the cached transitions were derived from. The
+   * versions read are merged with the cached transitions, which are cached again under the newest
+   * version. Without cached transitions, the whole history is read.
+   * <p>
+   * The whole history has to be read within {@code app.taskPage.historyTimeout}. Transitions
+   * already emitted are kept if it isn't.
+   *
+   * @param taskId the id of the Task
+   * @return the status transitions, newest first
+   */
+  Flux<HistoryListItem> history(String taskId) {
+    return Flux.defer(() -> {
+      var deadline = Mono.delay(historyTimeout).cache();
+      var cached = historyCache.get(taskId);
+      var cachedVersionId = cached.map(Entry::versionId);
+      var newestVersionId = new AtomicReference<Optional<String>>();
+      var cachedVersionReached = new AtomicBoolean();
+      var newerVersions = taskStore.fetchTaskHistory(taskId, historyPageSize)
+          .timeout(deadline, version -> deadline)
+          .doOnNext(task -> newestVersionId.compareAndSet(null, versionId(task)))
+          .takeWhile(task -> {
+            boolean reached = cachedVersionId.isPresent()
+                && versionId(task).equals(cachedVersionId);
+            cachedVersionReached.set(reached);
+            return !reached;
+          })
+          .transform(EvaluateMeasureTaskController::versions);
+      // each cached transition stands in for the versions it was derived from
+      var cachedVersions = Flux.defer(() -> cachedVersionReached.get()
+          ? Flux.fromIterable(cached.orElseThrow().items()).map(Version::of)
+          : Flux.<Version>empty());
+      var items = new ArrayList<HistoryListItem>();
+      return collapse(newerVersions.concatWith(cachedVersions))
+          .doOnNext(items::add)
+          .doOnComplete(() -> Optional.ofNullable(newestVersionId.get()).flatMap(id -> id)
+              .ifPresent(versionId -> historyCache.put(taskId, versionId, items)));
+    }).onErrorResume(e -> {
+      logger.warn("Error while fetching the history of Task with id `{}`: {}", taskId,
+          e.getMessage());
+      return Flux.empty();
+    });
+  }
+
+  /**
+   * Reduces the {@code history} of a Task to the changes of its status.
+   * <p>
+   * Consecutive versions with the same status are collapsed into one transition dated at the
+   * oldest of them. As the history is ordered newest first, each transition is emitted as soon as
+   * the next older status shows up, so the history doesn't need to be held in memory.
+   *
+   * @param history the versions of a Task, newest first
+   * @return the status transitions, newest first
+   */
+  static Flux<HistoryListItem> transitions(Flux<Task> history) {
+    return collapse(versions(history));
   }
 
-  private Mono<List<Task>> taskHistory(String taskId) {
-    return taskStore.fetchTaskHistory(taskId)
-        .onErrorResume(e -> Flux.empty())
-        .collectList();
+  private static Flux<Version> versions(Flux<Task> history) {
+    return history
+        .filter(task -> task.lastModified().isPresent() && task.status().value().isPresent())
+        .map(Version::of);
+  }
+
+  private static Flux<HistoryListItem> collapse(Flux<Version> versions) {
+    return Flux.defer(() -> {
+      var newerSince = new AtomicReference<OffsetDateTime>();
+      return versions
+          .bufferUntilChanged(Version::status)
+          .map(sameStatus -> {
+            var since = sameStatus.get(sameStatus.size() - 1).lastModified();
+            var duration = Optional.ofNullable(newerSince.getAndSet(since))
+                .map(newer -> Duration.between(since, newer));
+            return new HistoryListItem(since, sameStatus.get(0).status(), duration,
+                sameStatus.stream().flatMap(version -> version.reportLink().stream()).findFirst());
+          });
+    });
+  }
+
+  private static Optional<String> versionId(Task task) {
+    return task.meta().flatMap(Meta::versionId);
+  }
+
+  /**
+   * The part of a version of a Task shown in its history.
+   */
+  private record Version(OffsetDateTime lastModified, String status, Optional<Link> reportLink) {
+
+    private static Version of(Task task) {
+      return new Version(task.lastModified().orElseThrow(), task.status().value().orElseThrow(),
+          task.findOutput(MEASURE_REPORT_CONCEPT).flatMap(TaskBuilder::reportLink));
+    }
+
+    private static Version of(HistoryListItem item) {
+      return new Version(item.since(), item.status(), item.reportLink());
+    }
+  }
+
+  private Mono<Optional<Link>> measureLink(Task task) {
+    return measureUrl(task)
+        .map(url -> new MeasureLinkBuilder().build(url).map(Optional::of))
+        .orElseGet(() -> Mono.just(Optional.empty()));
   }
 
   private Optional<String> measureUrl(Task task) {
@@ -106,14 +248,15 @@ public class EvaluateMeasureTaskController {
   private class MeasureLinkBuilder {
 
     private Mono<Link> build(String url) {
-      return dataStore.findByUrl(Measure.class, url)
+      return artifactCache.measureByUrl(url)
           .map(this::measureLink)
-          .onErrorResume(e -> Mono.just(Link.of(URI.create(url), url)));
+          .timeout(measureTimeout)
+          .onErrorResume(e -> Mono.empty())
+          .defaultIfEmpty(Link.of(URI.create(url), url));
     }
 
-    private Link measureLink(Measure measure) {
-      return Link.of(measure.id().map(this::measureUri).orElse(URI.create("#")),
-          measure.title().orElse(measure.name().orElse("Measure")));
+    private Link measureLink(MeasureMetadata measure) {
+      return Link.of(measureUri(measure.id()), measure.title().orElse("Measure"));
     }
 
     private URI measureUri(String id) {
@@ -123,32 +266,25 @@ public class EvaluateMeasureTaskController {
 
   private static class TaskBuilder {
 
-    private EvaluateMeasureTask build(Task task, Optional<Link> measureLink, List<Task> history) {
+    private EvaluateMeasureTask build(Task task, Optional<Link> measureLink) {
       return new EvaluateMeasureTask(
           task.id().orElse("unknown"),
           task.status().value().orElse("unknown"),
           measureLink,
-          task.findOutput(MEASURE_REPORT_CONCEPT).flatMap(this::reportLink),
+          task.findOutput(MEASURE_REPORT_CONCEPT).flatMap(TaskBuilder::reportLink),
           task.findOutput(ERROR_CONCEPT)
               .flatMap(o -> o.castValue(StringElement.class))
-              .flatMap(StringElement::value),
-          history.stream().flatMap(t -> convertHistoryLineItem(t).stream()).toList());
-    }
-
-    private Optional<HistoryListItem> convertHistoryLineItem(Task task) {
-      return Optionals.map(task.lastModified(), task.status().value(),
-          (lastModified, status) -> new HistoryListItem(lastModified, status,
-              task.findOutput(MEASURE_REPORT_CONCEPT).flatMap(this::reportLink)));
+              .flatMap(StringElement::value));
     }
 
-    Optional<Link> reportLink(Output output) {
+    private static Optional<Link> reportLink(Output output) {
       return output.castValue(Reference.class)
           .flatMap(Reference::reference)
           .flatMap(Util::referenceId)
-          .map(this::reportLink);
+          .map(TaskBuilder::reportLink);
     }
 
-    private Link reportLink(String id) {
+    private static Link reportLink(String id) {
       return Link.of(URI.create("/exliquid-report/%s".formatted(id)), "Report");
     }
   }
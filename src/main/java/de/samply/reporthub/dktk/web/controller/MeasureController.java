@@ -1,17 +1,13 @@
 package de.samply.reporthub.dktk.web.controller;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
 import static org.springframework.web.reactive.function.server.ServerResponse.ok;
 
 import de.samply.reporthub.dktk.web.model.WebMeasure;
-import de.samply.reporthub.model.fhir.Attachment;
-import de.samply.reporthub.model.fhir.Base64Binary;
-import de.samply.reporthub.model.fhir.Canonical;
-import de.samply.reporthub.model.fhir.Library;
-import de.samply.reporthub.model.fhir.Measure;
-import de.samply.reporthub.service.fhir.store.DataStore;
+import de.samply.reporthub.service.artifact.ArtifactCache;
+import de.samply.reporthub.service.artifact.LibraryMetadata;
+import de.samply.reporthub.service.artifact.MeasureMetadata;
 import de.samply.reporthub.service.fhir.store.ResourceNotFoundException;
 import de.samply.reporthub.util.Monos;
 import java.util.Map;
@@ -30,10 +26,10 @@ public class MeasureController {
 
   private static final Logger logger = LoggerFactory.getLogger(MeasureController.class);
 
-  private final DataStore dataStore;
+  private final ArtifactCache artifactCache;
 
-  public MeasureController(DataStore dataStore) {
-    this.dataStore = Objects.requireNonNull(dataStore);
+  public MeasureController(ArtifactCache artifactCache) {
+    this.artifactCache = Objects.requireNonNull(artifactCache);
   }
 
   /**
@@ -49,42 +45,38 @@ public class MeasureController {
   Mono<ServerResponse> handle(ServerRequest request) {
     String id = request.pathVariable("id");
     logger.debug("Request Measure with id: {}", id);
-    return dataStore.fetchResource(Measure.class, id)
+    return artifactCache.measure(id)
         .flatMap(this::webMeasure)
         .flatMap(measure -> ok().render("dktk/measure", Map.of("measure", measure)))
         .onErrorResume(ResourceNotFoundException.class, MeasureController::notFound);
   }
 
-  private Mono<WebMeasure> webMeasure(Measure measure) {
+  private Mono<WebMeasure> webMeasure(MeasureMetadata measure) {
     return Monos.map(url(measure), status(measure), library(measure),
-        (url, status, library) -> new WebMeasure(url, measure.title().or(measure::name)
-            .orElse("unknown"), status, library));
+        (url, status, library) -> new WebMeasure(url, measure.title().orElse("unknown"), status,
+            library));
   }
 
-  private static Mono<String> url(Measure measure) {
+  private static Mono<String> url(MeasureMetadata measure) {
     return Monos.justOrError(measure.url(), () -> new Exception("Missing Measure URL."));
   }
 
-  private static Mono<String> status(Measure measure) {
-    return Monos.justOrError(measure.status().value(),
-        () -> new Exception("Missing Measure status."));
+  private static Mono<String> status(MeasureMetadata measure) {
+    return Monos.justOrError(measure.status(), () -> new Exception("Missing Measure status."));
   }
 
-  private Mono<String> library(Measure measure) {
+  private Mono<String> library(MeasureMetadata measure) {
     return libraryUrl(measure)
-        .flatMap(url -> dataStore.findByUrl(Library.class, url))
+        .flatMap(artifactCache::libraryByUrl)
         .flatMap(MeasureController::data);
   }
 
-  private static Mono<String> libraryUrl(Measure measure) {
-    return Monos.justOrError(measure.library().stream().findFirst().flatMap(Canonical::value),
-        () -> new Exception("Missing Library URL."));
+  private static Mono<String> libraryUrl(MeasureMetadata measure) {
+    return Monos.justOrError(measure.library(), () -> new Exception("Missing Library URL."));
   }
 
-  private static Mono<String> data(Library library) {
-    return Monos.justOrError(library.content().stream().findFirst().flatMap(Attachment::data)
-            .flatMap(Base64Binary::decodedValue).map(bytes -> new String(bytes, UTF_8)),
-        () -> new Exception("Missing Library data."));
+  private static Mono<String> data(LibraryMetadata library) {
+    return Monos.justOrError(library.cql(), () -> new Exception("Missing Library data."));
   }
 
   private static Mono<ServerResponse> notFound(ResourceNotFoundException e) {
@@ -0,0 +1,69 @@
+package de.samply.reporthub.dktk.web.controller;
+
+import de.samply.reporthub.dktk.web.model.EvaluateMeasureTask.HistoryListItem;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A bounded cache of the status transitions of Tasks keyed by Task id.
+ * <p>
+ * Older versions of a Task never change, so the transitions are cached together with the version
+ * id of the newest version they were derived from. After the Task was updated, only the versions
+ * newer than that have to be read and merged into the cached transitions.
+ */
+final class TaskHistoryCache {
+
+  static final int MAX_ENTRIES = 100;
+
+  private final Map<String, Entry> entries;
+
+  TaskHistoryCache() {
+    this(MAX_ENTRIES);
+  }
+
+  TaskHistoryCache(int maxEntries) {
+    entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    });
+  }
+
+  /**
+   * Returns the transitions of the Task with {@code id} together with the version id they were
+   * derived up to.
+   *
+   * @param id the id of the Task
+   * @return an {@code Optional} of the entry or an empty {@code Optional} if there is none
+   */
+  Optional<Entry> get(String id) {
+    return Optional.ofNullable(entries.get(id));
+  }
+
+  void put(String id, String versionId, List<HistoryListItem> items) {
+    entries.put(id, new Entry(versionId, List.copyOf(items)));
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * The transitions of a Task derived from all versions up to {@code versionId}.
+   *
+   * @param versionId the version id of the newest version the transitions were derived from
+   * @param items     the transitions, newest first
+   */
+  record Entry(String versionId, List<HistoryListItem> items) {
+
+    Entry {
+      Objects.requireNonNull(versionId);
+      Objects.requireNonNull(items);
+    }
+  }
+}
@@ -1,8 +1,8 @@
 package de.samply.reporthub.dktk.web.model;
 
 import de.samply.reporthub.web.model.Link;
+import java.time.Duration;
 import java.time.OffsetDateTime;
-import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -11,8 +11,7 @@ public record EvaluateMeasureTask(
     String status,
     Optional<Link> measureLink,
     Optional<Link> reportLink,
-    Optional<String> error,
-    List<HistoryListItem> history) {
+    Optional<String> error) {
 
   public EvaluateMeasureTask {
     Objects.requireNonNull(id);
@@ -20,18 +19,47 @@ public record EvaluateMeasureTask(
     Objects.requireNonNull(measureLink);
     Objects.requireNonNull(reportLink);
     Objects.requireNonNull(error);
-    Objects.requireNonNull(history);
   }
 
+  /**
+   * A change of the status of a Task.
+   *
+   * @param since      the instant the Task changed into {@code status}
+   * @param status     the status
+   * @param duration   the time the Task stayed in {@code status} or an empty {@code Optional} if
+   *                   it's the current status
+   * @param reportLink the link to the report the Task had in {@code status}
+   */
   public record HistoryListItem(
-      OffsetDateTime lastModified,
+      OffsetDateTime since,
       String status,
+      Optional<Duration> duration,
       Optional<Link> reportLink) {
 
     public HistoryListItem {
+      Objects.requireNonNull(since);
       Objects.requireNonNull(status);
-      Objects.requireNonNull(lastModified);
+      Objects.requireNonNull(duration);
       Objects.requireNonNull(reportLink);
     }
+
+    /**
+     * Returns the duration in its two most significant units like {@code 2h 5m}.
+     *
+     * @return the duration as text or an empty {@code Optional} for the current status
+     */
+    public Optional<String> durationText() {
+      return duration.map(d -> {
+        if (d.toDays() > 0) {
+          return "%dd %dh".formatted(d.toDays(), d.toHoursPart());
+        } else if (d.toHours() > 0) {
+          return "%dh %dm".formatted(d.toHours(), d.toMinutesPart());
+        } else if (d.toMinutes() > 0) {
+          return "%dm %ds".formatted(d.toMinutes(), d.toSecondsPart());
+        } else {
+          return "%d.%03ds".formatted(d.toSeconds(), d.toMillisPart());
+        }
+      });
+    }
   }
 }
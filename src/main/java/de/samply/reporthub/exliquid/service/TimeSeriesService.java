@@ -0,0 +1,178 @@
+package de.samply.reporthub.exliquid.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import de.samply.reporthub.exliquid.web.converter.ReportConverter;
+import de.samply.reporthub.model.fhir.MeasureReport;
+import de.samply.reporthub.model.fhir.MeasureReportStatus;
+import de.samply.reporthub.model.fhir.Meta;
+import de.samply.reporthub.service.fhir.store.TaskStore;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.retry.Repeat;
+import reactor.util.retry.Retry;
+
+/**
+ * This service indexes the counts of all complete EXLIQUID MeasureReports into a
+ * {@link TimeSeriesStore}, so that trends can be queried without fetching and converting every
+ * single MeasureReport again.
+ * <p>
+ * The store lives in one file per Measure under {@code app.exliquidTimeSeries.directory}. After
+ * opening it, the service repeatedly searches for complete MeasureReports updated since the last
+ * one seen, like the Task pipelines do. So after a restart only MeasureReports not yet indexed are
+ * fetched. Each search follows all pages and indexes the MeasureReports in batches of
+ * {@code app.exliquidTimeSeries.batchSize}, so more MeasureReports updated at the same instant than
+ * fit into one page can't stall the index.
+ */
+@Service
+public class TimeSeriesService {
+
+  private static final Logger logger = LoggerFactory.getLogger(TimeSeriesService.class);
+
+  public static final String EXLIQUID_DASHBOARD_MEASURE =
+      "https://dktk.dkfz.de/fhir/Measure/exliquid-dashboard";
+
+  private final TaskStore taskStore;
+  private final String measure;
+  private final Path file;
+  private final Duration pollInterval;
+  private final int batchSize;
+
+  private final Mono<TimeSeriesStore> store;
+
+  /**
+   * The last updated instant of the newest MeasureReport seen. Guarded by {@code this}.
+   */
+  private Instant cursor;
+
+  private final Disposable.Swap subscription = Disposables.swap();
+
+  public TimeSeriesService(TaskStore taskStore,
+      @Value("${app.exliquidTimeSeries.directory:${java.io.tmpdir}/report-hub-time-series}")
+      Path directory,
+      @Value("${app.exliquidTimeSeries.measure:" + EXLIQUID_DASHBOARD_MEASURE + "}")
+      String measure,
+      @Value("${app.exliquidTimeSeries.pollInterval:PT1M}") Duration pollInterval,
+      @Value("${app.exliquidTimeSeries.batchSize:100}") int batchSize) {
+    this.taskStore = Objects.requireNonNull(taskStore);
+    this.measure = Objects.requireNonNull(measure);
+    this.file = directory.resolve(DigestUtils.md5DigestAsHex(measure.getBytes(UTF_8)) + ".ts");
+    this.pollInterval = Objects.requireNonNull(pollInterval);
+    this.batchSize = batchSize;
+    this.store = Mono.fromCallable(this::open)
+        .subscribeOn(Schedulers.boundedElastic())
+        .cache(s -> Duration.ofMillis(Long.MAX_VALUE), e -> Duration.ZERO, () -> Duration.ZERO);
+  }
+
+  public boolean isRunning() {
+    return !subscription.get().isDisposed();
+  }
+
+  @PostConstruct
+  public void restart() {
+    logger.info("(Re)Start indexing MeasureReports of Measure `{}` into `{}`.", measure, file);
+    subscription.update(pipeline().subscribe());
+  }
+
+  public void stop() {
+    logger.info("Stop indexing MeasureReports.");
+    subscription.update(Disposables.disposed());
+  }
+
+  /**
+   * Returns the canonical URL of the Measure whose MeasureReports are indexed.
+   *
+   * @return the canonical URL of the Measure
+   */
+  public String measure() {
+    return measure;
+  }
+
+  /**
+   * Returns the store, opening it on first use.
+   *
+   * @return a {@code Mono} of the store
+   */
+  public Mono<TimeSeriesStore> store() {
+    return store;
+  }
+
+  Flux<Integer> pipeline() {
+    return store.flatMapMany(store -> Flux.defer(() -> taskStore.listMeasureReportsUpdatedSince(
+                measure, MeasureReportStatus.COMPLETE, cursor(), batchSize)
+            .buffer(batchSize)
+            .publishOn(Schedulers.boundedElastic())
+            .map(measureReports -> index(store, measureReports))
+            .reduce(0, Integer::sum))
+        .repeatWhen(Repeat.times(Long.MAX_VALUE).fixedBackoff(pollInterval)))
+        .doOnError(e -> logger.warn("Error while indexing MeasureReports: {}", e.getMessage()))
+        .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, pollInterval));
+  }
+
+  private TimeSeriesStore open() throws IOException {
+    var store = TimeSeriesStore.open(file);
+    synchronized (this) {
+      cursor = store.lastUpdated();
+    }
+    return store;
+  }
+
+  /**
+   * Appends all {@code measureReports} which can be converted into a report to {@code store} and
+   * moves the cursor to the newest of them.
+   * <p>
+   * The cursor only moves past a MeasureReport after it was appended or skipped, so a failed write
+   * is repeated with the next poll.
+   *
+   * @param store          the store to append to
+   * @param measureReports the MeasureReports to index
+   * @return the number of newly appended reports
+   */
+  synchronized int index(TimeSeriesStore store, List<MeasureReport> measureReports) {
+    var appended = 0;
+    for (var measureReport : measureReports) {
+      var lastUpdated = measureReport.meta().flatMap(Meta::lastUpdated).orElse(Instant.EPOCH);
+      var id = measureReport.id();
+      var report = ReportConverter.convert(measureReport);
+      if (id.isPresent() && report.isPresent()) {
+        try {
+          if (store.append(id.get(), lastUpdated, report.get())) {
+            appended++;
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      } else {
+        logger.debug("Skip MeasureReport with id `{}` which can't be converted.",
+            id.orElse("<unknown>"));
+      }
+      if (lastUpdated.isAfter(cursor)) {
+        cursor = lastUpdated;
+      }
+    }
+    if (appended > 0) {
+      logger.debug("Indexed {} MeasureReport(s).", appended);
+    }
+    return appended;
+  }
+
+  private synchronized Instant cursor() {
+    return cursor;
+  }
+}
@@ -0,0 +1,466 @@
+package de.samply.reporthub.exliquid.service;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonFormat.Shape;
+import de.samply.reporthub.exliquid.web.model.Report;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only store of the counts of all EXLIQUID reports of one Measure.
+ * <p>
+ * Every report is appended to the file as one length-prefixed block holding its id, date, last
+ * update and the patient, plasma and PBMC counts of each series. A series is either a diagnosis or
+ * the {@link #TOTAL total} over all diagnoses. A torn block at the end of the file, left over from
+ * a crash, is cut off when the file is opened. Bytes left over from a failed append are cut off
+ * before the next block is appended, so that blocks always start at the offsets held in memory.
+ * <p>
+ * A newer version of an already appended report is appended as another block which replaces the
+ * counts of the older version. The older block stays in the file and is skipped when the file is
+ * loaded again.
+ * <p>
+ * In memory the counts are held in primitive columns per series, sorted by date. So range and
+ * aggregate queries are a binary search followed by a scan over arrays and don't depend on the
+ * number of other series or reports.
+ */
+public class TimeSeriesStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(TimeSeriesStore.class);
+
+  /**
+   * The name of the series of counts over all diagnoses.
+   */
+  public static final String TOTAL = "total";
+
+  private final Path file;
+
+  /**
+   * The version of each report appended, by report id.
+   */
+  private final Map<String, Version> reports = new HashMap<>();
+  private final Map<String, Columns> series = new TreeMap<>();
+  private Instant lastUpdated = Instant.EPOCH;
+
+  /**
+   * The length of all complete blocks in the file.
+   */
+  private long length;
+
+  private TimeSeriesStore(Path file) {
+    this.file = Objects.requireNonNull(file);
+  }
+
+  /**
+   * Opens the store backed by {@code file}, creating the file if it doesn't exist.
+   *
+   * @param file the file of the store
+   * @return the opened store
+   * @throws IOException if the file can't be read or created
+   */
+  public static TimeSeriesStore open(Path file) throws IOException {
+    var store = new TimeSeriesStore(file);
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    if (Files.exists(file)) {
+      store.load();
+    }
+    return store;
+  }
+
+  private void load() throws IOException {
+    long validLength = 0;
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      while (true) {
+        int length;
+        try {
+          length = in.readInt();
+        } catch (EOFException e) {
+          break;
+        }
+        var block = new byte[length];
+        try {
+          in.readFully(block);
+        } catch (EOFException e) {
+          break;
+        }
+        add(block, validLength);
+        validLength += Integer.BYTES + length;
+      }
+    }
+    this.length = validLength;
+    if (validLength < Files.size(file)) {
+      logger.warn("Cut off incomplete block at the end of the time-series file `{}`.", file);
+      try (var channel = FileChannel.open(file, WRITE)) {
+        channel.truncate(validLength);
+      }
+    }
+    logger.info("Loaded {} report(s) from the time-series file `{}`.", reports.size(), file);
+  }
+
+  /**
+   * Appends the counts of {@code report} unless the same or a newer version of the report with
+   * {@code reportId} was already appended.
+   * <p>
+   * If an older version was appended, its counts are replaced by the counts of {@code report}.
+   *
+   * @param reportId    the id of the MeasureReport the report was converted from
+   * @param lastUpdated the last update of the MeasureReport
+   * @param report      the report to append
+   * @return {@code true} if the report was appended
+   * @throws IOException if the report can't be written to the file
+   */
+  public synchronized boolean append(String reportId, Instant lastUpdated, Report report)
+      throws IOException {
+    var existing = reports.get(reportId);
+    if (existing != null && existing.lastUpdated >= lastUpdated.toEpochMilli()) {
+      return false;
+    }
+    var block = block(reportId, lastUpdated, report);
+    try (var channel = FileChannel.open(file, CREATE, WRITE)) {
+      var offset = channel.truncate(length).position(length).position();
+      var buffer = ByteBuffer.allocate(Integer.BYTES + block.length).putInt(block.length)
+          .put(block).flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      add(block, offset);
+      length = channel.position();
+    }
+    return true;
+  }
+
+  private static byte[] block(String reportId, Instant lastUpdated, Report report)
+      throws IOException {
+    var bytes = new ByteArrayOutputStream();
+    var out = new DataOutputStream(bytes);
+    out.writeUTF(reportId);
+    out.writeLong(report.date().toInstant().toEpochMilli());
+    out.writeLong(lastUpdated.toEpochMilli());
+    out.writeInt(report.strata().size() + 1);
+    out.writeUTF(TOTAL);
+    out.writeInt(report.totalNumberOfPatients());
+    out.writeInt(report.strata().stream().mapToInt(Report.Stratum::plasmaCount).sum());
+    out.writeInt(report.strata().stream().mapToInt(Report.Stratum::pbmcCount).sum());
+    for (var stratum : report.strata()) {
+      out.writeUTF(stratum.diagnosis());
+      out.writeInt(stratum.patientCount());
+      out.writeInt(stratum.plasmaCount());
+      out.writeInt(stratum.pbmcCount());
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Adds the counts of {@code block} which starts at {@code offset} in the file, removing the
+   * counts of an older version of the same report.
+   */
+  private void add(byte[] block, long offset) throws IOException {
+    var in = new DataInputStream(new ByteArrayInputStream(block));
+    var reportId = in.readUTF();
+    var date = in.readLong();
+    var blockLastUpdated = in.readLong();
+    var existing = reports.get(reportId);
+    if (existing != null) {
+      if (existing.lastUpdated >= blockLastUpdated) {
+        return;
+      }
+      remove(readBlock(existing.offset));
+    }
+    reports.put(reportId, new Version(blockLastUpdated, offset));
+    if (Instant.ofEpochMilli(blockLastUpdated).isAfter(lastUpdated)) {
+      lastUpdated = Instant.ofEpochMilli(blockLastUpdated);
+    }
+    var seriesCount = in.readInt();
+    for (int i = 0; i < seriesCount; i++) {
+      series.computeIfAbsent(in.readUTF(), name -> new Columns())
+          .insert(date, in.readInt(), in.readInt(), in.readInt());
+    }
+  }
+
+  private void remove(byte[] block) throws IOException {
+    var in = new DataInputStream(new ByteArrayInputStream(block));
+    in.readUTF();
+    var date = in.readLong();
+    in.readLong();
+    var seriesCount = in.readInt();
+    for (int i = 0; i < seriesCount; i++) {
+      var name = in.readUTF();
+      var columns = series.get(name);
+      if (columns != null && columns.remove(date, in.readInt(), in.readInt(), in.readInt())
+          && columns.size == 0) {
+        series.remove(name);
+      }
+    }
+  }
+
+  private byte[] readBlock(long offset) throws IOException {
+    try (var channel = FileChannel.open(file)) {
+      var lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+      readFully(channel, lengthBuffer, offset);
+      var block = ByteBuffer.allocate(lengthBuffer.flip().getInt());
+      readFully(channel, block, offset + Integer.BYTES);
+      return block.array();
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+  }
+
+  /**
+   * Returns the last update of the newest MeasureReport appended.
+   *
+   * @return the last update of the newest MeasureReport or {@link Instant#EPOCH} if the store is
+   * empty
+   */
+  public synchronized Instant lastUpdated() {
+    return lastUpdated;
+  }
+
+  /**
+   * Returns the number of reports appended.
+   *
+   * @return the number of reports
+   */
+  public synchronized int size() {
+    return reports.size();
+  }
+
+  /**
+   * Returns the names of all series sorted alphabetically.
+   *
+   * @return the names of all series
+   */
+  public synchronized List<String> series() {
+    return List.copyOf(series.keySet());
+  }
+
+  /**
+   * Returns all points of {@code series} dated at or after {@code from} and before {@code to}.
+   *
+   * @param series the name of the series
+   * @param from   the inclusive start of the range
+   * @param to     the exclusive end of the range
+   * @return the points of the range sorted by date
+   */
+  public synchronized List<Point> range(String series, Instant from, Instant to) {
+    var columns = this.series.get(series);
+    if (columns == null) {
+      return List.of();
+    }
+    var start = columns.lowerBound(from.toEpochMilli());
+    var end = columns.lowerBound(to.toEpochMilli());
+    var points = new ArrayList<Point>(Math.max(end - start, 0));
+    for (int i = start; i < end; i++) {
+      points.add(columns.point(i));
+    }
+    return points;
+  }
+
+  /**
+   * Returns one point per {@code interval} of {@code series} in the range from {@code from} to
+   * {@code to}, aggregating all points dated in that interval with {@code aggregation}.
+   * <p>
+   * The date of each aggregated point is the start of its interval. Intervals without points are
+   * omitted.
+   *
+   * @param series      the name of the series
+   * @param from        the inclusive start of the range
+   * @param to          the exclusive end of the range
+   * @param interval    the interval of the aggregated points
+   * @param aggregation the aggregation of the points in one interval
+   * @return the aggregated points sorted by date
+   */
+  public synchronized List<Point> aggregate(String series, Instant from, Instant to,
+      Interval interval, Aggregation aggregation) {
+    var columns = this.series.get(series);
+    if (columns == null) {
+      return List.of();
+    }
+    var end = columns.lowerBound(to.toEpochMilli());
+    var points = new ArrayList<Point>();
+    var i = columns.lowerBound(from.toEpochMilli());
+    while (i < end) {
+      var start = interval.start(Instant.ofEpochMilli(columns.dates[i]));
+      var next = interval.next(start).toEpochMilli();
+      var bucketEnd = Math.min(columns.lowerBound(next), end);
+      points.add(new Point(start,
+          aggregation.apply(columns.patientCounts, i, bucketEnd),
+          aggregation.apply(columns.plasmaCounts, i, bucketEnd),
+          aggregation.apply(columns.pbmcCounts, i, bucketEnd)));
+      i = bucketEnd;
+    }
+    return points;
+  }
+
+  /**
+   * The counts of one series at one date.
+   */
+  public record Point(@JsonFormat(shape = Shape.STRING) Instant date, int patientCount,
+                      int plasmaCount, int pbmcCount) {
+
+    public Point {
+      Objects.requireNonNull(date);
+    }
+  }
+
+  /**
+   * Calendar intervals in UTC. Weeks start on Monday.
+   */
+  public enum Interval {
+    DAY, WEEK, MONTH, YEAR;
+
+    Instant start(Instant instant) {
+      var date = instant.atOffset(ZoneOffset.UTC).toLocalDate();
+      return (switch (this) {
+        case DAY -> date;
+        case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        case MONTH -> date.withDayOfMonth(1);
+        case YEAR -> date.withDayOfYear(1);
+      }).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    Instant next(Instant start) {
+      var date = start.atOffset(ZoneOffset.UTC).toLocalDate();
+      return (switch (this) {
+        case DAY -> date.plusDays(1);
+        case WEEK -> date.plusWeeks(1);
+        case MONTH -> date.plusMonths(1);
+        case YEAR -> date.plusYears(1);
+      }).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+  }
+
+  /**
+   * Aggregations of the counts of all points in one interval. The mean is rounded to the nearest
+   * count.
+   */
+  public enum Aggregation {
+    LAST, MIN, MAX, MEAN;
+
+    private int apply(int[] column, int start, int end) {
+      var values = Arrays.stream(column, start, end);
+      return switch (this) {
+        case LAST -> column[end - 1];
+        case MIN -> values.min().orElseThrow();
+        case MAX -> values.max().orElseThrow();
+        case MEAN -> (int) Math.round(values.average().orElseThrow());
+      };
+    }
+  }
+
+  /**
+   * The version of a report.
+   *
+   * @param lastUpdated the last update of the MeasureReport in epoch millis
+   * @param offset      the offset of the block of the report in the file
+   */
+  private record Version(long lastUpdated, long offset) {
+
+  }
+
+  private static final class Columns {
+
+    private long[] dates = new long[8];
+    private int[] patientCounts = new int[8];
+    private int[] plasmaCounts = new int[8];
+    private int[] pbmcCounts = new int[8];
+    private int size;
+
+    /**
+     * Inserts a point after all points with the same or an earlier date, so that points of
+     * reports appended in date order are simply added at the end.
+     */
+    private void insert(long date, int patientCount, int plasmaCount, int pbmcCount) {
+      if (size == dates.length) {
+        dates = Arrays.copyOf(dates, size * 2);
+        patientCounts = Arrays.copyOf(patientCounts, size * 2);
+        plasmaCounts = Arrays.copyOf(plasmaCounts, size * 2);
+        pbmcCounts = Arrays.copyOf(pbmcCounts, size * 2);
+      }
+      var index = lowerBound(date + 1);
+      System.arraycopy(dates, index, dates, index + 1, size - index);
+      System.arraycopy(patientCounts, index, patientCounts, index + 1, size - index);
+      System.arraycopy(plasmaCounts, index, plasmaCounts, index + 1, size - index);
+      System.arraycopy(pbmcCounts, index, pbmcCounts, index + 1, size - index);
+      dates[index] = date;
+      patientCounts[index] = patientCount;
+      plasmaCounts[index] = plasmaCount;
+      pbmcCounts[index] = pbmcCount;
+      size++;
+    }
+
+    /**
+     * Removes one point with {@code date} and the given counts.
+     *
+     * @return {@code true} if such a point was found
+     */
+    private boolean remove(long date, int patientCount, int plasmaCount, int pbmcCount) {
+      for (int index = lowerBound(date); index < size && dates[index] == date; index++) {
+        if (patientCounts[index] == patientCount && plasmaCounts[index] == plasmaCount
+            && pbmcCounts[index] == pbmcCount) {
+          var tail = size - index - 1;
+          System.arraycopy(dates, index + 1, dates, index, tail);
+          System.arraycopy(patientCounts, index + 1, patientCounts, index, tail);
+          System.arraycopy(plasmaCounts, index + 1, plasmaCounts, index, tail);
+          System.arraycopy(pbmcCounts, index + 1, pbmcCounts, index, tail);
+          size--;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Returns the index of the first point dated at or after {@code date} or {@code size} if there
+     * is no such point.
+     */
+    private int lowerBound(long date) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        var mid = (low + high) >>> 1;
+        if (dates[mid] < date) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    private Point point(int index) {
+      return new Point(Instant.ofEpochMilli(dates[index]), patientCounts[index],
+          plasmaCounts[index], pbmcCounts[index]);
+    }
+  }
+}
@@ -1,66 +1,77 @@
 package de.samply.reporthub.exliquid.web.controller;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+import static org.springframework.web.reactive.function.server.ServerResponse.status;
 import static org.springframework.web.reactive.function.server.ServerResponse.ok;
 
+import de.samply.reporthub.exliquid.web.controller.ReportPageCache.Key;
+import de.samply.reporthub.exliquid.web.controller.ReportPageCache.Page;
+import de.samply.reporthub.exliquid.web.converter.ReportConverter;
 import de.samply.reporthub.exliquid.web.model.Report;
-import de.samply.reporthub.exliquid.web.model.Report.Stratum;
-import de.samply.reporthub.model.fhir.CodeableConcept;
 import de.samply.reporthub.model.fhir.MeasureReport;
-import de.samply.reporthub.model.fhir.MeasureReport.Group;
-import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier;
-import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum.Component;
+import de.samply.reporthub.model.fhir.MeasureReportStatus;
+import de.samply.reporthub.model.fhir.Meta;
 import de.samply.reporthub.service.fhir.store.ResourceNotFoundException;
 import de.samply.reporthub.service.fhir.store.TaskStore;
-import de.samply.reporthub.util.IntPair;
-import de.samply.reporthub.util.Optionals;
-import java.time.OffsetDateTime;
+import de.samply.reporthub.web.TemplateRenderer;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.thymeleaf.spring6.context.webflux.ReactiveDataDriverContextVariable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+/**
+ * This controller renders EXLIQUID reports from MeasureReports of the TaskStore.
+ * <p>
+ * Rendered pages are cached together with the converted {@link Report}, keyed by MeasureReport id,
+ * versionId and the locale and context path they were rendered with. A page is only served from
+ * the cache after a conditional read of the MeasureReport shows that it still exists in the same
+ * version. The TaskStore answers such a read with {@code 304 Not Modified}, so the MeasureReport is
+ * neither transferred nor parsed again.
+ * <p>
+ * Pages carry an ETag, so that browsers can revalidate them with {@code If-None-Match}. Pages of
+ * complete MeasureReports can also be cached by browsers and reverse proxies for
+ * {@code app.exliquidReport.maxAge}. As pages depend on the locale, they vary by
+ * {@code Accept-Language}.
+ * <p>
+ * Pages of MeasureReports without versionId can't be cached. They are streamed instead, passing the
+ * strata to the template as data-driver.
+ */
 @org.springframework.stereotype.Component("exliquidReportController")
 public class ReportController {
 
   private static final Logger logger = LoggerFactory.getLogger(ReportController.class);
 
-  public static final String MEASURE_POPULATION =
-      "http://terminology.hl7.org/CodeSystem/measure-population";
-  public static final String EXLIQUID_MEASURE_GROUP =
-      "https://dktk.dkfz.de/fhir/CodeSystem/exliquid-measure-group";
-  public static final String EXLIQUID_STRATIFIER =
-      "https://dktk.dkfz.de/fhir/CodeSystem/exliquid-stratifier";
-
-  public static final Predicate<CodeableConcept> PATIENT_GROUP_PREDICATE =
-      CodeableConcept.containsCoding(EXLIQUID_MEASURE_GROUP, "patient");
-  public static final Predicate<CodeableConcept> SPECIMEN_GROUP_PREDICATE =
-      CodeableConcept.containsCoding(EXLIQUID_MEASURE_GROUP, "specimen");
-  public static final Predicate<CodeableConcept> INITIAL_POPULATION_PREDICATE =
-      CodeableConcept.containsCoding(MEASURE_POPULATION, "initial-population");
-  public static final Predicate<CodeableConcept> DIAGNOSIS_STRATIFIER_PREDICATE =
-      CodeableConcept.containsCoding(EXLIQUID_STRATIFIER, "diagnosis");
-  public static final Predicate<CodeableConcept> SAMPLE_DIAGNOSIS_STRATIFIER_PREDICATE =
-      CodeableConcept.containsCoding(EXLIQUID_STRATIFIER, "sample-diagnosis");
-  public static final Predicate<CodeableConcept> SAMPLE_TYPE_STRATIFIER_PREDICATE =
-      CodeableConcept.containsCoding(EXLIQUID_STRATIFIER, "sample-type");
-  public static final String BLOOD_PLASMA = "blood-plasma";
-  public static final String PERIPHERAL_BLOOD_CELLS_VITAL = "peripheral-blood-cells-vital";
+  /**
+   * The number of strata rendered before the output is flushed.
+   */
+  private static final int STRATA_BUFFER_SIZE = 50;
 
   private final TaskStore taskStore;
+  private final TemplateRenderer templateRenderer;
+  private final CacheControl completeCacheControl;
+  private final ReportPageCache pageCache = new ReportPageCache();
 
-  public ReportController(TaskStore taskStore) {
+  public ReportController(TaskStore taskStore, TemplateRenderer templateRenderer,
+      @Value("${app.exliquidReport.maxAge:P1D}") Duration maxAge) {
     this.taskStore = Objects.requireNonNull(taskStore);
+    this.templateRenderer = Objects.requireNonNull(templateRenderer);
+    this.completeCacheControl = CacheControl.maxAge(maxAge).cachePublic();
   }
 
   @Bean
@@ -71,125 +82,61 @@ public class ReportController {
   Mono<ServerResponse> handler(ServerRequest request) {
     String id = request.pathVariable("id");
     logger.debug("Request EXLIQUID report with id: {}", id);
-    return report(id)
-        .flatMap(report -> ok().render("exliquid/report", Map.of("report", report)))
-        .onErrorResume(ResourceNotFoundException.class, ReportController::notFound);
-  }
-
-  private static Mono<ServerResponse> notFound(ResourceNotFoundException e) {
-    var error = "The EXLIQUID report with id `%s` was not found.".formatted(e.id());
-    logger.warn(error);
-    return ok().render("404", Map.of("error", error));
-  }
-
-  Mono<Report> report(String id) {
     return taskStore.fetchMeasureReport(id)
-        .map(ReportController::convert)
-        .flatMap(Mono::justOrEmpty);
-  }
-
-  /**
-   * Converts a FHIR {@link MeasureReport} {@code report} into {@link Report} used for EXLIQUID.
-   *
-   * @param report the FHIR {@code MeasureReport} to convert
-   * @return an {@code Optional} of the converted {@link Report} or an empty {@code Optional} if the
-   * conversion was not possible
-   */
-  static Optional<Report> convert(MeasureReport report) {
-    return Optionals.flatMap(report.date(),
-        report.findGroup(PATIENT_GROUP_PREDICATE),
-        report.findGroup(SPECIMEN_GROUP_PREDICATE),
-        ReportController::convertFrom);
-  }
-
-  private static Optional<Report> convertFrom(OffsetDateTime date, Group patientGroup,
-      Group specimenGroup) {
-    return Optionals.flatMap(patientGroup.findPopulation(INITIAL_POPULATION_PREDICATE),
-        specimenGroup.findPopulation(INITIAL_POPULATION_PREDICATE),
-        patientGroup.findStratifier(DIAGNOSIS_STRATIFIER_PREDICATE),
-        specimenGroup.findStratifier(SAMPLE_DIAGNOSIS_STRATIFIER_PREDICATE),
-        (patientPopulation, specimenPopulation, diagnosisStratifier, sampleDiagnosisStratifier) ->
-            Optionals.map(patientPopulation.count(),
-                specimenPopulation.count(),
-                (totalNumberOfPatients, totalNumberOfSpecimen) ->
-                    new Report(date,
-                        totalNumberOfPatients,
-                        totalNumberOfSpecimen,
-                        strata(diagnosisStratifier, sampleDiagnosisStratifier))));
-  }
-
-  /**
-   * Joins both stratifier by diagnosis and returns a list of combined {@link Stratum}.
-   *
-   * @param patientDiagnosisStratifier the stratifier from diagnosis to patient count
-   * @param sampleDiagnosisStratifier  the stratifier from diagnosis-sample-type pairs to sample
-   *                                   type
-   * @return a list of combined {@link Stratum}
-   */
-  private static List<Stratum> strata(Stratifier patientDiagnosisStratifier,
-      Stratifier sampleDiagnosisStratifier) {
-    var diagnosisToPlasmaPbmcCounts = diagnosisToPlasmaPbmcCounts(sampleDiagnosisStratifier);
-    return patientDiagnosisStratifier.stratum().stream()
-        .flatMap(stratum -> stratum(diagnosisToPlasmaPbmcCounts, stratum).stream())
-        .toList();
+        .flatMap(measureReport -> handle(request, id, measureReport))
+        .onErrorResume(ResourceNotFoundException.class, ReportController::notFound);
   }
 
-  /**
-   * Takes a patient-diagnosis stratum and a map from diagnosis to a {@link IntPair pair} of plasma
-   * and PBMC counts and returns a stratum with patient, plasma and PBMC counts.
-   *
-   * @param diagnosisToPlasmaPbmcCounts a map from diagnosis to a {@link IntPair pair} of plasma and
-   *                                    PBMC counts
-   * @param stratum                     the stratum to process
-   * @return a stratum with patient, plasma and PBMC counts
-   */
-  private static Optional<Stratum> stratum(
-      Map<String, IntPair> diagnosisToPlasmaPbmcCounts,
-      Stratifier.Stratum stratum) {
-    return Optionals.flatMap(stratum.value().flatMap(CodeableConcept::text),
-        stratum.findPopulation(INITIAL_POPULATION_PREDICATE)
-            .flatMap(Stratifier.Stratum.Population::count),
-        (diagnosis, patientCount) -> Optional.ofNullable(diagnosisToPlasmaPbmcCounts.get(diagnosis))
-            .map(sampleCounts -> Stratum.of(diagnosis, patientCount, sampleCounts)));
+  private Mono<ServerResponse> handle(ServerRequest request, String id,
+      MeasureReport measureReport) {
+    var versionId = measureReport.meta().flatMap(Meta::versionId);
+    if (versionId.isEmpty()) {
+      return Mono.justOrEmpty(ReportConverter.convert(measureReport))
+          .flatMap(report -> ok().render("exliquid/report", Map.of("report", report, "strata",
+              new ReactiveDataDriverContextVariable(Flux.fromIterable(report.strata()),
+                  STRATA_BUFFER_SIZE))));
+    }
+    var key = new Key(id, TemplateRenderer.locale(request.exchange()),
+        request.exchange().getRequest().getPath().contextPath().value());
+    var cachedPage = pageCache.get(key, versionId.get());
+    if (cachedPage.isPresent()) {
+      return page(request, cachedPage.get());
+    }
+    return Mono.justOrEmpty(ReportConverter.convert(measureReport))
+        .map(report -> Page.of(versionId.get(),
+            MeasureReportStatus.COMPLETE.code().equals(measureReport.status()), report,
+            templateRenderer.render(request.exchange(), "exliquid/report",
+                Map.of("report", report, "strata", report.strata()))))
+        .doOnNext(page -> pageCache.put(key, page))
+        .flatMap(page -> page(request, page));
   }
 
-  /**
-   * Takes the sample-diagnosis stratifier which stratifies samples by pairs of diagnosis and sample
-   * type and returns a map from diagnosis to a {@link IntPair pair} of plasma and PBMC counts.
-   *
-   * @param sampleDiagnosisStratifier the stratifier to process
-   * @return a map from diagnosis to a pair of plasma and PBMC counts
-   */
-  static Map<String, IntPair> diagnosisToPlasmaPbmcCounts(
-      Stratifier sampleDiagnosisStratifier) {
-    return sampleDiagnosisStratifier.stratum().stream()
-        .flatMap(stratum -> sampleStratum(stratum).stream())
-        .collect(Collectors.toMap(SampleStratum::diagnosis,
-            s -> switch (s.type) {
-              case BLOOD_PLASMA -> IntPair.of(s.count, 0);
-              case PERIPHERAL_BLOOD_CELLS_VITAL -> IntPair.of(0, s.count);
-              default -> IntPair.ZERO;
-            },
-            IntPair::plus));
+  private Mono<ServerResponse> page(ServerRequest request, Page page) {
+    var cacheControl = page.complete() ? completeCacheControl : CacheControl.noCache();
+    if (matches(request.headers().asHttpHeaders().getIfNoneMatch(), page.etag())) {
+      return status(HttpStatus.NOT_MODIFIED).eTag(page.etag()).cacheControl(cacheControl)
+          .varyBy(HttpHeaders.ACCEPT_LANGUAGE).build();
+    }
+    return ok()
+        .contentType(new MediaType(MediaType.TEXT_HTML, UTF_8))
+        .eTag(page.etag())
+        .cacheControl(cacheControl)
+        .varyBy(HttpHeaders.ACCEPT_LANGUAGE)
+        .bodyValue(page.html());
   }
 
-  private static Optional<SampleStratum> sampleStratum(Stratifier.Stratum stratum) {
-    return Optionals.flatMap(stratum.findComponent(SAMPLE_DIAGNOSIS_STRATIFIER_PREDICATE)
-            .map(Component::value)
-            .flatMap(CodeableConcept::text),
-        stratum.findComponent(SAMPLE_TYPE_STRATIFIER_PREDICATE)
-            .map(Component::value)
-            .flatMap(CodeableConcept::text),
-        (diagnosis, type) -> stratum.findPopulation(INITIAL_POPULATION_PREDICATE)
-            .flatMap(Stratifier.Stratum.Population::count)
-            .map(count -> new SampleStratum(diagnosis, type, count)));
+  private static boolean matches(List<String> ifNoneMatch, String etag) {
+    for (var tag : ifNoneMatch) {
+      if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+        return true;
+      }
+    }
+    return false;
   }
 
-  private record SampleStratum(String diagnosis, String type, int count) {
-
-    private SampleStratum {
-      Objects.requireNonNull(diagnosis);
-      Objects.requireNonNull(type);
-    }
+  private static Mono<ServerResponse> notFound(ResourceNotFoundException e) {
+    var error = "The EXLIQUID report with id `%s` was not found.".formatted(e.id());
+    logger.warn(error);
+    return ok().render("404", Map.of("error", error));
   }
 }
@@ -0,0 +1,100 @@
+package de.samply.reporthub.exliquid.web.controller;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import de.samply.reporthub.exliquid.web.model.Report;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import org.springframework.util.DigestUtils;
+
+/**
+ * A bounded cache of rendered EXLIQUID report pages keyed by MeasureReport id, locale and context
+ * path.
+ * <p>
+ * Each page belongs to one version of its MeasureReport. The ETag of a page is a hash of its HTML,
+ * so it also changes if the template changes between deployments.
+ */
+final class ReportPageCache {
+
+  static final int MAX_ENTRIES = 100;
+
+  private final Map<Key, Page> pages;
+
+  ReportPageCache() {
+    this(MAX_ENTRIES);
+  }
+
+  ReportPageCache(int maxEntries) {
+    pages = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Page> eldest) {
+        return size() > maxEntries;
+      }
+    });
+  }
+
+  /**
+   * Returns the page with {@code key} of the MeasureReport in version {@code versionId}.
+   *
+   * @param key       the key of the page
+   * @param versionId the version id of the MeasureReport
+   * @return an {@code Optional} of the page or an empty {@code Optional} if the page isn't cached
+   * or belongs to another version
+   */
+  Optional<Page> get(Key key, String versionId) {
+    return Optional.ofNullable(pages.get(key)).filter(page -> page.versionId.equals(versionId));
+  }
+
+  void put(Key key, Page page) {
+    pages.put(key, page);
+  }
+
+  int size() {
+    return pages.size();
+  }
+
+  /**
+   * The key of a page. Pages are rendered with the locale and context path of the request, so they
+   * can only be served to requests with the same ones.
+   *
+   * @param id          the id of the MeasureReport
+   * @param locale      the locale the page was rendered with
+   * @param contextPath the context path the links of the page are relative to
+   */
+  record Key(String id, Locale locale, String contextPath) {
+
+    Key {
+      Objects.requireNonNull(id);
+      Objects.requireNonNull(locale);
+      Objects.requireNonNull(contextPath);
+    }
+  }
+
+  /**
+   * A rendered report page.
+   *
+   * @param versionId the version id of the MeasureReport the page was rendered from
+   * @param complete  whether the MeasureReport is complete and so will not change anymore
+   * @param report    the report converted from the MeasureReport
+   * @param html      the rendered HTML
+   * @param etag      the ETag of the page, including the quotes
+   */
+  record Page(String versionId, boolean complete, Report report, String html, String etag) {
+
+    Page {
+      Objects.requireNonNull(versionId);
+      Objects.requireNonNull(report);
+      Objects.requireNonNull(html);
+      Objects.requireNonNull(etag);
+    }
+
+    static Page of(String versionId, boolean complete, Report report, String html) {
+      return new Page(versionId, complete, report, html,
+          "\"" + DigestUtils.md5DigestAsHex(html.getBytes(UTF_8)) + "\"");
+    }
+  }
+}
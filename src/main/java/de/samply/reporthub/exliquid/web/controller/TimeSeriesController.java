@@ -0,0 +1,123 @@
+package de.samply.reporthub.exliquid.web.controller;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+import static org.springframework.web.reactive.function.server.ServerResponse.badRequest;
+import static org.springframework.web.reactive.function.server.ServerResponse.ok;
+
+import de.samply.reporthub.exliquid.service.TimeSeriesService;
+import de.samply.reporthub.exliquid.service.TimeSeriesStore;
+import de.samply.reporthub.exliquid.service.TimeSeriesStore.Aggregation;
+import de.samply.reporthub.exliquid.service.TimeSeriesStore.Interval;
+import de.samply.reporthub.exliquid.service.TimeSeriesStore.Point;
+import de.samply.reporthub.exliquid.web.model.TimeSeries;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves the counts of all indexed EXLIQUID reports over time as JSON.
+ * <p>
+ * The query parameters are:
+ * <ul>
+ *   <li>{@code series} - a diagnosis or {@code total}; all series if absent</li>
+ *   <li>{@code from} and {@code to} - an inclusive start and exclusive end date or instant</li>
+ *   <li>{@code interval} - one of {@code day}, {@code week}, {@code month} or {@code year} to
+ *   aggregate the points of each interval; the raw points if absent</li>
+ *   <li>{@code aggregation} - one of {@code last}, {@code min}, {@code max} or {@code mean};
+ *   {@code last} if absent</li>
+ * </ul>
+ */
+@Component
+public class TimeSeriesController {
+
+  private static final Logger logger = LoggerFactory.getLogger(TimeSeriesController.class);
+
+  private static final Instant MIN_INSTANT = Instant.ofEpochMilli(Long.MIN_VALUE);
+  private static final Instant MAX_INSTANT = Instant.ofEpochMilli(Long.MAX_VALUE);
+
+  private final TimeSeriesService timeSeriesService;
+
+  public TimeSeriesController(TimeSeriesService timeSeriesService) {
+    this.timeSeriesService = Objects.requireNonNull(timeSeriesService);
+  }
+
+  @Bean
+  public RouterFunction<ServerResponse> exliquidTimeSeriesRouter() {
+    return route(GET("exliquid-time-series"), this::handle);
+  }
+
+  Mono<ServerResponse> handle(ServerRequest request) {
+    Query query;
+    try {
+      query = Query.of(request);
+    } catch (IllegalArgumentException e) {
+      return badRequest().contentType(MediaType.TEXT_PLAIN).bodyValue(e.getMessage());
+    }
+    logger.debug("Request EXLIQUID time series: {}", query);
+    return timeSeriesService.store()
+        .map(store -> new TimeSeries(timeSeriesService.measure(), query.apply(store)))
+        .flatMap(timeSeries -> ok().contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(timeSeries));
+  }
+
+  record Query(Optional<String> series, Instant from, Instant to, Optional<Interval> interval,
+               Aggregation aggregation) {
+
+    static Query of(ServerRequest request) {
+      return new Query(request.queryParam("series"),
+          request.queryParam("from").map(from -> instant("from", from)).orElse(MIN_INSTANT),
+          request.queryParam("to").map(to -> instant("to", to)).orElse(MAX_INSTANT),
+          request.queryParam("interval").map(interval -> value(Interval.class, "interval",
+              interval)),
+          request.queryParam("aggregation")
+              .map(aggregation -> value(Aggregation.class, "aggregation", aggregation))
+              .orElse(Aggregation.LAST));
+    }
+
+    private static Instant instant(String name, String value) {
+      try {
+        return value.length() == 10
+            ? LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant()
+            : Instant.parse(value);
+      } catch (DateTimeException e) {
+        throw new IllegalArgumentException("Invalid %s `%s`. Expected a date or an instant."
+            .formatted(name, value));
+      }
+    }
+
+    private static <E extends Enum<E>> E value(Class<E> type, String name, String value) {
+      try {
+        return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid %s `%s`.".formatted(name, value));
+      }
+    }
+
+    private Map<String, List<Point>> apply(TimeSeriesStore store) {
+      var result = new LinkedHashMap<String, List<Point>>();
+      for (var name : series.map(List::of).orElseGet(store::series)) {
+        result.put(name, interval
+            .map(interval -> store.aggregate(name, from, to, interval, aggregation))
+            .orElseGet(() -> store.range(name, from, to)));
+      }
+      return result;
+    }
+  }
+}
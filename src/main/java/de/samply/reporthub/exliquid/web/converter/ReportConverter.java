@@ -0,0 +1,142 @@
+package de.samply.reporthub.exliquid.web.converter;
+
+import de.samply.reporthub.exliquid.web.model.Report;
+import de.samply.reporthub.exliquid.web.model.Report.Stratum;
+import de.samply.reporthub.model.fhir.CodeableConcept;
+import de.samply.reporthub.model.fhir.Coding;
+import de.samply.reporthub.model.fhir.ColumnarStratifier;
+import de.samply.reporthub.model.fhir.MeasureReport;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier;
+import de.samply.reporthub.model.fhir.MeasureReportIndex;
+import de.samply.reporthub.model.fhir.MeasureReportIndex.GroupIndex;
+import de.samply.reporthub.model.fhir.MeasureReportIndex.StratifierIndex;
+import de.samply.reporthub.util.IntPair;
+import de.samply.reporthub.util.Optionals;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Converts EXLIQUID MeasureReports into the {@link Report} shown in the web UI and indexed by the
+ * time-series store.
+ */
+public interface ReportConverter {
+
+  String MEASURE_POPULATION = "http://terminology.hl7.org/CodeSystem/measure-population";
+  String EXLIQUID_MEASURE_GROUP = "https://dktk.dkfz.de/fhir/CodeSystem/exliquid-measure-group";
+  String EXLIQUID_STRATIFIER = "https://dktk.dkfz.de/fhir/CodeSystem/exliquid-stratifier";
+
+  Coding PATIENT_GROUP = Coding.of(EXLIQUID_MEASURE_GROUP, "patient");
+  Coding SPECIMEN_GROUP = Coding.of(EXLIQUID_MEASURE_GROUP, "specimen");
+  Coding INITIAL_POPULATION = Coding.of(MEASURE_POPULATION, "initial-population");
+  Coding DIAGNOSIS_STRATIFIER = Coding.of(EXLIQUID_STRATIFIER, "diagnosis");
+  Coding SAMPLE_DIAGNOSIS_STRATIFIER = Coding.of(EXLIQUID_STRATIFIER, "sample-diagnosis");
+  Coding SAMPLE_TYPE_STRATIFIER = Coding.of(EXLIQUID_STRATIFIER, "sample-type");
+  String BLOOD_PLASMA = "blood-plasma";
+  String PERIPHERAL_BLOOD_CELLS_VITAL = "peripheral-blood-cells-vital";
+
+  /**
+   * Converts a FHIR {@link MeasureReport} {@code report} into {@link Report} used for EXLIQUID.
+   * <p>
+   * The report is accessed through a {@link MeasureReportIndex}, so the conversion is linear in the
+   * number of strata.
+   *
+   * @param report the FHIR {@code MeasureReport} to convert
+   * @return an {@code Optional} of the converted {@link Report} or an empty {@code Optional} if the
+   * conversion was not possible
+   */
+  static Optional<Report> convert(MeasureReport report) {
+    var index = MeasureReportIndex.of(report);
+    return Optionals.flatMap(report.date(),
+        index.group(PATIENT_GROUP),
+        index.group(SPECIMEN_GROUP),
+        ReportConverter::convertFrom);
+  }
+
+  private static Optional<Report> convertFrom(OffsetDateTime date, GroupIndex patientGroup,
+      GroupIndex specimenGroup) {
+    return Optionals.flatMap(patientGroup.count(INITIAL_POPULATION),
+        specimenGroup.count(INITIAL_POPULATION),
+        patientGroup.stratifier(DIAGNOSIS_STRATIFIER),
+        specimenGroup.stratifier(SAMPLE_DIAGNOSIS_STRATIFIER),
+        (totalNumberOfPatients, totalNumberOfSpecimen, diagnosisStratifier,
+            sampleDiagnosisStratifier) -> Optional.of(new Report(date,
+            totalNumberOfPatients,
+            totalNumberOfSpecimen,
+            strata(diagnosisStratifier, sampleDiagnosisStratifier))));
+  }
+
+  /**
+   * Joins both stratifier by diagnosis and returns a list of combined {@link Stratum}.
+   *
+   * @param patientDiagnosisStratifier the stratifier from diagnosis to patient count
+   * @param sampleDiagnosisStratifier  the stratifier from diagnosis-sample-type pairs to sample
+   *                                   type
+   * @return a list of combined {@link Stratum}
+   */
+  private static List<Stratum> strata(StratifierIndex patientDiagnosisStratifier,
+      StratifierIndex sampleDiagnosisStratifier) {
+    var diagnosisToPlasmaPbmcCounts = diagnosisToPlasmaPbmcCounts(
+        sampleDiagnosisStratifier.stratifier());
+    var strata = new ArrayList<Stratum>(patientDiagnosisStratifier.strata().size());
+    for (var stratum : patientDiagnosisStratifier.strata()) {
+      stratum(diagnosisToPlasmaPbmcCounts, stratum).ifPresent(strata::add);
+    }
+    return strata;
+  }
+
+  /**
+   * Takes a patient-diagnosis stratum and a map from diagnosis to a {@link IntPair pair} of plasma
+   * and PBMC counts and returns a stratum with patient, plasma and PBMC counts.
+   *
+   * @param diagnosisToPlasmaPbmcCounts a map from diagnosis to a {@link IntPair pair} of plasma and
+   *                                    PBMC counts
+   * @param stratum                     the stratum to process
+   * @return a stratum with patient, plasma and PBMC counts
+   */
+  private static Optional<Stratum> stratum(
+      Map<String, IntPair> diagnosisToPlasmaPbmcCounts,
+      Stratifier.Stratum stratum) {
+    return Optionals.flatMap(stratum.value().flatMap(CodeableConcept::text),
+        StratifierIndex.count(stratum, INITIAL_POPULATION),
+        (diagnosis, patientCount) -> Optional.ofNullable(diagnosisToPlasmaPbmcCounts.get(diagnosis))
+            .map(sampleCounts -> Stratum.of(diagnosis, patientCount, sampleCounts)));
+  }
+
+  /**
+   * Takes the sample-diagnosis stratifier which stratifies samples by pairs of diagnosis and sample
+   * type and returns a map from diagnosis to a {@link IntPair pair} of plasma and PBMC counts.
+   *
+   * @param sampleDiagnosisStratifier the stratifier to process
+   * @return a map from diagnosis to a pair of plasma and PBMC counts
+   */
+  static Map<String, IntPair> diagnosisToPlasmaPbmcCounts(
+      Stratifier sampleDiagnosisStratifier) {
+    var strata = ColumnarStratifier.of(sampleDiagnosisStratifier)
+        .filter(SAMPLE_TYPE_STRATIFIER, type -> type.text().isPresent());
+    var counts = new HashMap<String, IntPair>();
+    mergeCounts(counts, strata, count -> IntPair.ZERO);
+    mergeCounts(counts, strata.filter(SAMPLE_TYPE_STRATIFIER, hasText(BLOOD_PLASMA)),
+        count -> IntPair.of(count, 0));
+    mergeCounts(counts,
+        strata.filter(SAMPLE_TYPE_STRATIFIER, hasText(PERIPHERAL_BLOOD_CELLS_VITAL)),
+        count -> IntPair.of(0, count));
+    return counts;
+  }
+
+  private static Predicate<CodeableConcept> hasText(String text) {
+    return concept -> concept.text().filter(text::equals).isPresent();
+  }
+
+  private static void mergeCounts(Map<String, IntPair> counts, ColumnarStratifier strata,
+      IntFunction<IntPair> pair) {
+    strata.sumBy(SAMPLE_DIAGNOSIS_STRATIFIER, INITIAL_POPULATION).forEach((diagnosis, count) ->
+        diagnosis.text().ifPresent(text ->
+            counts.merge(text, pair.apply(Math.toIntExact(count)), IntPair::plus)));
+  }
+}
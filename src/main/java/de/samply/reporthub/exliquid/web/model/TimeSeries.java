@@ -0,0 +1,20 @@
+package de.samply.reporthub.exliquid.web.model;
+
+import de.samply.reporthub.exliquid.service.TimeSeriesStore.Point;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The counts of EXLIQUID reports over time.
+ *
+ * @param measure the canonical URL of the Measure of the reports
+ * @param series  the points of each series by name of the series
+ */
+public record TimeSeries(String measure, Map<String, List<Point>> series) {
+
+  public TimeSeries {
+    Objects.requireNonNull(measure);
+    Objects.requireNonNull(series);
+  }
+}
@@ -22,15 +22,17 @@ public record ActivityDefinition(
     Optional<String> id,
     Optional<Meta> meta,
     Optional<String> url,
+    Optional<String> version,
     Optional<String> title,
     Code status,
     List<RelatedArtifact> relatedArtifact,
-    Optional<CodeableConcept> code) implements Resource<ActivityDefinition> {
+    Optional<CodeableConcept> code) implements CanonicalResource<ActivityDefinition> {
 
   public ActivityDefinition {
     Objects.requireNonNull(id);
     Objects.requireNonNull(meta);
     Objects.requireNonNull(url);
+    Objects.requireNonNull(version);
     Objects.requireNonNull(title);
     Objects.requireNonNull(status);
     Objects.requireNonNull(relatedArtifact);
@@ -63,6 +65,7 @@ public record ActivityDefinition(
     private String id;
     private Meta meta;
     private String url;
+    private String version;
     private String title;
     private Code status;
     private List<RelatedArtifact> relatedArtifact;
@@ -79,6 +82,7 @@ public record ActivityDefinition(
       id = definition.id.orElse(null);
       meta = definition.meta.orElse(null);
       url = definition.url.orElse(null);
+      version = definition.version.orElse(null);
       title = definition.title.orElse(null);
       status = definition.status;
       relatedArtifact = definition.relatedArtifact;
@@ -100,6 +104,11 @@ public record ActivityDefinition(
       return this;
     }
 
+    public Builder withVersion(String version) {
+      this.version = Objects.requireNonNull(version);
+      return this;
+    }
+
     public Builder withTitle(String title) {
       this.title = Objects.requireNonNull(title);
       return this;
@@ -125,6 +134,7 @@ public record ActivityDefinition(
           Optional.ofNullable(id),
           Optional.ofNullable(meta),
           Optional.ofNullable(url),
+          Optional.ofNullable(version),
           Optional.ofNullable(title),
           status,
           Util.copyOfNullable(relatedArtifact),
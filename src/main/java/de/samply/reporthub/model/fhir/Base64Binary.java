@@ -1,30 +1,25 @@
 package de.samply.reporthub.model.fhir;
 
-import com.fasterxml.jackson.annotation.JsonCreator;
-import com.fasterxml.jackson.annotation.JsonValue;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.samply.reporthub.model.fhir.Base64Binary.Deserializer;
 import java.util.Base64;
 import java.util.Base64.Decoder;
 import java.util.Base64.Encoder;
 import java.util.Objects;
 import java.util.Optional;
 
-public record Base64Binary(Optional<String> value) implements Element {
+@JsonDeserialize(using = Deserializer.class)
+public final class Base64Binary extends PrimitiveElement {
 
   private static final Encoder ENCODER = Base64.getEncoder();
   private static final Decoder DECODER = Base64.getDecoder();
 
-  public Base64Binary {
-    Objects.requireNonNull(value);
+  private Base64Binary(String value) {
+    super(value);
   }
 
   public Optional<byte[]> decodedValue() {
-    return value.map(DECODER::decode);
-  }
-
-  @JsonValue
-  public String jsonValue() {
-    return value.orElse(null);
+    return value().map(DECODER::decode);
   }
 
   public static Base64Binary encoded(byte[] bytes) {
@@ -32,7 +27,7 @@ public record Base64Binary(Optional<String> value) implements Element {
   }
 
   public static Base64Binary valueOf(String value) {
-    return Base64Binary.builder().withValue(value).build();
+    return new Base64Binary(Objects.requireNonNull(value));
   }
 
   public static Builder builder() {
@@ -52,15 +47,14 @@ public record Base64Binary(Optional<String> value) implements Element {
     }
 
     public Base64Binary build() {
-      return new Base64Binary(Optional.ofNullable(value));
+      return new Base64Binary(value);
     }
   }
 
-  @JsonCreator
-  public static Base64Binary jsonCreator(JsonNode node) {
-    if (node.isTextual()) {
-      return Base64Binary.valueOf(node.textValue());
+  public static final class Deserializer extends PrimitiveElement.Deserializer<Base64Binary> {
+
+    public Deserializer() {
+      super(Base64Binary.class, Base64Binary::valueOf);
     }
-    throw new RuntimeException("Invalid JSON node `%s` for Code type.".formatted(node));
   }
 }
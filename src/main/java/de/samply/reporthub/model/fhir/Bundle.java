@@ -5,33 +5,98 @@ import static de.samply.reporthub.model.fhir.BundleType.TRANSACTION;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.annotation.JsonTypeInfo.Id;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import de.samply.reporthub.Util;
 import de.samply.reporthub.model.fhir.Bundle.Builder;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
+/**
+ * A FHIR Bundle.
+ * <p>
+ * Lookups of entries by full URL and of resources by type use an index which is built on first use
+ * and cached in the bundle afterwards. Bundles with only a few entries are scanned linearly
+ * instead.
+ */
 @JsonInclude(Include.NON_EMPTY)
 @JsonTypeInfo(use = Id.NAME, property = "resourceType")
 @JsonDeserialize(builder = Builder.class)
-public record Bundle(
-    Optional<String> id,
-    Optional<Meta> meta,
-    Code type,
-    List<Entry> entry) implements Resource<Bundle> {
-
-  public Bundle {
-    Objects.requireNonNull(id);
-    Objects.requireNonNull(meta);
-    Objects.requireNonNull(type, "missing type");
-    Objects.requireNonNull(entry);
+public final class Bundle implements Resource<Bundle> {
+
+  /**
+   * The number of entries up to which no index is built.
+   */
+  static final int INDEX_THRESHOLD = 8;
+
+  @JsonProperty
+  private final Optional<String> id;
+
+  @JsonProperty
+  private final Optional<Meta> meta;
+
+  @JsonProperty
+  private final Code type;
+
+  @JsonProperty
+  private final List<Link> link;
+
+  @JsonProperty
+  private final List<Entry> entry;
+
+  private volatile Index index;
+
+  public Bundle(Optional<String> id, Optional<Meta> meta, Code type, List<Link> link,
+      List<Entry> entry) {
+    this.id = Objects.requireNonNull(id);
+    this.meta = Objects.requireNonNull(meta);
+    this.type = Objects.requireNonNull(type, "missing type");
+    this.link = Objects.requireNonNull(link);
+    this.entry = Objects.requireNonNull(entry);
+  }
+
+  @Override
+  public Optional<String> id() {
+    return id;
+  }
+
+  @Override
+  public Optional<Meta> meta() {
+    return meta;
+  }
+
+  public Code type() {
+    return type;
+  }
+
+  public List<Link> link() {
+    return link;
+  }
+
+  /**
+   * Returns the URL of the first link with {@code relation}.
+   * <p>
+   * Paged search and history Bundles carry the URL of the following page as link with relation
+   * {@code next}.
+   *
+   * @param relation the relation of the link like {@code next}
+   * @return an {@code Optional} of the URL or an empty {@code Optional} if there is no such link
+   */
+  public Optional<String> linkUrl(String relation) {
+    return link.stream().filter(l -> l.relation().equals(relation)).findFirst().map(Link::url);
+  }
+
+  public List<Entry> entry() {
+    return entry;
   }
 
   @Override
@@ -55,20 +120,43 @@ public record Bundle(
     return entry.stream().filter(predicate).findFirst();
   }
 
+  /**
+   * Returns the first entry with {@code fullUrl}.
+   *
+   * @param fullUrl the full URL of the entry
+   * @return an {@code Optional} of the found entry or an empty {@code Optional} if no entry with
+   * {@code fullUrl} was found
+   */
+  public Optional<Entry> findEntryByFullUrl(String fullUrl) {
+    Objects.requireNonNull(fullUrl);
+    if (entry.size() <= INDEX_THRESHOLD) {
+      for (var e : entry) {
+        if (e.fullUrl != null && e.fullUrl.hasValue(fullUrl)) {
+          return Optional.of(e);
+        }
+      }
+      return Optional.empty();
+    }
+    return Optional.ofNullable(index().entryByFullUrl.get(fullUrl));
+  }
+
   public Optional<? extends Resource<?>> resolveResource(Reference reference) {
     return reference.reference()
-        .flatMap(ref -> findFirstEntry(e -> e.fullUrl.stream().anyMatch(uri -> uri.hasValue(ref))))
-        .flatMap(e -> e.resource);
+        .flatMap(this::findEntryByFullUrl)
+        .flatMap(Entry::resource);
   }
 
   public <T extends Resource<T>> Optional<T> resolveResource(Class<T> type, Reference reference) {
     return reference.reference()
-        .flatMap(ref -> findFirstEntry(e -> e.fullUrl.stream().anyMatch(uri -> uri.hasValue(ref))))
+        .flatMap(this::findEntryByFullUrl)
         .flatMap(e -> e.resourceAs(type));
   }
 
   public <T extends Resource<T>> Stream<T> resourcesAs(Class<T> type) {
-    return entry.stream().map(e -> e.resourceAs(type)).flatMap(Optional::stream);
+    if (entry.size() <= INDEX_THRESHOLD) {
+      return entry.stream().map(e -> e.resourceAs(type)).flatMap(Optional::stream);
+    }
+    return index().resourcesByType.getOrDefault(type, List.of()).stream().map(type::cast);
   }
 
   public static <T extends Resource<T>> Predicate<Bundle> hasFirstResource(Class<T> type,
@@ -100,11 +188,63 @@ public record Bundle(
         }));
   }
 
+  private Index index() {
+    var index = this.index;
+    if (index == null) {
+      index = Index.of(entry);
+      this.index = index;
+    }
+    return index;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || o instanceof Bundle that && id.equals(that.id) && meta.equals(that.meta)
+        && type.equals(that.type) && link.equals(that.link) && entry.equals(that.entry);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, meta, type, link, entry);
+  }
+
+  @Override
+  public String toString() {
+    return "Bundle[id=" + id + ", meta=" + meta + ", type=" + type + ", link=" + link + ", entry="
+        + entry + "]";
+  }
+
+  /**
+   * Index of the entries of a bundle.
+   * <p>
+   * Only the first entry of each full URL is indexed, so that lookups return the same entry as a
+   * linear scan would.
+   *
+   * @param entryByFullUrl  a map from full URL to entry
+   * @param resourcesByType a map from resource class to all resources of that class in entry order
+   */
+  private record Index(Map<String, Entry> entryByFullUrl,
+                       Map<Class<?>, List<Resource<?>>> resourcesByType) {
+
+    private static Index of(List<Entry> entries) {
+      var entryByFullUrl = new HashMap<String, Entry>();
+      var resourcesByType = new HashMap<Class<?>, List<Resource<?>>>();
+      for (var entry : entries) {
+        entry.fullUrl().flatMap(Uri::value)
+            .ifPresent(url -> entryByFullUrl.putIfAbsent(url, entry));
+        entry.resource().ifPresent(resource -> resourcesByType
+            .computeIfAbsent(resource.getClass(), k -> new ArrayList<>()).add(resource));
+      }
+      return new Index(entryByFullUrl, resourcesByType);
+    }
+  }
+
   public static class Builder {
 
     private String id;
     private Meta meta;
     private Code type;
+    private List<Link> link;
     private List<Entry> entry;
 
     public Builder() {
@@ -118,6 +258,7 @@ public record Bundle(
       id = bundle.id.orElse(null);
       meta = bundle.meta.orElse(null);
       type = bundle.type;
+      link = bundle.link;
       entry = bundle.entry;
     }
 
@@ -136,6 +277,11 @@ public record Bundle(
       return this;
     }
 
+    public Builder withLink(List<Link> link) {
+      this.link = link;
+      return this;
+    }
+
     public Builder withEntry(List<Entry> entry) {
       this.entry = entry;
       return this;
@@ -146,23 +292,87 @@ public record Bundle(
           Optional.ofNullable(id),
           Optional.ofNullable(meta),
           type,
+          Util.copyOfNullable(link),
           Util.copyOfNullable(entry));
     }
   }
 
+  @JsonInclude(Include.NON_EMPTY)
+  @JsonDeserialize(builder = Link.Builder.class)
+  public record Link(String relation, String url) implements BackboneElement {
+
+    public Link {
+      Objects.requireNonNull(relation);
+      Objects.requireNonNull(url);
+    }
+
+    public static Link of(String relation, String url) {
+      return new Link(relation, url);
+    }
+
+    public static class Builder {
+
+      private String relation;
+      private String url;
+
+      public Builder withRelation(String relation) {
+        this.relation = Objects.requireNonNull(relation);
+        return this;
+      }
+
+      public Builder withUrl(String url) {
+        this.url = Objects.requireNonNull(url);
+        return this;
+      }
+
+      public Link build() {
+        return new Link(relation, url);
+      }
+    }
+  }
+
+  /**
+   * A Bundle entry. Absent elements are stored as {@code null} rather than as empty
+   * {@code Optional}, because search and history Bundles hold many entries. The accessors return
+   * {@code Optional} as the other elements do.
+   */
   @JsonInclude(Include.NON_EMPTY)
   @JsonDeserialize(builder = Entry.Builder.class)
-  public record Entry(
-      Optional<Uri> fullUrl,
-      Optional<Resource<?>> resource,
-      Optional<Request> request,
-      Optional<Response> response) implements BackboneElement {
-
-    public Entry {
-      Objects.requireNonNull(fullUrl);
-      Objects.requireNonNull(resource);
-      Objects.requireNonNull(request);
-      Objects.requireNonNull(response);
+  public static final class Entry implements BackboneElement {
+
+    @JsonProperty
+    private final Uri fullUrl;
+
+    @JsonProperty
+    private final Resource<?> resource;
+
+    @JsonProperty
+    private final Request request;
+
+    @JsonProperty
+    private final Response response;
+
+    private Entry(Uri fullUrl, Resource<?> resource, Request request, Response response) {
+      this.fullUrl = fullUrl;
+      this.resource = resource;
+      this.request = request;
+      this.response = response;
+    }
+
+    public Optional<Uri> fullUrl() {
+      return Optional.ofNullable(fullUrl);
+    }
+
+    public Optional<Resource<?>> resource() {
+      return Optional.ofNullable(resource);
+    }
+
+    public Optional<Request> request() {
+      return Optional.ofNullable(request);
+    }
+
+    public Optional<Response> response() {
+      return Optional.ofNullable(response);
     }
 
     public Entry withResource(Resource<?> resource) {
@@ -170,13 +380,31 @@ public record Bundle(
     }
 
     public <T extends Resource<T>> Optional<T> resourceAs(Class<T> type) {
-      return resource.flatMap(r -> r.cast(type));
+      return resource == null ? Optional.empty() : resource.cast(type);
     }
 
     public static Builder builder() {
       return new Builder();
     }
 
+    @Override
+    public boolean equals(Object o) {
+      return this == o || o instanceof Entry that && Objects.equals(fullUrl, that.fullUrl)
+          && Objects.equals(resource, that.resource) && Objects.equals(request, that.request)
+          && Objects.equals(response, that.response);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(fullUrl, resource, request, response);
+    }
+
+    @Override
+    public String toString() {
+      return "Entry[fullUrl=" + fullUrl() + ", resource=" + resource() + ", request=" + request()
+          + ", response=" + response() + "]";
+    }
+
     public static class Builder {
 
       private Uri fullUrl;
@@ -188,10 +416,10 @@ public record Bundle(
       }
 
       private Builder(Entry entry) {
-        fullUrl = entry.fullUrl.orElse(null);
-        resource = entry.resource.orElse(null);
-        request = entry.request.orElse(null);
-        response = entry.response.orElse(null);
+        fullUrl = entry.fullUrl;
+        resource = entry.resource;
+        request = entry.request;
+        response = entry.response;
       }
 
       public Builder withFullUrl(Uri fullUrl) {
@@ -215,11 +443,7 @@ public record Bundle(
       }
 
       public Entry build() {
-        return new Entry(
-            Optional.ofNullable(fullUrl),
-            Optional.ofNullable(resource),
-            Optional.ofNullable(request),
-            Optional.ofNullable(response));
+        return new Entry(fullUrl, resource, request, response);
       }
     }
 
@@ -228,12 +452,14 @@ public record Bundle(
     public record Request(
         Code method,
         String url,
-        Optional<String> ifNoneExist) implements BackboneElement {
+        Optional<String> ifNoneExist,
+        Optional<String> ifMatch) implements BackboneElement {
 
       public Request {
         Objects.requireNonNull(method);
         Objects.requireNonNull(url);
         Objects.requireNonNull(ifNoneExist);
+        Objects.requireNonNull(ifMatch);
       }
 
       public static Builder builder() {
@@ -245,6 +471,7 @@ public record Bundle(
         private Code method;
         private String url;
         private String ifNoneExist;
+        private String ifMatch;
 
         public Builder withMethod(Code method) {
           this.method = Objects.requireNonNull(method);
@@ -261,8 +488,14 @@ public record Bundle(
           return this;
         }
 
+        public Builder withIfMatch(String ifMatch) {
+          this.ifMatch = Objects.requireNonNull(ifMatch);
+          return this;
+        }
+
         public Request build() {
-          return new Request(method, url, Optional.ofNullable(ifNoneExist));
+          return new Request(method, url, Optional.ofNullable(ifNoneExist),
+              Optional.ofNullable(ifMatch));
         }
       }
     }
@@ -9,13 +9,15 @@ public enum BundleType implements Predicate<Code> {
   BATCH("batch");
 
   private final String code;
+  private final Code codeElement;
 
   BundleType(String code) {
     this.code = code;
+    this.codeElement = Code.valueOf(code);
   }
 
   public Code code() {
-    return Code.valueOf(code);
+    return codeElement;
   }
 
   @Override
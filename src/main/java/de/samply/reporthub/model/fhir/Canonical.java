@@ -1,28 +1,20 @@
 package de.samply.reporthub.model.fhir;
 
-import com.fasterxml.jackson.annotation.JsonCreator;
-import com.fasterxml.jackson.annotation.JsonValue;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.samply.reporthub.model.fhir.Canonical.Deserializer;
 import java.util.Objects;
-import java.util.Optional;
 
-public record Canonical(Optional<String> value) implements Element {
+@JsonDeserialize(using = Deserializer.class)
+public final class Canonical extends PrimitiveElement {
 
-  public Canonical {
-    Objects.requireNonNull(value);
-  }
-
-  public boolean hasValue(String value) {
-    return this.value.equals(Optional.of(value));
-  }
+  private static final Interner<Canonical> POOL = new Interner<>(1024);
 
-  @JsonValue
-  public String jsonValue() {
-    return value.orElse(null);
+  private Canonical(String value) {
+    super(value);
   }
 
   public static Canonical valueOf(String value) {
-    return Canonical.builder().withValue(value).build();
+    return new Canonical(Objects.requireNonNull(value));
   }
 
   public static Builder builder() {
@@ -42,15 +34,14 @@ public record Canonical(Optional<String> value) implements Element {
     }
 
     public Canonical build() {
-      return new Canonical(Optional.ofNullable(value));
+      return new Canonical(value);
     }
   }
 
-  @JsonCreator
-  public static Canonical jsonCreator(JsonNode node) {
-    if (node.isTextual()) {
-      return Canonical.valueOf(node.textValue());
+  public static final class Deserializer extends PrimitiveElement.Deserializer<Canonical> {
+
+    public Deserializer() {
+      super(Canonical.class, Canonical::valueOf, POOL);
     }
-    throw new RuntimeException("Invalid JSON node `%s` for Code type.".formatted(node));
   }
 }
@@ -0,0 +1,15 @@
+package de.samply.reporthub.model.fhir;
+
+import java.util.Optional;
+
+/**
+ * A resource that is identified by a canonical URL and optionally a business version.
+ *
+ * @param <R> the type of the resource
+ */
+public interface CanonicalResource<R extends CanonicalResource<R>> extends Resource<R> {
+
+  Optional<String> url();
+
+  Optional<String> version();
+}
@@ -1,28 +1,31 @@
 package de.samply.reporthub.model.fhir;
 
-import com.fasterxml.jackson.annotation.JsonCreator;
-import com.fasterxml.jackson.annotation.JsonValue;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.samply.reporthub.model.fhir.Code.Deserializer;
 import java.util.Objects;
-import java.util.Optional;
 
-public record Code(Optional<String> value) implements Element {
+@JsonDeserialize(using = Deserializer.class)
+public final class Code extends PrimitiveElement {
 
-  public Code {
-    Objects.requireNonNull(value);
-  }
+  private static final Interner<Code> POOL = new Interner<>(4096);
 
-  public boolean hasValue(String value) {
-    return this.value.equals(Optional.of(value));
+  private Code(String value) {
+    super(value);
   }
 
-  @JsonValue
-  public String jsonValue() {
-    return value.orElse(null);
+  public static Code valueOf(String value) {
+    return new Code(Objects.requireNonNull(value));
   }
 
-  public static Code valueOf(String value) {
-    return Code.builder().withValue(value).build();
+  /**
+   * Returns the pooled Code of the constant {@code value}, so that Codes read from the stores share
+   * the instance of {@code value}.
+   *
+   * @param value a constant, never a value read from elsewhere
+   * @return the pooled Code
+   */
+  static Code constant(String value) {
+    return POOL.pin(valueOf(value));
   }
 
   public static Builder builder() {
@@ -42,15 +45,14 @@ public record Code(Optional<String> value) implements Element {
     }
 
     public Code build() {
-      return new Code(Optional.ofNullable(value));
+      return new Code(value);
     }
   }
 
-  @JsonCreator
-  public static Code jsonCreator(JsonNode node) {
-    if (node.isTextual()) {
-      return Code.valueOf(node.textValue());
+  public static final class Deserializer extends PrimitiveElement.Deserializer<Code> {
+
+    public Deserializer() {
+      super(Code.class, Code::valueOf, POOL);
     }
-    throw new RuntimeException("Invalid JSON node `%s` for Code type.".formatted(node));
   }
 }
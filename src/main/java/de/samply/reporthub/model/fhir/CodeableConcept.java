@@ -1,15 +1,44 @@
 package de.samply.reporthub.model.fhir;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import de.samply.reporthub.Util;
+import de.samply.reporthub.model.fhir.CodeableConcept.Deserializer;
+import de.samply.reporthub.model.fhir.CodeableConcept.Serializer;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Predicate;
 
-@JsonInclude(Include.NON_EMPTY)
-public record CodeableConcept(List<Coding> coding, Optional<String> text) implements Element {
+@JsonSerialize(using = Serializer.class)
+@JsonDeserialize(using = Deserializer.class)
+public final class CodeableConcept implements Element {
+
+  private final List<Coding> coding;
+  private final String text;
+
+  private CodeableConcept(List<Coding> coding, String text) {
+    this.coding = Objects.requireNonNull(coding);
+    this.text = text;
+  }
+
+  public List<Coding> coding() {
+    return coding;
+  }
+
+  public Optional<String> text() {
+    return Optional.ofNullable(text);
+  }
 
   public Optional<String> findCodeValue(String systemValue) {
     return coding.stream()
@@ -36,17 +65,33 @@ public record CodeableConcept(List<Coding> coding, Optional<String> text) implem
   }
 
   public static CodeableConcept coding(Coding coding) {
-    return new Builder().withCoding(List.of(coding)).build();
+    return new CodeableConcept(List.of(coding), null);
   }
 
   public static CodeableConcept text(String text) {
-    return new Builder().withText(text).build();
+    return new CodeableConcept(List.of(), Objects.requireNonNull(text));
   }
 
   public static Builder builder() {
     return new Builder();
   }
 
+  @Override
+  public boolean equals(Object o) {
+    return this == o || o instanceof CodeableConcept that && coding.equals(that.coding)
+        && Objects.equals(text, that.text);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(coding, text);
+  }
+
+  @Override
+  public String toString() {
+    return "CodeableConcept[coding=" + coding + ", text=" + text() + "]";
+  }
+
   public static class Builder {
 
     private List<Coding> coding;
@@ -63,7 +108,97 @@ public record CodeableConcept(List<Coding> coding, Optional<String> text) implem
     }
 
     public CodeableConcept build() {
-      return new CodeableConcept(Util.copyOfNullable(coding), Optional.ofNullable(text));
+      return new CodeableConcept(Util.copyOfNullable(coding), text);
+    }
+  }
+
+  /**
+   * Writes the non-empty fields of a codeable concept without reflective field access.
+   */
+  public static final class Serializer extends StdSerializer<CodeableConcept> {
+
+    private static final Coding.Serializer CODING = new Coding.Serializer();
+
+    public Serializer() {
+      super(CodeableConcept.class);
+    }
+
+    @Override
+    public void serialize(CodeableConcept concept, JsonGenerator generator,
+        SerializerProvider provider) throws IOException {
+      generator.writeStartObject(concept);
+      if (!concept.coding.isEmpty()) {
+        generator.writeArrayFieldStart("coding");
+        for (var coding : concept.coding) {
+          CODING.serialize(coding, generator, provider);
+        }
+        generator.writeEndArray();
+      }
+      if (concept.text != null && !concept.text.isEmpty()) {
+        generator.writeStringField("text", concept.text);
+      }
+      generator.writeEndObject();
+    }
+  }
+
+  /**
+   * Reads the fields of a codeable concept directly from the parser, like
+   * {@link Coding.Deserializer}.
+   */
+  public static final class Deserializer extends StdDeserializer<CodeableConcept> {
+
+    private static final Coding.Deserializer CODING = new Coding.Deserializer();
+
+    public Deserializer() {
+      super(CodeableConcept.class);
+    }
+
+    @Override
+    public CodeableConcept deserialize(JsonParser parser, DeserializationContext context)
+        throws IOException {
+      String name;
+      if (parser.isExpectedStartObjectToken()) {
+        name = parser.nextFieldName();
+      } else if (parser.hasToken(JsonToken.FIELD_NAME)) {
+        name = parser.currentName();
+      } else {
+        return (CodeableConcept) context.handleUnexpectedToken(CodeableConcept.class, parser);
+      }
+      List<Coding> coding = List.of();
+      String text = null;
+      for (; name != null; name = parser.nextFieldName()) {
+        if (parser.nextToken() == JsonToken.VALUE_NULL) {
+          continue;
+        }
+        switch (name) {
+          case "coding" -> coding = coding(parser, context);
+          case "text" -> text = StringDeserializer.instance.deserialize(parser, context);
+          default -> context.handleUnknownProperty(parser, this, CodeableConcept.class, name);
+        }
+      }
+      return new CodeableConcept(coding, text);
+    }
+
+    private List<Coding> coding(JsonParser parser, DeserializationContext context)
+        throws IOException {
+      if (!parser.isExpectedStartArrayToken()) {
+        return context.reportInputMismatch(this, "Invalid JSON token `%s` for coding.",
+            parser.currentToken());
+      }
+      // most concepts have exactly one coding
+      if (parser.nextToken() == JsonToken.END_ARRAY) {
+        return List.of();
+      }
+      var first = CODING.deserialize(parser, context);
+      if (parser.nextToken() == JsonToken.END_ARRAY) {
+        return List.of(first);
+      }
+      var coding = new ArrayList<Coding>();
+      coding.add(first);
+      do {
+        coding.add(CODING.deserialize(parser, context));
+      } while (parser.nextToken() != JsonToken.END_ARRAY);
+      return List.copyOf(coding);
     }
   }
 }
@@ -1,49 +1,94 @@
 package de.samply.reporthub.model.fhir;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-import de.samply.reporthub.model.fhir.Coding.Builder;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import de.samply.reporthub.model.fhir.Coding.Deserializer;
+import de.samply.reporthub.model.fhir.Coding.Serializer;
+import java.io.IOException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Predicate;
 
-@JsonInclude(Include.NON_EMPTY)
-@JsonDeserialize(builder = Builder.class)
-public record Coding(Optional<Uri> system, Optional<Code> code) implements Element {
+@JsonSerialize(using = Serializer.class)
+@JsonDeserialize(using = Deserializer.class)
+public final class Coding implements Element {
 
-  public Coding {
-    Objects.requireNonNull(system);
-    Objects.requireNonNull(code);
+  private static final Interner<Coding> POOL = new Interner<>(4096);
+
+  private final Uri system;
+  private final Code code;
+
+  private Coding(Uri system, Code code) {
+    this.system = system;
+    this.code = code;
+  }
+
+  public Optional<Uri> system() {
+    return Optional.ofNullable(system);
+  }
+
+  public Optional<Code> code() {
+    return Optional.ofNullable(code);
   }
 
   public static Predicate<Coding> hasSystemValue(String systemValue) {
-    return coding -> coding.system.map(system -> system.hasValue(systemValue)).orElse(false);
+    return coding -> coding.hasSystemValue1(systemValue);
   }
 
   public boolean hasSystemValue1(String systemValue) {
-    return system.map(system -> system.hasValue(systemValue)).orElse(false);
+    return system != null && system.hasValue(systemValue);
   }
 
   public static Predicate<Coding> hasCodeValue(String codeValue) {
-    return coding -> coding.code.map(code -> code.hasValue(codeValue)).orElse(false);
+    return coding -> coding.hasCodeValue1(codeValue);
   }
 
   public boolean hasCodeValue1(String codeValue) {
-    return code.map(code -> code.hasValue(codeValue)).orElse(false);
+    return code != null && code.hasValue(codeValue);
   }
 
+  /**
+   * Returns the pooled coding of the constants {@code systemValue} and {@code codeValue}.
+   * <p>
+   * The coding, its system and its code are pinned in their pools, so codings read from the stores
+   * share their instances and predicates like {@link #hasSystemValue(String) hasSystemValue}
+   * compare them by identity. So this method is meant for constants only.
+   *
+   * @param systemValue the system of the coding
+   * @param codeValue   the code of the coding
+   * @return the pooled coding
+   */
   public static Coding of(String systemValue, String codeValue) {
-    return new Builder()
-        .withSystem(Uri.valueOf(systemValue))
-        .withCode(Code.valueOf(codeValue))
-        .build();
+    return POOL.pin(new Coding(Uri.constant(systemValue), Code.constant(codeValue)));
   }
 
   public static Builder builder() {
     return new Builder();
   }
 
+  @Override
+  public boolean equals(Object o) {
+    return this == o || o instanceof Coding that && Objects.equals(system, that.system)
+        && Objects.equals(code, that.code);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(system, code);
+  }
+
+  @Override
+  public String toString() {
+    return "Coding[system=" + system() + ", code=" + code() + "]";
+  }
+
   public static class Builder {
 
     private Uri system;
@@ -59,8 +104,80 @@ public record Coding(Optional<Uri> system, Optional<Code> code) implements Eleme
       return this;
     }
 
+    /**
+     * Builds the coding. Codings are pooled, so codings with equal system and code share one
+     * instance.
+     */
     public Coding build() {
-      return new Coding(Optional.ofNullable(system), Optional.ofNullable(code));
+      return POOL.intern(new Coding(system, code));
+    }
+  }
+
+  /**
+   * Writes the non-empty fields of a coding without reflective field access.
+   */
+  public static final class Serializer extends StdSerializer<Coding> {
+
+    public Serializer() {
+      super(Coding.class);
+    }
+
+    @Override
+    public void serialize(Coding coding, JsonGenerator generator, SerializerProvider provider)
+        throws IOException {
+      generator.writeStartObject(coding);
+      writeField(generator, "system", coding.system);
+      writeField(generator, "code", coding.code);
+      generator.writeEndObject();
+    }
+
+    static void writeField(JsonGenerator generator, String name, PrimitiveElement element)
+        throws IOException {
+      var value = element == null ? null : element.jsonValue();
+      if (value != null && !value.isEmpty()) {
+        generator.writeStringField(name, value);
+      }
+    }
+  }
+
+  /**
+   * Reads the fields of a coding directly from the parser instead of going through the builder
+   * introspection of Jackson, which calls each builder method reflectively. Unknown fields are
+   * handled like Jackson would handle them.
+   */
+  public static final class Deserializer extends StdDeserializer<Coding> {
+
+    private static final Uri.Deserializer SYSTEM = new Uri.Deserializer();
+    private static final Code.Deserializer CODE = new Code.Deserializer();
+
+    public Deserializer() {
+      super(Coding.class);
+    }
+
+    @Override
+    public Coding deserialize(JsonParser parser, DeserializationContext context)
+        throws IOException {
+      String name;
+      if (parser.isExpectedStartObjectToken()) {
+        name = parser.nextFieldName();
+      } else if (parser.hasToken(JsonToken.FIELD_NAME)) {
+        name = parser.currentName();
+      } else {
+        return (Coding) context.handleUnexpectedToken(Coding.class, parser);
+      }
+      Uri system = null;
+      Code code = null;
+      for (; name != null; name = parser.nextFieldName()) {
+        if (parser.nextToken() == JsonToken.VALUE_NULL) {
+          continue;
+        }
+        switch (name) {
+          case "system" -> system = SYSTEM.deserialize(parser, context);
+          case "code" -> code = CODE.deserialize(parser, context);
+          default -> context.handleUnknownProperty(parser, this, Coding.class, name);
+        }
+      }
+      return POOL.intern(new Coding(system, code));
     }
   }
 }
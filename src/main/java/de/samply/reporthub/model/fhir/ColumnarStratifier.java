@@ -0,0 +1,457 @@
+package de.samply.reporthub.model.fhir;
+
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum.Component;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A column-oriented representation of a {@link Stratifier}.
+ * <p>
+ * The values of the strata and the values of each component are dictionary encoded. Every distinct
+ * value is stored once and each stratum only holds an {@code int} index into the dictionary of each
+ * column. The counts of each population are stored in an {@code int} array. Aggregations like
+ * {@link #sum(Coding) sum}, {@link #filter(Coding, Predicate) filter} and
+ * {@link #groupBy(Coding) groupBy} evaluate predicates once per distinct value and otherwise only
+ * touch those arrays, so they stay fast for stratifiers with a lot of strata.
+ * <p>
+ * Components and populations are identified by their code. When converted back into a
+ * {@link Stratifier}, the components and populations of each stratum are ordered by the first
+ * occurrence of their code.
+ */
+public final class ColumnarStratifier {
+
+  /**
+   * The index of a stratum that has no value or not the component of the column.
+   */
+  private static final int ABSENT = -1;
+
+  /**
+   * The count of a stratum that doesn't have the population.
+   */
+  private static final int NO_POPULATION = -1;
+
+  /**
+   * The count of a stratum that has the population but the population has no count.
+   */
+  private static final int NO_COUNT = -2;
+
+  private final List<CodeableConcept> code;
+  private final Column value;
+  private final List<CodeableConcept> componentCodes;
+  private final List<Column> components;
+  private final List<CodeableConcept> populationCodes;
+  private final List<int[]> counts;
+  private final int size;
+
+  private ColumnarStratifier(List<CodeableConcept> code, Column value,
+      List<CodeableConcept> componentCodes, List<Column> components,
+      List<CodeableConcept> populationCodes, List<int[]> counts, int size) {
+    this.code = code;
+    this.value = value;
+    this.componentCodes = componentCodes;
+    this.components = components;
+    this.populationCodes = populationCodes;
+    this.counts = counts;
+    this.size = size;
+  }
+
+  /**
+   * Converts {@code stratifier} into its columnar representation.
+   *
+   * @param stratifier the stratifier to convert
+   * @return the columnar stratifier
+   */
+  public static ColumnarStratifier of(Stratifier stratifier) {
+    var strata = stratifier.stratum();
+    int size = strata.size();
+    var value = new ColumnBuilder(size);
+    var components = new LinkedHashMap<CodeableConcept, ColumnBuilder>();
+    var counts = new LinkedHashMap<CodeableConcept, int[]>();
+    for (int row = 0; row < size; row++) {
+      var stratum = strata.get(row);
+      value.set(row, stratum.value().orElse(null));
+      for (Component component : stratum.component()) {
+        components.computeIfAbsent(component.code(), c -> new ColumnBuilder(size))
+            .set(row, component.value());
+      }
+      for (Stratum.Population population : stratum.population()) {
+        var populationCode = population.code().orElse(null);
+        if (populationCode != null) {
+          counts.computeIfAbsent(populationCode, c -> newCounts(size))[row] =
+              population.count().orElse(NO_COUNT);
+        }
+      }
+    }
+    return new ColumnarStratifier(stratifier.code(), value.build(),
+        List.copyOf(components.keySet()),
+        components.values().stream().map(ColumnBuilder::build).toList(),
+        List.copyOf(counts.keySet()), List.copyOf(counts.values()), size);
+  }
+
+  private static int[] newCounts(int size) {
+    var counts = new int[size];
+    Arrays.fill(counts, NO_POPULATION);
+    return counts;
+  }
+
+  /**
+   * Converts this columnar stratifier back into a {@link Stratifier}.
+   *
+   * @return the stratifier
+   */
+  public Stratifier toStratifier() {
+    var strata = new ArrayList<Stratum>(size);
+    for (int row = 0; row < size; row++) {
+      var stratum = Stratum.builder();
+      var stratumValue = value.get(row);
+      if (stratumValue != null) {
+        stratum.withValue(stratumValue);
+      }
+      var stratumComponents = new ArrayList<Component>(components.size());
+      for (int i = 0; i < components.size(); i++) {
+        var componentValue = components.get(i).get(row);
+        if (componentValue != null) {
+          stratumComponents.add(Component.of(componentCodes.get(i), componentValue));
+        }
+      }
+      var stratumPopulations = new ArrayList<Stratum.Population>(counts.size());
+      for (int i = 0; i < counts.size(); i++) {
+        var count = counts.get(i)[row];
+        if (count == NO_COUNT) {
+          stratumPopulations.add(new Stratum.Population.Builder()
+              .withCode(populationCodes.get(i)).build());
+        } else if (count != NO_POPULATION) {
+          stratumPopulations.add(Stratum.Population.of(populationCodes.get(i), count));
+        }
+      }
+      strata.add(stratum.withComponent(stratumComponents).withPopulation(stratumPopulations)
+          .build());
+    }
+    return Stratifier.builder().withCode(code).withStratum(strata).build();
+  }
+
+  /**
+   * Returns the number of strata.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the codes of the components in column order.
+   */
+  public List<CodeableConcept> componentCodes() {
+    return componentCodes;
+  }
+
+  /**
+   * Returns the distinct values of the component with {@code coding} in order of first
+   * occurrence or an empty list if there is no such component.
+   *
+   * @param coding the coding of the component
+   * @return the distinct values of the component
+   */
+  public List<CodeableConcept> distinctComponentValues(Coding coding) {
+    int column = indexOf(componentCodes, coding);
+    return column == ABSENT ? List.of() : components.get(column).dictionary;
+  }
+
+  /**
+   * Sums up the counts of the population with {@code coding} over all strata.
+   *
+   * @param coding the coding of the population
+   * @return the sum of all counts which is zero if there is no such population
+   */
+  public long sum(Coding coding) {
+    int column = indexOf(populationCodes, coding);
+    if (column == ABSENT) {
+      return 0;
+    }
+    long sum = 0;
+    for (int count : counts.get(column)) {
+      if (count > 0) {
+        sum += count;
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Sums up the counts of the population with {@code population} per value of the component with
+   * {@code component}.
+   * <p>
+   * Only strata with both the component and a count of the population are taken into account. So
+   * component values without any counted stratum are missing from the result.
+   *
+   * @param component  the coding of the component to sum up by
+   * @param population the coding of the population
+   * @return a map from component value to the sum of counts in order of first occurrence
+   */
+  public Map<CodeableConcept, Long> sumBy(Coding component, Coding population) {
+    int column = indexOf(componentCodes, component);
+    int populationColumn = indexOf(populationCodes, population);
+    if (column == ABSENT || populationColumn == ABSENT) {
+      return Map.of();
+    }
+    var groupColumn = components.get(column);
+    var populationCounts = counts.get(populationColumn);
+    var sums = new long[groupColumn.dictionary.size()];
+    var counted = new boolean[sums.length];
+    for (int row = 0; row < size; row++) {
+      int group = groupColumn.ids[row];
+      int count = populationCounts[row];
+      if (group != ABSENT && count >= 0) {
+        sums[group] += count;
+        counted[group] = true;
+      }
+    }
+    var result = new LinkedHashMap<CodeableConcept, Long>();
+    for (int group = 0; group < sums.length; group++) {
+      if (counted[group]) {
+        result.put(groupColumn.dictionary.get(group), sums[group]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns a stratifier with only the strata whose stratum value matches {@code predicate}.
+   *
+   * @param predicate the predicate tested against each distinct stratum value
+   * @return the filtered stratifier
+   */
+  public ColumnarStratifier filterValue(Predicate<CodeableConcept> predicate) {
+    return select(value, predicate);
+  }
+
+  /**
+   * Returns a stratifier with only the strata whose component with {@code coding} has a value
+   * matching {@code predicate}. Strata without that component are removed.
+   *
+   * @param coding    the coding of the component
+   * @param predicate the predicate tested against each distinct component value
+   * @return the filtered stratifier
+   */
+  public ColumnarStratifier filter(Coding coding, Predicate<CodeableConcept> predicate) {
+    int column = indexOf(componentCodes, coding);
+    return column == ABSENT
+        ? select(new int[0])
+        : select(components.get(column), predicate);
+  }
+
+  private ColumnarStratifier select(Column column, Predicate<CodeableConcept> predicate) {
+    var matches = new boolean[column.dictionary.size()];
+    for (int i = 0; i < matches.length; i++) {
+      matches[i] = predicate.test(column.dictionary.get(i));
+    }
+    var rows = new int[size];
+    int selected = 0;
+    for (int row = 0; row < size; row++) {
+      int id = column.ids[row];
+      if (id != ABSENT && matches[id]) {
+        rows[selected++] = row;
+      }
+    }
+    return select(Arrays.copyOf(rows, selected));
+  }
+
+  private ColumnarStratifier select(int[] rows) {
+    return new ColumnarStratifier(code, value.select(rows), componentCodes,
+        components.stream().map(c -> c.select(rows)).toList(), populationCodes,
+        counts.stream().map(c -> select(c, rows)).toList(), rows.length);
+  }
+
+  private static int[] select(int[] counts, int[] rows) {
+    var selected = new int[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      selected[i] = counts[rows[i]];
+    }
+    return selected;
+  }
+
+  /**
+   * Groups the strata by the value of their component with {@code coding} and sums up the counts of
+   * each population per group.
+   * <p>
+   * The result has one stratum per distinct component value with that value as its only component.
+   * Strata without the component are dropped.
+   *
+   * @param coding the coding of the component to group by
+   * @return the grouped stratifier
+   */
+  public ColumnarStratifier groupBy(Coding coding) {
+    int column = indexOf(componentCodes, coding);
+    if (column == ABSENT) {
+      return new ColumnarStratifier(code, new Column(List.of(), new int[0]), List.of(), List.of(),
+          populationCodes, counts.stream().map(c -> new int[0]).toList(), 0);
+    }
+    var groupColumn = components.get(column);
+    int groups = groupColumn.dictionary.size();
+    var groupCounts = new ArrayList<int[]>(counts.size());
+    for (int[] populationCounts : counts) {
+      var sums = newCounts(groups);
+      for (int row = 0; row < size; row++) {
+        int group = groupColumn.ids[row];
+        int count = populationCounts[row];
+        if (group != ABSENT && count != NO_POPULATION) {
+          sums[group] = Math.max(sums[group], 0) + Math.max(count, 0);
+        }
+      }
+      groupCounts.add(sums);
+    }
+    var ids = new int[groups];
+    Arrays.setAll(ids, i -> i);
+    var componentCode = componentCodes.get(column);
+    return new ColumnarStratifier(List.of(componentCode),
+        new Column(List.of(), newAbsentIds(groups)), List.of(componentCode),
+        List.of(new Column(groupColumn.dictionary, ids)), populationCodes, groupCounts, groups);
+  }
+
+  /**
+   * Merges this stratifier with {@code other} by summing up the counts of strata with equal value
+   * and components.
+   * <p>
+   * This can be used to combine the stratifiers of the reports of several sites.
+   *
+   * @param other the stratifier to merge
+   * @return the merged stratifier
+   */
+  public ColumnarStratifier merge(ColumnarStratifier other) {
+    var componentCodes = union(this.componentCodes, other.componentCodes);
+    var populationCodes = union(this.populationCodes, other.populationCodes);
+    var value = new ColumnBuilder(size + other.size);
+    var components = componentCodes.stream().map(c -> new ColumnBuilder(size + other.size))
+        .toList();
+    var counts = populationCodes.stream().map(c -> newCounts(size + other.size)).toList();
+    var rowsByKey = new HashMap<List<Integer>, Integer>();
+    int rows = 0;
+    for (var stratifier : List.of(this, other)) {
+      for (int row = 0; row < stratifier.size; row++) {
+        var key = new ArrayList<Integer>(components.size() + 1);
+        key.add(value.id(stratifier.value.get(row)));
+        for (int i = 0; i < components.size(); i++) {
+          int column = stratifier.componentCodes.indexOf(componentCodes.get(i));
+          key.add(components.get(i).id(column == ABSENT ? null
+              : stratifier.components.get(column).get(row)));
+        }
+        var target = rowsByKey.get(key);
+        if (target == null) {
+          target = rows++;
+          rowsByKey.put(key, target);
+          value.setId(target, key.get(0));
+          for (int i = 0; i < components.size(); i++) {
+            components.get(i).setId(target, key.get(i + 1));
+          }
+        }
+        for (int i = 0; i < counts.size(); i++) {
+          int column = stratifier.populationCodes.indexOf(populationCodes.get(i));
+          if (column != ABSENT) {
+            int count = stratifier.counts.get(column)[row];
+            if (count != NO_POPULATION) {
+              int sum = counts.get(i)[target];
+              counts.get(i)[target] = count == NO_COUNT && sum < 0 ? NO_COUNT
+                  : Math.max(sum, 0) + Math.max(count, 0);
+            }
+          }
+        }
+      }
+    }
+    int size = rows;
+    return new ColumnarStratifier(code, value.build(size), componentCodes,
+        components.stream().map(c -> c.build(size)).toList(), populationCodes,
+        counts.stream().map(c -> Arrays.copyOf(c, size)).toList(), size);
+  }
+
+  private static List<CodeableConcept> union(List<CodeableConcept> a, List<CodeableConcept> b) {
+    var union = new ArrayList<>(a);
+    for (var code : b) {
+      if (!union.contains(code)) {
+        union.add(code);
+      }
+    }
+    return List.copyOf(union);
+  }
+
+  private static int indexOf(List<CodeableConcept> codes, Coding coding) {
+    for (int i = 0; i < codes.size(); i++) {
+      if (codes.get(i).coding().contains(coding)) {
+        return i;
+      }
+    }
+    return ABSENT;
+  }
+
+  private static int[] newAbsentIds(int size) {
+    var ids = new int[size];
+    Arrays.fill(ids, ABSENT);
+    return ids;
+  }
+
+  /**
+   * A dictionary encoded column.
+   *
+   * @param dictionary the distinct values in order of first occurrence
+   * @param ids        the index into {@code dictionary} per stratum or {@link #ABSENT}
+   */
+  private record Column(List<CodeableConcept> dictionary, int[] ids) {
+
+    private CodeableConcept get(int row) {
+      int id = ids[row];
+      return id == ABSENT ? null : dictionary.get(id);
+    }
+
+    private Column select(int[] rows) {
+      return new Column(dictionary, ColumnarStratifier.select(ids, rows));
+    }
+  }
+
+  private static final class ColumnBuilder {
+
+    private final List<CodeableConcept> dictionary = new ArrayList<>();
+    private final Map<CodeableConcept, Integer> idsByValue = new HashMap<>();
+    private final int[] ids;
+
+    private ColumnBuilder(int size) {
+      ids = newAbsentIds(size);
+    }
+
+    private int id(CodeableConcept value) {
+      if (value == null) {
+        return ABSENT;
+      }
+      return idsByValue.computeIfAbsent(value, v -> {
+        dictionary.add(v);
+        return dictionary.size() - 1;
+      });
+    }
+
+    private void set(int row, CodeableConcept value) {
+      ids[row] = id(value);
+    }
+
+    private void setId(int row, int id) {
+      ids[row] = id;
+    }
+
+    private Column build() {
+      return build(ids.length);
+    }
+
+    private Column build(int size) {
+      return new Column(List.copyOf(dictionary), Arrays.copyOf(ids, size));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ColumnarStratifier[code=" + code + ", size=" + size + ", componentCodes="
+        + componentCodes + ", populationCodes=" + populationCodes + "]";
+  }
+}
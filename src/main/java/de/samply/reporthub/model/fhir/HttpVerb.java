@@ -3,7 +3,8 @@ package de.samply.reporthub.model.fhir;
 public enum HttpVerb {
 
   GET("GET"),
-  POST("POST");
+  POST("POST"),
+  PUT("PUT");
 
   private final Code code;
 
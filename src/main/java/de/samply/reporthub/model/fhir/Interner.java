@@ -0,0 +1,141 @@
+package de.samply.reporthub.model.fhir;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * A bounded, concurrent pool of immutable values, used to share instances of values that repeat
+ * many times in a resource, like code system URLs and codes.
+ * <p>
+ * The pool is a direct-mapped table. Every value has exactly one slot determined by its hash code
+ * and a new value evicts the value currently stored in its slot. So lookups never lock and the
+ * memory used by the pool is fixed.
+ * <p>
+ * Constants of the model can be {@link #pin(Object) pinned}. Pinned values are kept in a second
+ * table of the same size and are never evicted, so values read from the stores share the
+ * instances of the constants they are compared with and these comparisons stop at the identity
+ * check.
+ *
+ * @param <T> the type of the pooled values
+ */
+final class Interner<T> {
+
+  private final AtomicReferenceArray<T> table;
+  private final AtomicReferenceArray<T> pinned;
+  private final int mask;
+
+  /**
+   * Creates a pool with at least {@code capacity} slots.
+   *
+   * @param capacity the minimum number of slots
+   */
+  Interner(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity has to be positive.");
+    }
+    int size = Integer.highestOneBit(capacity - 1) << 1;
+    this.table = new AtomicReferenceArray<>(Math.max(size, 1));
+    this.pinned = new AtomicReferenceArray<>(table.length());
+    this.mask = table.length() - 1;
+  }
+
+  /**
+   * Pools {@code value} for good and returns the pinned instance equal to it.
+   * <p>
+   * If another value is already pinned in the slot of {@code value}, {@code value} is only
+   * {@link #intern(Object) interned}. As pinned values can't be evicted, only constants should be
+   * pinned.
+   *
+   * @param value the constant to pin
+   * @return an instance equal to {@code value}
+   */
+  T pin(T value) {
+    int index = index(value.hashCode());
+    if (pinned.compareAndSet(index, null, value)) {
+      return value;
+    }
+    T existing = pinned.getAcquire(index);
+    return value.equals(existing) ? existing : intern(value);
+  }
+
+  /**
+   * Returns the pooled instance equal to {@code value} or pools {@code value} and returns it.
+   *
+   * @param value the value to intern
+   * @return an instance equal to {@code value}
+   */
+  T intern(T value) {
+    int index = index(value.hashCode());
+    T constant = pinned.getAcquire(index);
+    if (value.equals(constant)) {
+      return constant;
+    }
+    T existing = table.getAcquire(index);
+    if (value.equals(existing)) {
+      return existing;
+    }
+    table.setRelease(index, value);
+    return value;
+  }
+
+  /**
+   * Returns the pooled instance with the string value given as {@code length} characters of
+   * {@code chars} starting at {@code offset}.
+   * <p>
+   * Only if no such instance is pooled, a string is created from the characters and passed to
+   * {@code constructor}. The string isn't interned in the JVM string pool, because the values come
+   * from the stores and are unbounded, while this pool is bounded.
+   * <p>
+   * This method assumes that the hash code of a value is the hash code of its string value.
+   *
+   * @param chars       the buffer holding the characters
+   * @param offset      the offset of the first character
+   * @param length      the number of characters
+   * @param stringValue returns the string value of a pooled instance
+   * @param constructor creates a new instance from a string value
+   * @return an instance with the given string value
+   */
+  T intern(char[] chars, int offset, int length, Function<T, String> stringValue,
+      Function<String, T> constructor) {
+    int index = index(hashCode(chars, offset, length));
+    T constant = pinned.getAcquire(index);
+    if (constant != null && contentEquals(stringValue.apply(constant), chars, offset, length)) {
+      return constant;
+    }
+    T existing = table.getAcquire(index);
+    if (existing != null && contentEquals(stringValue.apply(existing), chars, offset, length)) {
+      return existing;
+    }
+    T value = constructor.apply(new String(chars, offset, length));
+    table.setRelease(index, value);
+    return value;
+  }
+
+  private int index(int hashCode) {
+    return (hashCode ^ (hashCode >>> 16)) & mask;
+  }
+
+  /**
+   * Returns the same hash code as {@link String#hashCode()} would return for a string of the given
+   * characters.
+   */
+  private static int hashCode(char[] chars, int offset, int length) {
+    int h = 0;
+    for (int i = offset; i < offset + length; i++) {
+      h = 31 * h + chars[i];
+    }
+    return h;
+  }
+
+  private static boolean contentEquals(String s, char[] chars, int offset, int length) {
+    if (s == null || s.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (s.charAt(i) != chars[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -19,16 +19,18 @@ public record Library(
     Optional<String> id,
     Optional<Meta> meta,
     Optional<String> url,
+    Optional<String> version,
     Optional<String> name,
     Code status,
     CodeableConcept type,
     Optional<CodeableConcept> subjectCodeableConcept,
-    List<Attachment> content) implements Resource<Library> {
+    List<Attachment> content) implements CanonicalResource<Library> {
 
   public Library {
     Objects.requireNonNull(id);
     Objects.requireNonNull(meta);
     Objects.requireNonNull(url);
+    Objects.requireNonNull(version);
     Objects.requireNonNull(name);
     Objects.requireNonNull(status);
     Objects.requireNonNull(type);
@@ -56,6 +58,7 @@ public record Library(
     private String id;
     private Meta meta;
     private String url;
+    private String version;
     private String name;
     private Code status;
     private CodeableConcept type;
@@ -71,7 +74,9 @@ public record Library(
 
     private Builder(Library library) {
       this.id = library.id.orElse(null);
+      this.meta = library.meta.orElse(null);
       this.url = library.url.orElse(null);
+      this.version = library.version.orElse(null);
       this.name = library.name.orElse(null);
       this.status = library.status;
       this.type = library.type;
@@ -94,6 +99,11 @@ public record Library(
       return this;
     }
 
+    public Builder withVersion(String version) {
+      this.version = Objects.requireNonNull(version);
+      return this;
+    }
+
     public Builder withName(String name) {
       this.name = Objects.requireNonNull(name);
       return this;
@@ -123,6 +133,7 @@ public record Library(
       return new Library(Optional.ofNullable(id),
           Optional.ofNullable(meta),
           Optional.ofNullable(url),
+          Optional.ofNullable(version),
           Optional.ofNullable(name),
           status,
           type,
@@ -19,18 +19,20 @@ public record Measure(
     Optional<String> id,
     Optional<Meta> meta,
     Optional<String> url,
+    Optional<String> version,
     Optional<String> name,
     Optional<String> title,
     Code status,
     Optional<CodeableConcept> subjectCodeableConcept,
     List<Canonical> library,
     Optional<CodeableConcept> scoring,
-    List<Group> group) implements Resource<Measure> {
+    List<Group> group) implements CanonicalResource<Measure> {
 
   public Measure {
     Objects.requireNonNull(id);
     Objects.requireNonNull(meta);
     Objects.requireNonNull(url);
+    Objects.requireNonNull(version);
     Objects.requireNonNull(name);
     Objects.requireNonNull(title);
     Objects.requireNonNull(status);
@@ -69,6 +71,7 @@ public record Measure(
     private String id;
     private Meta meta;
     private String url;
+    private String version;
     private String name;
     private String title;
     private Code status;
@@ -88,6 +91,7 @@ public record Measure(
       id = measure.id.orElse(null);
       meta = measure.meta.orElse(null);
       url = measure.url.orElse(null);
+      version = measure.version.orElse(null);
       name = measure.name.orElse(null);
       title = measure.title.orElse(null);
       status = measure.status;
@@ -112,6 +116,11 @@ public record Measure(
       return this;
     }
 
+    public Builder withVersion(String version) {
+      this.version = Objects.requireNonNull(version);
+      return this;
+    }
+
     public Builder withName(String name) {
       this.name = Objects.requireNonNull(name);
       return this;
@@ -152,6 +161,7 @@ public record Measure(
           Optional.ofNullable(id),
           Optional.ofNullable(meta),
           Optional.ofNullable(url),
+          Optional.ofNullable(version),
           Optional.ofNullable(name),
           Optional.ofNullable(title),
           status,
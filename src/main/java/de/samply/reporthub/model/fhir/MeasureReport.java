@@ -3,6 +3,7 @@ package de.samply.reporthub.model.fhir;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.annotation.JsonTypeInfo.Id;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
@@ -154,7 +155,8 @@ public record MeasureReport(
     }
 
     public Optional<Population> findPopulation(Predicate<CodeableConcept> codePredicate) {
-      return population.stream().filter(p -> p.code.stream().anyMatch(codePredicate)).findFirst();
+      return population.stream().filter(p -> p.code != null && codePredicate.test(p.code))
+          .findFirst();
     }
 
     public Optional<Stratifier> findStratifier(Predicate<CodeableConcept> codePredicate) {
@@ -196,23 +198,51 @@ public record MeasureReport(
 
     @JsonInclude(Include.NON_EMPTY)
     @JsonDeserialize(builder = Population.Builder.class)
-    public record Population(
-        Optional<CodeableConcept> code,
-        Optional<Integer> count) implements BackboneElement {
+    public static final class Population implements BackboneElement {
 
-      public Population {
-        Objects.requireNonNull(code);
-        Objects.requireNonNull(count);
+      @JsonProperty
+      private final CodeableConcept code;
+
+      @JsonProperty
+      private final Integer count;
+
+      private Population(CodeableConcept code, Integer count) {
+        this.code = code;
+        this.count = count;
+      }
+
+      public Optional<CodeableConcept> code() {
+        return Optional.ofNullable(code);
+      }
+
+      public Optional<Integer> count() {
+        return Optional.ofNullable(count);
       }
 
       public static Population of(CodeableConcept code, Integer count) {
-        return new Builder().withCode(code).withCount(count).build();
+        return new Population(Objects.requireNonNull(code), Objects.requireNonNull(count));
       }
 
       public static Builder builder() {
         return new Builder();
       }
 
+      @Override
+      public boolean equals(Object o) {
+        return this == o || o instanceof Population that && Objects.equals(code, that.code)
+            && Objects.equals(count, that.count);
+      }
+
+      @Override
+      public int hashCode() {
+        return Objects.hash(code, count);
+      }
+
+      @Override
+      public String toString() {
+        return "Population[code=" + code() + ", count=" + count() + "]";
+      }
+
       public static class Builder {
 
         private CodeableConcept code;
@@ -229,7 +259,7 @@ public record MeasureReport(
         }
 
         public Population build() {
-          return new Population(Optional.ofNullable(code), Optional.ofNullable(count));
+          return new Population(code, count);
         }
       }
     }
@@ -271,15 +301,34 @@ public record MeasureReport(
 
       @JsonInclude(Include.NON_EMPTY)
       @JsonDeserialize(builder = Stratum.Builder.class)
-      public record Stratum(
-          Optional<CodeableConcept> value,
-          List<Component> component,
-          List<Population> population) implements BackboneElement {
-
-        public Stratum {
-          Objects.requireNonNull(value);
-          Objects.requireNonNull(component);
-          Objects.requireNonNull(population);
+      public static final class Stratum implements BackboneElement {
+
+        @JsonProperty
+        private final CodeableConcept value;
+
+        @JsonProperty
+        private final List<Component> component;
+
+        @JsonProperty
+        private final List<Population> population;
+
+        private Stratum(CodeableConcept value, List<Component> component,
+            List<Population> population) {
+          this.value = value;
+          this.component = Objects.requireNonNull(component);
+          this.population = Objects.requireNonNull(population);
+        }
+
+        public Optional<CodeableConcept> value() {
+          return Optional.ofNullable(value);
+        }
+
+        public List<Component> component() {
+          return component;
+        }
+
+        public List<Population> population() {
+          return population;
         }
 
         public Optional<Component> findComponent(Predicate<CodeableConcept> codePredicate) {
@@ -287,7 +336,7 @@ public record MeasureReport(
         }
 
         public Optional<Population> findPopulation(Predicate<CodeableConcept> codePredicate) {
-          return population.stream().filter(p -> p.code.stream().anyMatch(codePredicate))
+          return population.stream().filter(p -> p.code != null && codePredicate.test(p.code))
               .findFirst();
         }
 
@@ -317,13 +366,28 @@ public record MeasureReport(
           }
 
           public Stratum build() {
-            return new Stratum(
-                Optional.ofNullable(value),
-                Util.copyOfNullable(component),
+            return new Stratum(value, Util.copyOfNullable(component),
                 Util.copyOfNullable(population));
           }
         }
 
+        @Override
+        public boolean equals(Object o) {
+          return this == o || o instanceof Stratum that && Objects.equals(value, that.value)
+              && component.equals(that.component) && population.equals(that.population);
+        }
+
+        @Override
+        public int hashCode() {
+          return Objects.hash(value, component, population);
+        }
+
+        @Override
+        public String toString() {
+          return "Stratum[value=" + value() + ", component=" + component + ", population="
+              + population + "]";
+        }
+
         public record Component(
             CodeableConcept code,
             CodeableConcept value) implements BackboneElement {
@@ -340,17 +404,45 @@ public record MeasureReport(
 
         @JsonInclude(Include.NON_EMPTY)
         @JsonDeserialize(builder = Population.Builder.class)
-        public record Population(
-            Optional<CodeableConcept> code,
-            Optional<Integer> count) implements BackboneElement {
+        public static final class Population implements BackboneElement {
 
-          public Population {
-            Objects.requireNonNull(code);
-            Objects.requireNonNull(count);
+          @JsonProperty
+          private final CodeableConcept code;
+
+          @JsonProperty
+          private final Integer count;
+
+          private Population(CodeableConcept code, Integer count) {
+            this.code = code;
+            this.count = count;
+          }
+
+          public Optional<CodeableConcept> code() {
+            return Optional.ofNullable(code);
+          }
+
+          public Optional<Integer> count() {
+            return Optional.ofNullable(count);
           }
 
           public static Population of(CodeableConcept code, Integer count) {
-            return new Population.Builder().withCode(code).withCount(count).build();
+            return new Population(Objects.requireNonNull(code), Objects.requireNonNull(count));
+          }
+
+          @Override
+          public boolean equals(Object o) {
+            return this == o || o instanceof Population that && Objects.equals(code, that.code)
+                && Objects.equals(count, that.count);
+          }
+
+          @Override
+          public int hashCode() {
+            return Objects.hash(code, count);
+          }
+
+          @Override
+          public String toString() {
+            return "Population[code=" + code() + ", count=" + count() + "]";
           }
 
           public static class Builder {
@@ -369,7 +461,7 @@ public record MeasureReport(
             }
 
             public Population build() {
-              return new Population(Optional.ofNullable(code), Optional.ofNullable(count));
+              return new Population(code, count);
             }
           }
         }
@@ -0,0 +1,187 @@
+package de.samply.reporthub.model.fhir;
+
+import de.samply.reporthub.model.fhir.MeasureReport.Group;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Population;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum.Component;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * An indexed view of a {@link MeasureReport}.
+ * <p>
+ * Groups, their populations and stratifiers are looked up by {@link Coding} in constant time
+ * instead of testing a {@link CodeableConcept} predicate on every element. Strata of a stratifier
+ * can be looked up by the text of their value. Elements whose code contains more than one coding
+ * are found under each of them. If several elements share a coding, the first one is found, like
+ * the {@code find} methods of the model would do.
+ * <p>
+ * The components and populations of a single stratum are usually only one or two, so they are
+ * scanned instead of being put into a map. Because codings are pooled, the comparison of codings is
+ * mostly a reference check.
+ */
+public final class MeasureReportIndex {
+
+  private final MeasureReport report;
+  private final Map<Coding, GroupIndex> groups;
+
+  private MeasureReportIndex(MeasureReport report) {
+    this.report = report;
+    this.groups = index(report.group(), Group::code, GroupIndex::new);
+  }
+
+  /**
+   * Creates an index of {@code report}.
+   *
+   * @param report the MeasureReport to index
+   * @return the index
+   */
+  public static MeasureReportIndex of(MeasureReport report) {
+    return new MeasureReportIndex(Objects.requireNonNull(report));
+  }
+
+  public MeasureReport report() {
+    return report;
+  }
+
+  public Optional<GroupIndex> group(Coding coding) {
+    return Optional.ofNullable(groups.get(coding));
+  }
+
+  private static <T, I> Map<Coding, I> index(List<T> elements,
+      Function<T, Optional<CodeableConcept>> code, Function<T, I> indexer) {
+    var index = new HashMap<Coding, I>();
+    for (var element : elements) {
+      code.apply(element).ifPresent(c -> {
+        var value = indexer.apply(element);
+        c.coding().forEach(coding -> index.putIfAbsent(coding, value));
+      });
+    }
+    return index;
+  }
+
+  private static boolean contains(CodeableConcept concept, Coding coding) {
+    for (var c : concept.coding()) {
+      if (c == coding || c.equals(coding)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static final class GroupIndex {
+
+    private final Group group;
+    private final Map<Coding, Population> populations;
+    private final Map<Coding, StratifierIndex> stratifiers;
+
+    private GroupIndex(Group group) {
+      this.group = group;
+      this.populations = index(group.population(), Population::code, Function.identity());
+      this.stratifiers = new HashMap<>();
+      for (var stratifier : group.stratifier()) {
+        var stratifierIndex = new StratifierIndex(stratifier);
+        stratifier.code().forEach(code -> code.coding()
+            .forEach(coding -> stratifiers.putIfAbsent(coding, stratifierIndex)));
+      }
+    }
+
+    public Group group() {
+      return group;
+    }
+
+    public Optional<Population> population(Coding coding) {
+      return Optional.ofNullable(populations.get(coding));
+    }
+
+    public Optional<Integer> count(Coding coding) {
+      return population(coding).flatMap(Population::count);
+    }
+
+    public Optional<StratifierIndex> stratifier(Coding coding) {
+      return Optional.ofNullable(stratifiers.get(coding));
+    }
+  }
+
+  public static final class StratifierIndex {
+
+    private final Stratifier stratifier;
+    private volatile Map<String, Stratum> strataByValue;
+
+    private StratifierIndex(Stratifier stratifier) {
+      this.stratifier = stratifier;
+    }
+
+    public Stratifier stratifier() {
+      return stratifier;
+    }
+
+    public List<Stratum> strata() {
+      return stratifier.stratum();
+    }
+
+    /**
+     * Returns the first stratum whose value has {@code text}.
+     * <p>
+     * The map from value text to stratum is built on first use.
+     *
+     * @param text the text of the value of the stratum
+     * @return an {@code Optional} of the found stratum or an empty {@code Optional} if no stratum
+     * has a value with {@code text}
+     */
+    public Optional<Stratum> stratum(String text) {
+      var strataByValue = this.strataByValue;
+      if (strataByValue == null) {
+        strataByValue = new HashMap<>();
+        for (var stratum : stratifier.stratum()) {
+          var value = stratum.value().flatMap(CodeableConcept::text);
+          if (value.isPresent()) {
+            strataByValue.putIfAbsent(value.get(), stratum);
+          }
+        }
+        this.strataByValue = strataByValue;
+      }
+      return Optional.ofNullable(strataByValue.get(text));
+    }
+
+    /**
+     * Returns the value of the component with {@code coding} of {@code stratum}.
+     *
+     * @param stratum one of the strata of this stratifier
+     * @param coding  the coding of the component
+     * @return an {@code Optional} of the value or an empty {@code Optional} if {@code stratum} has
+     * no component with {@code coding}
+     */
+    public static Optional<CodeableConcept> component(Stratum stratum, Coding coding) {
+      for (Component component : stratum.component()) {
+        if (contains(component.code(), coding)) {
+          return Optional.of(component.value());
+        }
+      }
+      return Optional.empty();
+    }
+
+    /**
+     * Returns the count of the population with {@code coding} of {@code stratum}.
+     *
+     * @param stratum one of the strata of this stratifier
+     * @param coding  the coding of the population
+     * @return an {@code Optional} of the count or an empty {@code Optional} if {@code stratum} has
+     * no population with {@code coding} or the population has no count
+     */
+    public static Optional<Integer> count(Stratum stratum, Coding coding) {
+      for (Stratum.Population population : stratum.population()) {
+        var code = population.code();
+        if (code.isPresent() && contains(code.get(), coding)) {
+          return population.count();
+        }
+      }
+      return Optional.empty();
+    }
+  }
+}
@@ -6,13 +6,19 @@ public enum MeasureReportStatus {
   PENDING("pending"),
   ERROR("error");
 
+  private final String searchToken;
   private final Code code;
 
   MeasureReportStatus(String code) {
+    this.searchToken = code;
     this.code = Code.valueOf(code);
   }
 
   public Code code() {
     return code;
   }
+
+  public String searchToken() {
+    return searchToken;
+  }
 }
@@ -0,0 +1,113 @@
+package de.samply.reporthub.model.fhir;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Base class of primitive elements with a string value.
+ * <p>
+ * The value is stored nullable, so a primitive element is a single object around its string.
+ * Accessors still return an {@code Optional}. Values are deserialized directly from the string
+ * token without building an intermediate JSON tree and serialized as string without calling an
+ * accessor reflectively.
+ */
+@JsonSerialize(using = PrimitiveElement.Serializer.class)
+public abstract class PrimitiveElement implements Element {
+
+  private final String value;
+
+  PrimitiveElement(String value) {
+    this.value = value;
+  }
+
+  public Optional<String> value() {
+    return Optional.ofNullable(value);
+  }
+
+  public boolean hasValue(String value) {
+    return this.value != null && this.value.equals(value);
+  }
+
+  public String jsonValue() {
+    return value;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || o != null && getClass() == o.getClass()
+        && Objects.equals(value, ((PrimitiveElement) o).value);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(value);
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "[value=" + value() + "]";
+  }
+
+  static final class Serializer extends StdSerializer<PrimitiveElement> {
+
+    Serializer() {
+      super(PrimitiveElement.class);
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider provider, PrimitiveElement element) {
+      return element.value == null || element.value.isEmpty();
+    }
+
+    @Override
+    public void serialize(PrimitiveElement element, JsonGenerator generator,
+        SerializerProvider provider) throws IOException {
+      if (element.value == null) {
+        generator.writeNull();
+      } else {
+        generator.writeString(element.value);
+      }
+    }
+  }
+
+  static class Deserializer<T extends PrimitiveElement> extends StdScalarDeserializer<T> {
+
+    private final Function<String, T> constructor;
+    private final Interner<T> pool;
+
+    Deserializer(Class<T> type, Function<String, T> constructor) {
+      this(type, constructor, null);
+    }
+
+    /**
+     * Creates a deserializer which returns values shared through {@code pool}.
+     */
+    Deserializer(Class<T> type, Function<String, T> constructor, Interner<T> pool) {
+      super(type);
+      this.constructor = Objects.requireNonNull(constructor);
+      this.pool = pool;
+    }
+
+    @Override
+    public T deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+      if (parser.currentToken() == JsonToken.VALUE_STRING) {
+        return pool == null
+            ? constructor.apply(parser.getText())
+            : pool.intern(parser.getTextCharacters(), parser.getTextOffset(),
+                parser.getTextLength(), PrimitiveElement::jsonValue, constructor);
+      }
+      return context.reportInputMismatch(this, "Invalid JSON token `%s` for %s type.",
+          parser.currentToken(), handledType().getSimpleName());
+    }
+  }
+}
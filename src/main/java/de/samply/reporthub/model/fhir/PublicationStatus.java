@@ -13,13 +13,15 @@ public enum PublicationStatus implements Predicate<Code> {
   UNKNOWN("unknown");
 
   private final String code;
+  private final Code codeElement;
 
   PublicationStatus(String code) {
     this.code = code;
+    this.codeElement = Code.valueOf(code);
   }
 
   public Code code() {
-    return Code.valueOf(code);
+    return codeElement;
   }
 
   @Override
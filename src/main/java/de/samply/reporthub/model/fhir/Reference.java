@@ -2,6 +2,7 @@ package de.samply.reporthub.model.fhir;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import de.samply.reporthub.model.fhir.Reference.Builder;
 import de.samply.reporthub.service.fhir.store.Store;
@@ -9,12 +10,23 @@ import java.util.Objects;
 import java.util.Optional;
 import reactor.core.publisher.Mono;
 
+/**
+ * A FHIR Reference. An absent reference is stored as {@code null} rather than as empty
+ * {@code Optional}, like in the other elements which occur once per Bundle entry.
+ */
 @JsonInclude(Include.NON_EMPTY)
 @JsonDeserialize(builder = Builder.class)
-public record Reference(Optional<String> reference) implements Element {
+public final class Reference implements Element {
 
-  public Reference {
-    Objects.requireNonNull(reference);
+  @JsonProperty
+  private final String reference;
+
+  private Reference(String reference) {
+    this.reference = reference;
+  }
+
+  public Optional<String> reference() {
+    return Optional.ofNullable(reference);
   }
 
   public static Reference ofReference(String reference) {
@@ -30,7 +42,7 @@ public record Reference(Optional<String> reference) implements Element {
   }
 
   public Optional<String> logicalId(Class<? extends Resource<?>> type) {
-    return reference.flatMap(ref -> {
+    return reference().flatMap(ref -> {
       var parts = ref.split("/", 2);
       return (parts.length == 2 && type.getSimpleName().equals(parts[0]))
           ? Optional.of(parts[1]) : Optional.empty();
@@ -41,6 +53,21 @@ public record Reference(Optional<String> reference) implements Element {
     return new Builder();
   }
 
+  @Override
+  public boolean equals(Object o) {
+    return this == o || o instanceof Reference that && Objects.equals(reference, that.reference);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(reference);
+  }
+
+  @Override
+  public String toString() {
+    return "Reference[reference=" + reference() + "]";
+  }
+
   public static class Builder {
 
     private String reference;
@@ -51,7 +78,7 @@ public record Reference(Optional<String> reference) implements Element {
     }
 
     public Reference build() {
-      return new Reference(Optional.ofNullable(reference));
+      return new Reference(reference);
     }
   }
 }
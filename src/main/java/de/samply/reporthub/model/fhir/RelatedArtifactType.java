@@ -17,13 +17,15 @@ public enum RelatedArtifactType implements Predicate<Code> {
   COMPOSED_OF("composed-of");
 
   private final String code;
+  private final Code codeElement;
 
   RelatedArtifactType(String code) {
     this.code = code;
+    this.codeElement = Code.valueOf(code);
   }
 
   public Code code() {
-    return Code.valueOf(code);
+    return codeElement;
   }
 
   @Override
@@ -12,13 +12,15 @@ public enum ResponseType implements Predicate<Code> {
   FATAL_ERROR("fatal-error");
 
   private final String code;
+  private final Code codeElement;
 
   ResponseType(String code) {
     this.code = code;
+    this.codeElement = Code.valueOf(code);
   }
 
   public Code code() {
-    return Code.valueOf(code);
+    return codeElement;
   }
 
   @Override
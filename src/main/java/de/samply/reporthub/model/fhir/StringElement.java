@@ -1,28 +1,18 @@
 package de.samply.reporthub.model.fhir;
 
-import com.fasterxml.jackson.annotation.JsonCreator;
-import com.fasterxml.jackson.annotation.JsonValue;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.samply.reporthub.model.fhir.StringElement.Deserializer;
 import java.util.Objects;
-import java.util.Optional;
 
-public record StringElement(Optional<String> value) implements Element {
+@JsonDeserialize(using = Deserializer.class)
+public final class StringElement extends PrimitiveElement {
 
-  public StringElement {
-    Objects.requireNonNull(value);
-  }
-
-  public boolean hasValue(String value) {
-    return this.value.equals(Optional.of(value));
-  }
-
-  @JsonValue
-  public String jsonValue() {
-    return value.orElse(null);
+  private StringElement(String value) {
+    super(value);
   }
 
   public static StringElement valueOf(String value) {
-    return StringElement.builder().withValue(value).build();
+    return new StringElement(Objects.requireNonNull(value));
   }
 
   public static Builder builder() {
@@ -42,15 +32,14 @@ public record StringElement(Optional<String> value) implements Element {
     }
 
     public StringElement build() {
-      return new StringElement(Optional.ofNullable(value));
+      return new StringElement(value);
     }
   }
 
-  @JsonCreator
-  public static StringElement jsonCreator(JsonNode node) {
-    if (node.isTextual()) {
-      return StringElement.valueOf(node.textValue());
+  public static final class Deserializer extends PrimitiveElement.Deserializer<StringElement> {
+
+    public Deserializer() {
+      super(StringElement.class, StringElement::valueOf);
     }
-    throw new RuntimeException("Invalid JSON node `%s` for Code type.".formatted(node));
   }
 }
@@ -19,13 +19,15 @@ public enum TaskStatus implements Predicate<Code> {
   ENTERED_IN_ERROR("entered-in-error");
 
   private final String code;
+  private final Code codeElement;
 
   TaskStatus(String code) {
     this.code = code;
+    this.codeElement = Code.valueOf(code);
   }
 
   public Code code() {
-    return Code.valueOf(code);
+    return codeElement;
   }
 
   public String searchToken() {
@@ -1,28 +1,31 @@
 package de.samply.reporthub.model.fhir;
 
-import com.fasterxml.jackson.annotation.JsonCreator;
-import com.fasterxml.jackson.annotation.JsonValue;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.samply.reporthub.model.fhir.Uri.Deserializer;
 import java.util.Objects;
-import java.util.Optional;
 
-public record Uri(Optional<String> value) implements Element {
+@JsonDeserialize(using = Deserializer.class)
+public final class Uri extends PrimitiveElement {
 
-  public Uri {
-    Objects.requireNonNull(value);
-  }
+  private static final Interner<Uri> POOL = new Interner<>(1024);
 
-  public boolean hasValue(String value) {
-    return this.value.equals(Optional.of(value));
+  private Uri(String value) {
+    super(value);
   }
 
-  @JsonValue
-  public String jsonValue() {
-    return value.orElse(null);
+  public static Uri valueOf(String value) {
+    return new Uri(Objects.requireNonNull(value));
   }
 
-  public static Uri valueOf(String value) {
-    return Uri.builder().withValue(value).build();
+  /**
+   * Returns the pooled Uri of the constant {@code value}, so that Uris read from the stores share
+   * the instance of {@code value}.
+   *
+   * @param value a constant, never a value read from elsewhere
+   * @return the pooled Uri
+   */
+  static Uri constant(String value) {
+    return POOL.pin(valueOf(value));
   }
 
   public static Builder builder() {
@@ -42,15 +45,14 @@ public record Uri(Optional<String> value) implements Element {
     }
 
     public Uri build() {
-      return new Uri(Optional.ofNullable(value));
+      return new Uri(value);
     }
   }
 
-  @JsonCreator
-  public static Uri jsonCreator(JsonNode node) {
-    if (node.isTextual()) {
-      return Uri.valueOf(node.textValue());
+  public static final class Deserializer extends PrimitiveElement.Deserializer<Uri> {
+
+    public Deserializer() {
+      super(Uri.class, Uri::valueOf, POOL);
     }
-    throw new RuntimeException("Invalid JSON node `%s` for Code type.".formatted(node));
   }
 }
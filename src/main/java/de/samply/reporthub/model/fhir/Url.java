@@ -1,28 +1,18 @@
 package de.samply.reporthub.model.fhir;
 
-import com.fasterxml.jackson.annotation.JsonCreator;
-import com.fasterxml.jackson.annotation.JsonValue;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.samply.reporthub.model.fhir.Url.Deserializer;
 import java.util.Objects;
-import java.util.Optional;
 
-public record Url(Optional<String> value) implements Element {
+@JsonDeserialize(using = Deserializer.class)
+public final class Url extends PrimitiveElement {
 
-  public Url {
-    Objects.requireNonNull(value);
-  }
-
-  public boolean hasValue(String value) {
-    return this.value.equals(Optional.of(value));
-  }
-
-  @JsonValue
-  public String jsonValue() {
-    return value.orElse(null);
+  private Url(String value) {
+    super(value);
   }
 
   public static Url valueOf(String value) {
-    return Url.builder().withValue(value).build();
+    return new Url(Objects.requireNonNull(value));
   }
 
   public static Builder builder() {
@@ -42,15 +32,14 @@ public record Url(Optional<String> value) implements Element {
     }
 
     public Url build() {
-      return new Url(Optional.ofNullable(value));
+      return new Url(value);
     }
   }
 
-  @JsonCreator
-  public static Url jsonCreator(JsonNode node) {
-    if (node.isTextual()) {
-      return Url.valueOf(node.textValue());
+  public static final class Deserializer extends PrimitiveElement.Deserializer<Url> {
+
+    public Deserializer() {
+      super(Url.class, Url::valueOf);
     }
-    throw new RuntimeException("Invalid JSON node `%s` for Code type.".formatted(node));
   }
 }
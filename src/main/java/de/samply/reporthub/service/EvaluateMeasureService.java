@@ -12,7 +12,6 @@ import de.samply.reporthub.dktk.model.fhir.TaskInput;
 import de.samply.reporthub.dktk.model.fhir.TaskOutput;
 import de.samply.reporthub.model.fhir.Canonical;
 import de.samply.reporthub.model.fhir.CodeableConcept;
-import de.samply.reporthub.model.fhir.MeasureReport;
 import de.samply.reporthub.model.fhir.Meta;
 import de.samply.reporthub.model.fhir.Reference;
 import de.samply.reporthub.model.fhir.StringElement;
@@ -20,6 +19,7 @@ import de.samply.reporthub.model.fhir.Task;
 import de.samply.reporthub.model.fhir.Task.Output;
 import de.samply.reporthub.model.fhir.TaskStatus;
 import de.samply.reporthub.service.fhir.store.DataStore;
+import de.samply.reporthub.service.fhir.store.ResourceLocation;
 import de.samply.reporthub.service.fhir.store.TaskStore;
 import de.samply.reporthub.util.Monos;
 import jakarta.annotation.PostConstruct;
@@ -30,6 +30,7 @@ import java.util.Objects;
 import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.Disposable;
 import reactor.core.Disposables;
@@ -55,6 +56,10 @@ import reactor.retry.Repeat;
  * {@link TaskOutput#ERROR error} as string value.
  * <p>
  * In case that the task itself can't be updated, the processing is stopped.
+ * <p>
+ * With {@code app.evaluateMeasure.rawPassThrough} enabled, which is the default, the MeasureReport
+ * is streamed from the {@link DataStore} into the {@link TaskStore} without being decoded, so that
+ * large MeasureReports are neither held in memory nor limited by the in-memory size of the codecs.
  */
 @Service
 public class EvaluateMeasureService {
@@ -67,13 +72,16 @@ public class EvaluateMeasureService {
   private final TaskStore taskStore;
   private final DataStore dataStore;
   private final Clock clock;
+  private final boolean rawPassThrough;
 
   private final Disposable.Swap subscription = Disposables.swap();
 
-  public EvaluateMeasureService(TaskStore taskStore, DataStore dataStore, Clock clock) {
+  public EvaluateMeasureService(TaskStore taskStore, DataStore dataStore, Clock clock,
+      @Value("${app.evaluateMeasure.rawPassThrough:true}") boolean rawPassThrough) {
     this.taskStore = Objects.requireNonNull(taskStore);
     this.dataStore = Objects.requireNonNull(dataStore);
     this.clock = Objects.requireNonNull(clock);
+    this.rawPassThrough = rawPassThrough;
   }
 
   public boolean isRunning() {
@@ -126,9 +134,18 @@ public class EvaluateMeasureService {
 
   private Mono<Task> evaluateMeasure(Task task) {
     return measureUrl(task)
-        .flatMap(dataStore::evaluateMeasure)
+        .flatMap(this::evaluateAndStoreMeasureReport)
+        .flatMap(measureReportId -> complete(task, measureReportId));
+  }
+
+  private Mono<String> evaluateAndStoreMeasureReport(String measureUrl) {
+    if (rawPassThrough) {
+      return taskStore.createMeasureReport(dataStore.evaluateMeasureRaw(measureUrl))
+          .map(ResourceLocation::id);
+    }
+    return dataStore.evaluateMeasure(measureUrl)
         .flatMap(taskStore::createMeasureReport)
-        .flatMap(measureReport -> complete(task, measureReport));
+        .map(measureReport -> measureReport.id().orElseThrow());
   }
 
   private Mono<String> measureUrl(Task task) {
@@ -137,11 +154,11 @@ public class EvaluateMeasureService {
         .flatMap(Canonical::value), () -> new Exception("Missing Measure URL in Task input."));
   }
 
-  private Mono<Task> complete(Task task, MeasureReport report) {
+  private Mono<Task> complete(Task task, String measureReportId) {
     logger.debug("Complete Task with id: {}", task.id().orElseThrow());
     return taskStore.updateTask(task.withStatus(COMPLETED.code())
         .addOutput(Output.of(TaskOutput.MEASURE_REPORT.coding(),
-            Reference.ofReference("MeasureReport", report.id().orElseThrow())))
+            Reference.ofReference("MeasureReport", measureReportId)))
         .withLastModified(OffsetDateTime.now(clock)));
   }
 
@@ -0,0 +1,54 @@
+package de.samply.reporthub.service;
+
+import de.samply.reporthub.service.StoreHealthService.Status;
+import de.samply.reporthub.service.StoreHealthService.StoreHealth;
+import de.samply.reporthub.web.converter.ConfigConverter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Contributes the health of the stores to the {@code health} endpoint.
+ * <p>
+ * The health is read from the snapshot of the {@link StoreHealthService}, so the endpoint doesn't
+ * contact the stores itself. It's down if one of the stores is down and unknown until all stores
+ * were probed.
+ */
+@Component
+public class StoreHealthIndicator implements HealthIndicator {
+
+  private final StoreHealthService storeHealthService;
+
+  public StoreHealthIndicator(StoreHealthService storeHealthService) {
+    this.storeHealthService = Objects.requireNonNull(storeHealthService);
+  }
+
+  @Override
+  public Health health() {
+    var healths = storeHealthService.health();
+    var builder = healths.stream().anyMatch(health -> health.status() == Status.DOWN)
+        ? Health.down()
+        : healths.stream().allMatch(health -> health.status() == Status.UP)
+            ? Health.up()
+            : Health.unknown();
+    for (var health : healths) {
+      builder.withDetail(health.name(), details(health));
+    }
+    return builder.build();
+  }
+
+  private static Map<String, Object> details(StoreHealth health) {
+    var details = new LinkedHashMap<String, Object>();
+    details.put("status", health.status().name());
+    details.put("software", health.capabilityStatement().map(ConfigConverter::software)
+        .orElse(ConfigConverter.UNKNOWN_SOFTWARE));
+    health.latency().ifPresent(latency -> details.put("latencyMs", latency.toMillis()));
+    details.put("errorRate", health.errorRate());
+    health.error().ifPresent(error -> details.put("error", error));
+    health.lastProbe().ifPresent(lastProbe -> details.put("lastProbe", lastProbe.toString()));
+    return details;
+  }
+}
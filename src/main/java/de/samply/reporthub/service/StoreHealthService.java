@@ -0,0 +1,247 @@
+package de.samply.reporthub.service;
+
+import de.samply.reporthub.model.fhir.CapabilityStatement;
+import de.samply.reporthub.service.fhir.store.DataStore;
+import de.samply.reporthub.service.fhir.store.Store;
+import de.samply.reporthub.service.fhir.store.TaskStore;
+import jakarta.annotation.PostConstruct;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.retry.Repeat;
+
+/**
+ * Probes the TaskStore and the DataStore in the background and keeps a snapshot of their health.
+ * <p>
+ * Every {@code app.storeHealth.probeInterval} each store is asked for its CapabilityStatement if
+ * the cached one is older than {@code app.storeHealth.metadataMaxAge} and pinged otherwise. The
+ * round-trip latency and the outcome of each probe are recorded, and the error rate is taken over
+ * the last {@code app.storeHealth.window} probes.
+ * <p>
+ * The config page and the health endpoint read the {@link #health() snapshot}, so they neither
+ * wait for the stores nor hang if a store is down.
+ */
+@Service
+public class StoreHealthService {
+
+  private static final Logger logger = LoggerFactory.getLogger(StoreHealthService.class);
+
+  private final List<Probe> probes;
+  private final Clock clock;
+  private final Duration probeInterval;
+  private final Duration timeout;
+  private final Duration metadataMaxAge;
+  private final int window;
+
+  private final Disposable.Swap subscription = Disposables.swap();
+
+  public StoreHealthService(
+      TaskStore taskStore,
+      @Value("${app.taskStore.baseUrl}") String taskStoreBaseUrl,
+      DataStore dataStore,
+      @Value("${app.dataStore.baseUrl}") String dataStoreBaseUrl,
+      Clock clock,
+      @Value("${app.storeHealth.probeInterval:PT30S}") Duration probeInterval,
+      @Value("${app.storeHealth.timeout:PT5S}") Duration timeout,
+      @Value("${app.storeHealth.metadataMaxAge:PT1H}") Duration metadataMaxAge,
+      @Value("${app.storeHealth.window:20}") int window) {
+    this.clock = Objects.requireNonNull(clock);
+    this.probeInterval = Objects.requireNonNull(probeInterval);
+    this.timeout = Objects.requireNonNull(timeout);
+    this.metadataMaxAge = Objects.requireNonNull(metadataMaxAge);
+    if (window < 1) {
+      throw new IllegalArgumentException("The window has to contain at least one probe.");
+    }
+    this.window = window;
+    this.probes = List.of(new Probe("taskStore", taskStoreBaseUrl, taskStore),
+        new Probe("dataStore", dataStoreBaseUrl, dataStore));
+  }
+
+  public boolean isRunning() {
+    return !subscription.get().isDisposed();
+  }
+
+  @PostConstruct
+  public void restart() {
+    logger.info("(Re)Start probing the stores.");
+    subscription.update(pipeline().subscribe());
+  }
+
+  public void stop() {
+    logger.info("Stop probing the stores.");
+    subscription.update(Disposables.disposed());
+  }
+
+  /**
+   * Returns the current health of all stores.
+   *
+   * @return the health of the TaskStore followed by the health of the DataStore
+   */
+  public List<StoreHealth> health() {
+    return probes.stream().map(Probe::health).toList();
+  }
+
+  /**
+   * Returns the current health of the store with {@code name}.
+   *
+   * @param name either {@code taskStore} or {@code dataStore}
+   * @return the health of the store or an empty {@code Optional} if there is no such store
+   */
+  public Optional<StoreHealth> health(String name) {
+    return probes.stream().filter(probe -> probe.name.equals(name)).findFirst()
+        .map(Probe::health);
+  }
+
+  Flux<StoreHealth> pipeline() {
+    return Flux.defer(() -> Flux.fromIterable(probes).flatMap(Probe::probe))
+        .repeatWhen(Repeat.times(Long.MAX_VALUE).fixedBackoff(probeInterval));
+  }
+
+  /**
+   * The health of one store.
+   *
+   * @param name                the name of the store
+   * @param baseUrl             the base URL of the store
+   * @param status              the outcome of the last probe
+   * @param capabilityStatement the last CapabilityStatement fetched, which may be stale if the
+   *                            store is down
+   * @param latency             the round-trip latency of the last successful probe
+   * @param errorRate           the share of failed probes in the window of recent probes
+   * @param error               the error message of the last probe if it failed
+   * @param lastProbe           the instant of the last probe
+   */
+  public record StoreHealth(
+      String name,
+      String baseUrl,
+      Status status,
+      Optional<CapabilityStatement> capabilityStatement,
+      Optional<Duration> latency,
+      double errorRate,
+      Optional<String> error,
+      Optional<Instant> lastProbe) {
+
+    public StoreHealth {
+      Objects.requireNonNull(name);
+      Objects.requireNonNull(baseUrl);
+      Objects.requireNonNull(status);
+      Objects.requireNonNull(capabilityStatement);
+      Objects.requireNonNull(latency);
+      Objects.requireNonNull(error);
+      Objects.requireNonNull(lastProbe);
+    }
+  }
+
+  public enum Status {
+    UNKNOWN, UP, DOWN
+  }
+
+  private final class Probe {
+
+    private final String name;
+    private final String baseUrl;
+    private final Store store;
+
+    /**
+     * The outcomes of the most recent probes, newest last. Guarded by {@code this} like all
+     * following fields.
+     */
+    private final Deque<Boolean> outcomes = new ArrayDeque<>();
+    private CapabilityStatement capabilityStatement;
+    private Instant capabilityStatementFetched;
+    private Duration latency;
+    private String error;
+    private Instant lastProbe;
+
+    private Probe(String name, String baseUrl, Store store) {
+      this.name = Objects.requireNonNull(name);
+      this.baseUrl = Objects.requireNonNull(baseUrl);
+      this.store = Objects.requireNonNull(store);
+    }
+
+    private Mono<StoreHealth> probe() {
+      return Mono.defer(this::request)
+          .thenReturn(true)
+          .timeout(timeout)
+          .elapsed()
+          .map(elapsed -> succeeded(Duration.ofMillis(elapsed.getT1())))
+          .onErrorResume(e -> Mono.fromSupplier(() -> failed(e)));
+    }
+
+    private Mono<Void> request() {
+      if (metadataExpired()) {
+        return store.fetchMetadata().doOnNext(this::cache).then();
+      }
+      return store.ping();
+    }
+
+    private synchronized boolean metadataExpired() {
+      return capabilityStatement == null
+          || !capabilityStatementFetched.plus(metadataMaxAge).isAfter(clock.instant());
+    }
+
+    private synchronized void cache(CapabilityStatement capabilityStatement) {
+      this.capabilityStatement = capabilityStatement;
+      this.capabilityStatementFetched = clock.instant();
+    }
+
+    private synchronized StoreHealth succeeded(Duration latency) {
+      if (error != null) {
+        logger.info("The {} at `{}` is up again.", name, baseUrl);
+      }
+      this.latency = latency;
+      this.error = null;
+      record(true);
+      return health();
+    }
+
+    private synchronized StoreHealth failed(Throwable e) {
+      if (error == null) {
+        logger.warn("The {} at `{}` is down: {}", name, baseUrl, e.getMessage());
+      }
+      this.error = Optional.ofNullable(e.getMessage()).orElse(e.getClass().getSimpleName());
+      record(false);
+      return health();
+    }
+
+    private void record(boolean success) {
+      if (outcomes.size() == window) {
+        outcomes.removeFirst();
+      }
+      outcomes.addLast(success);
+      lastProbe = clock.instant();
+    }
+
+    private synchronized StoreHealth health() {
+      return new StoreHealth(name, baseUrl, status(), Optional.ofNullable(capabilityStatement),
+          Optional.ofNullable(latency), errorRate(), Optional.ofNullable(error),
+          Optional.ofNullable(lastProbe));
+    }
+
+    private Status status() {
+      if (outcomes.isEmpty()) {
+        return Status.UNKNOWN;
+      }
+      return outcomes.getLast() ? Status.UP : Status.DOWN;
+    }
+
+    private double errorRate() {
+      if (outcomes.isEmpty()) {
+        return 0;
+      }
+      return (double) outcomes.stream().filter(success -> !success).count() / outcomes.size();
+    }
+  }
+}
@@ -0,0 +1,328 @@
+package de.samply.reporthub.service;
+
+import de.samply.reporthub.dktk.model.fhir.TaskCode;
+import de.samply.reporthub.model.fhir.Meta;
+import de.samply.reporthub.model.fhir.Task;
+import de.samply.reporthub.service.fhir.store.TaskStore;
+import de.samply.reporthub.util.Optionals;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.retry.Repeat;
+import reactor.util.retry.Retry;
+
+/**
+ * An in-memory read model of the most recently updated Tasks, which is used by the home page.
+ * <p>
+ * The model is seeded with the newest {@code app.taskReadModel.capacity} Tasks. Afterwards it
+ * follows changes by repeatedly searching for Tasks updated since the last update seen, like the
+ * Task pipelines do. Each search follows all pages, so that a burst of more than {@code capacity}
+ * Tasks updated at the same instant can't stall the model. The search runs every
+ * {@code app.taskReadModel.pollInterval} in addition to the searches of the pipelines, so the
+ * interval defaults to a more relaxed five seconds.
+ * <p>
+ * Each batch of changes builds a new immutable snapshot holding the Tasks sorted by last
+ * modification, also grouped by status, by code and by both. So a {@link #page page} is a sub list
+ * of a snapshot and its cost doesn't depend on the number of Tasks.
+ * <p>
+ * Tasks created through the UI can be {@link #put(Task) put} directly, so that they show up without
+ * waiting for the next poll.
+ * <p>
+ * Every added or changed Task is also published on the hot {@link #changes() changes} stream. All
+ * subscribers share the one poll loop of the model, so live views don't cause additional searches
+ * in the TaskStore.
+ */
+@Service
+public class TaskReadModel {
+
+  private static final Logger logger = LoggerFactory.getLogger(TaskReadModel.class);
+
+  private static final Comparator<TaskSummary> NEWEST_FIRST = Comparator
+      .comparing(TaskSummary::lastModified).reversed()
+      .thenComparing(TaskSummary::id);
+
+  private final TaskStore taskStore;
+  private final int capacity;
+  private final Duration pollInterval;
+
+  /**
+   * All Tasks of the model by id. Guarded by {@code this}.
+   */
+  private final Map<String, TaskSummary> tasks = new HashMap<>();
+
+  /**
+   * The last updated instant of the newest Task seen. Guarded by {@code this}.
+   */
+  private Instant cursor = Instant.EPOCH;
+
+  private volatile Snapshot snapshot;
+  private volatile boolean ready;
+
+  private final Sinks.Many<TaskSummary> changes = Sinks.many().multicast().directBestEffort();
+
+  private final Disposable.Swap subscription = Disposables.swap();
+
+  public TaskReadModel(TaskStore taskStore,
+      @Value("${app.taskReadModel.capacity:1000}") int capacity,
+      @Value("${app.taskReadModel.pollInterval:PT5S}") Duration pollInterval) {
+    this.taskStore = Objects.requireNonNull(taskStore);
+    this.capacity = capacity;
+    this.pollInterval = Objects.requireNonNull(pollInterval);
+  }
+
+  public boolean isRunning() {
+    return !subscription.get().isDisposed();
+  }
+
+  @PostConstruct
+  public void restart() {
+    logger.info("(Re)Start following Tasks.");
+    subscription.update(pipeline().subscribe());
+  }
+
+  public void stop() {
+    logger.info("Stop following Tasks.");
+    subscription.update(Disposables.disposed());
+  }
+
+  Flux<Boolean> pipeline() {
+    return taskStore.listNewestTasks(capacity).collectList().map(this::follow)
+        .concatWith(Mono.defer(() -> taskStore.listTasksUpdatedSince(cursor(), capacity)
+                .collectList())
+            .map(this::follow)
+            .repeatWhen(Repeat.times(Long.MAX_VALUE).fixedBackoff(pollInterval)))
+        .doOnError(e -> logger.warn("Error while following Tasks: {}", e.getMessage()))
+        .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, pollInterval));
+  }
+
+  /**
+   * Returns {@code true} if the model was seeded and can be used.
+   *
+   * @return {@code true} if the model was seeded
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Adds or updates {@code task}.
+   *
+   * @param task the Task to add or update
+   */
+  public void put(Task task) {
+    putAll(List.of(task));
+  }
+
+  /**
+   * Puts all {@code tasks} received from the TaskStore and moves the cursor to the newest of them.
+   * <p>
+   * Only Tasks received here move the cursor, because Tasks put from elsewhere could be newer than
+   * changes not seen yet.
+   *
+   * @param tasks the Tasks received from the TaskStore
+   * @return {@code true} if a new snapshot was built
+   */
+  synchronized boolean follow(List<Task> tasks) {
+    for (var task : tasks) {
+      task.meta().flatMap(Meta::lastUpdated)
+          .filter(lastUpdated -> lastUpdated.isAfter(cursor))
+          .ifPresent(lastUpdated -> cursor = lastUpdated);
+    }
+    var changed = putAll(tasks);
+    ready = true;
+    return changed;
+  }
+
+  /**
+   * Adds or updates all {@code tasks}, building a new snapshot if at least one of them changed.
+   * <p>
+   * Tasks which are older than the ones already known are ignored.
+   *
+   * @param tasks the Tasks to add or update
+   * @return {@code true} if a new snapshot was built
+   */
+  synchronized boolean putAll(List<Task> tasks) {
+    var changed = new ArrayList<TaskSummary>();
+    for (var task : tasks) {
+      var summary = TaskSummary.of(task);
+      if (summary.isPresent()) {
+        var existing = this.tasks.get(summary.get().id);
+        if (existing == null || !existing.equals(summary.get())
+            && !existing.lastModified.isAfter(summary.get().lastModified)) {
+          this.tasks.put(summary.get().id, summary.get());
+          changed.add(summary.get());
+        }
+      }
+    }
+    if (changed.isEmpty() && snapshot != null) {
+      return false;
+    }
+    snapshot = snapshot();
+    changed.forEach(this.changes::tryEmitNext);
+    return true;
+  }
+
+  /**
+   * Returns a hot stream of all Tasks added or changed from now on.
+   * <p>
+   * Subscribers which can't keep up miss changes instead of slowing down the model.
+   *
+   * @return a hot stream of added or changed Tasks
+   */
+  public Flux<TaskSummary> changes() {
+    return changes.asFlux();
+  }
+
+  private synchronized Instant cursor() {
+    return cursor;
+  }
+
+  private Snapshot snapshot() {
+    var sorted = new ArrayList<>(tasks.values());
+    sorted.sort(NEWEST_FIRST);
+    while (sorted.size() > capacity) {
+      tasks.remove(sorted.remove(sorted.size() - 1).id);
+    }
+    var lists = new HashMap<Filter, List<TaskSummary>>();
+    var statuses = new TreeSet<String>();
+    var codes = new TreeSet<String>();
+    for (var summary : sorted) {
+      statuses.add(summary.status);
+      codes.add(summary.code);
+      for (var filter : Filter.all(summary)) {
+        lists.computeIfAbsent(filter, f -> new ArrayList<>()).add(summary);
+      }
+    }
+    lists.replaceAll((filter, list) -> List.copyOf(list));
+    return new Snapshot(lists, List.copyOf(statuses), List.copyOf(codes));
+  }
+
+  /**
+   * Returns the page with {@code number} of the Tasks having {@code status} and {@code code},
+   * newest first.
+   *
+   * @param number the zero-based number of the page
+   * @param size   the number of Tasks per page
+   * @param status an optional status to filter for
+   * @param code   an optional code to filter for
+   * @return the page
+   */
+  public Page page(int number, int size, Optional<String> status, Optional<String> code) {
+    if (number < 0 || size < 1) {
+      throw new IllegalArgumentException("Invalid page number `%d` or size `%d`."
+          .formatted(number, size));
+    }
+    var snapshot = this.snapshot;
+    if (snapshot == null) {
+      return new Page(List.of(), number, size, 0);
+    }
+    var list = snapshot.lists.getOrDefault(new Filter(status, code), List.of());
+    var from = (int) Math.min((long) number * size, list.size());
+    var to = (int) Math.min((long) from + size, list.size());
+    return new Page(list.subList(from, to), number, size, list.size());
+  }
+
+  /**
+   * Returns all statuses of the Tasks in the model, sorted alphabetically.
+   *
+   * @return all statuses
+   */
+  public List<String> statuses() {
+    var snapshot = this.snapshot;
+    return snapshot == null ? List.of() : snapshot.statuses;
+  }
+
+  /**
+   * Returns all codes of the Tasks in the model, sorted alphabetically.
+   *
+   * @return all codes
+   */
+  public List<String> codes() {
+    var snapshot = this.snapshot;
+    return snapshot == null ? List.of() : snapshot.codes;
+  }
+
+  /**
+   * The part of a Task shown in lists.
+   */
+  public record TaskSummary(String id, String code, String status, OffsetDateTime lastModified) {
+
+    public TaskSummary {
+      Objects.requireNonNull(id);
+      Objects.requireNonNull(code);
+      Objects.requireNonNull(status);
+      Objects.requireNonNull(lastModified);
+    }
+
+    /**
+     * Returns the summary of {@code task} or an empty {@code Optional} if the task misses one of
+     * id, code, status or last modification.
+     *
+     * @param task the Task to summarize
+     * @return an {@code Optional} of the summary
+     */
+    public static Optional<TaskSummary> of(Task task) {
+      return Optionals.map(task.id(),
+          task.code().flatMap(code -> code.findCodeValue(TaskCode.CODE_SYSTEM_URL)),
+          task.status().value(), task.lastModified(), TaskSummary::new);
+    }
+  }
+
+  /**
+   * A page of Tasks.
+   *
+   * @param tasks  the Tasks of the page
+   * @param number the zero-based number of the page
+   * @param size   the maximum number of Tasks per page
+   * @param total  the number of Tasks of all pages
+   */
+  public record Page(List<TaskSummary> tasks, int number, int size, int total) {
+
+    public Page {
+      Objects.requireNonNull(tasks);
+    }
+
+    public boolean hasPrevious() {
+      return number > 0;
+    }
+
+    public boolean hasNext() {
+      return (long) (number + 1) * size < total;
+    }
+  }
+
+  private record Filter(Optional<String> status, Optional<String> code) {
+
+    private static List<Filter> all(TaskSummary summary) {
+      var status = Optional.of(summary.status);
+      var code = Optional.of(summary.code);
+      return List.of(new Filter(Optional.empty(), Optional.empty()),
+          new Filter(status, Optional.empty()),
+          new Filter(Optional.empty(), code),
+          new Filter(status, code));
+    }
+  }
+
+  private record Snapshot(Map<Filter, List<TaskSummary>> lists, List<String> statuses,
+                          List<String> codes) {
+
+  }
+}
@@ -0,0 +1,165 @@
+package de.samply.reporthub.service.artifact;
+
+import de.samply.reporthub.model.fhir.CanonicalResource;
+import de.samply.reporthub.model.fhir.Library;
+import de.samply.reporthub.model.fhir.Measure;
+import de.samply.reporthub.model.fhir.Meta;
+import de.samply.reporthub.service.fhir.store.DataStore;
+import de.samply.reporthub.service.fhir.store.ResourceNotFoundException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * An in-memory cache of {@link MeasureMetadata Measure} and {@link LibraryMetadata Library}
+ * metadata used by the web views.
+ * <p>
+ * Entries are loaded on first access and are keyed by logical id and by canonical URL, optionally
+ * including the version like {@code url|version}. Entries older than
+ * {@code app.dataStore.artifactCache.maxAge} are revalidated using a conditional read against the
+ * {@link DataStore}, so the artifact is only transferred and decoded again if it has changed.
+ * Canonical URLs without version are searched again once their entry is older than the max age,
+ * so they resolve to a newly provisioned version of the artifact.
+ * <p>
+ * The number of Measures and Libraries is small, so the cache isn't bounded.
+ */
+@Service
+public class ArtifactCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(ArtifactCache.class);
+
+  private final DataStore dataStore;
+  private final Clock clock;
+  private final Duration maxAge;
+  private final Section<Measure, MeasureMetadata> measures;
+  private final Section<Library, LibraryMetadata> libraries;
+
+  public ArtifactCache(DataStore dataStore, Clock clock,
+      @Value("${app.dataStore.artifactCache.maxAge:PT10S}") Duration maxAge) {
+    this.dataStore = Objects.requireNonNull(dataStore);
+    this.clock = Objects.requireNonNull(clock);
+    this.maxAge = Objects.requireNonNull(maxAge);
+    this.measures = new Section<>(Measure.class, MeasureMetadata::of);
+    this.libraries = new Section<>(Library.class, LibraryMetadata::of);
+  }
+
+  /**
+   * Returns the metadata of the Measure with {@code id}.
+   *
+   * @param id the logical id of the Measure
+   * @return the metadata of the Measure or {@link ResourceNotFoundException} if the Measure
+   * doesn't exist
+   */
+  public Mono<MeasureMetadata> measure(String id) {
+    return measures.byId(id);
+  }
+
+  /**
+   * Returns the metadata of the Measure with {@code canonical} URL.
+   *
+   * @param canonical the canonical URL of the Measure, optionally followed by {@code |version}
+   * @return the metadata of the Measure or an empty {@code Mono} if the Measure doesn't exist
+   */
+  public Mono<MeasureMetadata> measureByUrl(String canonical) {
+    return measures.byUrl(canonical);
+  }
+
+  /**
+   * Returns the metadata of the Library with {@code canonical} URL.
+   *
+   * @param canonical the canonical URL of the Library, optionally followed by {@code |version}
+   * @return the metadata of the Library or an empty {@code Mono} if the Library doesn't exist
+   */
+  public Mono<LibraryMetadata> libraryByUrl(String canonical) {
+    return libraries.byUrl(canonical);
+  }
+
+  private record Entry<M>(M metadata, Optional<String> versionId, Instant validated) {
+
+  }
+
+  private final class Section<T extends CanonicalResource<T>, M> {
+
+    private final Class<T> type;
+    private final BiFunction<String, T, M> metadata;
+    private final Map<String, Entry<M>> entries = new ConcurrentHashMap<>();
+    private final Map<String, String> ids = new ConcurrentHashMap<>();
+
+    private Section(Class<T> type, BiFunction<String, T, M> metadata) {
+      this.type = type;
+      this.metadata = metadata;
+    }
+
+    private Mono<M> byId(String id) {
+      var entry = entries.get(id);
+      if (entry == null) {
+        return dataStore.fetchResource(type, id)
+            .switchIfEmpty(Mono.error(() ->
+                new ResourceNotFoundException(type.getSimpleName(), id)))
+            .map(resource -> put(id, resource));
+      }
+      if (entry.validated.plus(maxAge).isAfter(clock.instant())) {
+        return Mono.just(entry.metadata);
+      }
+      return entry.versionId
+          .map(versionId -> dataStore.fetchResourceIfModified(type, id, versionId))
+          .orElseGet(() -> dataStore.fetchResource(type, id)
+              .switchIfEmpty(Mono.error(() ->
+                  new ResourceNotFoundException(type.getSimpleName(), id))))
+          .map(resource -> put(id, resource))
+          .switchIfEmpty(Mono.fromSupplier(() -> revalidated(id, entry)))
+          .doOnError(ResourceNotFoundException.class, e -> entries.remove(id));
+    }
+
+    private Mono<M> byUrl(String canonical) {
+      var id = ids.get(canonical);
+      if (id == null || !canonical.contains("|") && expired(id)) {
+        return search(canonical);
+      }
+      return byId(id).onErrorResume(ResourceNotFoundException.class, e -> {
+        ids.remove(canonical);
+        return search(canonical);
+      });
+    }
+
+    private Mono<M> search(String canonical) {
+      logger.debug("Search {} with canonical URL: {}", type.getSimpleName(), canonical);
+      var parts = canonical.split("\\|", 2);
+      return (parts.length == 2
+          ? dataStore.findByUrl(type, parts[0], parts[1])
+          : dataStore.findByUrl(type, parts[0]))
+          .flatMap(resource -> Mono.justOrEmpty(resource.id().map(id -> {
+            ids.put(canonical, id);
+            return put(id, resource);
+          })))
+          .switchIfEmpty(Mono.fromRunnable(() -> ids.remove(canonical)));
+    }
+
+    private boolean expired(String id) {
+      var entry = entries.get(id);
+      return entry == null || !entry.validated.plus(maxAge).isAfter(clock.instant());
+    }
+
+    private M put(String id, T resource) {
+      logger.debug("Cache {} with id: {}", type.getSimpleName(), id);
+      var m = metadata.apply(id, resource);
+      entries.put(id, new Entry<>(m, resource.meta().flatMap(Meta::versionId), clock.instant()));
+      return m;
+    }
+
+    private M revalidated(String id, Entry<M> entry) {
+      entries.put(id, new Entry<>(entry.metadata, entry.versionId, clock.instant()));
+      return entry.metadata;
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package de.samply.reporthub.service.artifact;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import de.samply.reporthub.model.fhir.Attachment;
+import de.samply.reporthub.model.fhir.Base64Binary;
+import de.samply.reporthub.model.fhir.Library;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The parts of a {@link Library} needed by the web views.
+ *
+ * @param id      the logical id of the Library
+ * @param url     the canonical URL of the Library
+ * @param version the business version of the Library
+ * @param cql     the decoded content of the first attachment of the Library
+ */
+public record LibraryMetadata(
+    String id,
+    Optional<String> url,
+    Optional<String> version,
+    Optional<String> cql) {
+
+  public LibraryMetadata {
+    Objects.requireNonNull(id);
+    Objects.requireNonNull(url);
+    Objects.requireNonNull(version);
+    Objects.requireNonNull(cql);
+  }
+
+  static LibraryMetadata of(String id, Library library) {
+    return new LibraryMetadata(id, library.url(), library.version(),
+        library.content().stream().findFirst().flatMap(Attachment::data)
+            .flatMap(Base64Binary::decodedValue).map(bytes -> new String(bytes, UTF_8)));
+  }
+}
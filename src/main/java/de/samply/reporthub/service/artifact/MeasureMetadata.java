@@ -0,0 +1,40 @@
+package de.samply.reporthub.service.artifact;
+
+import de.samply.reporthub.model.fhir.Canonical;
+import de.samply.reporthub.model.fhir.Measure;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The parts of a {@link Measure} needed by the web views.
+ *
+ * @param id      the logical id of the Measure
+ * @param url     the canonical URL of the Measure
+ * @param version the business version of the Measure
+ * @param title   the title of the Measure or its name if it has no title
+ * @param status  the publication status of the Measure
+ * @param library the canonical URL of the primary Library of the Measure
+ */
+public record MeasureMetadata(
+    String id,
+    Optional<String> url,
+    Optional<String> version,
+    Optional<String> title,
+    Optional<String> status,
+    Optional<String> library) {
+
+  public MeasureMetadata {
+    Objects.requireNonNull(id);
+    Objects.requireNonNull(url);
+    Objects.requireNonNull(version);
+    Objects.requireNonNull(title);
+    Objects.requireNonNull(status);
+    Objects.requireNonNull(library);
+  }
+
+  static MeasureMetadata of(String id, Measure measure) {
+    return new MeasureMetadata(id, measure.url(), measure.version(),
+        measure.title().or(measure::name), measure.status().value(),
+        measure.library().stream().findFirst().flatMap(Canonical::value));
+  }
+}
@@ -0,0 +1,218 @@
+package de.samply.reporthub.service.fhir.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * A bounded cache of parsed resources together with their ETag, used for conditional reads.
+ * <p>
+ * As {@link ExchangeFilterFunction}, it adds {@code If-None-Match} to GET requests of URLs it has
+ * an entry for and invalidates all entries below the URL of every other request. So an update of
+ * {@code Task/1} invalidates {@code Task/1} and {@code Task/1/_history}, a transaction against the
+ * base URL invalidates everything.
+ * <p>
+ * Store methods read responses using {@link #read(ClientResponse, Class)}, which turns a
+ * {@code 304 Not Modified} into the cached resource, so the resource is neither transferred nor
+ * parsed again.
+ * <p>
+ * Every invalidation also bumps a generation counter of the invalidated path. A read only stores
+ * its resource if no path above its URL was invalidated since the request was sent, so a read
+ * racing with a write can't bring back the stale resource. The counters live in a fixed number of
+ * hashed slots, so a collision only causes a resource not to be cached.
+ */
+final class ConditionalReadCache implements ExchangeFilterFunction {
+
+  private static final Logger logger = LoggerFactory.getLogger(ConditionalReadCache.class);
+
+  static final int MAX_ENTRIES = 1000;
+
+  /**
+   * Internal response header carrying the request URL, because responses don't know their request.
+   */
+  private static final String REQUEST_URL = "X-Conditional-Read-Cache-Url";
+
+  /**
+   * Internal response header carrying the generation of the request URL at the time the request
+   * was sent.
+   */
+  private static final String GENERATION = "X-Conditional-Read-Cache-Generation";
+
+  private static final int GENERATION_SLOTS = 256;
+
+  private final Map<URI, Entry> entries;
+  private final AtomicLongArray generations = new AtomicLongArray(GENERATION_SLOTS);
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter bytesSaved;
+
+  ConditionalReadCache(String store, MeterRegistry registry) {
+    this(store, registry, MAX_ENTRIES);
+  }
+
+  ConditionalReadCache(String store, MeterRegistry registry, int maxEntries) {
+    Objects.requireNonNull(store);
+    entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<URI, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    });
+    hits = Counter.builder("reporthub.store.cache.hits")
+        .description("Number of reads answered with 304 Not Modified")
+        .tag("store", store)
+        .register(registry);
+    misses = Counter.builder("reporthub.store.cache.misses")
+        .description("Number of reads answered with a full response")
+        .tag("store", store)
+        .register(registry);
+    bytesSaved = Counter.builder("reporthub.store.cache.bytes.saved")
+        .description("Number of response body bytes not transferred because of cache hits")
+        .baseUnit("bytes")
+        .tag("store", store)
+        .register(registry);
+    Gauge.builder("reporthub.store.cache.hit.ratio", this, ConditionalReadCache::hitRatio)
+        .description("Ratio of cache hits to all cacheable reads")
+        .tag("store", store)
+        .register(registry);
+    Gauge.builder("reporthub.store.cache.size", entries, Map::size)
+        .description("Number of cached resources")
+        .tag("store", store)
+        .register(registry);
+  }
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    if (request.method() != HttpMethod.GET) {
+      invalidate(request.url());
+      return next.exchange(request).doOnNext(response -> invalidate(request.url()));
+    }
+    var generation = generation(request.url());
+    var entry = entries.get(request.url());
+    if (entry == null || request.headers().containsKey(HttpHeaders.IF_NONE_MATCH)) {
+      return next.exchange(request)
+          .map(response -> withRequestUrl(response, request.url(), generation));
+    }
+    return next.exchange(ClientRequest.from(request)
+            .header(HttpHeaders.IF_NONE_MATCH, entry.etag)
+            .build())
+        .map(response -> {
+          // the entry could have been evicted while waiting for the response
+          if (response.statusCode().value() == 304 && generation == generation(request.url())) {
+            entries.putIfAbsent(request.url(), entry);
+          }
+          return withRequestUrl(response, request.url(), generation);
+        });
+  }
+
+  private static ClientResponse withRequestUrl(ClientResponse response, URI url,
+      long generation) {
+    return response.mutate().headers(headers -> {
+      headers.set(REQUEST_URL, url.toString());
+      headers.set(GENERATION, Long.toString(generation));
+    }).build();
+  }
+
+  /**
+   * Reads the resource of a {@code 200 OK} or {@code 304 Not Modified} response.
+   * <p>
+   * Resources of {@code 200 OK} responses with an ETag are cached.
+   *
+   * @param response the response to read
+   * @param type     the type of the resource
+   * @param <T>      the type of the resource
+   * @return the resource
+   */
+  <T> Mono<T> read(ClientResponse response, Class<T> type) {
+    var url = response.headers().header(REQUEST_URL).stream().findFirst().map(URI::create)
+        .orElse(null);
+    if (url == null) {
+      return response.bodyToMono(type);
+    }
+    if (response.statusCode().value() == 304) {
+      var entry = entries.get(url);
+      if (entry != null && type.isInstance(entry.resource)) {
+        logger.debug("Cache hit for: {}", url);
+        hits.increment();
+        bytesSaved.increment(entry.size);
+        return response.releaseBody().thenReturn(type.cast(entry.resource));
+      }
+      return response.releaseBody().then(Mono.error(new Exception(
+          "Unexpected 304 Not Modified response for `%s` without cache entry.".formatted(url))));
+    }
+    misses.increment();
+    var etag = response.headers().asHttpHeaders().getETag();
+    var generation = response.headers().header(GENERATION).stream().findFirst()
+        .map(Long::parseLong).orElse(-1L);
+    var size = new AtomicLong();
+    return response.mutate()
+        .body(body -> body.doOnNext(buffer -> size.addAndGet(buffer.readableByteCount())))
+        .build()
+        .bodyToMono(type)
+        .doOnNext(resource -> {
+          if (etag != null && generation == generation(url)) {
+            entries.put(url, new Entry(etag, resource, size.get()));
+          }
+        });
+  }
+
+  private void invalidate(URI url) {
+    var prefix = withoutQuery(url);
+    generations.incrementAndGet(slot(prefix));
+    synchronized (entries) {
+      entries.keySet().removeIf(key -> key.toString().startsWith(prefix));
+    }
+  }
+
+  /**
+   * Returns the sum of the generations of all paths an invalidation of which would invalidate
+   * {@code url}, which are the path of {@code url} itself and all its parent paths.
+   */
+  private long generation(URI url) {
+    var path = withoutQuery(url);
+    var generation = generations.get(slot(path));
+    for (var i = path.lastIndexOf('/'); i > 0; i = path.lastIndexOf('/', i - 1)) {
+      generation += generations.get(slot(path.substring(0, i)));
+    }
+    return generation;
+  }
+
+  private static int slot(String path) {
+    return Math.floorMod(path.hashCode(), GENERATION_SLOTS);
+  }
+
+  private static String withoutQuery(URI url) {
+    var s = url.toString();
+    var i = s.indexOf('?');
+    return i < 0 ? s : s.substring(0, i);
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  double hitRatio() {
+    var total = hits.count() + misses.count();
+    return total == 0 ? 0 : hits.count() / total;
+  }
+
+  private record Entry(String etag, Object resource, long size) {
+
+  }
+}
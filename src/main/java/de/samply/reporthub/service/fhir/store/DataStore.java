@@ -1,25 +1,28 @@
 package de.samply.reporthub.service.fhir.store;
 
-import static de.samply.reporthub.model.fhir.HttpVerb.POST;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
 import de.samply.reporthub.model.fhir.Bundle;
-import de.samply.reporthub.model.fhir.Bundle.Entry;
-import de.samply.reporthub.model.fhir.Bundle.Entry.Request;
 import de.samply.reporthub.model.fhir.CapabilityStatement;
-import de.samply.reporthub.model.fhir.Library;
-import de.samply.reporthub.model.fhir.Measure;
 import de.samply.reporthub.model.fhir.MeasureReport;
 import de.samply.reporthub.model.fhir.Resource;
+import de.samply.reporthub.service.fhir.store.bulk.ExportManifest;
+import de.samply.reporthub.service.fhir.store.bulk.ExportStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.URI;
 import java.time.Duration;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
 /**
  * This class represents the FHIR server in which the data is located.
@@ -29,10 +32,13 @@ public class DataStore implements Store {
 
   private static final Logger logger = LoggerFactory.getLogger(DataStore.class);
 
+  private final ConditionalReadCache cache;
   private final WebClient client;
 
-  public DataStore(@Qualifier("dataStoreClient") WebClient client) {
-    this.client = client;
+  public DataStore(@Qualifier("dataStoreClient") WebClient client,
+      MeterRegistry meterRegistry) {
+    this.cache = new ConditionalReadCache("dataStore", meterRegistry);
+    this.client = Objects.requireNonNull(client).mutate().filter(cache).build();
   }
 
   public Mono<CapabilityStatement> fetchMetadata() {
@@ -44,13 +50,49 @@ public class DataStore implements Store {
         .doOnError(e -> logger.warn("Error while fetching metadata: {}", e.getMessage()));
   }
 
+  public Mono<Void> ping() {
+    return client.get()
+        .uri("/metadata?_summary=true")
+        .retrieve()
+        .toBodilessEntity()
+        .then();
+  }
+
   public <T extends Resource<T>> Mono<T> fetchResource(Class<T> type, String id) {
     logger.debug("Fetch {} with id: {}", type.getSimpleName(), id);
     return client.get()
         .uri("/{type}/{id}", type.getSimpleName(), id)
         .exchangeToMono(response -> switch (response.statusCode().value()) {
-          case 200 -> response.bodyToMono(type);
-          case 404 -> Mono.empty();
+          case 200, 304 -> cache.read(response, type);
+          case 404 -> response.releaseBody().then(Mono.empty());
+          default -> response.createException().flatMap(Mono::error);
+        });
+  }
+
+  /**
+   * Fetches the resource of {@code type} with {@code id} only if its current version isn't
+   * {@code versionId}.
+   * <p>
+   * Uses a conditional read with {@code If-None-Match}, so the resource isn't transferred if it
+   * wasn't modified.
+   *
+   * @param type      the type of the resource
+   * @param id        the logical id of the resource
+   * @param versionId the version id of the resource already known to the caller
+   * @return the resource or an empty {@code Mono} if the resource wasn't modified
+   */
+  public <T extends Resource<T>> Mono<T> fetchResourceIfModified(Class<T> type, String id,
+      String versionId) {
+    logger.debug("Fetch {} with id `{}` if modified since version: {}", type.getSimpleName(), id,
+        versionId);
+    return client.get()
+        .uri("/{type}/{id}", type.getSimpleName(), id)
+        .header("If-None-Match", "W/\"%s\"".formatted(versionId))
+        .exchangeToMono(response -> switch (response.statusCode().value()) {
+          case 200 -> cache.read(response, type);
+          case 304 -> response.releaseBody().then(Mono.empty());
+          case 404 -> response.releaseBody()
+              .then(Mono.error(new ResourceNotFoundException(type.getSimpleName(), id)));
           default -> response.createException().flatMap(Mono::error);
         });
   }
@@ -63,6 +105,14 @@ public class DataStore implements Store {
         .flatMap(bundle -> Mono.justOrEmpty(bundle.resourcesAs(type).findFirst()));
   }
 
+  public <T extends Resource<T>> Mono<T> findByUrl(Class<T> type, String url, String version) {
+    return client.get()
+        .uri("/{type}?url={url}&version={version}", type.getSimpleName(), url, version)
+        .retrieve()
+        .bodyToMono(Bundle.class)
+        .flatMap(bundle -> Mono.justOrEmpty(bundle.resourcesAs(type).findFirst()));
+  }
+
   public Mono<MeasureReport> evaluateMeasure(String url) {
     return client.get()
         .uri("/Measure/$evaluate-measure?measure={url}&periodStart=1900&periodEnd=2200", url)
@@ -71,41 +121,129 @@ public class DataStore implements Store {
         .doOnError(e -> logger.warn("Error while fetching metadata: {}", e.getMessage()));
   }
 
-  public Mono<Bundle> createMeasureAndLibrary(Measure measure, Library library) {
-    return measureLibraryBundle(measure, library).flatMap(this::transact);
+  /**
+   * Evaluates the Measure with {@code url} and returns the resulting MeasureReport as raw JSON.
+   * <p>
+   * The response body is neither decoded nor buffered. It is subject to no in-memory size limit,
+   * so it can be streamed into another request, like
+   * {@link TaskStore#createMeasureReport(org.reactivestreams.Publisher)}.
+   *
+   * @param url the canonical URL of the Measure to evaluate
+   * @return the MeasureReport JSON as a stream of buffers
+   */
+  public Flux<DataBuffer> evaluateMeasureRaw(String url) {
+    return client.get()
+        .uri("/Measure/$evaluate-measure?measure={url}&periodStart=1900&periodEnd=2200", url)
+        .accept(APPLICATION_JSON)
+        .exchangeToFlux(response -> switch (response.statusCode().value()) {
+          case 200 -> response.bodyToFlux(DataBuffer.class);
+          default -> response.createException().flatMapMany(Flux::error);
+        })
+        .doOnError(e -> logger.warn("Error while evaluating the Measure `{}`: {}", url,
+            e.getMessage()));
   }
 
-  private Mono<Bundle> transact(Bundle bundle) {
+  /**
+   * Kicks off a FHIR Bulk Data system level export of all resources with one of the given
+   * {@code types}.
+   *
+   * @param types the resource types to export or an empty list to export all resources
+   * @return the URL of the status endpoint of the started export
+   */
+  public Mono<URI> startExport(List<String> types) {
+    logger.debug("Start bulk export of types: {}", types);
+    return client.get()
+        .uri(uriBuilder -> {
+          uriBuilder.path("/$export");
+          if (!types.isEmpty()) {
+            uriBuilder.queryParam("_type", String.join(",", types));
+          }
+          return uriBuilder.build();
+        })
+        .header("Prefer", "respond-async")
+        .exchangeToMono(response -> switch (response.statusCode().value()) {
+          case 202 -> response.releaseBody().then(Mono.justOrEmpty(contentLocation(response))
+              .switchIfEmpty(Mono.error(new Exception(
+                  "Missing Content-Location header in bulk export kick-off response."))));
+          default -> response.createException().flatMap(Mono::error);
+        });
+  }
+
+  /**
+   * Fetches the status of the bulk export with the given {@code statusUrl}.
+   *
+   * @param statusUrl the URL of the status endpoint as returned by {@link #startExport(List)}
+   * @return the status of the export
+   */
+  public Mono<ExportStatus> fetchExportStatus(URI statusUrl) {
+    logger.debug("Fetch bulk export status from: {}", statusUrl);
+    return client.get()
+        .uri(statusUrl)
+        .header("Accept", "application/json")
+        .exchangeToMono(response -> switch (response.statusCode().value()) {
+          case 200 -> response.bodyToMono(ExportManifest.class).map(ExportStatus::completed);
+          case 202 -> response.releaseBody()
+              .thenReturn(ExportStatus.inProgress(retryAfter(response)));
+          default -> response.createException().flatMap(Mono::error);
+        });
+  }
+
+  /**
+   * Downloads the NDJSON file with the given {@code url} produced by a bulk export.
+   *
+   * @param url the URL of the file as found in the {@link ExportManifest manifest}
+   * @return the content of the file as stream of buffers which have to be released by the
+   * subscriber
+   */
+  public Flux<DataBuffer> downloadExportFile(URI url) {
+    logger.debug("Download bulk export file: {}", url);
+    return client.get()
+        .uri(url)
+        .header("Accept", "application/fhir+ndjson")
+        .exchangeToFlux(response -> switch (response.statusCode().value()) {
+          case 200 -> response.bodyToFlux(DataBuffer.class);
+          default -> response.createException().flatMap(Mono::<DataBuffer>error).flux();
+        });
+  }
+
+  /**
+   * Deletes the bulk export with the given {@code statusUrl}, signaling the server that its files
+   * can be removed.
+   *
+   * @param statusUrl the URL of the status endpoint as returned by {@link #startExport(List)}
+   * @return a {@code Mono} that completes after the export was deleted
+   */
+  public Mono<Void> deleteExport(URI statusUrl) {
+    logger.debug("Delete bulk export: {}", statusUrl);
+    return client.delete()
+        .uri(statusUrl)
+        .retrieve()
+        .bodyToMono(Void.class);
+  }
+
+  private static Optional<URI> contentLocation(ClientResponse response) {
+    return response.headers().header("Content-Location").stream().findFirst().map(URI::create);
+  }
+
+  private static Optional<Duration> retryAfter(ClientResponse response) {
+    return response.headers().header("Retry-After").stream().findFirst()
+        .flatMap(DataStore::parseSeconds);
+  }
+
+  private static Optional<Duration> parseSeconds(String s) {
+    try {
+      return Optional.of(Duration.ofSeconds(Long.parseLong(s.trim())));
+    } catch (NumberFormatException e) {
+      return Optional.empty();
+    }
+  }
+
+  public Mono<Bundle> transact(Bundle bundle) {
     return client.post()
         .contentType(APPLICATION_JSON)
         .header("Prefer", "return=representation")
         .bodyValue(bundle)
         .retrieve()
-        .bodyToMono(Bundle.class)
-        .retryWhen(Retry.backoff(5, Duration.ofSeconds(1)));
-  }
-
-  private Mono<Bundle> measureLibraryBundle(Measure measure, Library library) {
-    return measure.url()
-        .map(measureUrl -> library.url()
-            .map(libraryUrl -> Mono.just(Bundle.transaction()
-                .withEntry(List.of(Entry.builder()
-                    .withResource(measure)
-                    .withRequest(Request.builder()
-                        .withMethod(POST.code())
-                        .withUrl("Measure")
-                        .withIfNoneExist("url=%s".formatted(measureUrl))
-                        .build())
-                    .build(), Entry.builder()
-                    .withResource(library)
-                    .withRequest(Request.builder()
-                        .withMethod(POST.code())
-                        .withUrl("Library")
-                        .withIfNoneExist("url=%s".formatted(libraryUrl))
-                        .build())
-                    .build()))
-                .build()))
-            .orElse(Mono.error(new Exception("Missing Library URL."))))
-        .orElse(Mono.error(new Exception("Missing Measure URL.")));
+        .bodyToMono(Bundle.class);
   }
 }
@@ -0,0 +1,55 @@
+package de.samply.reporthub.service.fhir.store;
+
+import java.util.Locale;
+import org.springframework.http.MediaType;
+
+/**
+ * The format in which resources are sent to a FHIR store.
+ * <p>
+ * JSON is the only format FHIR servers have to support. The binary Jackson format Smile encodes the
+ * same data about a third smaller and serializes faster, but only works with stores, or proxies in
+ * front of them, which understand it. JSON responses are always accepted as well, so a store
+ * which answers in JSON only still works for reads.
+ * <p>
+ * Request bodies are always sent in the configured format. There is no fallback to JSON, so a
+ * store which answers {@code 415 Unsupported Media Type} to Smile requests has to be used with
+ * {@link #JSON}.
+ */
+public enum FhirFormat {
+
+  JSON(MediaType.APPLICATION_JSON),
+  SMILE(new MediaType("application", "x-jackson-smile"));
+
+  private static final String FHIR_JSON = "application/fhir+json";
+
+  private final MediaType mediaType;
+
+  FhirFormat(MediaType mediaType) {
+    this.mediaType = mediaType;
+  }
+
+  /**
+   * Returns the content type of request bodies in this format.
+   */
+  public MediaType mediaType() {
+    return mediaType;
+  }
+
+  /**
+   * Returns the {@code Accept} header value which prefers this format and falls back to JSON.
+   */
+  public String accept() {
+    return this == JSON ? FHIR_JSON : "%s, %s;q=0.9".formatted(mediaType, FHIR_JSON);
+  }
+
+  /**
+   * Returns the format with {@code name}, ignoring case.
+   *
+   * @param name the name of the format, like {@code json} or {@code smile}
+   * @return the format
+   * @throws IllegalArgumentException if there is no format with {@code name}
+   */
+  public static FhirFormat of(String name) {
+    return valueOf(name.trim().toUpperCase(Locale.ROOT));
+  }
+}
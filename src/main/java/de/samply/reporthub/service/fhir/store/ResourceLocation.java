@@ -0,0 +1,41 @@
+package de.samply.reporthub.service.fhir.store;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * The location of a resource version as returned in the {@code Location} header of a create or
+ * update response.
+ *
+ * @param type      the resource type
+ * @param id        the logical id of the resource
+ * @param versionId the version id if the location contains one
+ */
+public record ResourceLocation(String type, String id, Optional<String> versionId) {
+
+  private static final Pattern PATTERN = Pattern.compile(
+      "(?:^|/)([A-Z][A-Za-z]+)/([A-Za-z0-9\\-.]{1,64})(?:/_history/([A-Za-z0-9\\-.]{1,64}))?/?$");
+
+  public ResourceLocation {
+    Objects.requireNonNull(type);
+    Objects.requireNonNull(id);
+    Objects.requireNonNull(versionId);
+  }
+
+  /**
+   * Parses a location of the form {@code [base]/[type]/[id](/_history/[vid])}.
+   *
+   * @param location the location to parse
+   * @return an {@code Optional} of the parsed location or an empty {@code Optional} if
+   * {@code location} doesn't end with a resource type and id
+   */
+  public static Optional<ResourceLocation> parse(String location) {
+    var matcher = PATTERN.matcher(location);
+    if (matcher.find()) {
+      return Optional.of(new ResourceLocation(matcher.group(1), matcher.group(2),
+          Optional.ofNullable(matcher.group(3))));
+    }
+    return Optional.empty();
+  }
+}
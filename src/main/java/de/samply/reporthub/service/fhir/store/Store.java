@@ -1,5 +1,6 @@
 package de.samply.reporthub.service.fhir.store;
 
+import de.samply.reporthub.model.fhir.Bundle;
 import de.samply.reporthub.model.fhir.CapabilityStatement;
 import de.samply.reporthub.model.fhir.Resource;
 import reactor.core.publisher.Mono;
@@ -8,5 +9,34 @@ public interface Store {
 
   Mono<CapabilityStatement> fetchMetadata();
 
+  /**
+   * Checks that the store answers by requesting the summary of its CapabilityStatement without
+   * decoding it.
+   *
+   * @return an empty {@code Mono} which completes if the store answered successfully
+   */
+  Mono<Void> ping();
+
   <T extends Resource<T>> Mono<T> fetchResource(Class<T> type, String id);
+
+  <T extends Resource<T>> Mono<T> findByUrl(Class<T> type, String url);
+
+  /**
+   * Finds the resource of {@code type} with the given canonical {@code url} and business
+   * {@code version}.
+   *
+   * @param type    the type of the resource
+   * @param url     the canonical URL of the resource
+   * @param version the business version of the resource
+   * @return the found resource or an empty {@code Mono} if no resource was found
+   */
+  <T extends Resource<T>> Mono<T> findByUrl(Class<T> type, String url, String version);
+
+  /**
+   * Executes all requests of the transaction {@code bundle} atomically.
+   *
+   * @param bundle a Bundle of type transaction
+   * @return the transaction-response Bundle
+   */
+  Mono<Bundle> transact(Bundle bundle);
 }
@@ -1,32 +1,45 @@
 package de.samply.reporthub.service.fhir.store;
 
+import static de.samply.reporthub.model.fhir.HttpVerb.POST;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
 import de.samply.reporthub.Util;
 import de.samply.reporthub.dktk.model.fhir.TaskCode;
 import de.samply.reporthub.model.fhir.ActivityDefinition;
 import de.samply.reporthub.model.fhir.Bundle;
+import de.samply.reporthub.model.fhir.Bundle.Entry;
+import de.samply.reporthub.model.fhir.Bundle.Entry.Request;
 import de.samply.reporthub.model.fhir.CapabilityStatement;
 import de.samply.reporthub.model.fhir.MeasureReport;
+import de.samply.reporthub.model.fhir.MeasureReportStatus;
 import de.samply.reporthub.model.fhir.Meta;
 import de.samply.reporthub.model.fhir.OperationOutcome;
 import de.samply.reporthub.model.fhir.Resource;
 import de.samply.reporthub.model.fhir.Task;
 import de.samply.reporthub.model.fhir.TaskStatus;
 import de.samply.reporthub.util.Optionals;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.URI;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
@@ -39,10 +52,21 @@ public class TaskStore implements Store {
 
   private static final Logger logger = LoggerFactory.getLogger(TaskStore.class);
 
+  private final ConditionalReadCache cache;
   private final WebClient client;
+  private final MediaType contentType;
 
-  public TaskStore(@Qualifier("taskStoreClient") WebClient client) {
-    this.client = Objects.requireNonNull(client);
+  /**
+   * Creates a TaskStore.
+   *
+   * @param client the client of the TaskStore, which has to accept responses in {@code format}
+   * @param format the format in which resources are sent to the TaskStore
+   */
+  public TaskStore(@Qualifier("taskStoreClient") WebClient client,
+      @Qualifier("taskStoreFormat") FhirFormat format, MeterRegistry meterRegistry) {
+    this.cache = new ConditionalReadCache("taskStore", meterRegistry);
+    this.client = Objects.requireNonNull(client).mutate().filter(cache).build();
+    this.contentType = format.mediaType();
   }
 
   public Mono<CapabilityStatement> fetchMetadata() {
@@ -54,13 +78,21 @@ public class TaskStore implements Store {
         .doOnError(e -> logger.warn("Error while fetching metadata: {}", e.getMessage()));
   }
 
+  public Mono<Void> ping() {
+    return client.get()
+        .uri("/metadata?_summary=true")
+        .retrieve()
+        .toBodilessEntity()
+        .then();
+  }
+
   public <T extends Resource<T>> Mono<T> fetchResource(Class<T> type, String id) {
     logger.debug("Fetch {} with id: {}", type.getSimpleName(), id);
     return client.get()
         .uri("/{type}/{id}", type.getSimpleName(), id)
         .exchangeToMono(response -> switch (response.statusCode().value()) {
-          case 200 -> response.bodyToMono(type);
-          case 404 -> Mono.empty();
+          case 200, 304 -> cache.read(response, type);
+          case 404 -> response.releaseBody().then(Mono.empty());
           default -> response.createException().flatMap(Mono::error);
         });
   }
@@ -70,22 +102,52 @@ public class TaskStore implements Store {
     return client.get()
         .uri("/Task/{id}", id)
         .exchangeToMono(response -> switch (response.statusCode().value()) {
-          case 200 -> response.bodyToMono(Task.class);
+          case 200, 304 -> cache.read(response, Task.class);
           case 404 -> resourceNotFound(response, "Task", id);
           default -> response.createException().flatMap(Mono::error);
         });
   }
 
   public Flux<Task> listNewestTasks() {
-    logger.debug("List newest Tasks");
+    return listNewestTasks(50);
+  }
+
+  /**
+   * Lists the {@code count} most recently updated Tasks, newest first.
+   *
+   * @param count the maximum number of Tasks to list
+   * @return the most recently updated Tasks
+   */
+  public Flux<Task> listNewestTasks(int count) {
+    logger.debug("List {} newest Tasks", count);
     return client.get()
         .uri(uriBuilder -> uriBuilder.pathSegment("Task")
             .queryParam("_sort", "-_lastUpdated")
-            .queryParam("_count", "50")
+            .queryParam("_count", count)
             .build())
         .exchangeToFlux(listHandler(Task.class));
   }
 
+  /**
+   * Lists all Tasks updated at or after {@code since}, oldest first.
+   * <p>
+   * The Tasks are fetched in pages of {@code pageSize} following the next links. So all Tasks
+   * sharing the last updated instant of the last Task returned are listed, regardless of their
+   * number. Callers can follow all changes by repeating the search with that instant.
+   *
+   * @param since    the instant from which on Tasks were updated
+   * @param pageSize the number of Tasks to fetch per page
+   * @return the Tasks updated at or after {@code since}
+   */
+  public Flux<Task> listTasksUpdatedSince(Instant since, int pageSize) {
+    logger.debug("List Tasks updated since: {}", since);
+    return searchAllPages(uriBuilder -> uriBuilder.pathSegment("Task")
+        .queryParam("_lastUpdated", "ge" + since)
+        .queryParam("_sort", "_lastUpdated")
+        .queryParam("_count", pageSize)
+        .build(), Task.class);
+  }
+
   /**
    * Lists Tasks with status {@link TaskStatus#READY ready} and the given {@code code}.
    *
@@ -113,19 +175,40 @@ public class TaskStore implements Store {
     logger.debug("Create Task");
     return client.post()
         .uri("/Task")
-        .contentType(APPLICATION_JSON)
+        .contentType(contentType)
         .bodyValue(task)
         .retrieve()
         .bodyToMono(Task.class);
   }
 
+  /**
+   * Creates all {@code tasks} in one transaction, so either all or none of them are created.
+   *
+   * @param tasks the Tasks to create
+   * @return the created Tasks in the order of {@code tasks}
+   */
+  public Flux<Task> createTasks(List<Task> tasks) {
+    logger.debug("Create {} Tasks", tasks.size());
+    return transact(Bundle.transaction()
+        .withEntry(tasks.stream().map(TaskStore::createTaskEntry).toList())
+        .build())
+        .flatMapIterable(bundle -> bundle.resourcesAs(Task.class).toList());
+  }
+
+  private static Entry createTaskEntry(Task task) {
+    return Entry.builder()
+        .withResource(task)
+        .withRequest(Request.builder().withMethod(POST.code()).withUrl("Task").build())
+        .build();
+  }
+
   public Mono<Task> createBeamTask(Task task) {
     return task.findIdentifierValue(Util.BEAM_TASK_ID_SYSTEM).map(
         beamTaskId -> {
           logger.debug("Create Beam Task with id: {}", beamTaskId);
           return client.post()
               .uri("/Task")
-              .contentType(APPLICATION_JSON)
+              .contentType(contentType)
               .header("If-None-Exist",
                   "identifier=%s|%s".formatted(Util.BEAM_TASK_ID_SYSTEM, beamTaskId))
               .bodyValue(task)
@@ -148,7 +231,7 @@ public class TaskStore implements Store {
           logger.debug("Update Task with id `{}` and versionId `{}`", id, versionId);
           return client.put()
               .uri("/Task/{id}", id)
-              .contentType(APPLICATION_JSON)
+              .contentType(contentType)
               .header("If-Match", "W/\"%s\"".formatted(versionId))
               .bodyValue(task)
               .retrieve()
@@ -158,12 +241,35 @@ public class TaskStore implements Store {
         () -> Mono.error(new Exception("Missing Task.meta.versionId.")));
   }
 
-  public Flux<Task> fetchTaskHistory(String id) {
+  /**
+   * Fetches all versions of the Task with {@code id}, newest first.
+   * <p>
+   * The history is fetched in pages of {@code pageSize} versions by following the {@code next}
+   * links of the history Bundles. The next page is only requested after the previous one was
+   * consumed, so a subscriber which cancels early doesn't cause the whole history to be fetched.
+   *
+   * @param id       the id of the Task
+   * @param pageSize the number of versions fetched with one request
+   * @return all versions of the Task, newest first
+   */
+  public Flux<Task> fetchTaskHistory(String id, int pageSize) {
+    logger.debug("Fetch history of Task with id `{}` in pages of {}", id, pageSize);
     return client.get()
-        .uri("/Task/{id}/_history", id)
+        .uri(uriBuilder -> uriBuilder.pathSegment("Task", id, "_history")
+            .queryParam("_count", pageSize)
+            .build())
         .retrieve()
         .bodyToMono(Bundle.class)
-        .flatMapIterable(b -> b.resourcesAs(Task.class).toList());
+        .expand(bundle -> bundle.linkUrl("next").map(this::fetchPage).orElse(Mono.empty()))
+        .concatMapIterable(bundle -> bundle.resourcesAs(Task.class).toList(), 1);
+  }
+
+  private Mono<Bundle> fetchPage(String url) {
+    logger.debug("Fetch page: {}", url);
+    return client.get()
+        .uri(URI.create(url))
+        .retrieve()
+        .bodyToMono(Bundle.class);
   }
 
   public Flux<ActivityDefinition> listAllActivityDefinitions() {
@@ -173,8 +279,10 @@ public class TaskStore implements Store {
   public Mono<ActivityDefinition> fetchActivityDefinition(String id) {
     return client.get()
         .uri("/ActivityDefinition/{id}", id)
-        .retrieve()
-        .bodyToMono(ActivityDefinition.class);
+        .exchangeToMono(response -> switch (response.statusCode().value()) {
+          case 200, 304 -> cache.read(response, ActivityDefinition.class);
+          default -> response.createException().flatMap(Mono::error);
+        });
   }
 
   public <T extends Resource<T>> Mono<T> findByUrl(Class<T> type, String url) {
@@ -185,10 +293,27 @@ public class TaskStore implements Store {
         .flatMap(bundle -> Mono.justOrEmpty(bundle.resourcesAs(type).findFirst()));
   }
 
+  public <T extends Resource<T>> Mono<T> findByUrl(Class<T> type, String url, String version) {
+    return client.get()
+        .uri("/{type}?url={url}&version={version}", type.getSimpleName(), url, version)
+        .retrieve()
+        .bodyToMono(Bundle.class)
+        .flatMap(bundle -> Mono.justOrEmpty(bundle.resourcesAs(type).findFirst()));
+  }
+
+  public Mono<Bundle> transact(Bundle bundle) {
+    return client.post()
+        .contentType(contentType)
+        .header("Prefer", "return=representation")
+        .bodyValue(bundle)
+        .retrieve()
+        .bodyToMono(Bundle.class);
+  }
+
   public Mono<ActivityDefinition> createActivityDefinition(ActivityDefinition activityDefinition) {
     return activityDefinition.url().map(url -> client.post()
         .uri("/ActivityDefinition")
-        .contentType(APPLICATION_JSON)
+        .contentType(contentType)
         .header("If-None-Exist", "url=%s".formatted(url))
         .bodyValue(activityDefinition)
         .exchangeToMono(response -> switch (response.statusCode().value()) {
@@ -205,16 +330,44 @@ public class TaskStore implements Store {
     return client.get()
         .uri("/MeasureReport/{id}", id)
         .exchangeToMono(response -> switch (response.statusCode().value()) {
-          case 200 -> response.bodyToMono(MeasureReport.class);
+          case 200, 304 -> cache.read(response, MeasureReport.class);
           case 404 -> resourceNotFound(response, "MeasureReport", id);
           default -> response.createException().flatMap(Mono::error);
         });
   }
 
+  /**
+   * Lists all MeasureReports of {@code measure} with {@code status} updated at or after
+   * {@code since}, oldest first.
+   * <p>
+   * The MeasureReports are fetched in pages of {@code pageSize} following the next links, as
+   * demanded by the subscriber. So all MeasureReports sharing the last updated instant of the last
+   * MeasureReport returned are listed, regardless of their number. Callers can follow all changes
+   * by repeating the search with that instant.
+   *
+   * @param measure  the canonical URL of the Measure the MeasureReports belong to
+   * @param status   the status of the MeasureReports
+   * @param since    the instant from which on MeasureReports were updated
+   * @param pageSize the number of MeasureReports to fetch per page
+   * @return the MeasureReports updated at or after {@code since}
+   */
+  public Flux<MeasureReport> listMeasureReportsUpdatedSince(String measure,
+      MeasureReportStatus status, Instant since, int pageSize) {
+    logger.debug("List {} MeasureReports of Measure `{}` updated since: {}",
+        status.searchToken(), measure, since);
+    return searchAllPages(uriBuilder -> uriBuilder.pathSegment("MeasureReport")
+        .queryParam("measure", "{measure}")
+        .queryParam("status", status.searchToken())
+        .queryParam("_lastUpdated", "ge" + since)
+        .queryParam("_sort", "_lastUpdated")
+        .queryParam("_count", pageSize)
+        .build(measure), MeasureReport.class);
+  }
+
   public Mono<MeasureReport> createMeasureReport(MeasureReport measureReport) {
     return client.post()
         .uri("/MeasureReport")
-        .contentType(APPLICATION_JSON)
+        .contentType(contentType)
         .bodyValue(measureReport)
         .exchangeToMono(response -> switch (response.statusCode().value()) {
           case 201 -> response.bodyToMono(MeasureReport.class);
@@ -224,19 +377,67 @@ public class TaskStore implements Store {
         });
   }
 
+  /**
+   * Creates a MeasureReport from its raw JSON representation.
+   * <p>
+   * The JSON is streamed into the request body as it is. The server is asked to return no body, so
+   * only the {@code Location} header of the response is parsed.
+   *
+   * @param measureReport the MeasureReport JSON as a stream of buffers
+   * @return the location of the created MeasureReport
+   */
+  public Mono<ResourceLocation> createMeasureReport(Publisher<DataBuffer> measureReport) {
+    return client.post()
+        .uri("/MeasureReport")
+        .contentType(APPLICATION_JSON)
+        .header("Prefer", "return=minimal")
+        .body(BodyInserters.fromDataBuffers(measureReport))
+        .exchangeToMono(response -> switch (response.statusCode().value()) {
+          case 201 -> response.releaseBody().then(Mono.justOrEmpty(location(response))
+              .switchIfEmpty(Mono.error(() -> new Exception(
+                  "Missing or invalid Location header in MeasureReport create response."))));
+          case 400 -> badRequest(response, "Error while creating a MeasureReport");
+          case 404 -> notFound(response, "MeasureReport endpoint not found");
+          default -> response.createException().flatMap(Mono::error);
+        });
+  }
+
+  private static Optional<ResourceLocation> location(ClientResponse response) {
+    return response.headers().header("Location").stream().findFirst()
+        .flatMap(ResourceLocation::parse);
+  }
+
   private <T extends Resource<T>> Flux<T> listAll(String uri, Class<T> type) {
     return client.get().uri(uri).exchangeToFlux(listHandler(type));
   }
 
   private <T extends Resource<T>> Function<ClientResponse, Flux<T>> listHandler(Class<T> type) {
+    return response -> searchHandler(type).apply(response)
+        .flatMapIterable(b -> b.resourcesAs(type).toList());
+  }
+
+  private <T extends Resource<T>> Flux<T> searchAllPages(Function<UriBuilder, URI> uri,
+      Class<T> type) {
+    return client.get().uri(uri).exchangeToMono(searchHandler(type))
+        .expand(bundle -> bundle.linkUrl("next").map(url -> searchPage(url, type))
+            .orElse(Mono.empty()))
+        .concatMapIterable(bundle -> bundle.resourcesAs(type).toList());
+  }
+
+  private Mono<Bundle> searchPage(String url, Class<? extends Resource<?>> type) {
+    logger.debug("Fetch search page: {}", url);
+    return client.get().uri(URI.create(url)).exchangeToMono(searchHandler(type));
+  }
+
+  private static Function<ClientResponse, Mono<Bundle>> searchHandler(
+      Class<? extends Resource<?>> type) {
     return response -> switch (response.statusCode().value()) {
-      case 200 -> response.bodyToFlux(Bundle.class)
-          .flatMapIterable(b -> b.resourcesAs(type).toList());
-      case 400 -> TaskStore.<T>badRequest(response,
-          "Error while listing %s".formatted(type.getSimpleName())).flux();
-      case 404 -> TaskStore.<T>notFound(response,
-          "%s endpoint not found".formatted(type.getSimpleName())).flux();
-      default -> response.createException().flatMap(Mono::<T>error).flux();
+      // the Bundle is decoded as Mono, so that large search results can be spilled to disk
+      case 200 -> response.bodyToMono(Bundle.class);
+      case 400 -> badRequest(response,
+          "Error while listing %s".formatted(type.getSimpleName()));
+      case 404 -> notFound(response, "%s endpoint not found".formatted(type.getSimpleName()));
+      default -> response.createException().flatMap(Mono::error);
     };
   }
 
@@ -0,0 +1,154 @@
+package de.samply.reporthub.service.fhir.store.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import de.samply.reporthub.service.fhir.store.DataStore;
+import de.samply.reporthub.service.fhir.store.bulk.ExportManifest.Output;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * This service ingests resources of the {@link DataStore} using the FHIR Bulk Data
+ * {@code $export} operation.
+ * <p>
+ * The export is started, polled until completion and each NDJSON output file is spooled to a
+ * temporary file, which is read line by line using chunked NIO reads. Every line is parsed on its
+ * own and handed to an aggregation stage, so the resources of the whole export are never held in
+ * memory together.
+ */
+@Service
+public class BulkIngestion {
+
+  private static final Logger logger = LoggerFactory.getLogger(BulkIngestion.class);
+
+  private final DataStore dataStore;
+  private final ObjectMapper mapper;
+  private final Duration pollInterval;
+  private final Duration timeout;
+  private final int chunkSize;
+
+  public BulkIngestion(DataStore dataStore, ObjectMapper mapper,
+      @Value("${app.dataStore.bulkExport.pollInterval:PT2S}") Duration pollInterval,
+      @Value("${app.dataStore.bulkExport.timeout:PT1H}") Duration timeout,
+      @Value("${app.dataStore.bulkExport.chunkSize:65536}") int chunkSize) {
+    this.dataStore = Objects.requireNonNull(dataStore);
+    this.mapper = Objects.requireNonNull(mapper);
+    this.pollInterval = Objects.requireNonNull(pollInterval);
+    this.timeout = Objects.requireNonNull(timeout);
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Exports all resources with one of the given {@code types} and aggregates them using
+   * {@code collector}.
+   * <p>
+   * The collector is the pluggable aggregation stage. Its accumulator is called once per resource
+   * and strictly sequential.
+   *
+   * @param types     the resource types to export or an empty list to export all resources
+   * @param type      the type each NDJSON line is parsed into, e.g. a model class or
+   *                  {@link com.fasterxml.jackson.databind.JsonNode JsonNode}
+   * @param collector the aggregation stage
+   * @param <T>       the type of the parsed resources
+   * @param <A>       the mutable accumulation type of the collector
+   * @param <R>       the result type of the collector
+   * @return the result of the aggregation
+   */
+  public <T, A, R> Mono<R> ingest(List<String> types, Class<T> type,
+      Collector<? super T, A, ? extends R> collector) {
+    return resources(types, type).collect(collector);
+  }
+
+  /**
+   * Exports all resources with one of the given {@code types} and returns them one by one in the
+   * order they appear in the output files.
+   *
+   * @param types the resource types to export or an empty list to export all resources
+   * @param type  the type each NDJSON line is parsed into
+   * @param <T>   the type of the parsed resources
+   * @return a {@code Flux} of all exported resources
+   */
+  public <T> Flux<T> resources(List<String> types, Class<T> type) {
+    var reader = mapper.readerFor(type);
+    return Flux.usingWhen(dataStore.startExport(types),
+        statusUrl -> awaitManifest(statusUrl)
+            .flatMapMany(manifest -> {
+              logManifest(manifest);
+              return Flux.fromIterable(manifest.output())
+                  .concatMap(output -> this.<T>readOutput(output, reader));
+            }),
+        this::deleteExport);
+  }
+
+  /**
+   * Deletes the export at {@code statusUrl}. Runs after the export completed, failed or was
+   * cancelled, so no export files are left on the server.
+   */
+  private Mono<Void> deleteExport(URI statusUrl) {
+    return dataStore.deleteExport(statusUrl)
+        .onErrorResume(e -> {
+          logger.warn("Error while deleting the bulk export `{}`: {}", statusUrl, e.getMessage());
+          return Mono.empty();
+        });
+  }
+
+  Mono<ExportManifest> awaitManifest(URI statusUrl) {
+    return dataStore.fetchExportStatus(statusUrl)
+        .expand(status -> status.isCompleted()
+            ? Mono.empty()
+            : Mono.delay(status.retryAfter().orElse(pollInterval))
+                .then(dataStore.fetchExportStatus(statusUrl)))
+        .flatMap(status -> Mono.justOrEmpty(status.manifest()))
+        .next()
+        .timeout(timeout, Mono.error(() -> new Exception(
+            "The bulk export `%s` didn't complete within %s.".formatted(statusUrl, timeout))));
+  }
+
+  private <T> Flux<T> readOutput(Output output, ObjectReader reader) {
+    logger.debug("Read {} resources from bulk export file: {}", output.type(), output.url());
+    return Flux.using(() -> Files.createTempFile("bulk-export-", ".ndjson"),
+        file -> DataBufferUtils.write(dataStore.downloadExportFile(output.url()), file)
+            .thenMany(NdjsonReader.lines(file, chunkSize)
+                .subscribeOn(Schedulers.boundedElastic()))
+            .handle((line, sink) -> {
+              try {
+                sink.next(reader.readValue(line));
+              } catch (JsonProcessingException e) {
+                sink.error(new Exception("Error while parsing a %s resource of the bulk export: %s"
+                    .formatted(output.type(), e.getMessage()), e));
+              }
+            }),
+        BulkIngestion::deleteTempFile);
+  }
+
+  private static void logManifest(ExportManifest manifest) {
+    logger.debug("Bulk export completed with {} output file(s)", manifest.output().size());
+    if (!manifest.error().isEmpty()) {
+      logger.warn("Bulk export completed with {} error file(s): {}", manifest.error().size(),
+          manifest.error().stream().map(Output::url).toList());
+    }
+  }
+
+  private static void deleteTempFile(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      logger.warn("Error while deleting the temporary file `{}`: {}", file, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package de.samply.reporthub.service.fhir.store.bulk;
+
+import de.samply.reporthub.Util;
+import java.net.URI;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The response of a completed FHIR Bulk Data export.
+ *
+ * @param transactionTime the time the export was started
+ * @param output          the NDJSON files containing the exported resources
+ * @param error           the NDJSON files containing OperationOutcomes of errors
+ */
+public record ExportManifest(
+    Optional<String> transactionTime,
+    List<Output> output,
+    List<Output> error) {
+
+  public ExportManifest {
+    Objects.requireNonNull(transactionTime);
+    output = Util.copyOfNullable(output);
+    error = Util.copyOfNullable(error);
+  }
+
+  /**
+   * One NDJSON file of an export.
+   *
+   * @param type  the resource type of all resources in the file
+   * @param url   the URL of the file
+   * @param count the number of resources in the file if known
+   */
+  public record Output(String type, URI url, Optional<Long> count) {
+
+    public Output {
+      Objects.requireNonNull(type);
+      Objects.requireNonNull(url);
+      Objects.requireNonNull(count);
+    }
+  }
+}
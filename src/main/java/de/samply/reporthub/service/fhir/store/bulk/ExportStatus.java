@@ -0,0 +1,35 @@
+package de.samply.reporthub.service.fhir.store.bulk;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The status of a FHIR Bulk Data export as returned by its status endpoint.
+ * <p>
+ * As long as the export is in progress, the {@link #manifest() manifest} is empty and
+ * {@link #retryAfter() retryAfter} may contain the duration the server wants the client to wait
+ * before polling again.
+ *
+ * @param manifest   the manifest of the completed export
+ * @param retryAfter the duration to wait before polling again
+ */
+public record ExportStatus(Optional<ExportManifest> manifest, Optional<Duration> retryAfter) {
+
+  public ExportStatus {
+    Objects.requireNonNull(manifest);
+    Objects.requireNonNull(retryAfter);
+  }
+
+  public static ExportStatus inProgress(Optional<Duration> retryAfter) {
+    return new ExportStatus(Optional.empty(), retryAfter);
+  }
+
+  public static ExportStatus completed(ExportManifest manifest) {
+    return new ExportStatus(Optional.of(manifest), Optional.empty());
+  }
+
+  public boolean isCompleted() {
+    return manifest.isPresent();
+  }
+}
@@ -0,0 +1,135 @@
+package de.samply.reporthub.service.fhir.store.bulk;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import reactor.core.publisher.Flux;
+
+/**
+ * Reads NDJSON files line by line using chunked NIO reads.
+ * <p>
+ * Only one chunk and the current line are held in memory, so files of arbitrary size can be read.
+ * Blank lines are skipped. The returned {@code Flux} reads blocking, so it should be subscribed on
+ * a scheduler suitable for blocking I/O.
+ */
+public final class NdjsonReader {
+
+  public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  private NdjsonReader() {
+  }
+
+  /**
+   * Returns the non-blank lines of {@code file}.
+   *
+   * @param file      the NDJSON file to read
+   * @param chunkSize the number of bytes to read from the file at once
+   * @return a {@code Flux} of all non-blank lines without line terminators
+   */
+  public static Flux<String> lines(Path file, int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("Chunk size has to be positive.");
+    }
+    return Flux.using(() -> FileChannel.open(file, READ),
+        channel -> Flux.generate(() -> new LineSplitter(channel, chunkSize), (splitter, sink) -> {
+          try {
+            var line = splitter.next();
+            if (line == null) {
+              sink.complete();
+            } else {
+              sink.next(line);
+            }
+          } catch (IOException e) {
+            sink.error(new UncheckedIOException("Error while reading the NDJSON file `%s`."
+                .formatted(file), e));
+          }
+          return splitter;
+        }),
+        NdjsonReader::close);
+  }
+
+  private static void close(FileChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static final class LineSplitter {
+
+    private final FileChannel channel;
+    private final ByteBuffer chunk;
+    private byte[] line = new byte[1024];
+    private int lineLength;
+    private boolean eof;
+
+    private LineSplitter(FileChannel channel, int chunkSize) {
+      this.channel = channel;
+      this.chunk = ByteBuffer.allocate(chunkSize).flip();
+    }
+
+    /**
+     * Returns the next non-blank line or {@code null} if the end of the file is reached.
+     */
+    private String next() throws IOException {
+      while (true) {
+        if (chunk.hasRemaining()) {
+          var s = scanChunk();
+          if (s != null) {
+            return s;
+          }
+        } else if (eof) {
+          var s = takeLine();
+          return s.isBlank() ? null : s;
+        } else {
+          chunk.clear();
+          eof = channel.read(chunk) < 0;
+          chunk.flip();
+        }
+      }
+    }
+
+    /**
+     * Appends the bytes of the chunk to the current line up to the next line feed and returns the
+     * line if it's complete and not blank.
+     */
+    private String scanChunk() {
+      var array = chunk.array();
+      var start = chunk.position();
+      var limit = chunk.limit();
+      for (int i = start; i < limit; i++) {
+        if (array[i] == '\n') {
+          append(array, start, i - start);
+          chunk.position(i + 1);
+          var s = takeLine();
+          return s.isBlank() ? null : s;
+        }
+      }
+      append(array, start, limit - start);
+      chunk.position(limit);
+      return null;
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+      if (lineLength + length > line.length) {
+        line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+      }
+      System.arraycopy(bytes, offset, line, lineLength, length);
+      lineLength += length;
+    }
+
+    private String takeLine() {
+      var length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+      var s = new String(line, 0, length, UTF_8);
+      lineLength = 0;
+      return s;
+    }
+  }
+}
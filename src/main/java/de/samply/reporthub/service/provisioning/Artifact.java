@@ -0,0 +1,34 @@
+package de.samply.reporthub.service.provisioning;
+
+import de.samply.reporthub.model.fhir.CanonicalResource;
+import java.util.Objects;
+
+/**
+ * A resource which should exist in one of the stores, together with the hash of its content.
+ *
+ * @param type     the type of the resource
+ * @param resource the resource itself
+ * @param url      the canonical URL of the resource
+ * @param hash     the {@link ArtifactHasher#hash(CanonicalResource) content hash} of the resource
+ * @param <T>      the type of the resource
+ */
+public record Artifact<T extends CanonicalResource<T>>(
+    Class<T> type,
+    T resource,
+    String url,
+    String hash) {
+
+  public Artifact {
+    Objects.requireNonNull(type);
+    Objects.requireNonNull(resource);
+    Objects.requireNonNull(url);
+    Objects.requireNonNull(hash);
+  }
+
+  @Override
+  public String toString() {
+    return resource.version()
+        .map(version -> "%s `%s|%s`".formatted(type.getSimpleName(), url, version))
+        .orElse("%s `%s`".formatted(type.getSimpleName(), url));
+  }
+}
@@ -0,0 +1,51 @@
+package de.samply.reporthub.service.provisioning;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.samply.reporthub.model.fhir.CanonicalResource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+
+/**
+ * Calculates content hashes of resources.
+ * <p>
+ * The hash covers the JSON serialization of the resource without its {@code id} and {@code meta},
+ * because both are assigned by the store. So a resource loaded from the classpath and the same
+ * resource read back from a store have the same hash.
+ */
+public class ArtifactHasher {
+
+  private final ObjectMapper mapper;
+
+  public ArtifactHasher(ObjectMapper mapper) {
+    this.mapper = Objects.requireNonNull(mapper);
+  }
+
+  /**
+   * Returns the hex encoded SHA-256 hash of the content of {@code resource}.
+   *
+   * @param resource the resource to hash
+   * @return the hash
+   */
+  public String hash(CanonicalResource<?> resource) {
+    ObjectNode node = mapper.valueToTree(resource);
+    node.remove("id");
+    node.remove("meta");
+    try {
+      return HexFormat.of().formatHex(sha256().digest(mapper.writeValueAsBytes(node)));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Error while serializing a resource for hashing.", e);
+    }
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
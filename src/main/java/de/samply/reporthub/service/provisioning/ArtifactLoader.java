@@ -0,0 +1,99 @@
+package de.samply.reporthub.service.provisioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.samply.reporthub.model.fhir.ActivityDefinition;
+import de.samply.reporthub.model.fhir.Attachment;
+import de.samply.reporthub.model.fhir.Base64Binary;
+import de.samply.reporthub.model.fhir.CanonicalResource;
+import de.samply.reporthub.model.fhir.Code;
+import de.samply.reporthub.model.fhir.Library;
+import de.samply.reporthub.model.fhir.Measure;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+/**
+ * Loads the artifacts found at a location.
+ * <p>
+ * Artifacts are JSON files named {@code ActivityDefinition-*.json}, {@code Library-*.json} or
+ * {@code Measure-*.json}. If a Library has no content, the CQL file with the same base name is
+ * attached to it. So {@code Library-dashboard.cql} is attached to {@code Library-dashboard.json}.
+ */
+public class ArtifactLoader {
+
+  private static final Logger logger = LoggerFactory.getLogger(ArtifactLoader.class);
+
+  private final ResourcePatternResolver resolver;
+  private final ObjectMapper mapper;
+  private final ArtifactHasher hasher;
+
+  public ArtifactLoader(ResourcePatternResolver resolver, ObjectMapper mapper,
+      ArtifactHasher hasher) {
+    this.resolver = Objects.requireNonNull(resolver);
+    this.mapper = Objects.requireNonNull(mapper);
+    this.hasher = Objects.requireNonNull(hasher);
+  }
+
+  /**
+   * Loads all artifacts found at {@code location}.
+   *
+   * @param location a location pattern ending with a slash, like
+   *                 {@code classpath*:de/samply/reporthub/**}{@code /}
+   * @return the artifacts found
+   * @throws IOException if an artifact can't be read or parsed
+   */
+  public List<Artifact<?>> load(String location) throws IOException {
+    var artifacts = new ArrayList<Artifact<?>>();
+    artifacts.addAll(load(location, ActivityDefinition.class));
+    artifacts.addAll(load(location, Library.class));
+    artifacts.addAll(load(location, Measure.class));
+    return artifacts;
+  }
+
+  private <T extends CanonicalResource<T>> List<Artifact<T>> load(String location, Class<T> type)
+      throws IOException {
+    var artifacts = new ArrayList<Artifact<T>>();
+    for (Resource file : resolver.getResources(location + type.getSimpleName() + "-*.json")) {
+      var resource = read(file, type);
+      if (resource instanceof Library library) {
+        resource = type.cast(attachCql(file, library));
+      }
+      var url = resource.url();
+      if (url.isEmpty()) {
+        logger.warn("Skip artifact `{}` because it has no URL.", file.getDescription());
+        continue;
+      }
+      logger.debug("Found artifact `{}`.", file.getDescription());
+      artifacts.add(new Artifact<>(type, resource, url.get(), hasher.hash(resource)));
+    }
+    return artifacts;
+  }
+
+  private <T> T read(Resource file, Class<T> type) throws IOException {
+    try (InputStream in = file.getInputStream()) {
+      return mapper.readValue(in, type);
+    }
+  }
+
+  private static Library attachCql(Resource file, Library library) throws IOException {
+    if (!library.content().isEmpty() || file.getFilename() == null) {
+      return library;
+    }
+    var cqlFile = file.createRelative(file.getFilename().replaceFirst("\\.json$", ".cql"));
+    if (!cqlFile.exists()) {
+      return library;
+    }
+    try (InputStream in = cqlFile.getInputStream()) {
+      return library.addContent(Attachment.builder()
+          .withContentType(Code.valueOf("text/cql"))
+          .withData(Base64Binary.encoded(in.readAllBytes()))
+          .build());
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package de.samply.reporthub.service.provisioning;
+
+import static de.samply.reporthub.model.fhir.HttpVerb.POST;
+import static de.samply.reporthub.model.fhir.HttpVerb.PUT;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.samply.reporthub.model.fhir.ActivityDefinition;
+import de.samply.reporthub.model.fhir.Bundle;
+import de.samply.reporthub.model.fhir.Bundle.Entry;
+import de.samply.reporthub.model.fhir.Bundle.Entry.Request;
+import de.samply.reporthub.model.fhir.CanonicalResource;
+import de.samply.reporthub.model.fhir.Meta;
+import de.samply.reporthub.service.fhir.store.DataStore;
+import de.samply.reporthub.service.fhir.store.Store;
+import de.samply.reporthub.service.fhir.store.TaskStore;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+/**
+ * Ensures that the stores contain the current version of all artifacts found at
+ * {@code app.provisioning.location}.
+ * <p>
+ * ActivityDefinitions are provisioned into the {@link TaskStore}, Libraries and Measures into the
+ * {@link DataStore}. For each artifact the store is searched by URL and version. New artifacts are
+ * created, artifacts whose content hash differs from the stored resource are updated and all
+ * others are left alone. All changes of one store are uploaded in a single transaction and both
+ * stores are provisioned in parallel.
+ */
+@Component
+public class ArtifactProvisioner {
+
+  private static final Logger logger = LoggerFactory.getLogger(ArtifactProvisioner.class);
+
+  private static final Retry RETRY = Retry.backoff(8, Duration.ofMillis(500))
+      .maxBackoff(Duration.ofSeconds(10))
+      .filter(ArtifactProvisioner::isTransient);
+
+  private final TaskStore taskStore;
+  private final DataStore dataStore;
+  private final ArtifactLoader loader;
+  private final ArtifactHasher hasher;
+  private final String location;
+
+  public ArtifactProvisioner(TaskStore taskStore, DataStore dataStore, ObjectMapper mapper,
+      @Value("${app.provisioning.location:classpath*:de/samply/reporthub/**/}") String location) {
+    this.taskStore = Objects.requireNonNull(taskStore);
+    this.dataStore = Objects.requireNonNull(dataStore);
+    this.hasher = new ArtifactHasher(mapper);
+    this.loader = new ArtifactLoader(new PathMatchingResourcePatternResolver(), mapper, hasher);
+    this.location = Objects.requireNonNull(location);
+  }
+
+  @PostConstruct
+  public void init() {
+    logger.info("Provision artifacts from `{}`...", location);
+    provision().subscribe(null, e -> logger.error(
+        "Error while provisioning artifacts: {} Please restart the ReportHub.", e.getMessage()));
+  }
+
+  /**
+   * Provisions all artifacts found at the configured location.
+   *
+   * @return a {@code Mono} that completes after all stores are up-to-date
+   */
+  public Mono<Void> provision() {
+    return Mono.fromCallable(() -> loader.load(location))
+        .subscribeOn(Schedulers.boundedElastic())
+        .flatMapMany(artifacts -> Flux.fromIterable(artifacts.stream()
+            .collect(Collectors.groupingBy(this::store)).entrySet()))
+        .flatMap(e -> provision(e.getKey(), e.getValue()))
+        .then();
+  }
+
+  private Store store(Artifact<?> artifact) {
+    return artifact.type() == ActivityDefinition.class ? taskStore : dataStore;
+  }
+
+  private Mono<Void> provision(Store store, List<Artifact<?>> artifacts) {
+    var storeName = store == taskStore ? "TaskStore" : "DataStore";
+    return Mono.defer(() -> Flux.fromIterable(artifacts)
+            .flatMap(artifact -> entry(store, artifact))
+            .collectList()
+            .flatMap(entries -> entries.isEmpty()
+                ? Mono.fromRunnable(() -> logger.info("All {} artifacts in the {} are up-to-date.",
+                artifacts.size(), storeName))
+                : store.transact(Bundle.transaction().withEntry(entries).build())
+                    .doOnNext(bundle -> logger.info(
+                        "Successfully provisioned {} of {} artifacts in the {}.", entries.size(),
+                        artifacts.size(), storeName))))
+        .retryWhen(RETRY)
+        .then();
+  }
+
+  private <T extends CanonicalResource<T>> Mono<Entry> entry(Store store, Artifact<T> artifact) {
+    return find(store, artifact)
+        .map(existing -> updateEntry(artifact, existing))
+        .switchIfEmpty(Mono.fromSupplier(() -> Optional.of(createEntry(artifact))))
+        .flatMap(Mono::justOrEmpty);
+  }
+
+  private static <T extends CanonicalResource<T>> Mono<T> find(Store store,
+      Artifact<T> artifact) {
+    return artifact.resource().version()
+        .map(version -> store.findByUrl(artifact.type(), artifact.url(), version))
+        .orElseGet(() -> store.findByUrl(artifact.type(), artifact.url()));
+  }
+
+  private static Entry createEntry(Artifact<?> artifact) {
+    logger.info("Create {}.", artifact);
+    return Entry.builder()
+        .withResource(artifact.resource())
+        .withRequest(Request.builder()
+            .withMethod(POST.code())
+            .withUrl(artifact.type().getSimpleName())
+            .withIfNoneExist(artifact.resource().version()
+                .map(version -> "url=%s&version=%s".formatted(artifact.url(), version))
+                .orElse("url=%s".formatted(artifact.url())))
+            .build())
+        .build();
+  }
+
+  private <T extends CanonicalResource<T>> Optional<Entry> updateEntry(Artifact<T> artifact,
+      T existing) {
+    if (artifact.hash().equals(hasher.hash(existing))) {
+      logger.debug("{} is up-to-date.", artifact);
+      return Optional.empty();
+    }
+    return existing.id().map(id -> {
+      logger.info("Update {} with id `{}`.", artifact, id);
+      var request = Request.builder()
+          .withMethod(PUT.code())
+          .withUrl("%s/%s".formatted(artifact.type().getSimpleName(), id));
+      existing.meta().flatMap(Meta::versionId)
+          .ifPresent(versionId -> request.withIfMatch("W/\"%s\"".formatted(versionId)));
+      return Entry.builder()
+          .withResource(artifact.resource().withId(id))
+          .withRequest(request.build())
+          .build();
+    });
+  }
+
+  /**
+   * Returns {@code true} if provisioning can be retried after {@code e}.
+   * <p>
+   * This is the case if the store isn't reachable, has a server error or the stored resources
+   * changed concurrently.
+   */
+  static boolean isTransient(Throwable e) {
+    if (e instanceof WebClientRequestException) {
+      return true;
+    }
+    if (e instanceof WebClientResponseException response) {
+      var status = response.getStatusCode();
+      return status.is5xxServerError() || status.value() == 409 || status.value() == 412;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,60 @@
+package de.samply.reporthub.web;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.ISpringWebFluxTemplateEngine;
+import org.thymeleaf.spring6.web.webflux.SpringWebFluxWebApplication;
+
+/**
+ * Renders Thymeleaf templates into strings, so that rendered pages can be cached.
+ * <p>
+ * The template is processed in the context of the current exchange, so that links are built
+ * relative to the context path like they are when the template is rendered as view. So a rendered
+ * page can only be reused for requests with the same {@link #locale(ServerWebExchange) locale} and
+ * context path. The model has to be fully resolved, because rendering is done synchronously.
+ */
+@Component
+public class TemplateRenderer {
+
+  private final ISpringWebFluxTemplateEngine templateEngine;
+  private final SpringWebFluxWebApplication application;
+
+  public TemplateRenderer(ISpringWebFluxTemplateEngine templateEngine) {
+    this.templateEngine = Objects.requireNonNull(templateEngine);
+    this.application = SpringWebFluxWebApplication.buildApplication(
+        ReactiveAdapterRegistry.getSharedInstance());
+  }
+
+  /**
+   * Renders {@code template} with {@code model} as HTML.
+   *
+   * @param exchange the current exchange
+   * @param template the name of the template
+   * @param model    the model of the template
+   * @return the rendered HTML
+   */
+  public String render(ServerWebExchange exchange, String template, Map<String, Object> model) {
+    var locale = locale(exchange);
+    var webExchange = application.buildExchange(exchange, locale, MediaType.TEXT_HTML, UTF_8);
+    return templateEngine.process(template, new WebContext(webExchange, locale, model));
+  }
+
+  /**
+   * Returns the locale templates are rendered with in {@code exchange}.
+   *
+   * @param exchange the current exchange
+   * @return the locale of the exchange or the default locale
+   */
+  public static Locale locale(ServerWebExchange exchange) {
+    return Objects.requireNonNullElse(exchange.getLocaleContext().getLocale(),
+        Locale.getDefault());
+  }
+}
@@ -4,17 +4,13 @@ import static org.springframework.web.reactive.function.server.RequestPredicates
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
 import static org.springframework.web.reactive.function.server.ServerResponse.ok;
 
-import de.samply.reporthub.service.fhir.store.DataStore;
-import de.samply.reporthub.service.fhir.store.Store;
-import de.samply.reporthub.service.fhir.store.TaskStore;
-import de.samply.reporthub.util.Monos;
+import de.samply.reporthub.service.StoreHealthService;
 import de.samply.reporthub.web.converter.ConfigConverter;
 import de.samply.reporthub.web.model.StoreConfig;
 import java.util.Map;
 import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.RouterFunction;
@@ -22,25 +18,21 @@ import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 
+/**
+ * The config page showing the stores together with their health.
+ * <p>
+ * The page is rendered from the snapshot of the {@link StoreHealthService}, so it doesn't contact
+ * the stores and renders instantly even if a store is down.
+ */
 @Component
 public class ConfigController {
 
   private static final Logger logger = LoggerFactory.getLogger(ConfigController.class);
 
-  private final TaskStore taskStore;
-  private final String taskStoreBaseUrl;
-  private final DataStore dataStore;
-  private final String dataStoreBaseUrl;
+  private final StoreHealthService storeHealthService;
 
-  public ConfigController(
-      TaskStore taskStore,
-      @Value("${app.taskStore.baseUrl}") String taskStoreBaseUrl,
-      DataStore dataStore,
-      @Value("${app.dataStore.baseUrl}") String dataStoreBaseUrl) {
-    this.taskStore = Objects.requireNonNull(taskStore);
-    this.taskStoreBaseUrl = Objects.requireNonNull(taskStoreBaseUrl);
-    this.dataStore = Objects.requireNonNull(dataStore);
-    this.dataStoreBaseUrl = Objects.requireNonNull(dataStoreBaseUrl);
+  public ConfigController(StoreHealthService storeHealthService) {
+    this.storeHealthService = Objects.requireNonNull(storeHealthService);
   }
 
   @Bean
@@ -50,18 +42,14 @@ public class ConfigController {
 
   public Mono<ServerResponse> handle(ServerRequest request) {
     logger.debug("Request config page");
-    return model().flatMap(model -> ok().render("config", model));
+    return ok().render("config", model());
   }
 
-  Mono<Map<String, Object>> model() {
-    return Monos.map(storeConfig(taskStoreBaseUrl, taskStore),
-        storeConfig(dataStoreBaseUrl, dataStore),
-        (taskStore, dataStore) -> Map.of("taskStore", taskStore, "dataStore", dataStore));
+  Map<String, Object> model() {
+    return Map.of("taskStore", storeConfig("taskStore"), "dataStore", storeConfig("dataStore"));
   }
 
-  public static Mono<StoreConfig> storeConfig(String baseUrl, Store store) {
-    return store.fetchMetadata()
-        .map(capabilityStatement -> ConfigConverter.convert(baseUrl, capabilityStatement))
-        .onErrorReturn(ConfigConverter.errorConfig(baseUrl));
+  private StoreConfig storeConfig(String name) {
+    return storeHealthService.health(name).map(ConfigConverter::convert).orElseThrow();
   }
 }
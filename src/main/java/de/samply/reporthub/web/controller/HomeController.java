@@ -1,30 +1,40 @@
 package de.samply.reporthub.web.controller;
 
 import static org.springframework.http.MediaType.APPLICATION_FORM_URLENCODED;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM;
+import static org.springframework.http.MediaType.TEXT_PLAIN;
 import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
 import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
 import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+import static org.springframework.web.reactive.function.server.ServerResponse.badRequest;
 import static org.springframework.web.reactive.function.server.ServerResponse.ok;
 import static org.springframework.web.reactive.function.server.ServerResponse.seeOther;
 
-import de.samply.reporthub.dktk.model.fhir.TaskCode;
 import de.samply.reporthub.model.fhir.ActivityDefinition;
 import de.samply.reporthub.model.fhir.Task;
 import de.samply.reporthub.service.TaskCreator;
+import de.samply.reporthub.service.TaskReadModel;
+import de.samply.reporthub.service.TaskReadModel.Page;
+import de.samply.reporthub.service.TaskReadModel.TaskSummary;
 import de.samply.reporthub.service.fhir.store.TaskStore;
-import de.samply.reporthub.util.Monos;
 import de.samply.reporthub.util.Optionals;
 import de.samply.reporthub.web.model.CreateTaskFormActivityDefinition;
 import de.samply.reporthub.web.model.Link;
 import de.samply.reporthub.web.model.TaskLineItem;
 import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.stereotype.Component;
@@ -32,45 +42,172 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.thymeleaf.spring6.context.webflux.ReactiveDataDriverContextVariable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+/**
+ * The home page listing the Tasks.
+ * <p>
+ * The Tasks are served from the {@link TaskReadModel}, so page loads don't search the
+ * {@link TaskStore}. The Tasks can be filtered by the query params {@code status} and {@code code}
+ * and are paged by the query param {@code page}. The table rows are passed to the template as
+ * data-driver, so the page is flushed in chunks while the rows are rendered. The
+ * ActivityDefinitions offered for creating Tasks are cached for
+ * {@code app.home.activityDefinitionMaxAge}.
+ * <p>
+ * Changes of Tasks are streamed as server-sent events under {@code task-events}. Each event carries
+ * the rendered table row of the changed Task, so that pages can update their rows in place. All
+ * viewers share the subscription of the {@link TaskReadModel} to the {@link TaskStore}.
+ * <p>
+ * Tasks are created under {@code create-task} one at a time from the form on the home page and
+ * under {@code create-tasks} in bulk. A bulk request takes any number of {@code instantiates} form
+ * params and an optional {@code count} of Tasks per ActivityDefinition and creates all Tasks in one
+ * transaction, up to {@code app.home.maxBulkTasks}. The ActivityDefinition and the
+ * {@link TaskCreator} of a canonical URL are resolved once and cached like the ActivityDefinitions
+ * of the form.
+ */
 @Component
 public class HomeController {
 
   private static final Logger logger = LoggerFactory.getLogger(HomeController.class);
 
+  static final int PAGE_SIZE = 50;
+
+  /**
+   * The number of task rows rendered before the output is flushed.
+   */
+  private static final int TASK_LINE_ITEM_BUFFER_SIZE = 10;
+
+  /**
+   * The number of canonical URLs for which the resolved ActivityDefinition and TaskCreator are
+   * cached.
+   */
+  static final int MAX_TASK_TEMPLATES = 100;
+
   private final TaskStore taskStore;
+  private final TaskReadModel taskReadModel;
   private final GenericApplicationContext applicationContext;
+  private final Duration activityDefinitionMaxAge;
+  private final int maxBulkTasks;
+  private final Mono<List<ActivityDefinition>> activityDefinitions;
+  private final Map<String, Mono<TaskTemplate>> taskTemplates = Collections.synchronizedMap(
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Mono<TaskTemplate>> eldest) {
+          return size() > MAX_TASK_TEMPLATES;
+        }
+      });
 
-  public HomeController(TaskStore taskStore, GenericApplicationContext applicationContext) {
+  public HomeController(TaskStore taskStore, TaskReadModel taskReadModel,
+      GenericApplicationContext applicationContext,
+      @Value("${app.home.activityDefinitionMaxAge:PT1M}") Duration activityDefinitionMaxAge,
+      @Value("${app.home.maxBulkTasks:1000}") int maxBulkTasks) {
     this.taskStore = Objects.requireNonNull(taskStore);
+    this.taskReadModel = Objects.requireNonNull(taskReadModel);
     this.applicationContext = Objects.requireNonNull(applicationContext);
+    this.activityDefinitionMaxAge = Objects.requireNonNull(activityDefinitionMaxAge);
+    this.maxBulkTasks = maxBulkTasks;
+    this.activityDefinitions = Mono.defer(() -> taskStore.listAllActivityDefinitions()
+            .collectList())
+        .cache(activityDefinitions -> activityDefinitionMaxAge, e -> Duration.ZERO,
+            () -> Duration.ZERO);
   }
 
   @Bean
   public RouterFunction<ServerResponse> homeRouter() {
     return route(GET(""), this::handle)
+        .andRoute(GET("task-events"), this::taskEvents)
         .andRoute(POST("create-task").and(accept(APPLICATION_FORM_URLENCODED)),
-            this::createTask);
+            this::createTask)
+        .andRoute(POST("create-tasks").and(accept(APPLICATION_FORM_URLENCODED)),
+            this::createTasks);
   }
 
   public Mono<ServerResponse> handle(ServerRequest request) {
     logger.debug("Request home page");
-    return homeModel().flatMap(model -> ok().render("home", model));
+    return homeModel(request).flatMap(model -> ok().render("home", model));
   }
 
-  Mono<Map<String, Object>> homeModel() {
-    return Monos.map(taskLineItems().collectList(),
-            taskStore.listAllActivityDefinitions().collectList(), HomeController::homeModel)
+  Mono<Map<String, Object>> homeModel(ServerRequest request) {
+    if (!taskReadModel.isReady()) {
+      return Mono.just(Map.of("error", "Tasks are not loaded yet. Please reload this site."));
+    }
+    var status = queryParam(request, "status");
+    var code = queryParam(request, "code");
+    var page = taskReadModel.page(pageNumber(request), PAGE_SIZE, status, code);
+    return activityDefinitions
+        .map(activityDefinitions -> homeModel(page, status, code, activityDefinitions))
         .onErrorResume(e -> Mono.just(Map.of("error", "Error while loading tasks.")));
   }
 
-  static Map<String, Object> homeModel(List<TaskLineItem> taskLineItems,
+  Map<String, Object> homeModel(Page page, Optional<String> status, Optional<String> code,
       List<ActivityDefinition> activityDefinitions) {
-    return Map.of("taskLineItems", taskLineItems,
-        "createTaskFormActivityDefinitions",
+    var model = new HashMap<String, Object>();
+    model.put("hasTasks", !page.tasks().isEmpty());
+    model.put("taskLineItems", new ReactiveDataDriverContextVariable(Flux.fromIterable(page.tasks())
+        .map(HomeController::taskLineItem), TASK_LINE_ITEM_BUFFER_SIZE));
+    model.put("statusFilterLinks", taskReadModel.statuses().stream()
+        .map(s -> Link.of(homeUri(0, Optional.of(s), code), s)).toList());
+    model.put("codeFilterLinks", taskReadModel.codes().stream()
+        .map(c -> Link.of(homeUri(0, status, Optional.of(c)), c)).toList());
+    model.put("allStatusLink", Link.of(homeUri(0, Optional.empty(), code), "all"));
+    model.put("allCodeLink", Link.of(homeUri(0, status, Optional.empty()), "all"));
+    model.put("status", status.orElse("all"));
+    model.put("code", code.orElse("all"));
+    if (page.hasPrevious()) {
+      model.put("previousPageLink", Link.of(homeUri(page.number() - 1, status, code), "Previous"));
+    }
+    if (page.hasNext()) {
+      model.put("nextPageLink", Link.of(homeUri(page.number() + 1, status, code), "Next"));
+    }
+    model.put("createTaskFormActivityDefinitions",
         createTaskFormActivityDefinitions(activityDefinitions));
+    return model;
+  }
+
+  private static Optional<String> queryParam(ServerRequest request, String name) {
+    return request.queryParam(name).filter(value -> !value.isBlank());
+  }
+
+  private static int pageNumber(ServerRequest request) {
+    try {
+      return queryParam(request, "page").map(Integer::parseInt).filter(n -> n >= 0).orElse(0);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  static URI homeUri(int page, Optional<String> status, Optional<String> code) {
+    var builder = UriComponentsBuilder.fromPath("/");
+    status.ifPresent(s -> builder.queryParam("status", s));
+    code.ifPresent(c -> builder.queryParam("code", c));
+    if (page > 0) {
+      builder.queryParam("page", page);
+    }
+    return builder.encode().build().toUri();
+  }
+
+  /**
+   * Streams the rendered table rows of changed Tasks as server-sent events.
+   * <p>
+   * The optional query param {@code id} restricts the events to one Task.
+   *
+   * @param request the request
+   * @return a response streaming server-sent events
+   */
+  Mono<ServerResponse> taskEvents(ServerRequest request) {
+    var id = queryParam(request, "id");
+    logger.debug("Stream events of {}", id.map("Task with id `%s`"::formatted).orElse("all Tasks"));
+    return ok().contentType(TEXT_EVENT_STREAM).render("task-events",
+        Map.of("taskLineItems", new ReactiveDataDriverContextVariable(taskEvents(id), 1, "task")));
+  }
+
+  Flux<TaskLineItem> taskEvents(Optional<String> id) {
+    return taskReadModel.changes()
+        .filter(task -> id.isEmpty() || id.get().equals(task.id()))
+        .map(HomeController::taskLineItem);
   }
 
   Mono<ServerResponse> createTask(ServerRequest request) {
@@ -78,34 +215,101 @@ public class HomeController {
     return request.formData()
         .flatMap(this::formTask)
         .flatMap(taskStore::createTask)
+        .doOnNext(taskReadModel::put)
         .flatMap(task -> seeOther(request.uriBuilder().path("/..").build()).build());
   }
 
   Mono<Task> formTask(MultiValueMap<String, String> formData) {
-    return taskStore.findByUrl(ActivityDefinition.class, formData.getFirst("instantiates"))
-        .flatMap(this::formTask);
+    return taskTemplate(formData.getFirst("instantiates")).flatMap(TaskTemplate::create);
+  }
+
+  /**
+   * Creates {@code count} Tasks for each ActivityDefinition in the {@code instantiates} form params
+   * in one transaction.
+   * <p>
+   * Responds with bad request if there are no or more than {@code app.home.maxBulkTasks} Tasks to
+   * create or one of the ActivityDefinitions or its {@link TaskCreator} isn't found. In that case
+   * no Task is created.
+   *
+   * @param request the request with the form data
+   * @return a redirect to the home page
+   */
+  Mono<ServerResponse> createTasks(ServerRequest request) {
+    return request.formData()
+        .flatMap(this::formTasks)
+        .flatMapMany(taskStore::createTasks)
+        .doOnNext(taskReadModel::put)
+        .count()
+        .flatMap(count -> {
+          logger.info("Created {} Tasks.", count);
+          return seeOther(request.uriBuilder().path("/..").build()).build();
+        })
+        .onErrorResume(IllegalArgumentException.class, e -> badRequest()
+            .contentType(TEXT_PLAIN)
+            .bodyValue(e.getMessage()));
+  }
+
+  Mono<List<Task>> formTasks(MultiValueMap<String, String> formData) {
+    var urls = formData.getOrDefault("instantiates", List.of());
+    int count;
+    try {
+      count = Optional.ofNullable(formData.getFirst("count")).map(Integer::parseInt).orElse(1);
+    } catch (NumberFormatException e) {
+      return Mono.error(new IllegalArgumentException("Invalid count `%s`."
+          .formatted(formData.getFirst("count"))));
+    }
+    if (urls.isEmpty() || count < 1 || (long) urls.size() * count > maxBulkTasks) {
+      return Mono.error(new IllegalArgumentException(
+          "Between 1 and %d Tasks can be created at once.".formatted(maxBulkTasks)));
+    }
+    return Flux.fromIterable(urls)
+        .concatMap(url -> taskTemplate(url).switchIfEmpty(Mono.error(
+            () -> new IllegalArgumentException("Unknown ActivityDefinition `%s`.".formatted(url)))))
+        .concatMap(template -> Flux.range(0, count).concatMap(i -> template.create()))
+        .collectList();
   }
 
-  private Mono<Task> formTask(ActivityDefinition activityDefinition) {
-    return Mono.justOrEmpty(activityDefinition.url())
-        .map(url -> applicationContext.getBean(url, TaskCreator.class))
-        .flatMap(creator -> creator.create(activityDefinition));
+  /**
+   * Returns the ActivityDefinition with canonical {@code url} together with its
+   * {@link TaskCreator}.
+   * <p>
+   * The lookup is cached for {@code app.home.activityDefinitionMaxAge}. Lookups which didn't find
+   * the ActivityDefinition or failed are not cached.
+   *
+   * @param url the canonical URL of the ActivityDefinition
+   * @return a {@code Mono} of the template, an empty {@code Mono} if the ActivityDefinition wasn't
+   * found or an {@link IllegalArgumentException} if there is no {@link TaskCreator} for it
+   */
+  Mono<TaskTemplate> taskTemplate(String url) {
+    return taskTemplates.computeIfAbsent(url, key -> Mono.defer(
+            () -> taskStore.findByUrl(ActivityDefinition.class, key))
+        .flatMap(activityDefinition -> Mono.justOrEmpty(activityDefinition.url())
+            .map(u -> new TaskTemplate(activityDefinition,
+                applicationContext.getBean(u, TaskCreator.class))))
+        .onErrorMap(NoSuchBeanDefinitionException.class, e -> new IllegalArgumentException(
+            "No Task creator for ActivityDefinition `%s`.".formatted(key)))
+        .cache(template -> activityDefinitionMaxAge, e -> Duration.ZERO, () -> Duration.ZERO));
   }
 
-  private Flux<TaskLineItem> taskLineItems() {
-    return taskStore.listNewestTasks()
-        .flatMap(task -> Mono.justOrEmpty(taskLineItem(task)));
+  record TaskTemplate(ActivityDefinition activityDefinition, TaskCreator creator) {
+
+    TaskTemplate {
+      Objects.requireNonNull(activityDefinition);
+      Objects.requireNonNull(creator);
+    }
+
+    Mono<Task> create() {
+      return creator.create(activityDefinition);
+    }
   }
 
-  private Optional<TaskLineItem> taskLineItem(Task task) {
-    return Optionals.map(task.lastModified(),
-        task.code().flatMap(code -> code.findCodeValue(TaskCode.CODE_SYSTEM_URL)),
-        task.id(), task.status().value(), (lastModified, code, id, status) -> TaskLineItem.of(
-            lastModified,
-            Link.of(URI.create("/task/%s/%s".formatted(code, id)), id),
-            code,
-            status
-        ));
+  private static TaskLineItem taskLineItem(TaskSummary task) {
+    return TaskLineItem.of(
+        task.lastModified(),
+        Link.of(URI.create("/task/%s/%s".formatted(task.code(), task.id())), task.id()),
+        task.code(),
+        task.status()
+    );
   }
 
   static List<CreateTaskFormActivityDefinition> createTaskFormActivityDefinitions(
@@ -0,0 +1,154 @@
+package de.samply.reporthub.web.controller;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+import static org.springframework.web.reactive.function.server.ServerResponse.badRequest;
+import static org.springframework.web.reactive.function.server.ServerResponse.ok;
+import static org.springframework.web.reactive.function.server.ServerResponse.status;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import de.samply.reporthub.service.fhir.store.ResourceNotFoundException;
+import de.samply.reporthub.service.fhir.store.TaskStore;
+import de.samply.reporthub.web.converter.MeasureReportRowConverter;
+import de.samply.reporthub.web.model.MeasureReportRow;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+/**
+ * Exports the population counts of stored MeasureReports as JSON, CSV or NDJSON.
+ * <p>
+ * The counts are exported as {@link MeasureReportRow rows}, one per group population and one per
+ * stratum population. Rows are encoded as soon as they are produced from the MeasureReport and
+ * collected into data buffers of about {@link #CHUNK_SIZE} bytes, so the response is streamed
+ * without a buffer per row and no representation of the whole export is built up in memory.
+ */
+@Component
+public class MeasureReportExportController {
+
+  private static final Logger logger = LoggerFactory.getLogger(MeasureReportExportController.class);
+
+  static final int CHUNK_SIZE = 8192;
+
+  private final TaskStore taskStore;
+  private final ObjectWriter writer;
+
+  public MeasureReportExportController(TaskStore taskStore, ObjectMapper mapper) {
+    this.taskStore = Objects.requireNonNull(taskStore);
+    this.writer = mapper.writerFor(MeasureReportRow.class);
+  }
+
+  @Bean
+  public RouterFunction<ServerResponse> measureReportExportRouter() {
+    return route(GET("measure-report/{id}/export"), this::handle);
+  }
+
+  Mono<ServerResponse> handle(ServerRequest request) {
+    String id = request.pathVariable("id");
+    var formatName = request.queryParam("format").orElse(Format.JSON.name);
+    var format = Format.of(formatName);
+    if (format.isEmpty()) {
+      return badRequest().contentType(MediaType.TEXT_PLAIN)
+          .bodyValue("Unknown format `%s`. Supported formats are: %s.".formatted(formatName,
+              Arrays.stream(Format.values()).map(f -> f.name).collect(Collectors.joining(", "))));
+    }
+    logger.debug("Export MeasureReport with id `{}` as {}", id, format.get().name);
+    return taskStore.fetchMeasureReport(id)
+        .flatMap(measureReport -> ok()
+            .contentType(format.get().mediaType)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("measure-report-%s.%s".formatted(id, format.get().name))
+                .build().toString())
+            .body(BodyInserters.fromDataBuffers(
+                write(format.get(), MeasureReportRowConverter.rows(measureReport)))))
+        .onErrorResume(ResourceNotFoundException.class, e -> status(HttpStatus.NOT_FOUND)
+            .contentType(MediaType.TEXT_PLAIN)
+            .bodyValue("The MeasureReport with id `%s` was not found.".formatted(e.id())));
+  }
+
+  Flux<DataBuffer> write(Format format, Flux<MeasureReportRow> rows) {
+    var lines = switch (format) {
+      case JSON -> Flux.just("[")
+          .concatWith(rows.handle(this::json).index((i, json) -> i == 0 ? json : "," + json))
+          .concatWith(Flux.just("]\n"));
+      case NDJSON -> rows.handle(this::json).map(json -> json + "\n");
+      case CSV -> Flux.just(MeasureReportRow.CSV_HEADER + "\r\n")
+          .concatWith(rows.map(row -> row.toCsv() + "\r\n"));
+    };
+    return chunks(lines.map(line -> line.getBytes(UTF_8)));
+  }
+
+  /**
+   * Joins {@code lines} into data buffers of at least {@link #CHUNK_SIZE} bytes, except for the
+   * last one.
+   */
+  private static Flux<DataBuffer> chunks(Flux<byte[]> lines) {
+    return Flux.defer(() -> {
+          var size = new int[1];
+          return lines.bufferUntil(line -> {
+            size[0] += line.length;
+            if (size[0] >= CHUNK_SIZE) {
+              size[0] = 0;
+              return true;
+            }
+            return false;
+          });
+        })
+        .map(MeasureReportExportController::join);
+  }
+
+  private static DataBuffer join(List<byte[]> lines) {
+    var buffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(
+        lines.stream().mapToInt(line -> line.length).sum());
+    lines.forEach(buffer::write);
+    return buffer;
+  }
+
+  private void json(MeasureReportRow row, SynchronousSink<String> sink) {
+    try {
+      sink.next(writer.writeValueAsString(row));
+    } catch (JsonProcessingException e) {
+      sink.error(e);
+    }
+  }
+
+  enum Format {
+    JSON("json", MediaType.APPLICATION_JSON),
+    CSV("csv", new MediaType("text", "csv", UTF_8)),
+    NDJSON("ndjson", MediaType.APPLICATION_NDJSON);
+
+    private final String name;
+    private final MediaType mediaType;
+
+    Format(String name, MediaType mediaType) {
+      this.name = name;
+      this.mediaType = mediaType;
+    }
+
+    static Optional<Format> of(String name) {
+      return Arrays.stream(values()).filter(format -> format.name.equals(name)).findFirst();
+    }
+  }
+}
@@ -3,14 +3,26 @@ package de.samply.reporthub.web.converter;
 import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE;
 
 import de.samply.reporthub.model.fhir.CapabilityStatement;
+import de.samply.reporthub.service.StoreHealthService.Status;
+import de.samply.reporthub.service.StoreHealthService.StoreHealth;
 import de.samply.reporthub.web.model.StoreConfig;
 
 public interface ConfigConverter {
 
   String UNKNOWN_SOFTWARE = "Unknown";
 
-  static StoreConfig convert(String baseUrl, CapabilityStatement capabilityStatement) {
-    return new StoreConfig(baseUrl, software(capabilityStatement), "OK");
+  static StoreConfig convert(StoreHealth health) {
+    return new StoreConfig(health.baseUrl(),
+        health.capabilityStatement().map(ConfigConverter::software).orElse(UNKNOWN_SOFTWARE),
+        status(health.status()), health.latency(), health.errorRate());
+  }
+
+  static String status(Status status) {
+    return switch (status) {
+      case UNKNOWN -> "UNKNOWN";
+      case UP -> "OK";
+      case DOWN -> "ERROR";
+    };
   }
 
   static String software(CapabilityStatement capabilityStatement) {
@@ -26,8 +38,4 @@ public interface ConfigConverter {
                 .orElse(software.name())))
         .orElse(UNKNOWN_SOFTWARE);
   }
-
-  static StoreConfig errorConfig(String baseUrl) {
-    return new StoreConfig(baseUrl, UNKNOWN_SOFTWARE, "ERROR");
-  }
 }
@@ -0,0 +1,104 @@
+package de.samply.reporthub.web.converter;
+
+import de.samply.reporthub.model.fhir.Code;
+import de.samply.reporthub.model.fhir.CodeableConcept;
+import de.samply.reporthub.model.fhir.Coding;
+import de.samply.reporthub.model.fhir.MeasureReport;
+import de.samply.reporthub.model.fhir.MeasureReport.Group;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum;
+import de.samply.reporthub.web.model.MeasureReportRow;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import reactor.core.publisher.Flux;
+
+/**
+ * Converts MeasureReports into {@link MeasureReportRow rows}.
+ * <p>
+ * The rows are produced lazily, group by group and stratum by stratum, so that they can be written
+ * out while the report is traversed.
+ */
+public interface MeasureReportRowConverter {
+
+  String SEPARATOR = "|";
+
+  /**
+   * Returns all population counts of {@code measureReport} as rows, each group followed by the
+   * strata of its stratifiers.
+   * <p>
+   * Populations without count are skipped.
+   *
+   * @param measureReport the MeasureReport to convert
+   * @return a {@code Flux} of rows
+   */
+  static Flux<MeasureReportRow> rows(MeasureReport measureReport) {
+    return Flux.fromIterable(measureReport.group())
+        .concatMap(MeasureReportRowConverter::rows);
+  }
+
+  private static Flux<MeasureReportRow> rows(Group group) {
+    var groupCode = code(group.code());
+    var rows = new ArrayList<MeasureReportRow>(group.population().size());
+    for (var population : group.population()) {
+      population.count().ifPresent(count -> rows.add(new MeasureReportRow(groupCode, "", "",
+          code(population.code()), count)));
+    }
+    return Flux.fromIterable(rows)
+        .concatWith(Flux.fromIterable(group.stratifier())
+            .concatMap(stratifier -> rows(groupCode, stratifier)));
+  }
+
+  private static Flux<MeasureReportRow> rows(String groupCode, Stratifier stratifier) {
+    var stratifierCode = stratifier.code().stream().map(MeasureReportRowConverter::code)
+        .collect(Collectors.joining(SEPARATOR));
+    return Flux.fromIterable(stratifier.stratum())
+        .concatMapIterable(stratum -> rows(groupCode, stratifierCode, stratum));
+  }
+
+  /**
+   * Returns the rows of all populations of {@code stratum} at once, because a stratum only has a
+   * few populations.
+   */
+  private static List<MeasureReportRow> rows(String groupCode, String stratifierCode,
+      Stratum stratum) {
+    var stratumValue = stratumValue(stratum);
+    var rows = new ArrayList<MeasureReportRow>(stratum.population().size());
+    for (var population : stratum.population()) {
+      population.count().ifPresent(count -> rows.add(new MeasureReportRow(groupCode,
+          stratifierCode, stratumValue, code(population.code()), count)));
+    }
+    return rows;
+  }
+
+  private static String stratumValue(Stratum stratum) {
+    return stratum.value().map(MeasureReportRowConverter::code)
+        .orElseGet(() -> components(stratum.component()));
+  }
+
+  private static String components(List<Stratum.Component> components) {
+    return components.stream()
+        .map(component -> code(component.code()) + "=" + code(component.value()))
+        .collect(Collectors.joining(SEPARATOR));
+  }
+
+  private static String code(Optional<CodeableConcept> concept) {
+    return concept.map(MeasureReportRowConverter::code).orElse("");
+  }
+
+  /**
+   * Returns the code of the first coding of {@code concept}, falling back to its text.
+   *
+   * @param concept the CodeableConcept
+   * @return the code, the text or an empty string
+   */
+  static String code(CodeableConcept concept) {
+    return concept.coding().stream()
+        .map(Coding::code).flatMap(Optional::stream)
+        .map(Code::value).flatMap(Optional::stream)
+        .findFirst()
+        .or(concept::text)
+        .orElse("");
+  }
+}
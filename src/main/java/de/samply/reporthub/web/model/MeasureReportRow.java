@@ -0,0 +1,45 @@
+package de.samply.reporthub.web.model;
+
+import java.util.Objects;
+
+/**
+ * One population count of a MeasureReport in a flat, tabular form.
+ * <p>
+ * Counts of whole groups have an empty {@code stratifier} and {@code stratum}.
+ *
+ * @param group      the code of the group
+ * @param stratifier the codes of the stratifier, separated by {@code |}
+ * @param stratum    the value of the stratum or its components as {@code code=value}, separated by
+ *                   {@code |}
+ * @param population the code of the population
+ * @param count      the count of the population
+ */
+public record MeasureReportRow(String group, String stratifier, String stratum,
+                               String population, int count) {
+
+  public static final String CSV_HEADER = "group,stratifier,stratum,population,count";
+
+  public MeasureReportRow {
+    Objects.requireNonNull(group);
+    Objects.requireNonNull(stratifier);
+    Objects.requireNonNull(stratum);
+    Objects.requireNonNull(population);
+  }
+
+  /**
+   * Returns this row as CSV line according to RFC 4180 without line break.
+   *
+   * @return this row as CSV line
+   */
+  public String toCsv() {
+    return String.join(",", csvField(group), csvField(stratifier), csvField(stratum),
+        csvField(population), Integer.toString(count));
+  }
+
+  private static String csvField(String value) {
+    if (value.chars().anyMatch(c -> c == ',' || c == '"' || c == '\r' || c == '\n')) {
+      return '"' + value.replace("\"", "\"\"") + '"';
+    }
+    return value;
+  }
+}
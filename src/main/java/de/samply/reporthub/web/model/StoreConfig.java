@@ -1,5 +1,16 @@
 package de.samply.reporthub.web.model;
 
-public record StoreConfig(String baseUrl, String software, String status) {
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
 
+public record StoreConfig(String baseUrl, String software, String status,
+                          Optional<Duration> latency, double errorRate) {
+
+  public StoreConfig {
+    Objects.requireNonNull(baseUrl);
+    Objects.requireNonNull(software);
+    Objects.requireNonNull(status);
+    Objects.requireNonNull(latency);
+  }
 }
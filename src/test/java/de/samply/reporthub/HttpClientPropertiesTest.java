@@ -0,0 +1,60 @@
+package de.samply.reporthub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.test.StepVerifier;
+
+class HttpClientPropertiesTest {
+
+  @Test
+  void bind_defaults() {
+    var properties = HttpClientProperties.bind(new MockEnvironment(), "app.test.http");
+
+    assertThat(properties.maxConnections()).isEqualTo(50);
+    assertThat(properties.responseTimeout()).isEqualTo(Duration.ofSeconds(30));
+    assertThat(properties.h2c()).isFalse();
+  }
+
+  @Test
+  void bind() {
+    var environment = new MockEnvironment()
+        .withProperty("app.test.http.maxConnections", "10")
+        .withProperty("app.test.http.responseTimeout", "10m")
+        .withProperty("app.test.http.h2c", "true");
+
+    var properties = HttpClientProperties.bind(environment, "app.test.http");
+
+    assertThat(properties.maxConnections()).isEqualTo(10);
+    assertThat(properties.responseTimeout()).isEqualTo(Duration.ofMinutes(10));
+    assertThat(properties.pendingAcquireTimeout()).isEqualTo(Duration.ofSeconds(10));
+    assertThat(properties.h2c()).isTrue();
+  }
+
+  @Test
+  void connector_responseTimeout() throws IOException {
+    try (var server = new MockWebServer()) {
+      server.enqueue(new MockResponse().setHeadersDelay(1, TimeUnit.SECONDS));
+      server.start();
+      var environment = new MockEnvironment()
+          .withProperty("app.test.http.responseTimeout", "100ms");
+      var client = WebClient.builder()
+          .baseUrl("http://localhost:%d".formatted(server.getPort()))
+          .clientConnector(HttpClientProperties.bind(environment, "app.test.http")
+              .connector("test"))
+          .build();
+
+      var result = client.get().retrieve().toBodilessEntity();
+
+      StepVerifier.create(result).expectError(WebClientRequestException.class).verify();
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package de.samply.reporthub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class MemoryBudgetTest {
+
+  @Test
+  void tryReserve() {
+    var budget = new MemoryBudget(10);
+
+    assertThat(budget.tryReserve(6)).isTrue();
+    assertThat(budget.tryReserve(5)).isFalse();
+    assertThat(budget.tryReserve(4)).isTrue();
+    assertThat(budget.used()).isEqualTo(10);
+  }
+
+  @Test
+  void release() {
+    var budget = new MemoryBudget(10);
+    budget.tryReserve(10);
+
+    budget.release(10);
+
+    assertThat(budget.used()).isZero();
+    assertThat(budget.tryReserve(10)).isTrue();
+  }
+
+  @Test
+  void negativeCapacity() {
+    assertThatThrownBy(() -> new MemoryBudget(-1))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("negative capacity: -1");
+  }
+}
@@ -0,0 +1,126 @@
+package de.samply.reporthub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import de.samply.reporthub.dktk.model.fhir.TaskCode;
+import de.samply.reporthub.dktk.model.fhir.TaskInput;
+import de.samply.reporthub.model.fhir.Canonical;
+import de.samply.reporthub.model.fhir.CodeableConcept;
+import de.samply.reporthub.model.fhir.Task;
+import de.samply.reporthub.model.fhir.Task.Input;
+import de.samply.reporthub.service.fhir.store.FhirFormat;
+import de.samply.reporthub.service.fhir.store.TaskStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.test.StepVerifier;
+
+class ReportHubApplicationTest {
+
+  private static final Task TASK = Task.ready()
+      .withId("id-111912")
+      .withCode(CodeableConcept.coding(TaskCode.EVALUATE_MEASURE.coding()))
+      .withInput(List.of(Input.of(TaskInput.MEASURE.coding(),
+          Canonical.valueOf("measure-111928"))))
+      .build();
+
+  @TempDir
+  Path tempDirectory;
+
+  private MockWebServer server;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  @ParameterizedTest
+  @EnumSource(FhirFormat.class)
+  void storeClient(FhirFormat format) throws Exception {
+    var mapper = Util.mapper();
+    var formatMapper = mapper.copyWith(factory(format));
+    server.enqueue(new MockResponse().setResponseCode(201)
+        .setHeader("Content-Type", format.mediaType())
+        .setBody(new Buffer().write(formatMapper.writeValueAsBytes(TASK))));
+    var client = ReportHubApplication.storeClient(
+        "http://localhost:%d".formatted(server.getPort()), format, mapper,
+        new MemoryBudget(1024 * 1024), 64 * 1024 * 1024, tempDirectory,
+        new ReactorClientHttpConnector());
+
+    var result = new TaskStore(client, format, new SimpleMeterRegistry()).createTask(TASK);
+
+    StepVerifier.create(result).expectNext(TASK).verifyComplete();
+    var request = server.takeRequest();
+    assertThat(request.getHeader("Content-Type")).isEqualTo(format.mediaType().toString());
+    assertThat(request.getHeader("Accept")).isEqualTo(format.accept());
+    assertThat(formatMapper.readValue(request.getBody().readByteArray(), Task.class))
+        .isEqualTo(TASK);
+  }
+
+  @Test
+  void storeClient_smileWithJsonResponse() throws Exception {
+    var format = FhirFormat.SMILE;
+    var mapper = Util.mapper();
+    server.enqueue(new MockResponse().setResponseCode(201)
+        .setHeader("Content-Type", "application/fhir+json")
+        .setBody(mapper.writeValueAsString(TASK)));
+    var client = ReportHubApplication.storeClient(
+        "http://localhost:%d".formatted(server.getPort()), format, mapper,
+        new MemoryBudget(1024 * 1024), 64 * 1024 * 1024, tempDirectory,
+        new ReactorClientHttpConnector());
+
+    var result = new TaskStore(client, format, new SimpleMeterRegistry()).createTask(TASK);
+
+    StepVerifier.create(result).expectNext(TASK).verifyComplete();
+  }
+
+  @ParameterizedTest
+  @EnumSource(FhirFormat.class)
+  void storeClient_searchBundleLargerThanInMemorySize(FhirFormat format) throws Exception {
+    var mapper = Util.mapper();
+    var entry = "{\"resource\": %s}".formatted(mapper.writeValueAsString(TASK));
+    var json = Collections.nCopies(20_000, entry).stream().collect(Collectors.joining(",",
+        "{\"resourceType\": \"Bundle\", \"type\": \"searchset\", \"entry\": [", "]}"));
+    var body = mapper.copyWith(factory(format)).writeValueAsBytes(mapper.readTree(json));
+    assertThat(body.length).isGreaterThan(2 * 1024 * 1024);
+    server.enqueue(new MockResponse().setHeader("Content-Type", format.mediaType())
+        .setBody(new Buffer().write(body)));
+    var client = ReportHubApplication.storeClient(
+        "http://localhost:%d".formatted(server.getPort()), format, mapper,
+        new MemoryBudget(1024 * 1024), 64 * 1024 * 1024, tempDirectory,
+        new ReactorClientHttpConnector());
+
+    var result = new TaskStore(client, format, new SimpleMeterRegistry()).listNewestTasks(20_000);
+
+    StepVerifier.create(result).expectNextCount(20_000).verifyComplete();
+  }
+
+  private static JsonFactory factory(FhirFormat format) {
+    return switch (format) {
+      case JSON -> new ObjectMapper().getFactory();
+      case SMILE -> new SmileFactory();
+    };
+  }
+}
@@ -0,0 +1,129 @@
+package de.samply.reporthub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.samply.reporthub.model.fhir.MeasureReport;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class SpillingJackson2JsonDecoderTest {
+
+  private static final String MEASURE_REPORT = """
+      {"resourceType": "MeasureReport", "id": "id-100217", "status": "complete",
+       "type": "summary", "measure": "measure-100225"}""";
+  private static final ResolvableType TYPE = ResolvableType.forClass(MeasureReport.class);
+
+  @TempDir
+  Path tempDirectory;
+
+  @Test
+  void decodeToMono_inMemory() throws IOException {
+    var budget = new MemoryBudget(1024);
+    var decoder = decoder(budget, 1024);
+
+    var result = decoder.decodeToMono(chunks(MEASURE_REPORT, 10), TYPE, null, null);
+
+    StepVerifier.create(result)
+        .expectNextMatches(report -> ((MeasureReport) report).id().orElseThrow()
+            .equals("id-100217"))
+        .verifyComplete();
+    assertThat(budget.used()).isZero();
+    assertThat(tempFiles()).isEmpty();
+  }
+
+  @Test
+  void decodeToMono_overThreshold() throws IOException {
+    var budget = new MemoryBudget(1024);
+    var decoder = decoder(budget, 1024);
+    decoder.setMaxInMemorySize(16);
+
+    var result = decoder.decodeToMono(chunks(MEASURE_REPORT, 10), TYPE, null, null);
+
+    StepVerifier.create(result)
+        .expectNextMatches(report -> ((MeasureReport) report).id().orElseThrow()
+            .equals("id-100217"))
+        .verifyComplete();
+    assertThat(budget.used()).isZero();
+    assertThat(tempFiles()).isEmpty();
+  }
+
+  @Test
+  void decodeToMono_budgetExhausted() throws IOException {
+    var budget = new MemoryBudget(1024);
+    budget.tryReserve(1020);
+    var decoder = decoder(budget, 1024);
+
+    var result = decoder.decodeToMono(chunks(MEASURE_REPORT, 10), TYPE, null, null);
+
+    StepVerifier.create(result)
+        .expectNextMatches(report -> ((MeasureReport) report).id().orElseThrow()
+            .equals("id-100217"))
+        .verifyComplete();
+    assertThat(budget.used()).isEqualTo(1020);
+    assertThat(tempFiles()).isEmpty();
+  }
+
+  @Test
+  void decodeToMono_overMaxSize() throws IOException {
+    var budget = new MemoryBudget(1024);
+    var decoder = decoder(budget, 32);
+    decoder.setMaxInMemorySize(16);
+
+    var result = decoder.decodeToMono(chunks(MEASURE_REPORT, 10), TYPE, null, null);
+
+    StepVerifier.create(result).expectError(DataBufferLimitException.class).verify();
+    assertThat(budget.used()).isZero();
+    assertThat(tempFiles()).isEmpty();
+  }
+
+  @Test
+  void decodeToMono_invalidSpilledJson() throws IOException {
+    var budget = new MemoryBudget(1024);
+    var decoder = decoder(budget, 1024);
+    decoder.setMaxInMemorySize(16);
+
+    var result = decoder.decodeToMono(chunks("{\"resourceType\": \"MeasureReport\", ", 10),
+        TYPE, null, null);
+
+    StepVerifier.create(result).expectError(DecodingException.class).verify();
+    assertThat(tempFiles()).isEmpty();
+  }
+
+  @Test
+  void decodeToMono_empty() {
+    var decoder = decoder(new MemoryBudget(1024), 1024);
+
+    var result = decoder.decodeToMono(Flux.empty(), TYPE, null, null);
+
+    StepVerifier.create(result).verifyComplete();
+  }
+
+  private SpillingJackson2JsonDecoder decoder(MemoryBudget budget, long maxSize) {
+    return new SpillingJackson2JsonDecoder(Util.mapper(), budget, maxSize, tempDirectory);
+  }
+
+  private Object[] tempFiles() throws IOException {
+    try (var files = Files.list(tempDirectory)) {
+      return files.toArray();
+    }
+  }
+
+  private static Flux<DataBuffer> chunks(String s, int chunkSize) {
+    var bytes = s.getBytes(StandardCharsets.UTF_8);
+    return Flux.range(0, (bytes.length + chunkSize - 1) / chunkSize)
+        .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes,
+            i * chunkSize, Math.min(bytes.length, (i + 1) * chunkSize))));
+  }
+}
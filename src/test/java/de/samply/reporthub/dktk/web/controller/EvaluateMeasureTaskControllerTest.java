@@ -10,28 +10,38 @@ import de.samply.reporthub.dktk.model.fhir.TaskInput;
 import de.samply.reporthub.dktk.model.fhir.TaskOutput;
 import de.samply.reporthub.dktk.web.model.EvaluateMeasureTask;
 import de.samply.reporthub.model.fhir.Canonical;
-import de.samply.reporthub.model.fhir.Measure;
+import de.samply.reporthub.model.fhir.Meta;
+import de.samply.reporthub.model.fhir.Reference;
 import de.samply.reporthub.model.fhir.StringElement;
 import de.samply.reporthub.model.fhir.Task;
 import de.samply.reporthub.model.fhir.Task.Input;
 import de.samply.reporthub.model.fhir.Task.Output;
-import de.samply.reporthub.service.fhir.store.DataStore;
+import de.samply.reporthub.service.artifact.ArtifactCache;
+import de.samply.reporthub.service.artifact.MeasureMetadata;
 import de.samply.reporthub.service.fhir.store.ResourceNotFoundException;
 import de.samply.reporthub.service.fhir.store.TaskStore;
+import de.samply.reporthub.web.model.Link;
 import java.net.URI;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.web.reactive.function.server.RenderingResponse;
 import org.springframework.web.reactive.function.server.ServerRequest;
+import org.thymeleaf.spring6.context.webflux.ReactiveDataDriverContextVariable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
+import reactor.test.publisher.PublisherProbe;
 
 @ExtendWith(MockitoExtension.class)
 class EvaluateMeasureTaskControllerTest {
@@ -40,10 +50,9 @@ class EvaluateMeasureTaskControllerTest {
   private static final String MEASURE_ID = "measure-id-181703";
   private static final String MEASURE_URL = "measure-url-180458";
   private static final String MEASURE_TITLE = "measure-title-180728";
-  private static final Measure MEASURE = Measure.draft()
-      .withId(MEASURE_ID)
-      .withTitle(MEASURE_TITLE)
-      .build();
+  private static final MeasureMetadata MEASURE_METADATA = new MeasureMetadata(MEASURE_ID,
+      Optional.of(MEASURE_URL), Optional.empty(), Optional.of(MEASURE_TITLE), Optional.of("draft"),
+      Optional.empty());
   private static final OffsetDateTime TASK_LAST_MODIFIED = OffsetDateTime.ofInstant(Instant.EPOCH,
       ZoneOffset.UTC);
   private static final Task TASK = Task.draft()
@@ -52,23 +61,32 @@ class EvaluateMeasureTaskControllerTest {
       .withInput(List.of(Input.of(TaskInput.MEASURE.coding(), Canonical.valueOf(MEASURE_URL))))
       .build();
   public static final String ERROR_MSG = "error-msg-180414";
+  private static final Duration TASK_TIMEOUT = Duration.ofSeconds(5);
+  private static final Duration HISTORY_TIMEOUT = Duration.ofSeconds(2);
+  private static final Duration MEASURE_TIMEOUT = Duration.ofSeconds(1);
+  private static final int HISTORY_PAGE_SIZE = 50;
 
   @Mock
   private TaskStore taskStore;
 
   @Mock
-  private DataStore dataStore;
+  private ArtifactCache artifactCache;
 
-  @InjectMocks
   private EvaluateMeasureTaskController controller;
 
+  @BeforeEach
+  void setUp() {
+    controller = new EvaluateMeasureTaskController(taskStore, artifactCache, TASK_TIMEOUT,
+        HISTORY_TIMEOUT, MEASURE_TIMEOUT, HISTORY_PAGE_SIZE);
+  }
+
   @Test
   void handle_minimal() {
     var request = mock(ServerRequest.class);
     when(request.pathVariable("id")).thenReturn(TASK_ID);
     when(taskStore.fetchTask(TASK_ID)).thenReturn(Mono.just(TASK));
-    when(dataStore.findByUrl(Measure.class, MEASURE_URL)).thenReturn(Mono.just(MEASURE));
-    when(taskStore.fetchTaskHistory(TASK_ID)).thenReturn(Flux.empty());
+    when(artifactCache.measureByUrl(MEASURE_URL)).thenReturn(Mono.just(MEASURE_METADATA));
+    when(taskStore.fetchTaskHistory(TASK_ID, HISTORY_PAGE_SIZE)).thenReturn(Flux.empty());
 
     var response = controller.handle(request).block();
 
@@ -77,7 +95,11 @@ class EvaluateMeasureTaskControllerTest {
         .isRendering()
         .hasName("dktk/evaluate-measure-task")
         .hasModelEntrySatisfying("task", EvaluateMeasureTask.class,
-            task -> assertThat(task.id()).isEqualTo(TASK_ID));
+            task -> assertThat(task.id()).isEqualTo(TASK_ID))
+        .hasModelEntrySatisfying("history", ReactiveDataDriverContextVariable.class,
+            history -> StepVerifier.create(
+                    history.getDataStream(ReactiveAdapterRegistry.getSharedInstance()))
+                .verifyComplete());
   }
 
   @Test
@@ -86,6 +108,7 @@ class EvaluateMeasureTaskControllerTest {
     when(request.pathVariable("id")).thenReturn(TASK_ID);
     when(taskStore.fetchTask(TASK_ID))
         .thenReturn(Mono.error(new ResourceNotFoundException("Task", TASK_ID)));
+    when(taskStore.fetchTaskHistory(TASK_ID, HISTORY_PAGE_SIZE)).thenReturn(Flux.never());
 
     var response = controller.handle(request).block();
 
@@ -99,9 +122,8 @@ class EvaluateMeasureTaskControllerTest {
   @Test
   void task_missingMeasureUrl() {
     when(taskStore.fetchTask(TASK_ID)).thenReturn(Mono.just(Task.draft().build()));
-    when(taskStore.fetchTaskHistory(TASK_ID)).thenReturn(Flux.empty());
 
-    var result = controller.task(TASK_ID);
+    var result = renderedTask();
 
     StepVerifier.create(result)
         .assertNext(task -> assertThat(task.measureLink()).isEmpty())
@@ -116,10 +138,9 @@ class EvaluateMeasureTaskControllerTest {
     when(taskStore.fetchTask(TASK_ID)).thenReturn(Mono.just(Task.draft()
         .withInput(List.of(Input.of(TaskInput.MEASURE.coding(), Canonical.valueOf(MEASURE_URL))))
         .build()));
-    when(taskStore.fetchTaskHistory(TASK_ID)).thenReturn(Flux.empty());
-    when(dataStore.findByUrl(Measure.class, MEASURE_URL)).thenReturn(Mono.error(new Exception()));
+    when(artifactCache.measureByUrl(MEASURE_URL)).thenReturn(Mono.error(new Exception()));
 
-    var result = controller.task(TASK_ID);
+    var result = renderedTask();
 
     StepVerifier.create(result)
         .assertNext(task -> assertThat(task.measureLink()).hasValueSatisfying(
@@ -133,10 +154,9 @@ class EvaluateMeasureTaskControllerTest {
   @Test
   void task() {
     when(taskStore.fetchTask(TASK_ID)).thenReturn(Mono.just(TASK));
-    when(taskStore.fetchTaskHistory(TASK_ID)).thenReturn(Flux.empty());
-    when(dataStore.findByUrl(Measure.class, MEASURE_URL)).thenReturn(Mono.just(MEASURE));
+    when(artifactCache.measureByUrl(MEASURE_URL)).thenReturn(Mono.just(MEASURE_METADATA));
 
-    var result = controller.task(TASK_ID);
+    var result = renderedTask();
 
     StepVerifier.create(result).assertNext(task -> {
           assertThat(task.id()).isEqualTo(TASK_ID);
@@ -147,41 +167,266 @@ class EvaluateMeasureTaskControllerTest {
                 assertThat(link.label()).isEqualTo(MEASURE_TITLE);
               });
           assertThat(task.reportLink()).isEmpty();
-          assertThat(task.history()).isEmpty();
         }
     ).verifyComplete();
   }
 
+  @Test
+  void task_withError() {
+    when(taskStore.fetchTask(TASK_ID)).thenReturn(Mono.just(Task.failed()
+        .withOutput(List.of(Output.of(TaskOutput.ERROR.coding(),
+            StringElement.valueOf(ERROR_MSG))))
+        .build()));
+
+    var result = renderedTask();
+
+    StepVerifier.create(result)
+        .assertNext(task -> assertThat(task.error()).contains(ERROR_MSG))
+        .verifyComplete();
+  }
+
+  @Test
+  void task_measureTimeout() {
+    when(taskStore.fetchTask(TASK_ID)).thenReturn(Mono.just(TASK));
+    when(artifactCache.measureByUrl(MEASURE_URL)).thenReturn(Mono.never());
+
+    StepVerifier.withVirtualTime(() -> renderedTask(Flux.never()))
+        .expectSubscription()
+        .expectNoEvent(MEASURE_TIMEOUT)
+        .assertNext(task -> assertThat(task.measureLink())
+            .contains(new Link(URI.create(MEASURE_URL), MEASURE_URL)))
+        .verifyComplete();
+  }
+
+  @Test
+  void task_measureNotFound() {
+    when(taskStore.fetchTask(TASK_ID)).thenReturn(Mono.just(TASK));
+    when(artifactCache.measureByUrl(MEASURE_URL)).thenReturn(Mono.empty());
+
+    var result = renderedTask();
+
+    StepVerifier.create(result)
+        .assertNext(task -> assertThat(task.measureLink())
+            .contains(new Link(URI.create(MEASURE_URL), MEASURE_URL)))
+        .verifyComplete();
+  }
+
+  @Test
+  void task_taskTimeout() {
+    when(taskStore.fetchTask(TASK_ID)).thenReturn(Mono.never());
+
+    StepVerifier.withVirtualTime(() -> renderedTask(Flux.never()))
+        .expectSubscription()
+        .expectNoEvent(TASK_TIMEOUT)
+        .expectError(TimeoutException.class)
+        .verify();
+  }
+
   /**
-   * Returns the EvaluateMeasureTask even if fetching the history resulted in an error.
+   * Doesn't wait for the history, which is rendered separately.
    */
   @Test
-  void task_historyFetchError() {
+  void task_withoutHistory() {
     when(taskStore.fetchTask(TASK_ID)).thenReturn(Mono.just(TASK));
-    when(dataStore.findByUrl(Measure.class, MEASURE_URL)).thenReturn(Mono.just(MEASURE));
-    when(taskStore.fetchTaskHistory(TASK_ID)).thenReturn(Flux.error(new Exception()));
+    when(artifactCache.measureByUrl(MEASURE_URL)).thenReturn(Mono.just(MEASURE_METADATA));
 
-    var result = controller.task(TASK_ID);
+    var result = renderedTask(Flux.never());
 
-    StepVerifier.create(result).assertNext(webTask -> {
-          assertThat(webTask.id()).isEqualTo(TASK_ID);
-          assertThat(webTask.history()).isEmpty();
-        }
-    ).verifyComplete();
+    StepVerifier.create(result)
+        .assertNext(task -> assertThat(task.id()).isEqualTo(TASK_ID))
+        .verifyComplete();
   }
 
+  /**
+   * Fetches the history while the Task is still fetched and stops it if the request is cancelled.
+   */
   @Test
-  void task_withError() {
-    when(taskStore.fetchTask(TASK_ID)).thenReturn(Mono.just(Task.failed()
-        .withOutput(List.of(Output.of(TaskOutput.ERROR.coding(),
-            StringElement.valueOf(ERROR_MSG))))
-        .build()));
-    when(taskStore.fetchTaskHistory(TASK_ID)).thenReturn(Flux.empty());
+  void handle_fetchesHistoryWithTask() {
+    var request = mock(ServerRequest.class);
+    when(request.pathVariable("id")).thenReturn(TASK_ID);
+    when(taskStore.fetchTask(TASK_ID)).thenReturn(Mono.never());
+    var history = PublisherProbe.<Task>of(Flux.never());
+    when(taskStore.fetchTaskHistory(TASK_ID, HISTORY_PAGE_SIZE)).thenReturn(history.flux());
+
+    var subscription = controller.handle(request).subscribe();
+
+    history.assertWasSubscribed();
+    subscription.dispose();
+    history.assertWasCancelled();
+  }
+
+  private Mono<EvaluateMeasureTask> renderedTask() {
+    return renderedTask(Flux.empty());
+  }
+
+  /**
+   * Returns the Task rendered by {@link EvaluateMeasureTaskController#handle(ServerRequest) handle}
+   * with {@code history} as history.
+   */
+  private Mono<EvaluateMeasureTask> renderedTask(Flux<Task> history) {
+    var request = mock(ServerRequest.class);
+    when(request.pathVariable("id")).thenReturn(TASK_ID);
+    when(taskStore.fetchTaskHistory(TASK_ID, HISTORY_PAGE_SIZE)).thenReturn(history);
+    return controller.handle(request)
+        .map(response -> (EvaluateMeasureTask) ((RenderingResponse) response).model().get("task"));
+  }
+
+  /**
+   * Collapses consecutive versions with the same status into one transition with the duration
+   * until the next transition.
+   */
+  @Test
+  void history() {
+    var reportId = "report-id-143512";
+    when(taskStore.fetchTaskHistory(TASK_ID, HISTORY_PAGE_SIZE)).thenReturn(Flux.just(
+        Task.failed()
+            .withLastModified(TASK_LAST_MODIFIED.plusSeconds(90))
+            .withOutput(List.of(Output.of(TaskOutput.MEASURE_REPORT.coding(),
+                Reference.ofReference("MeasureReport/" + reportId))))
+            .build(),
+        Task.draft().withLastModified(TASK_LAST_MODIFIED.plusSeconds(30)).build(),
+        Task.draft().build(),
+        TASK));
 
-    var result = controller.task(TASK_ID);
+    var result = controller.history(TASK_ID);
 
     StepVerifier.create(result)
-        .assertNext(task -> assertThat(task.error()).contains(ERROR_MSG))
+        .assertNext(item -> {
+          assertThat(item.since()).isEqualTo(TASK_LAST_MODIFIED.plusSeconds(90));
+          assertThat(item.status()).isEqualTo("failed");
+          assertThat(item.duration()).isEmpty();
+          assertThat(item.reportLink())
+              .contains(Link.of(URI.create("/exliquid-report/" + reportId), "Report"));
+        })
+        .assertNext(item -> {
+          assertThat(item.since()).isEqualTo(TASK_LAST_MODIFIED);
+          assertThat(item.status()).isEqualTo("draft");
+          assertThat(item.duration()).contains(Duration.ofSeconds(90));
+          assertThat(item.durationText()).contains("1m 30s");
+          assertThat(item.reportLink()).isEmpty();
+        })
+        .verifyComplete();
+  }
+
+  /**
+   * Serves the transitions of the same version of a Task from the cache and only reads the newest
+   * version of the history.
+   */
+  @Test
+  void history_cached() {
+    var history = PublisherProbe.of(Flux.just(versioned("2", Task.failed()), versioned("1",
+        Task.draft())));
+    when(taskStore.fetchTaskHistory(TASK_ID, HISTORY_PAGE_SIZE))
+        .thenReturn(Flux.just(versioned("2", Task.failed()), versioned("1", Task.draft())))
+        .thenReturn(history.flux());
+
+    StepVerifier.create(controller.history(TASK_ID))
+        .assertNext(item -> assertThat(item.status()).isEqualTo("failed"))
+        .assertNext(item -> assertThat(item.status()).isEqualTo("draft"))
+        .verifyComplete();
+    StepVerifier.create(controller.history(TASK_ID))
+        .assertNext(item -> assertThat(item.status()).isEqualTo("failed"))
+        .assertNext(item -> assertThat(item.status()).isEqualTo("draft"))
+        .verifyComplete();
+
+    history.assertWasCancelled();
+  }
+
+  /**
+   * Only reads the versions newer than the cached ones and merges them into the cached transitions.
+   */
+  @Test
+  void history_newerVersions() {
+    when(taskStore.fetchTaskHistory(TASK_ID, HISTORY_PAGE_SIZE))
+        .thenReturn(Flux.just(versioned("2", Task.draft()), versioned("1", Task.draft())))
+        .thenReturn(Flux.just(versioned("4", Task.failed()), versioned("3", Task.draft()),
+            versioned("2", Task.draft())).concatWith(Flux.error(new Exception())))
+        .thenReturn(Flux.just(versioned("4", Task.failed())));
+
+    StepVerifier.create(controller.history(TASK_ID))
+        .assertNext(item -> assertThat(item.since()).isEqualTo(TASK_LAST_MODIFIED.plusSeconds(1)))
+        .verifyComplete();
+    for (int i = 0; i < 2; i++) {
+      StepVerifier.create(controller.history(TASK_ID))
+          .assertNext(item -> {
+            assertThat(item.since()).isEqualTo(TASK_LAST_MODIFIED.plusSeconds(4));
+            assertThat(item.status()).isEqualTo("failed");
+          })
+          .assertNext(item -> {
+            assertThat(item.since()).isEqualTo(TASK_LAST_MODIFIED.plusSeconds(1));
+            assertThat(item.status()).isEqualTo("draft");
+            assertThat(item.duration()).contains(Duration.ofSeconds(3));
+          })
+          .verifyComplete();
+    }
+  }
+
+  /**
+   * Returns an empty history if fetching the history resulted in an error and doesn't cache it.
+   */
+  @Test
+  void history_fetchError() {
+    when(taskStore.fetchTaskHistory(TASK_ID, HISTORY_PAGE_SIZE))
+        .thenReturn(Flux.just(versioned("1", Task.draft())).concatWith(Flux.error(new Exception())))
+        .thenReturn(Flux.just(versioned("1", Task.draft())));
+
+    StepVerifier.create(controller.history(TASK_ID)).verifyComplete();
+    StepVerifier.create(controller.history(TASK_ID))
+        .expectNextCount(1)
+        .verifyComplete();
+  }
+
+  /**
+   * Keeps the transitions already complete if the rest of the history times out.
+   */
+  @Test
+  void history_timeout() {
+    when(taskStore.fetchTaskHistory(TASK_ID, HISTORY_PAGE_SIZE)).thenReturn(Flux.concat(
+        Flux.just(Task.failed().withLastModified(TASK_LAST_MODIFIED.plusSeconds(1)).build(), TASK),
+        Flux.never()));
+
+    StepVerifier.withVirtualTime(() -> controller.history(TASK_ID))
+        .expectSubscription()
+        .assertNext(item -> assertThat(item.status()).isEqualTo("failed"))
+        .expectNoEvent(HISTORY_TIMEOUT)
+        .verifyComplete();
+  }
+
+  /**
+   * Stops the history after the timeout even if versions keep trickling in.
+   */
+  @Test
+  void history_slowVersions() {
+    when(taskStore.fetchTaskHistory(TASK_ID, HISTORY_PAGE_SIZE)).thenReturn(Flux.defer(
+        () -> Flux.range(0, 10)
+            .map(i -> (i % 2 == 0 ? Task.failed() : Task.draft())
+                .withLastModified(TASK_LAST_MODIFIED.minusSeconds(i))
+                .build())
+            .delayElements(Duration.ofMillis(600))));
+
+    StepVerifier.withVirtualTime(() -> controller.history(TASK_ID))
+        .expectSubscription()
+        .thenAwait(HISTORY_TIMEOUT)
+        .expectNextCount(2)
+        .verifyComplete();
+  }
+
+  private static Task versioned(String versionId, Task.Builder builder) {
+    return builder
+        .withMeta(new Meta(Optional.of(versionId), Optional.empty()))
+        .withLastModified(TASK_LAST_MODIFIED.plusSeconds(Long.parseLong(versionId)))
+        .build();
+  }
+
+  @Test
+  void transitions_skipsVersionsWithoutLastModified() {
+    var result = EvaluateMeasureTaskController.transitions(Flux.just(Task.failed().build(), TASK));
+
+    StepVerifier.create(result)
+        .assertNext(item -> {
+          assertThat(item.status()).isEqualTo("draft");
+          assertThat(item.duration()).isEmpty();
+        })
         .verifyComplete();
   }
 }
@@ -0,0 +1,60 @@
+package de.samply.reporthub.dktk.web.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.samply.reporthub.dktk.web.controller.TaskHistoryCache.Entry;
+import de.samply.reporthub.dktk.web.model.EvaluateMeasureTask.HistoryListItem;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class TaskHistoryCacheTest {
+
+  private static final String TASK_ID = "task-id-154012";
+  private static final List<HistoryListItem> ITEMS = List.of(new HistoryListItem(
+      OffsetDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC), "ready", Optional.empty(),
+      Optional.empty()));
+
+  @Test
+  void get() {
+    var cache = new TaskHistoryCache();
+    cache.put(TASK_ID, "1", ITEMS);
+
+    assertThat(cache.get(TASK_ID)).contains(new Entry("1", ITEMS));
+  }
+
+  @Test
+  void get_unknownTask() {
+    var cache = new TaskHistoryCache();
+    cache.put(TASK_ID, "1", ITEMS);
+
+    assertThat(cache.get("other-task-id")).isEmpty();
+  }
+
+  @Test
+  void put_replacesOlderVersion() {
+    var cache = new TaskHistoryCache();
+    cache.put(TASK_ID, "1", ITEMS);
+
+    cache.put(TASK_ID, "2", List.of());
+
+    assertThat(cache.get(TASK_ID)).contains(new Entry("2", List.of()));
+  }
+
+  @Test
+  void put_evictsLeastRecentlyUsed() {
+    var cache = new TaskHistoryCache(2);
+    cache.put("a", "1", ITEMS);
+    cache.put("b", "1", ITEMS);
+    cache.get("a");
+
+    cache.put("c", "1", ITEMS);
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get("a")).isPresent();
+    assertThat(cache.get("b")).isEmpty();
+  }
+}
@@ -0,0 +1,141 @@
+package de.samply.reporthub.exliquid.service;
+
+import static de.samply.reporthub.exliquid.service.TimeSeriesService.EXLIQUID_DASHBOARD_MEASURE;
+import static de.samply.reporthub.exliquid.service.TimeSeriesStore.TOTAL;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.DIAGNOSIS_STRATIFIER;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.INITIAL_POPULATION;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.PATIENT_GROUP;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.SAMPLE_DIAGNOSIS_STRATIFIER;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.SAMPLE_TYPE_STRATIFIER;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.SPECIMEN_GROUP;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import de.samply.reporthub.exliquid.service.TimeSeriesStore.Point;
+import de.samply.reporthub.model.fhir.Canonical;
+import de.samply.reporthub.model.fhir.CodeableConcept;
+import de.samply.reporthub.model.fhir.MeasureReport;
+import de.samply.reporthub.model.fhir.MeasureReport.Group;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Population;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier;
+import de.samply.reporthub.model.fhir.MeasureReportStatus;
+import de.samply.reporthub.model.fhir.MeasureReportType;
+import de.samply.reporthub.model.fhir.Meta;
+import de.samply.reporthub.service.fhir.store.TaskStore;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class TimeSeriesServiceTest {
+
+  private static final int BATCH_SIZE = 2;
+  private static final Instant MIN = Instant.ofEpochMilli(Long.MIN_VALUE);
+  private static final Instant MAX = Instant.ofEpochMilli(Long.MAX_VALUE);
+
+  @Mock
+  private TaskStore taskStore;
+
+  @TempDir
+  Path directory;
+
+  private TimeSeriesService service;
+
+  @BeforeEach
+  void setUp() {
+    service = new TimeSeriesService(taskStore, directory, EXLIQUID_DASHBOARD_MEASURE,
+        Duration.ofMillis(10), BATCH_SIZE);
+  }
+
+  @Test
+  void pipeline() {
+    when(taskStore.listMeasureReportsUpdatedSince(EXLIQUID_DASHBOARD_MEASURE,
+        MeasureReportStatus.COMPLETE, Instant.EPOCH, BATCH_SIZE))
+        .thenReturn(Flux.just(measureReport("0", 1, 23), measureReport("1", 2, 24)));
+    when(taskStore.listMeasureReportsUpdatedSince(EXLIQUID_DASHBOARD_MEASURE,
+        MeasureReportStatus.COMPLETE, instant(2), BATCH_SIZE))
+        .thenReturn(Flux.just(measureReport("1", 2, 24), measureReport("2", 3, 25)));
+
+    StepVerifier.create(service.pipeline().take(2)).expectNext(2, 1).verifyComplete();
+
+    StepVerifier.create(service.store().map(store -> store.range(TOTAL, MIN, MAX)))
+        .expectNextMatches(points -> points.stream().map(Point::patientCount).toList()
+            .equals(List.of(23, 24, 25)))
+        .verifyComplete();
+  }
+
+  @Test
+  void pipeline_resumesAfterRestart() {
+    when(taskStore.listMeasureReportsUpdatedSince(EXLIQUID_DASHBOARD_MEASURE,
+        MeasureReportStatus.COMPLETE, Instant.EPOCH, BATCH_SIZE))
+        .thenReturn(Flux.just(measureReport("0", 1, 23)));
+    StepVerifier.create(service.pipeline().take(1)).expectNext(1).verifyComplete();
+    when(taskStore.listMeasureReportsUpdatedSince(EXLIQUID_DASHBOARD_MEASURE,
+        MeasureReportStatus.COMPLETE, instant(1), BATCH_SIZE))
+        .thenReturn(Flux.just(measureReport("0", 1, 23)));
+
+    var restarted = new TimeSeriesService(taskStore, directory, EXLIQUID_DASHBOARD_MEASURE,
+        Duration.ofMillis(10), BATCH_SIZE);
+
+    StepVerifier.create(restarted.pipeline().take(1)).expectNext(0).verifyComplete();
+  }
+
+  @Test
+  void pipeline_skipsInconvertibleMeasureReports() {
+    when(taskStore.listMeasureReportsUpdatedSince(EXLIQUID_DASHBOARD_MEASURE,
+        MeasureReportStatus.COMPLETE, Instant.EPOCH, BATCH_SIZE))
+        .thenReturn(Flux.just(MeasureReport.builder(MeasureReportStatus.COMPLETE.code(),
+                MeasureReportType.SUMMARY.code(), Canonical.valueOf(EXLIQUID_DASHBOARD_MEASURE))
+            .withId("0")
+            .withMeta(new Meta(Optional.empty(), Optional.of(instant(1))))
+            .build()));
+    when(taskStore.listMeasureReportsUpdatedSince(EXLIQUID_DASHBOARD_MEASURE,
+        MeasureReportStatus.COMPLETE, instant(1), BATCH_SIZE))
+        .thenReturn(Flux.empty());
+
+    StepVerifier.create(service.pipeline().take(2)).expectNext(0, 0).verifyComplete();
+  }
+
+  private static MeasureReport measureReport(String id, int second, int patientCount) {
+    return MeasureReport.builder(MeasureReportStatus.COMPLETE.code(),
+            MeasureReportType.SUMMARY.code(), Canonical.valueOf(EXLIQUID_DASHBOARD_MEASURE))
+        .withId(id)
+        .withMeta(new Meta(Optional.empty(), Optional.of(instant(second))))
+        .withDate(OffsetDateTime.ofInstant(instant(second), ZoneOffset.UTC))
+        .withGroup(List.of(
+            Group.builder()
+                .withCode(CodeableConcept.coding(PATIENT_GROUP))
+                .withPopulation(List.of(Population.of(CodeableConcept.coding(INITIAL_POPULATION),
+                    patientCount)))
+                .withStratifier(List.of(Stratifier.builder()
+                    .withCode(List.of(CodeableConcept.coding(DIAGNOSIS_STRATIFIER)))
+                    .build()))
+                .build(),
+            Group.builder()
+                .withCode(CodeableConcept.coding(SPECIMEN_GROUP))
+                .withPopulation(List.of(Population.of(CodeableConcept.coding(INITIAL_POPULATION),
+                    0)))
+                .withStratifier(List.of(Stratifier.builder()
+                    .withCode(List.of(CodeableConcept.coding(SAMPLE_DIAGNOSIS_STRATIFIER),
+                        CodeableConcept.coding(SAMPLE_TYPE_STRATIFIER)))
+                    .build()))
+                .build()))
+        .build();
+  }
+
+  private static Instant instant(int second) {
+    return Instant.EPOCH.plusSeconds(second);
+  }
+}
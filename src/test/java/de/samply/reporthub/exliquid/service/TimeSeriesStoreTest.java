@@ -0,0 +1,220 @@
+package de.samply.reporthub.exliquid.service;
+
+import static de.samply.reporthub.exliquid.service.TimeSeriesStore.TOTAL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+import de.samply.reporthub.exliquid.service.TimeSeriesStore.Aggregation;
+import de.samply.reporthub.exliquid.service.TimeSeriesStore.Interval;
+import de.samply.reporthub.exliquid.service.TimeSeriesStore.Point;
+import de.samply.reporthub.exliquid.web.model.Report;
+import de.samply.reporthub.exliquid.web.model.Report.Stratum;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TimeSeriesStoreTest {
+
+  private static final Instant MIN = Instant.ofEpochMilli(Long.MIN_VALUE);
+  private static final Instant MAX = Instant.ofEpochMilli(Long.MAX_VALUE);
+
+  @TempDir
+  Path directory;
+
+  private Path file;
+  private TimeSeriesStore store;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    file = directory.resolve("sub").resolve("exliquid.ts");
+    store = TimeSeriesStore.open(file);
+  }
+
+  @Test
+  void empty() {
+    assertThat(store.size()).isZero();
+    assertThat(store.series()).isEmpty();
+    assertThat(store.lastUpdated()).isEqualTo(Instant.EPOCH);
+    assertThat(store.range(TOTAL, MIN, MAX)).isEmpty();
+    assertThat(store.aggregate(TOTAL, MIN, MAX, Interval.DAY, Aggregation.LAST)).isEmpty();
+  }
+
+  @Test
+  void append() throws IOException {
+    var appended = store.append("0", instant(1), report(date(2023, 1, 2), 10, 3, 4));
+
+    assertThat(appended).isTrue();
+    assertThat(store.size()).isOne();
+    assertThat(store.series()).containsExactly("C34", "C50", TOTAL);
+    assertThat(store.lastUpdated()).isEqualTo(instant(1));
+    assertThat(store.range(TOTAL, MIN, MAX))
+        .containsExactly(new Point(date(2023, 1, 2), 10, 3, 4));
+    assertThat(store.range("C34", MIN, MAX))
+        .containsExactly(new Point(date(2023, 1, 2), 3, 1, 2));
+  }
+
+  @Test
+  void append_sameVersion() throws IOException {
+    store.append("0", instant(2), report(date(2023, 1, 2), 10, 3, 4));
+
+    var appended = store.append("0", instant(2), report(date(2023, 1, 3), 11, 3, 4));
+
+    assertThat(appended).isFalse();
+    assertThat(store.range(TOTAL, MIN, MAX)).hasSize(1);
+    assertThat(store.append("0", instant(1), report(date(2023, 1, 3), 11, 3, 4))).isFalse();
+  }
+
+  @Test
+  void append_newerVersion() throws IOException {
+    store.append("0", instant(1), report(date(2023, 1, 2), 10, 3, 4));
+    store.append("1", instant(2), report(date(2023, 1, 2), 10, 3, 4));
+
+    var appended = store.append("0", instant(3), report(date(2023, 1, 3), 11, 6, 8));
+
+    assertThat(appended).isTrue();
+    assertThat(store.size()).isEqualTo(2);
+    assertThat(store.lastUpdated()).isEqualTo(instant(3));
+    assertThat(store.range(TOTAL, MIN, MAX)).containsExactly(
+        new Point(date(2023, 1, 2), 10, 3, 4),
+        new Point(date(2023, 1, 3), 11, 6, 8));
+    assertThat(store.range("C34", MIN, MAX)).containsExactly(
+        new Point(date(2023, 1, 2), 3, 1, 2),
+        new Point(date(2023, 1, 3), 3, 2, 4));
+  }
+
+  @Test
+  void reopen_newerVersion() throws IOException {
+    store.append("0", instant(1), report(date(2023, 1, 2), 10, 3, 4));
+    store.append("0", instant(2), report(date(2023, 1, 3), 11, 6, 8));
+
+    store = TimeSeriesStore.open(file);
+
+    assertThat(store.size()).isOne();
+    assertThat(store.lastUpdated()).isEqualTo(instant(2));
+    assertThat(store.range(TOTAL, MIN, MAX))
+        .containsExactly(new Point(date(2023, 1, 3), 11, 6, 8));
+  }
+
+  @Test
+  void reopen() throws IOException {
+    store.append("0", instant(2), report(date(2023, 1, 2), 10, 3, 4));
+    store.append("1", instant(1), report(date(2023, 1, 1), 9, 3, 4));
+
+    store = TimeSeriesStore.open(file);
+
+    assertThat(store.size()).isEqualTo(2);
+    assertThat(store.lastUpdated()).isEqualTo(instant(2));
+    assertThat(store.range(TOTAL, MIN, MAX)).extracting(Point::patientCount)
+        .containsExactly(9, 10);
+    assertThat(store.append("0", instant(2), report(date(2023, 1, 3), 11, 3, 4))).isFalse();
+  }
+
+  @Test
+  void reopen_tornBlock() throws IOException {
+    store.append("0", instant(1), report(date(2023, 1, 1), 9, 3, 4));
+    var length = Files.size(file);
+    store.append("1", instant(2), report(date(2023, 1, 2), 10, 3, 4));
+    try (var channel = Files.newByteChannel(file, StandardOpenOption.WRITE)) {
+      channel.truncate(Files.size(file) - 1);
+    }
+
+    store = TimeSeriesStore.open(file);
+
+    assertThat(store.size()).isOne();
+    assertThat(Files.size(file)).isEqualTo(length);
+    assertThat(store.append("1", instant(2), report(date(2023, 1, 2), 10, 3, 4))).isTrue();
+    assertThat(TimeSeriesStore.open(file).size()).isEqualTo(2);
+  }
+
+  @Test
+  void append_afterPartialWrite() throws IOException {
+    store.append("0", instant(1), report(date(2023, 1, 1), 9, 3, 4));
+    var length = Files.size(file);
+    Files.write(file, new byte[]{0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+    store.append("1", instant(2), report(date(2023, 1, 2), 10, 3, 4));
+    store.append("1", instant(3), report(date(2023, 1, 3), 11, 6, 8));
+
+    assertThat(store.range(TOTAL, MIN, MAX)).extracting(Point::patientCount)
+        .containsExactly(9, 11);
+    store = TimeSeriesStore.open(file);
+    assertThat(store.size()).isEqualTo(2);
+    assertThat(store.range(TOTAL, MIN, MAX)).extracting(Point::patientCount)
+        .containsExactly(9, 11);
+    assertThat(Files.size(file)).isGreaterThan(length);
+  }
+
+  @Test
+  void range() throws IOException {
+    for (int day = 1; day <= 5; day++) {
+      store.append(String.valueOf(day), instant(day), report(date(2023, 1, day), day, 0, 0));
+    }
+
+    var points = store.range(TOTAL, date(2023, 1, 2), date(2023, 1, 4));
+
+    assertThat(points).extracting(Point::patientCount).containsExactly(2, 3);
+  }
+
+  @Test
+  void aggregate() throws IOException {
+    // Sunday, Monday and Tuesday of one week, Monday of the next week and a day in February
+    var dates = List.of(date(2023, 1, 1), date(2023, 1, 2), date(2023, 1, 3), date(2023, 1, 9),
+        date(2023, 2, 1));
+    for (int i = 0; i < dates.size(); i++) {
+      store.append(String.valueOf(i), instant(i), report(dates.get(i), i + 1, 0, 0));
+    }
+
+    assertThat(store.aggregate(TOTAL, MIN, MAX, Interval.WEEK, Aggregation.LAST))
+        .extracting(Point::date, Point::patientCount)
+        .containsExactly(
+            tuple(date(2022, 12, 26), 1),
+            tuple(date(2023, 1, 2), 3),
+            tuple(date(2023, 1, 9), 4),
+            tuple(date(2023, 1, 30), 5));
+    assertThat(store.aggregate(TOTAL, MIN, MAX, Interval.MONTH, Aggregation.MEAN))
+        .extracting(Point::patientCount).containsExactly(3, 5);
+    assertThat(store.aggregate(TOTAL, MIN, MAX, Interval.MONTH, Aggregation.MIN))
+        .extracting(Point::patientCount).containsExactly(1, 5);
+    assertThat(store.aggregate(TOTAL, MIN, MAX, Interval.YEAR, Aggregation.MAX))
+        .extracting(Point::patientCount).containsExactly(5);
+    assertThat(store.aggregate(TOTAL, date(2023, 1, 2), date(2023, 1, 9), Interval.MONTH,
+        Aggregation.LAST)).containsExactly(new Point(date(2023, 1, 1), 3, 0, 0));
+  }
+
+  @Test
+  void append_outOfOrder() throws IOException {
+    store.append("0", instant(1), report(date(2023, 1, 3), 3, 0, 0));
+    store.append("1", instant(2), report(date(2023, 1, 1), 1, 0, 0));
+    store.append("2", instant(3), report(date(2023, 1, 2), 2, 0, 0));
+
+    assertThat(store.range(TOTAL, MIN, MAX)).extracting(Point::patientCount)
+        .containsExactly(1, 2, 3);
+  }
+
+  /**
+   * Returns a report with two diagnoses, C34 with a third of the plasma and PBMC samples and C50
+   * with the rest.
+   */
+  private static Report report(Instant date, int patientCount, int plasmaCount, int pbmcCount) {
+    return new Report(date.atOffset(ZoneOffset.UTC), patientCount, plasmaCount + pbmcCount,
+        List.of(new Stratum("C34", patientCount / 3, plasmaCount / 3, pbmcCount / 2),
+            new Stratum("C50", patientCount - patientCount / 3, plasmaCount - plasmaCount / 3,
+                pbmcCount - pbmcCount / 2)));
+  }
+
+  private static Instant date(int year, int month, int day) {
+    return LocalDate.of(year, month, day).atStartOfDay(ZoneOffset.UTC).toInstant();
+  }
+
+  private static Instant instant(int second) {
+    return Instant.EPOCH.plusSeconds(second);
+  }
+}
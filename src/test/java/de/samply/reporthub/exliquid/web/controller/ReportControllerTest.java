@@ -1,18 +1,19 @@
 package de.samply.reporthub.exliquid.web.controller;
 
-import static de.samply.reporthub.exliquid.web.controller.ReportController.BLOOD_PLASMA;
-import static de.samply.reporthub.exliquid.web.controller.ReportController.EXLIQUID_MEASURE_GROUP;
-import static de.samply.reporthub.exliquid.web.controller.ReportController.EXLIQUID_STRATIFIER;
-import static de.samply.reporthub.exliquid.web.controller.ReportController.MEASURE_POPULATION;
-import static de.samply.reporthub.exliquid.web.controller.ReportController.PERIPHERAL_BLOOD_CELLS_VITAL;
-import static de.samply.reporthub.exliquid.web.controller.ReportController.convert;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.EXLIQUID_MEASURE_GROUP;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.EXLIQUID_STRATIFIER;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.MEASURE_POPULATION;
+import static de.samply.reporthub.exliquid.web.converter.ReportConverter.convert;
 import static de.samply.reporthub.web.controller.ServerResponseAssert.assertThat;
+import static de.samply.reporthub.web.controller.ServerResponseAssert.bodyAsString;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 import static org.springframework.http.HttpStatus.OK;
 
-import de.samply.reporthub.exliquid.web.model.Report;
 import de.samply.reporthub.model.fhir.Canonical;
 import de.samply.reporthub.model.fhir.CodeableConcept;
 import de.samply.reporthub.model.fhir.Coding;
@@ -20,24 +21,34 @@ import de.samply.reporthub.model.fhir.MeasureReport;
 import de.samply.reporthub.model.fhir.MeasureReport.Group;
 import de.samply.reporthub.model.fhir.MeasureReport.Group.Population;
 import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier;
-import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum;
-import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum.Component;
 import de.samply.reporthub.model.fhir.MeasureReportStatus;
 import de.samply.reporthub.model.fhir.MeasureReportType;
+import de.samply.reporthub.model.fhir.Meta;
 import de.samply.reporthub.service.fhir.store.ResourceNotFoundException;
 import de.samply.reporthub.service.fhir.store.TaskStore;
-import de.samply.reporthub.util.IntPair;
+import de.samply.reporthub.web.TemplateRenderer;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.web.reactive.function.server.ServerRequest;
+import org.thymeleaf.spring6.SpringWebFluxTemplateEngine;
+import org.thymeleaf.spring6.context.webflux.ReactiveDataDriverContextVariable;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 @ExtendWith(MockitoExtension.class)
 class ReportControllerTest {
@@ -55,11 +66,6 @@ class ReportControllerTest {
       CodeableConcept.coding(Coding.of(EXLIQUID_STRATIFIER, "sample-diagnosis"));
   private static final CodeableConcept SAMPLE_TYPE_STRATIFIER_CODE =
       CodeableConcept.coding(Coding.of(EXLIQUID_STRATIFIER, "sample-type"));
-  private static final MeasureReport EMPTY_MEASURE_REPORT = MeasureReport.builder(
-          MeasureReportStatus.COMPLETE.code(),
-          MeasureReportType.INDIVIDUAL.code(),
-          Canonical.valueOf("foo"))
-      .build();
   private static final MeasureReport MINIMAL_MEASURE_REPORT = MeasureReport.builder(
           MeasureReportStatus.COMPLETE.code(),
           MeasureReportType.INDIVIDUAL.code(),
@@ -92,9 +98,19 @@ class ReportControllerTest {
   @Mock
   private TaskStore taskStore;
 
-  @InjectMocks
   private ReportController controller;
 
+  @BeforeEach
+  void setUp() {
+    var templateResolver = new ClassLoaderTemplateResolver();
+    templateResolver.setPrefix("templates/");
+    templateResolver.setSuffix(".html");
+    var templateEngine = new SpringWebFluxTemplateEngine();
+    templateEngine.setTemplateResolver(templateResolver);
+    controller = new ReportController(taskStore, new TemplateRenderer(templateEngine),
+        Duration.ofDays(1));
+  }
+
   @Test
   void handler_minimal() {
     var request = mock(ServerRequest.class);
@@ -107,7 +123,12 @@ class ReportControllerTest {
         .hasStatusCode(OK)
         .isRendering()
         .hasName("exliquid/report")
-        .containsModelEntry("report", convert(MINIMAL_MEASURE_REPORT).orElseThrow());
+        .containsModelEntry("report", convert(MINIMAL_MEASURE_REPORT).orElseThrow())
+        .hasModelEntrySatisfying("strata", ReactiveDataDriverContextVariable.class,
+            strata -> StepVerifier.create(
+                    strata.getDataStream(ReactiveAdapterRegistry.getSharedInstance()))
+                .expectNextSequence(convert(MINIMAL_MEASURE_REPORT).orElseThrow().strata())
+                .verifyComplete());
   }
 
   @Test
@@ -128,224 +149,129 @@ class ReportControllerTest {
   }
 
   @Test
-  void convert_empty() {
-    var report = convert(EMPTY_MEASURE_REPORT);
-
-    assertThat(report).isEmpty();
+  void handler_cached() {
+    when(taskStore.fetchMeasureReport(ID))
+        .thenReturn(Mono.just(versioned("1", MeasureReportStatus.COMPLETE)));
+
+    var response1 = controller.handler(request()).block();
+    var response2 = controller.handler(request()).block();
+
+    assertThat(response1).hasStatusCode(OK);
+    assertThat(response1.headers().getETag()).isNotNull();
+    assertThat(response1.headers().getCacheControl()).isEqualTo("max-age=86400, public");
+    assertThat(response1).body().contains("<td class=\"text-end\">23</td>");
+    assertThat(response2).hasStatusCode(OK);
+    assertThat(response2.headers().getETag()).isEqualTo(response1.headers().getETag());
+    assertThat(response2).body().isEqualTo(bodyAsString(response1));
+    assertThat(response2.headers().getVary()).containsExactly(HttpHeaders.ACCEPT_LANGUAGE);
+    verify(taskStore, times(2)).fetchMeasureReport(ID);
   }
 
   @Test
-  void convert_minimal() {
-    var report = convert(MINIMAL_MEASURE_REPORT);
+  void handler_cached_deleted() {
+    when(taskStore.fetchMeasureReport(ID))
+        .thenReturn(Mono.just(versioned("1", MeasureReportStatus.COMPLETE)))
+        .thenReturn(Mono.error(new ResourceNotFoundException("MeasureReport", ID)));
+    controller.handler(request()).block();
+
+    var response = controller.handler(request()).block();
 
-    assertThat(report).isPresent();
-    assertThat(report.map(Report::totalNumberOfPatients)).contains(23);
-    assertThat(report.map(Report::totalNumberOfSpecimen)).contains(42);
-    assertThat(report.map(Report::strata)).contains(List.of());
+    assertThat(response)
+        .hasStatusCode(OK)
+        .isRendering()
+        .hasName("404");
   }
 
   @Test
-  void convert_full() {
-    var measureReport = MeasureReport.builder(MeasureReportStatus.COMPLETE.code(),
-            MeasureReportType.SUMMARY.code(),
-            Canonical.valueOf("foo"))
-        .withDate(OffsetDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC))
-        .withGroup(List.of(
-            Group.builder()
-                .withCode(PATIENT_GROUP_CODE)
-                .withPopulation(List.of(Population.of(INITIAL_POPULATION_CODE, 23)))
-                .withStratifier(List.of(
-                    Stratifier.builder()
-                        .withCode(List.of(DIAGNOSIS_STRATIFIER_CODE))
-                        .withStratum(List.of(
-                            Stratum.builder()
-                                .withValue(CodeableConcept.text("C25"))
-                                .withPopulation(List.of(
-                                    Stratum.Population.of(INITIAL_POPULATION_CODE, 23)))
-                                .build()
-                        ))
-                        .build()
-                ))
-                .build(),
-            Group.builder()
-                .withCode(SPECIMEN_GROUP_CODE)
-                .withPopulation(List.of(Population.of(INITIAL_POPULATION_CODE, 42)))
-                .withStratifier(List.of(
-                    Stratifier.builder()
-                        .withCode(List.of(
-                            SAMPLE_DIAGNOSIS_STRATIFIER_CODE,
-                            SAMPLE_TYPE_STRATIFIER_CODE))
-                        .withStratum(List.of(
-                            Stratum.builder()
-                                .withComponent(List.of(
-                                    Component.of(
-                                        SAMPLE_DIAGNOSIS_STRATIFIER_CODE,
-                                        CodeableConcept.text("C25")),
-                                    Component.of(
-                                        SAMPLE_TYPE_STRATIFIER_CODE,
-                                        CodeableConcept.text(BLOOD_PLASMA))))
-                                .withPopulation(List.of(
-                                    Stratum.Population.of(INITIAL_POPULATION_CODE, 20)))
-                                .build(),
-                            Stratum.builder()
-                                .withComponent(List.of(
-                                    Component.of(
-                                        SAMPLE_DIAGNOSIS_STRATIFIER_CODE,
-                                        CodeableConcept.text("C25")),
-                                    Component.of(
-                                        SAMPLE_TYPE_STRATIFIER_CODE,
-                                        CodeableConcept.text(PERIPHERAL_BLOOD_CELLS_VITAL))))
-                                .withPopulation(List.of(
-                                    Stratum.Population.of(INITIAL_POPULATION_CODE, 22)))
-                                .build()
-                        ))
-                        .build()
-                ))
-                .build()
-        ))
-        .build();
+  void handler_cached_otherContextPath() {
+    when(taskStore.fetchMeasureReport(ID))
+        .thenReturn(Mono.just(versioned("1", MeasureReportStatus.COMPLETE)));
 
-    var report = convert(measureReport);
+    var response1 = controller.handler(request()).block();
+    var response2 = controller.handler(contextPathRequest("/prefix")).block();
 
-    assertThat(report).isPresent();
-    assertThat(report.map(Report::totalNumberOfPatients)).contains(23);
-    assertThat(report.map(Report::totalNumberOfSpecimen)).contains(42);
-    assertThat(report.map(Report::strata)).hasValueSatisfying(strata ->
-        assertThat(strata).allSatisfy(stratum ->
-            assertThat(stratum).isEqualTo(new Report.Stratum("C25", 23, 20, 22))));
+    assertThat(response1).body().contains("href=\"/css/bootstrap.min.css\"");
+    assertThat(response2).body().contains("href=\"/prefix/css/bootstrap.min.css\"");
   }
 
   @Test
-  void diagnosisToPlasmaPbmcCounts_empty() {
-    var stratifier = Stratifier.builder().build();
+  void handler_notModified() {
+    when(taskStore.fetchMeasureReport(ID))
+        .thenReturn(Mono.just(versioned("1", MeasureReportStatus.COMPLETE)));
+    var etag = controller.handler(request()).block().headers().getETag();
 
-    var map = ReportController.diagnosisToPlasmaPbmcCounts(stratifier);
+    var response = controller.handler(request(etag)).block();
 
-    assertThat(map).isEmpty();
+    assertThat(response).hasStatusCode(NOT_MODIFIED);
+    assertThat(response.headers().getETag()).isEqualTo(etag);
   }
 
   @Test
-  void diagnosisToPlasmaPbmcCounts_withBloodPlasma() {
-    var stratifier = Stratifier.builder()
-        .withCode(List.of(
-            SAMPLE_DIAGNOSIS_STRATIFIER_CODE,
-            SAMPLE_TYPE_STRATIFIER_CODE))
-        .withStratum(List.of(
-            Stratum.builder()
-                .withComponent(List.of(
-                    Component.of(SAMPLE_DIAGNOSIS_STRATIFIER_CODE, CodeableConcept.text("C25")),
-                    Component.of(SAMPLE_TYPE_STRATIFIER_CODE, CodeableConcept.text(BLOOD_PLASMA))))
-                .withPopulation(List.of(Stratum.Population.of(INITIAL_POPULATION_CODE, 23)))
-                .build()
-        ))
-        .build();
+  void handler_pending() {
+    when(taskStore.fetchMeasureReport(ID))
+        .thenReturn(Mono.just(versioned("1", MeasureReportStatus.PENDING)));
+    var etag = controller.handler(request()).block().headers().getETag();
 
-    var map = ReportController.diagnosisToPlasmaPbmcCounts(stratifier);
+    var response = controller.handler(request(etag)).block();
 
-    assertThat(map).allSatisfy((diagnosis, counts) -> {
-      assertThat(diagnosis).isEqualTo("C25");
-      assertThat(counts).isEqualTo(IntPair.of(23, 0));
-    });
+    assertThat(response).hasStatusCode(NOT_MODIFIED);
+    assertThat(response.headers().getCacheControl()).isEqualTo("no-cache");
+    verify(taskStore, times(2)).fetchMeasureReport(ID);
   }
 
   @Test
-  void diagnosisToPlasmaPbmcCounts_withEmptyBloodPlasma() {
-    var stratifier = Stratifier.builder()
-        .withCode(List.of(
-            SAMPLE_DIAGNOSIS_STRATIFIER_CODE,
-            SAMPLE_TYPE_STRATIFIER_CODE))
-        .withStratum(List.of(
-            Stratum.builder()
-                .withComponent(List.of(
-                    Component.of(SAMPLE_DIAGNOSIS_STRATIFIER_CODE, CodeableConcept.text("C25")),
-                    Component.of(SAMPLE_TYPE_STRATIFIER_CODE, CodeableConcept.text(BLOOD_PLASMA))))
-                .build()
-        ))
-        .build();
+  void handler_newVersion() {
+    when(taskStore.fetchMeasureReport(ID))
+        .thenReturn(Mono.just(versioned("1", MeasureReportStatus.PENDING)))
+        .thenReturn(Mono.just(versioned("2", MeasureReportStatus.PENDING, 24)));
+    var etag = controller.handler(request()).block().headers().getETag();
 
-    var map = ReportController.diagnosisToPlasmaPbmcCounts(stratifier);
+    var response = controller.handler(request(etag)).block();
 
-    assertThat(map).isEmpty();
+    assertThat(response).hasStatusCode(OK);
+    assertThat(response.headers().getETag()).isNotEqualTo(etag);
+    assertThat(response).body().contains("<td class=\"text-end\">24</td>");
   }
 
-  @Test
-  void diagnosisToPlasmaPbmcCounts_withPbmc() {
-    var stratifier = Stratifier.builder()
-        .withCode(List.of(
-            SAMPLE_DIAGNOSIS_STRATIFIER_CODE,
-            SAMPLE_TYPE_STRATIFIER_CODE))
-        .withStratum(List.of(
-            Stratum.builder()
-                .withComponent(List.of(
-                    Component.of(SAMPLE_DIAGNOSIS_STRATIFIER_CODE, CodeableConcept.text("C25")),
-                    Component.of(SAMPLE_TYPE_STRATIFIER_CODE,
-                        CodeableConcept.text(PERIPHERAL_BLOOD_CELLS_VITAL))))
-                .withPopulation(List.of(Stratum.Population.of(INITIAL_POPULATION_CODE, 23)))
-                .build()
-        ))
-        .build();
-
-    var map = ReportController.diagnosisToPlasmaPbmcCounts(stratifier);
-
-    assertThat(map).allSatisfy((diagnosis, counts) -> {
-      assertThat(diagnosis).isEqualTo("C25");
-      assertThat(counts).isEqualTo(IntPair.of(0, 23));
-    });
+  private static ServerRequest request(String... ifNoneMatch) {
+    var builder = MockServerRequest.builder()
+        .pathVariable("id", ID)
+        .exchange(MockServerWebExchange.from(MockServerHttpRequest.get("/exliquid-report/" + ID)));
+    for (var etag : ifNoneMatch) {
+      builder.header(HttpHeaders.IF_NONE_MATCH, etag);
+    }
+    return builder.build();
   }
 
-  @Test
-  void diagnosisToPlasmaPbmcCounts_withOtherSampleType() {
-    var stratifier = Stratifier.builder()
-        .withCode(List.of(
-            SAMPLE_DIAGNOSIS_STRATIFIER_CODE,
-            SAMPLE_TYPE_STRATIFIER_CODE))
-        .withStratum(List.of(
-            Stratum.builder()
-                .withComponent(List.of(
-                    Component.of(SAMPLE_DIAGNOSIS_STRATIFIER_CODE, CodeableConcept.text("C25")),
-                    Component.of(SAMPLE_TYPE_STRATIFIER_CODE, CodeableConcept.text("foo"))))
-                .withPopulation(List.of(Stratum.Population.of(INITIAL_POPULATION_CODE, 23)))
-                .build()
-        ))
+  private static ServerRequest contextPathRequest(String contextPath) {
+    var httpRequest = MockServerHttpRequest.get(contextPath + "/exliquid-report/" + ID)
+        .contextPath(contextPath);
+    return MockServerRequest.builder()
+        .pathVariable("id", ID)
+        .exchange(MockServerWebExchange.from(httpRequest))
         .build();
+  }
 
-    var map = ReportController.diagnosisToPlasmaPbmcCounts(stratifier);
-
-    assertThat(map).allSatisfy((diagnosis, counts) -> {
-      assertThat(diagnosis).isEqualTo("C25");
-      assertThat(counts).isEqualTo(IntPair.of(0, 0));
-    });
+  private static MeasureReport versioned(String versionId, MeasureReportStatus status) {
+    return versioned(versionId, status, 23);
   }
 
-  @Test
-  void diagnosisToPlasmaPbmcCounts_withBothSampleTypes() {
-    var stratifier = Stratifier.builder()
-        .withCode(List.of(
-            SAMPLE_DIAGNOSIS_STRATIFIER_CODE,
-            SAMPLE_TYPE_STRATIFIER_CODE))
-        .withStratum(List.of(
-            Stratum.builder()
-                .withComponent(List.of(
-                    Component.of(SAMPLE_DIAGNOSIS_STRATIFIER_CODE, CodeableConcept.text("C25")),
-                    Component.of(SAMPLE_TYPE_STRATIFIER_CODE,
-                        CodeableConcept.text(BLOOD_PLASMA))))
-                .withPopulation(List.of(Stratum.Population.of(INITIAL_POPULATION_CODE, 23)))
+  private static MeasureReport versioned(String versionId, MeasureReportStatus status,
+      int totalNumberOfPatients) {
+    return MeasureReport.builder(status.code(), MeasureReportType.INDIVIDUAL.code(),
+            Canonical.valueOf("foo"))
+        .withMeta(new Meta(Optional.of(versionId), Optional.empty()))
+        .withDate(OffsetDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC))
+        .withGroup(List.of(
+            Group.builder()
+                .withCode(PATIENT_GROUP_CODE)
+                .withPopulation(List.of(Population.of(INITIAL_POPULATION_CODE,
+                    totalNumberOfPatients)))
+                .withStratifier(List.of(Stratifier.builder()
+                    .withCode(List.of(DIAGNOSIS_STRATIFIER_CODE))
+                    .build()))
                 .build(),
-            Stratum.builder()
-                .withComponent(List.of(
-                    Component.of(SAMPLE_DIAGNOSIS_STRATIFIER_CODE, CodeableConcept.text("C25")),
-                    Component.of(SAMPLE_TYPE_STRATIFIER_CODE,
-                        CodeableConcept.text(PERIPHERAL_BLOOD_CELLS_VITAL))))
-                .withPopulation(List.of(Stratum.Population.of(INITIAL_POPULATION_CODE, 42)))
-                .build()
-        ))
+            MINIMAL_MEASURE_REPORT.group().get(1)))
         .build();
-
-    var map = ReportController.diagnosisToPlasmaPbmcCounts(stratifier);
-
-    assertThat(map).allSatisfy((diagnosis, counts) -> {
-      assertThat(diagnosis).isEqualTo("C25");
-      assertThat(counts).isEqualTo(IntPair.of(23, 42));
-    });
   }
 }
@@ -0,0 +1,65 @@
+package de.samply.reporthub.exliquid.web.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.samply.reporthub.exliquid.web.controller.ReportPageCache.Key;
+import de.samply.reporthub.exliquid.web.controller.ReportPageCache.Page;
+import de.samply.reporthub.exliquid.web.model.Report;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+
+class ReportPageCacheTest {
+
+  private static final Report REPORT = new Report(OffsetDateTime.MIN, 0, 0, List.of());
+  private static final Key KEY = new Key("0", Locale.GERMAN, "");
+
+  @Test
+  void get_otherVersion() {
+    var cache = new ReportPageCache();
+    cache.put(KEY, Page.of("1", true, REPORT, "<html></html>"));
+
+    assertThat(cache.get(KEY, "1")).isPresent();
+    assertThat(cache.get(KEY, "2")).isEmpty();
+  }
+
+  @Test
+  void get_otherLocale() {
+    var cache = new ReportPageCache();
+    cache.put(KEY, Page.of("1", true, REPORT, "<html></html>"));
+
+    assertThat(cache.get(new Key("0", Locale.ENGLISH, ""), "1")).isEmpty();
+  }
+
+  @Test
+  void get_otherContextPath() {
+    var cache = new ReportPageCache();
+    cache.put(KEY, Page.of("1", true, REPORT, "<html></html>"));
+
+    assertThat(cache.get(new Key("0", Locale.GERMAN, "/prefix"), "1")).isEmpty();
+  }
+
+  @Test
+  void page_etag() {
+    var page1 = Page.of("1", true, REPORT, "<html></html>");
+    var page2 = Page.of("2", true, REPORT, "<html></html>");
+    var page3 = Page.of("1", true, REPORT, "<html>foo</html>");
+
+    assertThat(page1.etag()).startsWith("\"").endsWith("\"");
+    assertThat(page2.etag()).isEqualTo(page1.etag());
+    assertThat(page3.etag()).isNotEqualTo(page1.etag());
+  }
+
+  @Test
+  void bounded() {
+    var cache = new ReportPageCache(2);
+    for (int i = 0; i < 3; i++) {
+      cache.put(new Key(String.valueOf(i), Locale.GERMAN, ""),
+          Page.of("1", true, REPORT, "<html></html>"));
+    }
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get(KEY, "1")).isEmpty();
+  }
+}
@@ -0,0 +1,110 @@
+package de.samply.reporthub.exliquid.web.controller;
+
+import static de.samply.reporthub.web.controller.ServerResponseAssert.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.OK;
+
+import de.samply.reporthub.exliquid.service.TimeSeriesService;
+import de.samply.reporthub.exliquid.service.TimeSeriesStore;
+import de.samply.reporthub.exliquid.web.model.Report;
+import de.samply.reporthub.exliquid.web.model.Report.Stratum;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+class TimeSeriesControllerTest {
+
+  private static final String MEASURE = "measure-152412";
+
+  @Mock
+  private TimeSeriesService timeSeriesService;
+
+  @TempDir
+  Path directory;
+
+  private TimeSeriesStore store;
+  private TimeSeriesController controller;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    store = TimeSeriesStore.open(directory.resolve("exliquid.ts"));
+    store.append("0", Instant.EPOCH, report(1, 10));
+    store.append("1", Instant.EPOCH, report(2, 11));
+    store.append("2", Instant.EPOCH, report(9, 12));
+    controller = new TimeSeriesController(timeSeriesService);
+  }
+
+  @Test
+  void handle() {
+    when(timeSeriesService.store()).thenReturn(Mono.just(store));
+    when(timeSeriesService.measure()).thenReturn(MEASURE);
+
+    var response = controller.handle(MockServerRequest.builder()
+        .queryParam("series", "C34")
+        .queryParam("from", "2023-01-02")
+        .build()).block();
+
+    assertThat(response).hasStatusCode(OK);
+    assertThat(response).body().isEqualTo("""
+        {"measure":"measure-152412","series":{"C34":[\
+        {"date":"2023-01-02T00:00:00Z","patientCount":11,"plasmaCount":1,"pbmcCount":2},\
+        {"date":"2023-01-09T00:00:00Z","patientCount":12,"plasmaCount":1,"pbmcCount":2}]}}""");
+  }
+
+  @Test
+  void handle_aggregated() {
+    when(timeSeriesService.store()).thenReturn(Mono.just(store));
+    when(timeSeriesService.measure()).thenReturn(MEASURE);
+
+    var response = controller.handle(MockServerRequest.builder()
+        .queryParam("interval", "month")
+        .queryParam("aggregation", "max")
+        .build()).block();
+
+    assertThat(response).hasStatusCode(OK);
+    assertThat(response).body().isEqualTo("""
+        {"measure":"measure-152412","series":{"C34":[\
+        {"date":"2023-01-01T00:00:00Z","patientCount":12,"plasmaCount":1,"pbmcCount":2}],\
+        "total":[\
+        {"date":"2023-01-01T00:00:00Z","patientCount":12,"plasmaCount":1,"pbmcCount":2}]}}""");
+  }
+
+  @Test
+  void handle_invalidInterval() {
+    var response = controller.handle(MockServerRequest.builder()
+        .queryParam("interval", "hour")
+        .build()).block();
+
+    assertThat(response).hasStatusCode(BAD_REQUEST);
+    assertThat(response).body().isEqualTo("Invalid interval `hour`.");
+  }
+
+  @Test
+  void handle_invalidFrom() {
+    var response = controller.handle(MockServerRequest.builder()
+        .queryParam("from", "yesterday")
+        .build()).block();
+
+    assertThat(response).hasStatusCode(BAD_REQUEST);
+    assertThat(response).body()
+        .isEqualTo("Invalid from `yesterday`. Expected a date or an instant.");
+  }
+
+  private static Report report(int day, int patientCount) {
+    return new Report(LocalDate.of(2023, 1, day).atStartOfDay().atOffset(ZoneOffset.UTC),
+        patientCount, 3, List.of(new Stratum("C34", patientCount, 1, 2)));
+  }
+}
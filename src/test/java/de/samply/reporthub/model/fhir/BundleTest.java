@@ -3,12 +3,40 @@ package de.samply.reporthub.model.fhir;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import de.samply.reporthub.Util;
+import de.samply.reporthub.model.fhir.Bundle.Entry;
 import de.samply.reporthub.model.fhir.Bundle.Entry.Response;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import reactor.test.StepVerifier;
 
 class BundleTest {
 
+  /**
+   * Bundle sizes below and above the index threshold.
+   */
+  private static final int[] SIZES = {1, Bundle.INDEX_THRESHOLD, Bundle.INDEX_THRESHOLD + 1, 100};
+
+  @Test
+  void serialize_roundTrip() throws Exception {
+    var bundle = Bundle.transaction()
+        .withEntry(List.of(Entry.builder()
+            .withFullUrl(Uri.valueOf("urn:uuid:0"))
+            .withResource(Task.draft().withOutput(List.of(Task.Output.of(
+                Coding.of("system-133052", "code-133057"),
+                Reference.ofReference("MeasureReport", "id-133109")))).build())
+            .build()))
+        .build();
+
+    var json = Util.mapper().writeValueAsString(bundle);
+
+    assertThat(json).doesNotContain("request")
+        .contains("\"reference\":\"MeasureReport/id-133109\"");
+    assertThat(Util.parseJson(json, Bundle.class).block()).isEqualTo(bundle);
+  }
+
   @Test
   void deserialize_withoutType() {
     var result = Util.parseJson("""
@@ -52,6 +80,29 @@ class BundleTest {
         .contains("accepted");
   }
 
+  @Test
+  void deserialize_links() {
+    var bundle = Util.parseJson("""
+        {
+          "resourceType": "Bundle",
+          "type": "history",
+          "link": [{
+            "relation": "self",
+            "url": "http://localhost:8080/fhir/Task/0/_history?_count=1"
+          }, {
+            "relation": "next",
+            "url": "http://localhost:8080/fhir/Task/0/_history?_count=1&__t=1&__page-id=1"
+          }]
+        }
+        """, Bundle.class).block();
+
+    assertThat(bundle).isNotNull();
+    assertThat(bundle.link()).hasSize(2);
+    assertThat(bundle.linkUrl("next"))
+        .contains("http://localhost:8080/fhir/Task/0/_history?_count=1&__t=1&__page-id=1");
+    assertThat(bundle.linkUrl("previous")).isEmpty();
+  }
+
   @Test
   void deserialize_oneResponse() {
     var bundle = Util.parseJson("""
@@ -95,4 +146,94 @@ class BundleTest {
         .flatMap(Coding::code).flatMap(Code::value))
         .contains("evaluate-measure");
   }
+
+  @Test
+  void serialize() {
+    var bundle = Bundle.message()
+        .withId("id-170258")
+        .withEntry(List.of(Entry.builder()
+            .withFullUrl(Uri.valueOf("urn:uuid:170312"))
+            .withResource(Task.draft().build())
+            .build()))
+        .build();
+
+    var string = Util.printJson(bundle).block();
+
+    assertThat(string).isEqualTo("""
+        {"resourceType":"Bundle","id":"id-170258","type":"message","entry":[{"fullUrl":\
+        "urn:uuid:170312","resource":{"resourceType":"Task","status":"draft"}}]}""");
+  }
+
+  @Test
+  void resolveResource() {
+    for (int size : SIZES) {
+      resolveResource(size);
+    }
+  }
+
+  private static void resolveResource(int size) {
+    var bundle = bundle(size);
+
+    for (int i = 0; i < size; i++) {
+      var reference = Reference.ofReference(fullUrl(i));
+      assertThat(bundle.resolveResource(reference).flatMap(Resource::id)).contains("task-" + i);
+      assertThat(bundle.resolveResource(Task.class, reference).flatMap(Task::id))
+          .contains("task-" + i);
+      assertThat(bundle.resolveResource(Parameters.class, reference)).isEmpty();
+    }
+    assertThat(bundle.resolveResource(Reference.ofReference(fullUrl(size)))).isEmpty();
+  }
+
+  @Test
+  void resolveResource_duplicateFullUrl() {
+    for (int size : SIZES) {
+      resolveResource_duplicateFullUrl(size);
+    }
+  }
+
+  private static void resolveResource_duplicateFullUrl(int size) {
+    var bundle = Bundle.message()
+        .withEntry(Stream.concat(bundle(size).entry().stream(), bundle(size).entry().stream()
+                .map(e -> e.withResource(Task.draft().withId("duplicate").build())))
+            .toList())
+        .build();
+
+    assertThat(bundle.resolveResource(Reference.ofReference(fullUrl(0))).flatMap(Resource::id))
+        .contains("task-0");
+  }
+
+  @Test
+  void resourcesAs() {
+    for (int size : SIZES) {
+      resourcesAs(size);
+    }
+  }
+
+  private static void resourcesAs(int size) {
+    var bundle = Bundle.message()
+        .withEntry(Stream.concat(Stream.of(Entry.builder()
+                .withResource(Parameters.builder().build()).build()),
+            bundle(size).entry().stream()).toList())
+        .build();
+
+    assertThat(bundle.resourcesAs(Task.class).map(Task::id).flatMap(Optional::stream))
+        .containsExactlyElementsOf(IntStream.range(0, size).mapToObj(i -> "task-" + i).toList());
+    assertThat(bundle.resourcesAs(Parameters.class)).hasSize(1);
+    assertThat(bundle.resourcesAs(MessageHeader.class)).isEmpty();
+  }
+
+  private static Bundle bundle(int size) {
+    return Bundle.message()
+        .withEntry(IntStream.range(0, size)
+            .mapToObj(i -> Entry.builder()
+                .withFullUrl(Uri.valueOf(fullUrl(i)))
+                .withResource(Task.draft().withId("task-" + i).build())
+                .build())
+            .toList())
+        .build();
+  }
+
+  private static String fullUrl(int i) {
+    return "urn:uuid:" + i;
+  }
 }
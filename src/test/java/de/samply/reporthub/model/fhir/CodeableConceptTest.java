@@ -0,0 +1,91 @@
+package de.samply.reporthub.model.fhir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.samply.reporthub.Util;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+class CodeableConceptTest {
+
+  @Test
+  void serialize() {
+    var concept = CodeableConcept.builder()
+        .withCoding(List.of(Coding.of("system-102411", "code-102415"),
+            Coding.builder().withCode(Code.valueOf("code-102423")).build()))
+        .withText("text-102428")
+        .build();
+
+    var string = Util.printJson(concept).block();
+
+    assertThat(string).isEqualTo("""
+        {"coding":[{"system":"system-102411","code":"code-102415"},{"code":"code-102423"}],\
+        "text":"text-102428"}""");
+  }
+
+  @Test
+  void serialize_empty() {
+    var string = Util.printJson(CodeableConcept.builder().build()).block();
+
+    assertThat(string).isEqualTo("{}");
+  }
+
+  @Test
+  void deserialize() {
+    var concept = Util.parseJson("""
+        {"coding": [{"system": "system-102411", "code": "code-102415"},
+                    {"code": "code-102423"}],
+         "text": "text-102428"}
+        """, CodeableConcept.class).block();
+
+    assertThat(concept).isEqualTo(CodeableConcept.builder()
+        .withCoding(List.of(Coding.of("system-102411", "code-102415"),
+            Coding.builder().withCode(Code.valueOf("code-102423")).build()))
+        .withText("text-102428")
+        .build());
+  }
+
+  @Test
+  void deserialize_pooledCoding() {
+    var concept = Util.parseJson("""
+        {"coding": [{"system": "system-102411", "code": "code-102415"}]}
+        """, CodeableConcept.class).block();
+
+    assertThat(concept).isNotNull();
+    assertThat(concept.coding()).singleElement()
+        .isSameAs(Coding.builder().withSystem(Uri.valueOf("system-102411"))
+            .withCode(Code.valueOf("code-102415")).build());
+  }
+
+  @Test
+  void deserialize_unknownAndNullFields() {
+    var concept = Util.parseJson("""
+        {"coding": [{"system": null, "code": "code-102415", "display": "display-103002",
+                     "extension": [{"url": "url-103010"}]}],
+         "text": null,
+         "id": "id-103021"}
+        """, CodeableConcept.class).block();
+
+    assertThat(concept).isEqualTo(CodeableConcept.coding(
+        Coding.builder().withCode(Code.valueOf("code-102415")).build()));
+  }
+
+  @Test
+  void deserialize_emptyCoding() {
+    var concept = Util.parseJson("""
+        {"coding": [], "text": "text-102428"}
+        """, CodeableConcept.class).block();
+
+    assertThat(concept).isEqualTo(CodeableConcept.text("text-102428"));
+  }
+
+  @Test
+  void deserialize_invalidCoding() {
+    var concept = Util.parseJson("""
+        {"coding": "code-102415"}
+        """, CodeableConcept.class);
+
+    StepVerifier.create(concept).expectError().verify();
+  }
+}
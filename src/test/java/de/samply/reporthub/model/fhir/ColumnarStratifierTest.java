@@ -0,0 +1,231 @@
+package de.samply.reporthub.model.fhir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum.Component;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ColumnarStratifierTest {
+
+  private static final String SYSTEM = "system-140512";
+  private static final Coding DIAGNOSIS = Coding.of(SYSTEM, "diagnosis");
+  private static final Coding SAMPLE_TYPE = Coding.of(SYSTEM, "sample-type");
+  private static final Coding INITIAL_POPULATION = Coding.of(SYSTEM, "initial-population");
+  private static final Coding OTHER_POPULATION = Coding.of(SYSTEM, "other-population");
+
+  private static final Stratifier STRATIFIER = Stratifier.builder()
+      .withCode(List.of(CodeableConcept.coding(DIAGNOSIS), CodeableConcept.coding(SAMPLE_TYPE)))
+      .withStratum(List.of(
+          stratum("C34.0", "plasma", 1),
+          stratum("C34.0", "pbmc", 2),
+          stratum("C50.1", "plasma", 4),
+          stratum("C61", "pbmc", 8)))
+      .build();
+
+  private static Stratum stratum(String diagnosis, String type, int count) {
+    return Stratum.builder()
+        .withComponent(List.of(
+            Component.of(CodeableConcept.coding(DIAGNOSIS), CodeableConcept.text(diagnosis)),
+            Component.of(CodeableConcept.coding(SAMPLE_TYPE), CodeableConcept.text(type))))
+        .withPopulation(List.of(
+            Stratum.Population.of(CodeableConcept.coding(INITIAL_POPULATION), count)))
+        .build();
+  }
+
+  private static Stratum patientStratum(String diagnosis, Integer count) {
+    var population = new Stratum.Population.Builder()
+        .withCode(CodeableConcept.coding(INITIAL_POPULATION));
+    if (count != null) {
+      population.withCount(count);
+    }
+    return Stratum.builder()
+        .withValue(CodeableConcept.text(diagnosis))
+        .withPopulation(List.of(population.build()))
+        .build();
+  }
+
+  @Test
+  void roundTrip() {
+    assertThat(ColumnarStratifier.of(STRATIFIER).toStratifier()).isEqualTo(STRATIFIER);
+  }
+
+  @Test
+  void roundTrip_withValuesAndMissingCounts() {
+    var stratifier = Stratifier.builder()
+        .withCode(List.of(CodeableConcept.coding(DIAGNOSIS)))
+        .withStratum(List.of(patientStratum("C34.0", 1), patientStratum("C50.1", null),
+            Stratum.builder().build()))
+        .build();
+
+    assertThat(ColumnarStratifier.of(stratifier).toStratifier()).isEqualTo(stratifier);
+  }
+
+  @Test
+  void roundTrip_empty() {
+    var stratifier = Stratifier.builder().build();
+
+    var columnar = ColumnarStratifier.of(stratifier);
+
+    assertThat(columnar.size()).isZero();
+    assertThat(columnar.toStratifier()).isEqualTo(stratifier);
+  }
+
+  @Test
+  void distinctComponentValues() {
+    var columnar = ColumnarStratifier.of(STRATIFIER);
+
+    assertThat(columnar.componentCodes()).containsExactly(CodeableConcept.coding(DIAGNOSIS),
+        CodeableConcept.coding(SAMPLE_TYPE));
+    assertThat(columnar.distinctComponentValues(SAMPLE_TYPE))
+        .containsExactly(CodeableConcept.text("plasma"), CodeableConcept.text("pbmc"));
+    assertThat(columnar.distinctComponentValues(INITIAL_POPULATION)).isEmpty();
+  }
+
+  @Test
+  void sum() {
+    var columnar = ColumnarStratifier.of(STRATIFIER);
+
+    assertThat(columnar.sum(INITIAL_POPULATION)).isEqualTo(15);
+    assertThat(columnar.sum(OTHER_POPULATION)).isZero();
+  }
+
+  @Test
+  void sumBy() {
+    var stratifier = Stratifier.builder()
+        .withStratum(List.of(
+            stratum("C34.0", "plasma", 1),
+            stratum("C50.1", "pbmc", 2),
+            stratum("C34.0", "pbmc", 4),
+            Stratum.builder()
+                .withComponent(List.of(
+                    Component.of(CodeableConcept.coding(DIAGNOSIS), CodeableConcept.text("C61"))))
+                .build()))
+        .build();
+
+    var sums = ColumnarStratifier.of(stratifier).sumBy(DIAGNOSIS, INITIAL_POPULATION);
+
+    assertThat(sums).containsExactly(
+        Map.entry(CodeableConcept.text("C34.0"), 5L),
+        Map.entry(CodeableConcept.text("C50.1"), 2L));
+  }
+
+  @Test
+  void sumBy_unknownPopulation() {
+    var sums = ColumnarStratifier.of(STRATIFIER).sumBy(DIAGNOSIS, OTHER_POPULATION);
+
+    assertThat(sums).isEmpty();
+  }
+
+  @Test
+  void filter() {
+    var plasma = ColumnarStratifier.of(STRATIFIER)
+        .filter(SAMPLE_TYPE, type -> type.text().orElseThrow().equals("plasma"));
+
+    assertThat(plasma.size()).isEqualTo(2);
+    assertThat(plasma.sum(INITIAL_POPULATION)).isEqualTo(5);
+    assertThat(plasma.toStratifier().stratum())
+        .containsExactly(stratum("C34.0", "plasma", 1), stratum("C50.1", "plasma", 4));
+  }
+
+  @Test
+  void filter_unknownComponent() {
+    var filtered = ColumnarStratifier.of(STRATIFIER).filter(OTHER_POPULATION, value -> true);
+
+    assertThat(filtered.size()).isZero();
+  }
+
+  @Test
+  void filterValue() {
+    var stratifier = Stratifier.builder()
+        .withStratum(List.of(patientStratum("C34.0", 1), patientStratum("C50.1", 2)))
+        .build();
+
+    var filtered = ColumnarStratifier.of(stratifier)
+        .filterValue(value -> value.text().orElseThrow().startsWith("C5"));
+
+    assertThat(filtered.toStratifier().stratum()).containsExactly(patientStratum("C50.1", 2));
+  }
+
+  @Test
+  void groupBy() {
+    var byDiagnosis = ColumnarStratifier.of(STRATIFIER).groupBy(DIAGNOSIS);
+
+    assertThat(byDiagnosis.size()).isEqualTo(3);
+    assertThat(byDiagnosis.sum(INITIAL_POPULATION)).isEqualTo(15);
+    assertThat(byDiagnosis.toStratifier()).isEqualTo(Stratifier.builder()
+        .withCode(List.of(CodeableConcept.coding(DIAGNOSIS)))
+        .withStratum(List.of(
+            diagnosisStratum("C34.0", 3),
+            diagnosisStratum("C50.1", 4),
+            diagnosisStratum("C61", 8)))
+        .build());
+  }
+
+  @Test
+  void groupBy_unknownComponent() {
+    var grouped = ColumnarStratifier.of(STRATIFIER).groupBy(OTHER_POPULATION);
+
+    assertThat(grouped.size()).isZero();
+    assertThat(grouped.sum(INITIAL_POPULATION)).isZero();
+  }
+
+  private static Stratum diagnosisStratum(String diagnosis, int count) {
+    return Stratum.builder()
+        .withComponent(List.of(
+            Component.of(CodeableConcept.coding(DIAGNOSIS), CodeableConcept.text(diagnosis))))
+        .withPopulation(List.of(
+            Stratum.Population.of(CodeableConcept.coding(INITIAL_POPULATION), count)))
+        .build();
+  }
+
+  @Test
+  void merge() {
+    var other = Stratifier.builder()
+        .withStratum(List.of(
+            stratum("C34.0", "plasma", 16),
+            stratum("C18", "plasma", 32)))
+        .build();
+
+    var merged = ColumnarStratifier.of(STRATIFIER).merge(ColumnarStratifier.of(other));
+
+    assertThat(merged.sum(INITIAL_POPULATION)).isEqualTo(63);
+    assertThat(merged.toStratifier()).isEqualTo(Stratifier.builder()
+        .withCode(STRATIFIER.code())
+        .withStratum(List.of(
+            stratum("C34.0", "plasma", 17),
+            stratum("C34.0", "pbmc", 2),
+            stratum("C50.1", "plasma", 4),
+            stratum("C61", "pbmc", 8),
+            stratum("C18", "plasma", 32)))
+        .build());
+  }
+
+  @Test
+  void merge_differentPopulations() {
+    var other = Stratifier.builder()
+        .withStratum(List.of(Stratum.builder()
+            .withValue(CodeableConcept.text("C34.0"))
+            .withPopulation(List.of(
+                Stratum.Population.of(CodeableConcept.coding(OTHER_POPULATION), 5)))
+            .build()))
+        .build();
+    var stratifier = Stratifier.builder()
+        .withStratum(List.of(patientStratum("C34.0", 1), patientStratum("C50.1", null)))
+        .build();
+
+    var merged = ColumnarStratifier.of(stratifier).merge(ColumnarStratifier.of(other));
+
+    assertThat(merged.toStratifier().stratum()).containsExactly(
+        Stratum.builder()
+            .withValue(CodeableConcept.text("C34.0"))
+            .withPopulation(List.of(
+                Stratum.Population.of(CodeableConcept.coding(INITIAL_POPULATION), 1),
+                Stratum.Population.of(CodeableConcept.coding(OTHER_POPULATION), 5)))
+            .build(),
+        patientStratum("C50.1", null));
+  }
+}
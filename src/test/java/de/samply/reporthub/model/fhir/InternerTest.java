@@ -0,0 +1,138 @@
+package de.samply.reporthub.model.fhir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import de.samply.reporthub.Util;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class InternerTest {
+
+  private static final String CONSTANT_SYSTEM = "system-101212";
+  private static final String CONSTANT_CODE = "code-101218";
+  private static final Coding CONSTANT = Coding.of(CONSTANT_SYSTEM, CONSTANT_CODE);
+
+  @Test
+  void create_withNonPositiveCapacity() {
+    assertThatIllegalArgumentException().isThrownBy(() -> new Interner<>(0));
+  }
+
+  @Test
+  void intern_returnsPooledInstance() {
+    var interner = new Interner<String>(16);
+    var first = new String("value-162014");
+
+    assertThat(interner.intern(first)).isSameAs(first);
+    assertThat(interner.intern(new String("value-162014"))).isSameAs(first);
+  }
+
+  @Test
+  void intern_evictsOnCollision() {
+    var interner = new Interner<Integer>(1);
+    var first = Integer.valueOf(1000);
+    var second = Integer.valueOf(2000);
+
+    interner.intern(first);
+    interner.intern(second);
+
+    assertThat(interner.intern(Integer.valueOf(1000))).isNotSameAs(first);
+  }
+
+  @Test
+  void intern_chars() {
+    var interner = new Interner<Code>(16);
+    var chars = "__code-162130__".toCharArray();
+
+    var first = interner.intern(chars, 2, 11, PrimitiveElement::jsonValue, Code::valueOf);
+    var second = interner.intern(chars, 2, 11, PrimitiveElement::jsonValue, Code::valueOf);
+
+    assertThat(first).isEqualTo(Code.valueOf("code-162130"));
+    assertThat(second).isSameAs(first);
+    assertThat(first.jsonValue()).isNotSameAs("code-162130");
+  }
+
+  @Test
+  void intern_chars_afterInternOfValue() {
+    var interner = new Interner<Code>(16);
+    var code = interner.intern(Code.valueOf("code-162311"));
+
+    var chars = "code-162311".toCharArray();
+    assertThat(interner.intern(chars, 0, chars.length, PrimitiveElement::jsonValue, Code::valueOf))
+        .isSameAs(code);
+  }
+
+  @Test
+  void pin_survivesCollision() {
+    var interner = new Interner<Integer>(1);
+    var constant = interner.pin(Integer.valueOf(1000));
+
+    interner.intern(Integer.valueOf(2000));
+
+    assertThat(interner.intern(Integer.valueOf(1000))).isSameAs(constant);
+  }
+
+  @Test
+  void pin_slotTaken() {
+    var interner = new Interner<Integer>(1);
+    var constant = interner.pin(Integer.valueOf(1000));
+    var other = Integer.valueOf(2000);
+
+    assertThat(interner.pin(other)).isSameAs(other);
+    assertThat(interner.intern(Integer.valueOf(1000))).isSameAs(constant);
+  }
+
+  @Test
+  void intern_chars_pinned() {
+    var interner = new Interner<Code>(16);
+    var constant = interner.pin(Code.valueOf("code-101612"));
+
+    var chars = "code-101612".toCharArray();
+    assertThat(interner.intern(chars, 0, chars.length, PrimitiveElement::jsonValue, Code::valueOf))
+        .isSameAs(constant);
+  }
+
+  @Test
+  void intern_concurrent() {
+    var interner = new Interner<String>(4);
+
+    var values = IntStream.range(0, 10_000).parallel()
+        .mapToObj(i -> interner.intern("value-" + i % 8))
+        .toList();
+
+    assertThat(values).allSatisfy(value -> assertThat(value).startsWith("value-"));
+  }
+
+  @Test
+  void deserialize_sharesCodings() {
+    var concepts = Util.parseJson("""
+        [
+          {"coding": [{"system": "system-162446", "code": "code-162451"}]},
+          {"coding": [{"system": "system-162446", "code": "code-162451"}]}
+        ]
+        """, CodeableConcept[].class).block();
+
+    assertThat(concepts).hasSize(2);
+    var first = concepts[0].coding().get(0);
+    var second = concepts[1].coding().get(0);
+    assertThat(second).isSameAs(first);
+    assertThat(first.system().flatMap(Uri::value)).contains("system-162446");
+    assertThat(List.of(first)).allMatch(Coding.hasSystemValue("system-162446"));
+  }
+
+  /**
+   * Codings read from the stores share the instances of the constants built with
+   * {@link Coding#of(String, String)}, so predicates compare them by identity.
+   */
+  @Test
+  void deserialize_sharesConstants() {
+    var coding = Util.parseJson("""
+        {"system": "%s", "code": "%s"}
+        """.formatted(CONSTANT_SYSTEM, CONSTANT_CODE), Coding.class).block();
+
+    assertThat(coding).isSameAs(CONSTANT);
+    assertThat(coding.system().flatMap(Uri::value).orElseThrow()).isSameAs(CONSTANT_SYSTEM);
+    assertThat(coding.code().flatMap(Code::value).orElseThrow()).isSameAs(CONSTANT_CODE);
+  }
+}
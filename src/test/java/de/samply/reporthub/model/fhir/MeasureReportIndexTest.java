@@ -0,0 +1,110 @@
+package de.samply.reporthub.model.fhir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.samply.reporthub.model.fhir.MeasureReport.Group;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Population;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum.Component;
+import de.samply.reporthub.model.fhir.MeasureReportIndex.GroupIndex;
+import de.samply.reporthub.model.fhir.MeasureReportIndex.StratifierIndex;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MeasureReportIndexTest {
+
+  private static final String SYSTEM = "system-113012";
+  private static final Coding GROUP_A = Coding.of(SYSTEM, "group-a");
+  private static final Coding GROUP_B = Coding.of(SYSTEM, "group-b");
+  private static final Coding POPULATION = Coding.of(SYSTEM, "population");
+  private static final Coding STRATIFIER_A = Coding.of(SYSTEM, "stratifier-a");
+  private static final Coding STRATIFIER_B = Coding.of(SYSTEM, "stratifier-b");
+  private static final Coding COMPONENT = Coding.of(SYSTEM, "component");
+
+  private static final Stratum STRATUM_1 = Stratum.builder()
+      .withValue(CodeableConcept.text("value-1"))
+      .withComponent(List.of(Component.of(CodeableConcept.coding(COMPONENT),
+          CodeableConcept.text("component-value-1"))))
+      .withPopulation(List.of(Stratum.Population.of(CodeableConcept.coding(POPULATION), 1)))
+      .build();
+  private static final Stratum STRATUM_2 = Stratum.builder()
+      .withValue(CodeableConcept.text("value-2"))
+      .withPopulation(List.of(Stratum.Population.of(CodeableConcept.coding(POPULATION), 2)))
+      .build();
+
+  private static final MeasureReport REPORT = MeasureReport.builder(
+          MeasureReportStatus.COMPLETE.code(), MeasureReportType.SUMMARY.code(),
+          Canonical.valueOf("measure-113203"))
+      .withGroup(List.of(
+          Group.builder()
+              .withCode(CodeableConcept.coding(GROUP_A))
+              .withPopulation(List.of(Population.of(CodeableConcept.coding(POPULATION), 23)))
+              .withStratifier(List.of(Stratifier.builder()
+                  .withCode(List.of(CodeableConcept.coding(STRATIFIER_A),
+                      CodeableConcept.coding(STRATIFIER_B)))
+                  .withStratum(List.of(STRATUM_1, STRATUM_2))
+                  .build()))
+              .build(),
+          Group.builder()
+              .withCode(CodeableConcept.coding(GROUP_A))
+              .withPopulation(List.of(Population.of(CodeableConcept.coding(POPULATION), 42)))
+              .build(),
+          Group.builder()
+              .withCode(CodeableConcept.builder()
+                  .withCoding(List.of(GROUP_B, Coding.of("other-system", "group-b")))
+                  .build())
+              .build(),
+          Group.builder().build()))
+      .build();
+
+  private static final MeasureReportIndex INDEX = MeasureReportIndex.of(REPORT);
+
+  @Test
+  void group() {
+    assertThat(INDEX.group(GROUP_A).map(GroupIndex::group)).contains(REPORT.group().get(0));
+    assertThat(INDEX.group(Coding.of("other-system", "group-b")).map(GroupIndex::group))
+        .contains(REPORT.group().get(2));
+    assertThat(INDEX.group(Coding.of(SYSTEM, "unknown"))).isEmpty();
+  }
+
+  @Test
+  void count() {
+    var group = INDEX.group(GROUP_A).orElseThrow();
+
+    assertThat(group.count(POPULATION)).contains(23);
+    assertThat(group.count(GROUP_A)).isEmpty();
+  }
+
+  @Test
+  void stratifier() {
+    var group = INDEX.group(GROUP_A).orElseThrow();
+
+    assertThat(group.stratifier(STRATIFIER_A).map(StratifierIndex::strata))
+        .contains(List.of(STRATUM_1, STRATUM_2));
+    assertThat(group.stratifier(STRATIFIER_B)).isEqualTo(group.stratifier(STRATIFIER_A));
+    assertThat(INDEX.group(GROUP_B).flatMap(g -> g.stratifier(STRATIFIER_A))).isEmpty();
+  }
+
+  @Test
+  void stratum() {
+    var stratifier = INDEX.group(GROUP_A).flatMap(g -> g.stratifier(STRATIFIER_A)).orElseThrow();
+
+    assertThat(stratifier.stratum("value-2")).contains(STRATUM_2);
+    assertThat(stratifier.stratum("value-1")).contains(STRATUM_1);
+    assertThat(stratifier.stratum("value-3")).isEmpty();
+  }
+
+  @Test
+  void component() {
+    assertThat(StratifierIndex.component(STRATUM_1, COMPONENT).flatMap(CodeableConcept::text))
+        .contains("component-value-1");
+    assertThat(StratifierIndex.component(STRATUM_2, COMPONENT)).isEmpty();
+  }
+
+  @Test
+  void stratumCount() {
+    assertThat(StratifierIndex.count(STRATUM_2, POPULATION)).contains(2);
+    assertThat(StratifierIndex.count(STRATUM_2, COMPONENT)).isEmpty();
+  }
+}
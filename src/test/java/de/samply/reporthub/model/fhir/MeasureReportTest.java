@@ -3,7 +3,10 @@ package de.samply.reporthub.model.fhir;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import de.samply.reporthub.Util;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum.Component;
 import java.time.OffsetDateTime;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 class MeasureReportTest {
@@ -76,4 +79,42 @@ class MeasureReportTest {
           "date" : "2022-07-20T21:21:01Z"
         }""");
   }
+
+  @Test
+  void serialize_stratum() {
+    var stratum = Stratum.builder()
+        .withValue(CodeableConcept.text("C34.0"))
+        .withPopulation(List.of(Stratum.Population.of(
+            CodeableConcept.coding(Coding.of("system-145420", "code-145425")), 23)))
+        .build();
+
+    var string = Util.printJson(stratum).block();
+
+    assertThat(string).isEqualTo("""
+        {"value":{"text":"C34.0"},"population":[{"code":{"coding":[{"system":"system-145420",\
+        "code":"code-145425"}]},"count":23}]}""");
+  }
+
+  @Test
+  void deserialize_stratum() {
+    var stratum = Util.parseJson("""
+        {
+          "value": {"text": "C34.0"},
+          "component": [{"code": {"text": "code-151529"}, "value": {"text": "value-151536"}}],
+          "population": [{"code": {"coding": [{"code": "code-151540"}]}, "count": 23}]
+        }
+        """, Stratum.class).block();
+
+    assertThat(stratum).isEqualTo(Stratum.builder()
+        .withValue(CodeableConcept.text("C34.0"))
+        .withComponent(List.of(Component.of(CodeableConcept.text("code-151529"),
+            CodeableConcept.text("value-151536"))))
+        .withPopulation(List.of(Stratum.Population.of(CodeableConcept.coding(
+            Coding.builder().withCode(Code.valueOf("code-151540")).build()), 23)))
+        .build());
+    assertThat(stratum.value().flatMap(CodeableConcept::text)).contains("C34.0");
+    assertThat(stratum.findPopulation(c -> true).flatMap(Stratum.Population::count)).contains(23);
+    assertThat(stratum.population().get(0).code().map(CodeableConcept::coding).orElseThrow())
+        .allSatisfy(coding -> assertThat(coding.system()).isEmpty());
+  }
 }
@@ -19,16 +19,21 @@ import de.samply.reporthub.model.fhir.Task;
 import de.samply.reporthub.model.fhir.Task.Input;
 import de.samply.reporthub.model.fhir.TaskStatus;
 import de.samply.reporthub.service.fhir.store.DataStore;
+import de.samply.reporthub.service.fhir.store.ResourceLocation;
 import de.samply.reporthub.service.fhir.store.TaskStore;
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -61,7 +66,7 @@ class EvaluateMeasureServiceTest {
   @BeforeEach
   void setUp() {
     var clock = Clock.fixed(Instant.EPOCH, ZoneOffset.UTC);
-    service = new EvaluateMeasureService(taskStore, dataStore, clock);
+    service = new EvaluateMeasureService(taskStore, dataStore, clock, false);
   }
 
   @Test
@@ -194,4 +199,50 @@ class EvaluateMeasureServiceTest {
         .containsOutput(CodeableConcept.containsCoding(TaskOutput.MEASURE_REPORT),
             Reference.ofReference("MeasureReport", MEASURE_REPORT_ID));
   }
+
+  /**
+   * Tests that a completed task is returned if the raw measure evaluation succeeds.
+   */
+  @Test
+  void processTask_successfulEvaluateMeasure_rawPassThrough() {
+    var service = new EvaluateMeasureService(taskStore, dataStore,
+        Clock.fixed(Instant.EPOCH, ZoneOffset.UTC), true);
+    var readyTask = READY_TASK.addInput(Input.of(TaskInput.MEASURE.coding(),
+        Canonical.valueOf(MEASURE_URL)));
+    var body = Flux.<DataBuffer>just(DefaultDataBufferFactory.sharedInstance.wrap(
+        "{\"resourceType\":\"MeasureReport\"}".getBytes(StandardCharsets.UTF_8)));
+    when(taskStore.updateTask(any())).thenAnswer(i -> Mono.just(i.getArguments()[0]));
+    when(dataStore.evaluateMeasureRaw(MEASURE_URL)).thenReturn(body);
+    when(taskStore.createMeasureReport(body)).thenReturn(Mono.just(
+        new ResourceLocation("MeasureReport", MEASURE_REPORT_ID, Optional.of("1"))));
+
+    var task = service.processTask(readyTask).block();
+
+    assertThat(task)
+        .hasStatus(TaskStatus.COMPLETED)
+        .containsOutput(CodeableConcept.containsCoding(TaskOutput.MEASURE_REPORT),
+            Reference.ofReference("MeasureReport", MEASURE_REPORT_ID));
+  }
+
+  /**
+   * Tests that a failed task is returned if the raw measure evaluation fails.
+   */
+  @Test
+  void processTask_failingEvaluateMeasure_rawPassThrough() {
+    var service = new EvaluateMeasureService(taskStore, dataStore,
+        Clock.fixed(Instant.EPOCH, ZoneOffset.UTC), true);
+    var readyTask = READY_TASK.addInput(Input.of(TaskInput.MEASURE.coding(),
+        Canonical.valueOf(MEASURE_URL)));
+    var body = Flux.<DataBuffer>error(new Exception(ERROR_MSG));
+    when(taskStore.updateTask(any())).thenAnswer(i -> Mono.just(i.getArguments()[0]));
+    when(dataStore.evaluateMeasureRaw(MEASURE_URL)).thenReturn(body);
+    when(taskStore.createMeasureReport(body)).thenReturn(Mono.error(new Exception(ERROR_MSG)));
+
+    var task = service.processTask(readyTask).block();
+
+    assertThat(task)
+        .hasStatus(TaskStatus.FAILED)
+        .containsOutput(CodeableConcept.containsCoding(TaskOutput.ERROR),
+            StringElement.valueOf(ERROR_MSG));
+  }
 }
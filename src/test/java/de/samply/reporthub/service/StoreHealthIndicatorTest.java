@@ -0,0 +1,71 @@
+package de.samply.reporthub.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import de.samply.reporthub.service.StoreHealthService.Status;
+import de.samply.reporthub.service.StoreHealthService.StoreHealth;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class StoreHealthIndicatorTest {
+
+  @Mock
+  private StoreHealthService storeHealthService;
+
+  private StoreHealthIndicator indicator;
+
+  @BeforeEach
+  void setUp() {
+    indicator = new StoreHealthIndicator(storeHealthService);
+  }
+
+  @Test
+  void health_up() {
+    when(storeHealthService.health()).thenReturn(List.of(health("taskStore", Status.UP),
+        health("dataStore", Status.UP)));
+
+    var health = indicator.health();
+
+    assertThat(health.getStatus()).isEqualTo(org.springframework.boot.actuate.health.Status.UP);
+    assertThat(health.getDetails()).containsOnlyKeys("taskStore", "dataStore");
+    assertThat(health.getDetails().get("taskStore")).isEqualTo(Map.of("status", "UP",
+        "software", "Unknown", "latencyMs", 12L, "errorRate", 0.0,
+        "lastProbe", "1970-01-01T00:00:00Z"));
+  }
+
+  @Test
+  void health_oneDown() {
+    when(storeHealthService.health()).thenReturn(List.of(health("taskStore", Status.UP),
+        health("dataStore", Status.DOWN)));
+
+    var health = indicator.health();
+
+    assertThat(health.getStatus()).isEqualTo(org.springframework.boot.actuate.health.Status.DOWN);
+  }
+
+  @Test
+  void health_notProbedYet() {
+    when(storeHealthService.health()).thenReturn(List.of(health("taskStore", Status.UP),
+        health("dataStore", Status.UNKNOWN)));
+
+    var health = indicator.health();
+
+    assertThat(health.getStatus())
+        .isEqualTo(org.springframework.boot.actuate.health.Status.UNKNOWN);
+  }
+
+  private static StoreHealth health(String name, Status status) {
+    return new StoreHealth(name, "http://localhost/fhir", status, Optional.empty(),
+        Optional.of(Duration.ofMillis(12)), 0, Optional.empty(), Optional.of(Instant.EPOCH));
+  }
+}
@@ -0,0 +1,176 @@
+package de.samply.reporthub.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.samply.reporthub.model.fhir.CapabilityStatement;
+import de.samply.reporthub.model.fhir.CapabilityStatement.Software;
+import de.samply.reporthub.service.StoreHealthService.Status;
+import de.samply.reporthub.service.fhir.store.DataStore;
+import de.samply.reporthub.service.fhir.store.TaskStore;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class StoreHealthServiceTest {
+
+  private static final String TASK_STORE_URL = "http://localhost:8083/fhir";
+  private static final String DATA_STORE_URL = "http://localhost:8084/fhir";
+  private static final Instant NOW = Instant.parse("2023-01-01T00:00:00Z");
+  private static final Duration PROBE_INTERVAL = Duration.ofMillis(10);
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+  private static final CapabilityStatement CAPABILITY_STATEMENT = CapabilityStatement.builder()
+      .withSoftware(Software.builder("Blaze").build())
+      .build();
+
+  @Mock
+  private TaskStore taskStore;
+
+  @Mock
+  private DataStore dataStore;
+
+  private StoreHealthService service(Duration metadataMaxAge, int window) {
+    return new StoreHealthService(taskStore, TASK_STORE_URL, dataStore, DATA_STORE_URL,
+        Clock.fixed(NOW, ZoneOffset.UTC), PROBE_INTERVAL, TIMEOUT, metadataMaxAge, window);
+  }
+
+  @Test
+  void health_notProbedYet() {
+    var service = service(Duration.ofHours(1), 20);
+
+    assertThat(service.health()).allSatisfy(health -> {
+      assertThat(health.status()).isEqualTo(Status.UNKNOWN);
+      assertThat(health.capabilityStatement()).isEmpty();
+      assertThat(health.errorRate()).isZero();
+      assertThat(health.lastProbe()).isEmpty();
+    });
+    assertThat(service.health("taskStore")).map(StoreHealthService.StoreHealth::baseUrl)
+        .contains(TASK_STORE_URL);
+    assertThat(service.health("other")).isEmpty();
+  }
+
+  @Test
+  void create_emptyWindow() {
+    assertThatIllegalArgumentException().isThrownBy(() -> service(Duration.ofHours(1), 0))
+        .withMessage("The window has to contain at least one probe.");
+  }
+
+  /**
+   * Fetches the CapabilityStatement with the first probe and only pings afterwards.
+   */
+  @Test
+  void pipeline_cachesMetadata() {
+    var service = service(Duration.ofHours(1), 20);
+    when(taskStore.fetchMetadata()).thenReturn(Mono.just(CAPABILITY_STATEMENT));
+    when(dataStore.fetchMetadata()).thenReturn(Mono.just(CAPABILITY_STATEMENT));
+    when(taskStore.ping()).thenReturn(Mono.empty());
+    when(dataStore.ping()).thenReturn(Mono.empty());
+
+    StepVerifier.create(service.pipeline().take(6))
+        .expectNextCount(6)
+        .verifyComplete();
+
+    verify(taskStore, times(1)).fetchMetadata();
+    verify(taskStore, times(2)).ping();
+    verify(dataStore, times(1)).fetchMetadata();
+    verify(dataStore, times(2)).ping();
+    assertThat(service.health("taskStore")).hasValueSatisfying(health -> {
+      assertThat(health.status()).isEqualTo(Status.UP);
+      assertThat(health.capabilityStatement()).contains(CAPABILITY_STATEMENT);
+      assertThat(health.errorRate()).isZero();
+      assertThat(health.lastProbe()).contains(NOW);
+    });
+  }
+
+  @Test
+  void pipeline_latency() {
+    var service = service(Duration.ofHours(1), 20);
+    when(taskStore.fetchMetadata()).thenAnswer(invocation -> Mono.just(CAPABILITY_STATEMENT)
+        .delayElement(Duration.ofMillis(100)));
+    when(dataStore.fetchMetadata()).thenReturn(Mono.just(CAPABILITY_STATEMENT));
+
+    StepVerifier.withVirtualTime(() -> service.pipeline().take(2))
+        .expectSubscription()
+        .thenAwait(Duration.ofMillis(100))
+        .assertNext(health -> assertThat(health.name()).isEqualTo("dataStore"))
+        .assertNext(health -> {
+          assertThat(health.name()).isEqualTo("taskStore");
+          assertThat(health.latency()).contains(Duration.ofMillis(100));
+        })
+        .verifyComplete();
+  }
+
+  @Test
+  void pipeline_metadataExpired() {
+    var service = service(Duration.ZERO, 20);
+    when(taskStore.fetchMetadata()).thenReturn(Mono.just(CAPABILITY_STATEMENT));
+    when(dataStore.fetchMetadata()).thenReturn(Mono.just(CAPABILITY_STATEMENT));
+
+    StepVerifier.create(service.pipeline().take(4))
+        .expectNextCount(4)
+        .verifyComplete();
+
+    verify(taskStore, times(2)).fetchMetadata();
+    verify(dataStore, times(2)).fetchMetadata();
+  }
+
+  /**
+   * A store which fails is down until it answers again and the error rate is taken over the
+   * window.
+   */
+  @Test
+  void pipeline_down() {
+    var service = service(Duration.ofHours(1), 2);
+    when(taskStore.fetchMetadata()).thenReturn(Mono.just(CAPABILITY_STATEMENT));
+    when(taskStore.ping()).thenReturn(Mono.error(new Exception("error-msg-151837")))
+        .thenReturn(Mono.empty());
+    when(dataStore.fetchMetadata()).thenReturn(Mono.just(CAPABILITY_STATEMENT));
+    when(dataStore.ping()).thenReturn(Mono.empty());
+
+    StepVerifier.create(service.pipeline()
+            .filter(health -> health.name().equals("taskStore")).take(4))
+        .assertNext(health -> assertThat(health.status()).isEqualTo(Status.UP))
+        .assertNext(health -> {
+          assertThat(health.status()).isEqualTo(Status.DOWN);
+          assertThat(health.error()).contains("error-msg-151837");
+          assertThat(health.capabilityStatement()).contains(CAPABILITY_STATEMENT);
+          assertThat(health.errorRate()).isEqualTo(0.5);
+        })
+        .assertNext(health -> {
+          assertThat(health.status()).isEqualTo(Status.UP);
+          assertThat(health.error()).isEmpty();
+          assertThat(health.errorRate()).isEqualTo(0.5);
+        })
+        .assertNext(health -> assertThat(health.errorRate()).isZero())
+        .verifyComplete();
+  }
+
+  @Test
+  void pipeline_timeout() {
+    var service = service(Duration.ofHours(1), 20);
+    when(taskStore.fetchMetadata()).thenReturn(Mono.never());
+    when(dataStore.fetchMetadata()).thenReturn(Mono.just(CAPABILITY_STATEMENT));
+
+    StepVerifier.withVirtualTime(() -> service.pipeline().take(2))
+        .expectSubscription()
+        .assertNext(health -> assertThat(health.name()).isEqualTo("dataStore"))
+        .expectNoEvent(TIMEOUT)
+        .assertNext(health -> {
+          assertThat(health.name()).isEqualTo("taskStore");
+          assertThat(health.status()).isEqualTo(Status.DOWN);
+          assertThat(health.capabilityStatement()).isEmpty();
+        })
+        .verifyComplete();
+  }
+}
@@ -0,0 +1,224 @@
+package de.samply.reporthub.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.Mockito.when;
+
+import de.samply.reporthub.dktk.model.fhir.TaskCode;
+import de.samply.reporthub.model.fhir.CodeableConcept;
+import de.samply.reporthub.model.fhir.Coding;
+import de.samply.reporthub.model.fhir.Meta;
+import de.samply.reporthub.model.fhir.Task;
+import de.samply.reporthub.model.fhir.TaskStatus;
+import de.samply.reporthub.service.TaskReadModel.TaskSummary;
+import de.samply.reporthub.service.fhir.store.TaskStore;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class TaskReadModelTest {
+
+  private static final int CAPACITY = 3;
+  private static final String CODE = "evaluate-measure";
+  private static final String OTHER_CODE = "other-code";
+
+  @Mock
+  private TaskStore taskStore;
+
+  private TaskReadModel model;
+
+  @BeforeEach
+  void setUp() {
+    model = new TaskReadModel(taskStore, CAPACITY, Duration.ofMillis(10));
+  }
+
+  @Test
+  void notReady() {
+    assertThat(model.isReady()).isFalse();
+    assertThat(model.page(0, 10, Optional.empty(), Optional.empty()).tasks()).isEmpty();
+    assertThat(model.statuses()).isEmpty();
+  }
+
+  @Test
+  void follow_empty() {
+    model.follow(List.of());
+
+    assertThat(model.isReady()).isTrue();
+    assertThat(model.page(0, 10, Optional.empty(), Optional.empty()).total()).isZero();
+  }
+
+  @Test
+  void page_newestFirst() {
+    model.follow(List.of(task("0", TaskStatus.READY, 1), task("1", TaskStatus.COMPLETED, 2)));
+
+    var page = model.page(0, 10, Optional.empty(), Optional.empty());
+
+    assertThat(page.tasks()).extracting(TaskSummary::id).containsExactly("1", "0");
+    assertThat(page.total()).isEqualTo(2);
+    assertThat(page.hasPrevious()).isFalse();
+    assertThat(page.hasNext()).isFalse();
+  }
+
+  @Test
+  void page_paging() {
+    model.follow(List.of(task("0", TaskStatus.READY, 1), task("1", TaskStatus.READY, 2),
+        task("2", TaskStatus.READY, 3)));
+
+    var page0 = model.page(0, 2, Optional.empty(), Optional.empty());
+    var page1 = model.page(1, 2, Optional.empty(), Optional.empty());
+    var page2 = model.page(2, 2, Optional.empty(), Optional.empty());
+
+    assertThat(page0.tasks()).extracting(TaskSummary::id).containsExactly("2", "1");
+    assertThat(page0.hasNext()).isTrue();
+    assertThat(page1.tasks()).extracting(TaskSummary::id).containsExactly("0");
+    assertThat(page1.hasPrevious()).isTrue();
+    assertThat(page1.hasNext()).isFalse();
+    assertThat(page2.tasks()).isEmpty();
+  }
+
+  @Test
+  void page_invalid() {
+    assertThatThrownBy(() -> model.page(-1, 10, Optional.empty(), Optional.empty()))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> model.page(0, 0, Optional.empty(), Optional.empty()))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void page_filtered() {
+    model.follow(List.of(task("0", TaskStatus.READY, 1), task("1", TaskStatus.COMPLETED, 2),
+        task("2", TaskStatus.READY, OTHER_CODE, 3)));
+
+    assertThat(model.page(0, 10, Optional.of("ready"), Optional.empty()).tasks())
+        .extracting(TaskSummary::id).containsExactly("2", "0");
+    assertThat(model.page(0, 10, Optional.empty(), Optional.of(CODE)).tasks())
+        .extracting(TaskSummary::id).containsExactly("1", "0");
+    assertThat(model.page(0, 10, Optional.of("ready"), Optional.of(CODE)).tasks())
+        .extracting(TaskSummary::id).containsExactly("0");
+    assertThat(model.page(0, 10, Optional.of("failed"), Optional.empty()).tasks()).isEmpty();
+    assertThat(model.statuses()).containsExactly("completed", "ready");
+    assertThat(model.codes()).containsExactly(CODE, OTHER_CODE);
+  }
+
+  @Test
+  void follow_update() {
+    model.follow(List.of(task("0", TaskStatus.READY, 1)));
+
+    var changed = model.follow(List.of(task("0", TaskStatus.COMPLETED, 2)));
+
+    assertThat(changed).isTrue();
+    assertThat(model.page(0, 10, Optional.empty(), Optional.empty()).tasks())
+        .extracting(TaskSummary::status).containsExactly("completed");
+  }
+
+  @Test
+  void follow_unchanged() {
+    model.follow(List.of(task("0", TaskStatus.READY, 1)));
+
+    assertThat(model.follow(List.of(task("0", TaskStatus.READY, 1)))).isFalse();
+  }
+
+  @Test
+  void follow_older() {
+    model.follow(List.of(task("0", TaskStatus.COMPLETED, 2)));
+
+    var changed = model.follow(List.of(task("0", TaskStatus.READY, 1)));
+
+    assertThat(changed).isFalse();
+    assertThat(model.page(0, 10, Optional.empty(), Optional.empty()).tasks())
+        .extracting(TaskSummary::status).containsExactly("completed");
+  }
+
+  @Test
+  void follow_skipsIncompleteTasks() {
+    model.follow(List.of(Task.ready().withId("0").build()));
+
+    assertThat(model.page(0, 10, Optional.empty(), Optional.empty()).tasks()).isEmpty();
+  }
+
+  @Test
+  void follow_evictsOldest() {
+    model.follow(List.of(task("0", TaskStatus.READY, 1), task("1", TaskStatus.READY, 2),
+        task("2", TaskStatus.READY, 3), task("3", TaskStatus.READY, 4)));
+
+    assertThat(model.page(0, 10, Optional.empty(), Optional.empty()).tasks())
+        .extracting(TaskSummary::id).containsExactly("3", "2", "1");
+  }
+
+  @Test
+  void changes() {
+    model.follow(List.of(task("0", TaskStatus.READY, 1)));
+
+    StepVerifier.create(model.changes().take(2))
+        .then(() -> model.follow(List.of(task("0", TaskStatus.READY, 1),
+            task("1", TaskStatus.READY, 2))))
+        .then(() -> model.put(task("0", TaskStatus.COMPLETED, 3)))
+        .expectNextMatches(task -> task.id().equals("1"))
+        .expectNextMatches(task -> task.id().equals("0") && task.status().equals("completed"))
+        .verifyComplete();
+  }
+
+  @Test
+  void put() {
+    model.put(task("0", TaskStatus.READY, 1));
+
+    assertThat(model.isReady()).isFalse();
+    assertThat(model.page(0, 10, Optional.empty(), Optional.empty()).tasks())
+        .extracting(TaskSummary::id).containsExactly("0");
+  }
+
+  @Test
+  void pipeline() {
+    when(taskStore.listNewestTasks(CAPACITY))
+        .thenReturn(Flux.just(task("1", TaskStatus.READY, 2), task("0", TaskStatus.READY, 1)));
+    when(taskStore.listTasksUpdatedSince(instant(2), CAPACITY))
+        .thenReturn(Flux.just(task("1", TaskStatus.COMPLETED, 3)));
+
+    StepVerifier.create(model.pipeline().take(2)).expectNext(true, true).verifyComplete();
+
+    assertThat(model.page(0, 10, Optional.empty(), Optional.empty()).tasks())
+        .extracting(TaskSummary::id, TaskSummary::status)
+        .containsExactly(tuple("1", "completed"), tuple("0", "ready"));
+  }
+
+  @Test
+  void pipeline_putDoesNotMoveCursor() {
+    when(taskStore.listNewestTasks(CAPACITY))
+        .thenReturn(Flux.just(task("0", TaskStatus.READY, 1)));
+    when(taskStore.listTasksUpdatedSince(instant(1), CAPACITY))
+        .thenReturn(Flux.just(task("0", TaskStatus.COMPLETED, 2)));
+
+    StepVerifier.create(model.pipeline().take(1)).expectNext(true).verifyComplete();
+    model.put(task("1", TaskStatus.READY, 3));
+    StepVerifier.create(model.pipeline().skip(1).take(1)).expectNext(true).verifyComplete();
+  }
+
+  private static Task task(String id, TaskStatus status, int second) {
+    return task(id, status, CODE, second);
+  }
+
+  private static Task task(String id, TaskStatus status, String code, int second) {
+    return Task.builder(status.code())
+        .withId(id)
+        .withMeta(new Meta(Optional.empty(), Optional.of(instant(second))))
+        .withCode(CodeableConcept.coding(Coding.of(TaskCode.CODE_SYSTEM_URL, code)))
+        .withLastModified(OffsetDateTime.ofInstant(instant(second), ZoneOffset.UTC))
+        .build();
+  }
+
+  private static Instant instant(int second) {
+    return Instant.EPOCH.plusSeconds(second);
+  }
+}
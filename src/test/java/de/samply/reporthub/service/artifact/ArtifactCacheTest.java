@@ -0,0 +1,230 @@
+package de.samply.reporthub.service.artifact;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import de.samply.reporthub.model.fhir.Attachment;
+import de.samply.reporthub.model.fhir.Base64Binary;
+import de.samply.reporthub.model.fhir.Canonical;
+import de.samply.reporthub.model.fhir.Code;
+import de.samply.reporthub.model.fhir.CodeableConcept;
+import de.samply.reporthub.model.fhir.Library;
+import de.samply.reporthub.model.fhir.Measure;
+import de.samply.reporthub.model.fhir.Meta;
+import de.samply.reporthub.service.fhir.store.DataStore;
+import de.samply.reporthub.service.fhir.store.ResourceNotFoundException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactCacheTest {
+
+  private static final String MEASURE_ID = "measure-id-104312";
+  private static final String MEASURE_URL = "measure-url-104327";
+  private static final String LIBRARY_ID = "library-id-104345";
+  private static final String LIBRARY_URL = "library-url-104356";
+  private static final Duration MAX_AGE = Duration.ofSeconds(10);
+  private static final Instant NOW = Instant.EPOCH;
+
+  @Mock
+  private DataStore dataStore;
+
+  @Mock
+  private Clock clock;
+
+  private ArtifactCache cache;
+
+  @BeforeEach
+  void setUp() {
+    cache = new ArtifactCache(dataStore, clock, MAX_AGE);
+  }
+
+  @Test
+  void measure_notFound() {
+    when(dataStore.fetchResource(Measure.class, MEASURE_ID)).thenReturn(Mono.empty());
+
+    var result = cache.measure(MEASURE_ID);
+
+    StepVerifier.create(result).expectError(ResourceNotFoundException.class).verify();
+  }
+
+  @Test
+  void measure_fresh() {
+    when(clock.instant()).thenReturn(NOW);
+    when(dataStore.fetchResource(Measure.class, MEASURE_ID)).thenReturn(Mono.just(measure("1",
+        "title-1")));
+
+    StepVerifier.create(cache.measure(MEASURE_ID)).expectNextCount(1).verifyComplete();
+    var result = cache.measure(MEASURE_ID);
+
+    StepVerifier.create(result)
+        .assertNext(measure -> {
+          assertThat(measure.id()).isEqualTo(MEASURE_ID);
+          assertThat(measure.url()).contains(MEASURE_URL);
+          assertThat(measure.title()).contains("title-1");
+          assertThat(measure.library()).contains(LIBRARY_URL);
+        })
+        .verifyComplete();
+    verify(dataStore, times(1)).fetchResource(Measure.class, MEASURE_ID);
+    verifyNoMoreInteractions(dataStore);
+  }
+
+  @Test
+  void measure_notModified() {
+    when(clock.instant()).thenReturn(NOW, NOW.plus(MAX_AGE), NOW.plus(MAX_AGE).plusSeconds(1));
+    when(dataStore.fetchResource(Measure.class, MEASURE_ID)).thenReturn(Mono.just(measure("1",
+        "title-1")));
+    when(dataStore.fetchResourceIfModified(Measure.class, MEASURE_ID, "1"))
+        .thenReturn(Mono.empty());
+
+    StepVerifier.create(cache.measure(MEASURE_ID)).expectNextCount(1).verifyComplete();
+    var result = cache.measure(MEASURE_ID);
+
+    StepVerifier.create(result)
+        .assertNext(measure -> assertThat(measure.title()).contains("title-1"))
+        .verifyComplete();
+    StepVerifier.create(cache.measure(MEASURE_ID)).expectNextCount(1).verifyComplete();
+    verify(dataStore, times(1)).fetchResourceIfModified(Measure.class, MEASURE_ID, "1");
+  }
+
+  @Test
+  void measure_modified() {
+    when(clock.instant()).thenReturn(NOW, NOW.plus(MAX_AGE));
+    when(dataStore.fetchResource(Measure.class, MEASURE_ID)).thenReturn(Mono.just(measure("1",
+        "title-1")));
+    when(dataStore.fetchResourceIfModified(Measure.class, MEASURE_ID, "1"))
+        .thenReturn(Mono.just(measure("2", "title-2")));
+
+    StepVerifier.create(cache.measure(MEASURE_ID)).expectNextCount(1).verifyComplete();
+    var result = cache.measure(MEASURE_ID);
+
+    StepVerifier.create(result)
+        .assertNext(measure -> assertThat(measure.title()).contains("title-2"))
+        .verifyComplete();
+  }
+
+  @Test
+  void measureByUrl() {
+    when(clock.instant()).thenReturn(NOW);
+    when(dataStore.findByUrl(Measure.class, MEASURE_URL)).thenReturn(Mono.just(measure("1",
+        "title-1")));
+
+    StepVerifier.create(cache.measureByUrl(MEASURE_URL)).expectNextCount(1).verifyComplete();
+    var result = cache.measure(MEASURE_ID);
+
+    StepVerifier.create(result)
+        .assertNext(measure -> assertThat(measure.title()).contains("title-1"))
+        .verifyComplete();
+    StepVerifier.create(cache.measureByUrl(MEASURE_URL)).expectNextCount(1).verifyComplete();
+    verify(dataStore, times(1)).findByUrl(Measure.class, MEASURE_URL);
+    verifyNoMoreInteractions(dataStore);
+  }
+
+  @Test
+  void measureByUrl_withVersion() {
+    when(clock.instant()).thenReturn(NOW);
+    when(dataStore.findByUrl(Measure.class, MEASURE_URL, "1.0.0")).thenReturn(Mono.just(measure(
+        "1", "title-1")));
+
+    var result = cache.measureByUrl(MEASURE_URL + "|1.0.0");
+
+    StepVerifier.create(result).expectNextCount(1).verifyComplete();
+  }
+
+  @Test
+  void measureByUrl_notFound() {
+    when(dataStore.findByUrl(Measure.class, MEASURE_URL)).thenReturn(Mono.empty());
+
+    var result = cache.measureByUrl(MEASURE_URL);
+
+    StepVerifier.create(result).verifyComplete();
+  }
+
+  @Test
+  void measureByUrl_deleted() {
+    when(clock.instant()).thenReturn(NOW, NOW.plus(MAX_AGE));
+    when(dataStore.findByUrl(Measure.class, MEASURE_URL))
+        .thenReturn(Mono.just(measure("1", "title-1"))).thenReturn(Mono.empty());
+
+    StepVerifier.create(cache.measureByUrl(MEASURE_URL)).expectNextCount(1).verifyComplete();
+    var result = cache.measureByUrl(MEASURE_URL);
+
+    StepVerifier.create(result).verifyComplete();
+  }
+
+  /**
+   * Resolves a canonical URL without version to a newly provisioned version of the Measure once
+   * the cached one is expired.
+   */
+  @Test
+  void measureByUrl_newVersion() {
+    when(clock.instant()).thenReturn(NOW, NOW.plus(MAX_AGE));
+    var newMeasure = Measure.draft()
+        .withId("measure-id-112839")
+        .withMeta(new Meta(Optional.of("1"), Optional.empty()))
+        .withUrl(MEASURE_URL)
+        .withVersion("2.0.0")
+        .withTitle("title-2")
+        .build();
+    when(dataStore.findByUrl(Measure.class, MEASURE_URL))
+        .thenReturn(Mono.just(measure("1", "title-1"))).thenReturn(Mono.just(newMeasure));
+
+    StepVerifier.create(cache.measureByUrl(MEASURE_URL)).expectNextCount(1).verifyComplete();
+    var result = cache.measureByUrl(MEASURE_URL);
+
+    StepVerifier.create(result)
+        .assertNext(measure -> {
+          assertThat(measure.id()).isEqualTo("measure-id-112839");
+          assertThat(measure.title()).contains("title-2");
+        })
+        .verifyComplete();
+  }
+
+  @Test
+  void libraryByUrl() {
+    when(clock.instant()).thenReturn(NOW);
+    when(dataStore.findByUrl(Library.class, LIBRARY_URL)).thenReturn(Mono.just(
+        Library.builder(Code.valueOf("active"))
+            .withId(LIBRARY_ID)
+            .withUrl(LIBRARY_URL)
+            .withType(CodeableConcept.text("logic-library"))
+            .withContent(List.of(Attachment.builder()
+                .withContentType(Code.valueOf("text/cql"))
+                .withData(Base64Binary.encoded("library Foo".getBytes(UTF_8)))
+                .build()))
+            .build()));
+
+    var result = cache.libraryByUrl(LIBRARY_URL);
+
+    StepVerifier.create(result)
+        .assertNext(library -> {
+          assertThat(library.id()).isEqualTo(LIBRARY_ID);
+          assertThat(library.cql()).contains("library Foo");
+        })
+        .verifyComplete();
+  }
+
+  private static Measure measure(String versionId, String title) {
+    return Measure.draft()
+        .withId(MEASURE_ID)
+        .withMeta(new Meta(Optional.of(versionId), Optional.empty()))
+        .withUrl(MEASURE_URL)
+        .withTitle(title)
+        .withLibrary(List.of(Canonical.valueOf(LIBRARY_URL)))
+        .build();
+  }
+}
@@ -0,0 +1,162 @@
+package de.samply.reporthub.service.fhir.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.samply.reporthub.model.fhir.Task;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.util.List;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+class ConditionalReadCacheTest {
+
+  private static final String TASK = """
+      {"resourceType": "Task", "id": "0", "status": "ready", "intent": "order"}""";
+
+  private MockWebServer server;
+  private SimpleMeterRegistry registry;
+  private ConditionalReadCache cache;
+  private WebClient client;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+
+    registry = new SimpleMeterRegistry();
+    cache = new ConditionalReadCache("test", registry);
+    client = WebClient.builder()
+        .baseUrl("http://localhost:%d".formatted(server.getPort()))
+        .filter(cache)
+        .build();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  void read_hit() throws InterruptedException {
+    server.enqueue(taskResponse());
+    server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "W/\"1\""));
+
+    var task1 = fetchTask();
+    var task2 = fetchTask();
+
+    assertThat(task2).isSameAs(task1);
+    assertThat(server.takeRequest().getHeader("If-None-Match")).isNull();
+    assertThat(server.takeRequest().getHeader("If-None-Match")).isEqualTo("W/\"1\"");
+    assertThat(registry.get("reporthub.store.cache.hits").counter().count()).isEqualTo(1);
+    assertThat(registry.get("reporthub.store.cache.misses").counter().count()).isEqualTo(1);
+    assertThat(registry.get("reporthub.store.cache.bytes.saved").counter().count())
+        .isEqualTo(TASK.length());
+    assertThat(registry.get("reporthub.store.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+  }
+
+  /**
+   * Counts the size of the cached body also for chunked responses without Content-Length.
+   */
+  @Test
+  void read_hitChunked() {
+    server.enqueue(taskResponse().setChunkedBody(TASK, 8));
+    server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "W/\"1\""));
+
+    fetchTask();
+    fetchTask();
+
+    assertThat(registry.get("reporthub.store.cache.bytes.saved").counter().count())
+        .isEqualTo(TASK.length());
+  }
+
+  @Test
+  void read_withoutETag() throws InterruptedException {
+    server.enqueue(taskResponse().removeHeader("ETag"));
+    server.enqueue(taskResponse().removeHeader("ETag"));
+
+    fetchTask();
+    fetchTask();
+
+    server.takeRequest();
+    assertThat(server.takeRequest().getHeader("If-None-Match")).isNull();
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void write_invalidates() throws InterruptedException {
+    server.enqueue(taskResponse());
+    server.enqueue(new MockResponse().setResponseCode(200));
+    server.enqueue(taskResponse());
+
+    fetchTask();
+    client.put().uri("/Task/0").retrieve().toBodilessEntity().block();
+    fetchTask();
+
+    server.takeRequest();
+    server.takeRequest();
+    assertThat(server.takeRequest().getHeader("If-None-Match")).isNull();
+  }
+
+  /**
+   * Doesn't cache the resource of a read which was in flight while the resource was written.
+   */
+  @Test
+  void write_duringRead() {
+    server.enqueue(taskResponse());
+    server.enqueue(new MockResponse().setResponseCode(200));
+
+    client.get().uri("/Task/0")
+        .exchangeToMono(response -> client.put().uri("/Task/0").retrieve().toBodilessEntity()
+            .then(cache.read(response, Task.class)))
+        .block();
+
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void write_otherResource() {
+    server.enqueue(taskResponse());
+    server.enqueue(new MockResponse().setResponseCode(201));
+
+    fetchTask();
+    client.post().uri("/MeasureReport").retrieve().toBodilessEntity().block();
+
+    assertThat(cache.size()).isOne();
+  }
+
+  @Test
+  void bounded() {
+    cache = new ConditionalReadCache("test", registry, 2);
+    client = client.mutate().filters(List::clear).filter(cache).build();
+    for (int i = 0; i < 3; i++) {
+      server.enqueue(taskResponse());
+      client.get().uri("/Task/{id}", i)
+          .exchangeToMono(response -> cache.read(response, Task.class))
+          .block();
+    }
+
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  private Task fetchTask() {
+    return client.get().uri("/Task/0")
+        .exchangeToMono(response -> switch (response.statusCode().value()) {
+          case 200, 304 -> cache.read(response, Task.class);
+          default -> response.createException().flatMap(Mono::error);
+        })
+        .block();
+  }
+
+  private static MockResponse taskResponse() {
+    return new MockResponse()
+        .setHeader("Content-Type", "application/fhir+json")
+        .setHeader("ETag", "W/\"1\"")
+        .setBody(TASK);
+  }
+}
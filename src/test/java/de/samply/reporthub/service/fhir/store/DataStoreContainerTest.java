@@ -5,6 +5,7 @@ import static org.springframework.http.MediaType.APPLICATION_JSON;
 
 import de.samply.reporthub.Util;
 import de.samply.reporthub.model.fhir.CapabilityStatement.Software;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
@@ -49,7 +50,7 @@ class DataStoreContainerTest {
           configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(Util.mapper()));
         })
         .build();
-    dataStore = new DataStore(webClient);
+    dataStore = new DataStore(webClient, new SimpleMeterRegistry());
   }
 
   @Test
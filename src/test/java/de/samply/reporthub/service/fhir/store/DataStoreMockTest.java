@@ -1,11 +1,16 @@
 package de.samply.reporthub.service.fhir.store;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException.InternalServerError;
 import reactor.test.StepVerifier;
@@ -21,7 +26,8 @@ public class DataStoreMockTest {
     server = new MockWebServer();
     server.start();
 
-    dataStore = new DataStore(WebClient.create("http://localhost:%d".formatted(server.getPort())));
+    dataStore = new DataStore(WebClient.create("http://localhost:%d".formatted(server.getPort())),
+        new SimpleMeterRegistry());
   }
 
   @AfterEach
@@ -37,4 +43,52 @@ public class DataStoreMockTest {
 
     StepVerifier.create(result).expectError(InternalServerError.class).verify();
   }
+
+  @Test
+  void ping() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody("{\"resourceType\":\"CapabilityStatement\"}"));
+
+    var result = dataStore.ping();
+
+    StepVerifier.create(result).verifyComplete();
+    assertThat(server.takeRequest().getPath()).isEqualTo("/metadata?_summary=true");
+  }
+
+  @Test
+  void ping_500() {
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    var result = dataStore.ping();
+
+    StepVerifier.create(result).expectError(InternalServerError.class).verify();
+  }
+
+  /**
+   * Tests that the raw MeasureReport is passed through as it is, even if it's larger than the
+   * in-memory limit of the codecs.
+   */
+  @Test
+  void evaluateMeasureRaw() throws InterruptedException {
+    var body = "{\"resourceType\":\"MeasureReport\",\"id\":\"%s\"}"
+        .formatted("x".repeat(1 << 20));
+    server.enqueue(new MockResponse().setResponseCode(200)
+        .setHeader("Content-Type", "application/fhir+json")
+        .setBody(body));
+
+    var result = DataBufferUtils.join(dataStore.evaluateMeasureRaw("url-171217"))
+        .map(buffer -> buffer.toString(StandardCharsets.UTF_8));
+
+    StepVerifier.create(result).expectNext(body).verifyComplete();
+    assertThat(server.takeRequest().getPath())
+        .isEqualTo("/Measure/$evaluate-measure?measure=url-171217&periodStart=1900&periodEnd=2200");
+  }
+
+  @Test
+  void evaluateMeasureRaw_500() {
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    var result = dataStore.evaluateMeasureRaw("url-171217");
+
+    StepVerifier.create(result).expectError(InternalServerError.class).verify();
+  }
 }
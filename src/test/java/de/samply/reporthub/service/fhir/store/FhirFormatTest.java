@@ -0,0 +1,28 @@
+package de.samply.reporthub.service.fhir.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class FhirFormatTest {
+
+  @Test
+  void of() {
+    assertThat(FhirFormat.of("json")).isEqualTo(FhirFormat.JSON);
+    assertThat(FhirFormat.of(" Smile ")).isEqualTo(FhirFormat.SMILE);
+    assertThat(FhirFormat.of("JSON")).isEqualTo(FhirFormat.JSON);
+  }
+
+  @Test
+  void of_unknown() {
+    assertThatThrownBy(() -> FhirFormat.of("cbor")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void accept() {
+    assertThat(FhirFormat.JSON.accept()).isEqualTo("application/fhir+json");
+    assertThat(FhirFormat.SMILE.accept())
+        .isEqualTo("application/x-jackson-smile, application/fhir+json;q=0.9");
+  }
+}
@@ -0,0 +1,32 @@
+package de.samply.reporthub.service.fhir.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class ResourceLocationTest {
+
+  @Test
+  void parse_withVersion() {
+    var location = ResourceLocation.parse(
+        "http://localhost:8080/fhir/MeasureReport/id-172012/_history/42");
+
+    assertThat(location).contains(
+        new ResourceLocation("MeasureReport", "id-172012", Optional.of("42")));
+  }
+
+  @Test
+  void parse_withoutVersion() {
+    var location = ResourceLocation.parse("MeasureReport/id-172012");
+
+    assertThat(location).contains(
+        new ResourceLocation("MeasureReport", "id-172012", Optional.empty()));
+  }
+
+  @Test
+  void parse_invalid() {
+    assertThat(ResourceLocation.parse("http://localhost:8080/fhir")).isEmpty();
+    assertThat(ResourceLocation.parse("")).isEmpty();
+  }
+}
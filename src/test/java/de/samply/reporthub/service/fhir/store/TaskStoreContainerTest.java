@@ -14,6 +14,7 @@ import de.samply.reporthub.model.fhir.Identifier;
 import de.samply.reporthub.model.fhir.MeasureReport;
 import de.samply.reporthub.model.fhir.MeasureReportStatus;
 import de.samply.reporthub.model.fhir.Task;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -63,7 +64,7 @@ class TaskStoreContainerTest {
           configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(Util.mapper()));
         })
         .build();
-    taskStore = new TaskStore(webClient);
+    taskStore = new TaskStore(webClient, FhirFormat.JSON, new SimpleMeterRegistry());
   }
 
   @Test
@@ -8,16 +8,26 @@ import de.samply.reporthub.model.fhir.Code;
 import de.samply.reporthub.model.fhir.MeasureReport;
 import de.samply.reporthub.model.fhir.MeasureReportStatus;
 import de.samply.reporthub.model.fhir.OperationOutcome;
+import de.samply.reporthub.model.fhir.Task;
+import de.samply.reporthub.model.fhir.TaskStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.function.Consumer;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException.InternalServerError;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
 public class TaskStoreMockTest {
@@ -35,7 +45,8 @@ public class TaskStoreMockTest {
     server = new MockWebServer();
     server.start();
 
-    taskStore = new TaskStore(WebClient.create("http://localhost:%d".formatted(server.getPort())));
+    taskStore = new TaskStore(WebClient.create("http://localhost:%d".formatted(server.getPort())),
+        FhirFormat.JSON, new SimpleMeterRegistry());
   }
 
   @AfterEach
@@ -52,6 +63,25 @@ public class TaskStoreMockTest {
     StepVerifier.create(result).expectError(InternalServerError.class).verify();
   }
 
+  @Test
+  void ping() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody("{\"resourceType\":\"CapabilityStatement\"}"));
+
+    var result = taskStore.ping();
+
+    StepVerifier.create(result).verifyComplete();
+    assertThat(server.takeRequest().getPath()).isEqualTo("/metadata?_summary=true");
+  }
+
+  @Test
+  void ping_500() {
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    var result = taskStore.ping();
+
+    StepVerifier.create(result).expectError(InternalServerError.class).verify();
+  }
+
   @Test
   void fetchTask_404() {
     server.enqueue(new MockResponse().setResponseCode(404));
@@ -122,6 +152,103 @@ public class TaskStoreMockTest {
         .verify();
   }
 
+  @Test
+  void createTasks() throws InterruptedException {
+    server.enqueue(new MockResponse()
+        .setHeader("Content-Type", "application/fhir+json")
+        .setBody("""
+            {"resourceType": "Bundle", "type": "transaction-response", "entry": [
+              {"resource": {"resourceType": "Task", "id": "%s", "status": "ready",
+                            "intent": "order"}},
+              {"resource": {"resourceType": "Task", "id": "id-121011", "status": "ready",
+                            "intent": "order"}}]}""".formatted(TASK_ID)));
+
+    var result = taskStore.createTasks(List.of(Task.ready().build(), Task.ready().build()));
+
+    StepVerifier.create(result)
+        .assertNext(task -> assertThat(task.id()).contains(TASK_ID))
+        .assertNext(task -> assertThat(task.id()).contains("id-121011"))
+        .verifyComplete();
+    var request = server.takeRequest();
+    assertThat(request.getMethod()).isEqualTo("POST");
+    assertThat(request.getPath()).isEqualTo("/");
+    assertThat(request.getBody().readUtf8())
+        .contains("\"type\":\"transaction\"")
+        .contains("\"request\":{\"method\":\"POST\",\"url\":\"Task\"}");
+  }
+
+  @Test
+  void fetchTaskHistory_followsNextLink() throws InterruptedException {
+    server.enqueue(new MockResponse()
+        .setHeader("Content-Type", "application/fhir+json")
+        .setBody("""
+            {"resourceType": "Bundle", "type": "history",
+             "link": [{"relation": "next", "url": "%s"}],
+             "entry": [{"resource": {"resourceType": "Task", "id": "%s", "status": "completed",
+                                     "intent": "order"}}]}"""
+            .formatted(server.url("/Task/%s/_history?page=2".formatted(TASK_ID)), TASK_ID)));
+    server.enqueue(new MockResponse()
+        .setHeader("Content-Type", "application/fhir+json")
+        .setBody("""
+            {"resourceType": "Bundle", "type": "history",
+             "entry": [{"resource": {"resourceType": "Task", "id": "%s", "status": "ready",
+                                     "intent": "order"}}]}""".formatted(TASK_ID)));
+
+    var result = taskStore.fetchTaskHistory(TASK_ID, 1);
+
+    StepVerifier.create(result)
+        .assertNext(task -> assertThat(task.status()).matches(TaskStatus.COMPLETED))
+        .assertNext(task -> assertThat(task.status()).matches(TaskStatus.READY))
+        .verifyComplete();
+    assertThat(server.takeRequest().getPath())
+        .isEqualTo("/Task/%s/_history?_count=1".formatted(TASK_ID));
+    assertThat(server.takeRequest().getPath())
+        .isEqualTo("/Task/%s/_history?page=2".formatted(TASK_ID));
+  }
+
+  @Test
+  void listTasksUpdatedSince_followsNextLink() throws InterruptedException {
+    server.enqueue(new MockResponse()
+        .setHeader("Content-Type", "application/fhir+json")
+        .setBody("""
+            {"resourceType": "Bundle", "type": "searchset",
+             "link": [{"relation": "next", "url": "%s"}],
+             "entry": [{"resource": {"resourceType": "Task", "id": "0", "status": "ready",
+                                     "intent": "order"}}]}"""
+            .formatted(server.url("/Task?page=2"))));
+    server.enqueue(new MockResponse()
+        .setHeader("Content-Type", "application/fhir+json")
+        .setBody("""
+            {"resourceType": "Bundle", "type": "searchset",
+             "entry": [{"resource": {"resourceType": "Task", "id": "1", "status": "ready",
+                                     "intent": "order"}}]}"""));
+
+    var result = taskStore.listTasksUpdatedSince(Instant.EPOCH, 1);
+
+    StepVerifier.create(result)
+        .assertNext(task -> assertThat(task.id()).contains("0"))
+        .assertNext(task -> assertThat(task.id()).contains("1"))
+        .verifyComplete();
+    assertThat(server.takeRequest().getPath())
+        .isEqualTo("/Task?_lastUpdated=ge1970-01-01T00:00:00Z&_sort=_lastUpdated&_count=1");
+    assertThat(server.takeRequest().getPath()).isEqualTo("/Task?page=2");
+  }
+
+  @Test
+  void listTasksUpdatedSince_badRequestOnNextPage() {
+    server.enqueue(new MockResponse()
+        .setHeader("Content-Type", "application/fhir+json")
+        .setBody("""
+            {"resourceType": "Bundle", "type": "searchset",
+             "link": [{"relation": "next", "url": "%s"}]}"""
+            .formatted(server.url("/Task?page=2"))));
+    server.enqueue(new MockResponse().setResponseCode(400));
+
+    var result = taskStore.listTasksUpdatedSince(Instant.EPOCH, 1);
+
+    StepVerifier.create(result).expectError(BadRequestException.class).verify();
+  }
+
   @Test
   void fetchMeasureReport_404() {
     server.enqueue(new MockResponse().setResponseCode(404));
@@ -133,6 +260,26 @@ public class TaskStoreMockTest {
         .verify();
   }
 
+  @Test
+  void listMeasureReportsUpdatedSince() throws InterruptedException {
+    server.enqueue(new MockResponse()
+        .setHeader("Content-Type", "application/fhir+json")
+        .setBody("""
+            {"resourceType": "Bundle", "type": "searchset", "entry": [{"resource":
+              {"resourceType": "MeasureReport", "id": "%s", "status": "complete",
+               "type": "summary", "measure": "foo"}}]}""".formatted(MEASURE_REPORT_ID)));
+
+    var result = taskStore.listMeasureReportsUpdatedSince("http://foo.com/Measure/bar?a=1",
+        MeasureReportStatus.COMPLETE, Instant.EPOCH, 10);
+
+    StepVerifier.create(result)
+        .expectNextMatches(measureReport -> measureReport.id().orElseThrow()
+            .equals(MEASURE_REPORT_ID))
+        .verifyComplete();
+    assertThat(server.takeRequest().getRequestUrl().queryParameter("measure"))
+        .isEqualTo("http://foo.com/Measure/bar?a=1");
+  }
+
   @Test
   void createMeasureReport_BadRequest() {
     server.enqueue(new MockResponse().setResponseCode(400)
@@ -149,6 +296,58 @@ public class TaskStoreMockTest {
     StepVerifier.create(result).expectError(BadRequestException.class).verify();
   }
 
+  @Test
+  void createMeasureReport_raw() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(201)
+        .setHeader("Location", "http://localhost/fhir/MeasureReport/%s/_history/1"
+            .formatted(MEASURE_REPORT_ID)));
+    var body = """
+        {"resourceType":"MeasureReport","status":"complete"}""";
+
+    var result = taskStore.createMeasureReport(Flux.just(dataBuffer(body)));
+
+    StepVerifier.create(result)
+        .expectNext(new ResourceLocation("MeasureReport", MEASURE_REPORT_ID, Optional.of("1")))
+        .verifyComplete();
+    var request = server.takeRequest();
+    assertThat(request.getMethod()).isEqualTo("POST");
+    assertThat(request.getPath()).isEqualTo("/MeasureReport");
+    assertThat(request.getHeader("Prefer")).isEqualTo("return=minimal");
+    assertThat(request.getBody().readUtf8()).isEqualTo(body);
+  }
+
+  @Test
+  void createMeasureReport_raw_missingLocation() {
+    server.enqueue(new MockResponse().setResponseCode(201));
+
+    var result = taskStore.createMeasureReport(Flux.just(dataBuffer("{}")));
+
+    StepVerifier.create(result)
+        .expectErrorMessage("Missing or invalid Location header in MeasureReport create response.")
+        .verify();
+  }
+
+  @Test
+  void createMeasureReport_raw_BadRequest() {
+    server.enqueue(new MockResponse().setResponseCode(400)
+        .setHeader("Content-Type", "application/fhir+json")
+        .setBody("""
+            {"resourceType" : "OperationOutcome",
+             "id" : "%s"}
+            """.formatted(OPERATION_OUTCOME_ID)));
+
+    var result = taskStore.createMeasureReport(Flux.just(dataBuffer("{}")));
+
+    StepVerifier.create(result)
+        .expectErrorSatisfies(new BadRequestAssert(operationOutcome ->
+            assertThat(operationOutcome.id()).contains(OPERATION_OUTCOME_ID)))
+        .verify();
+  }
+
+  private static DataBuffer dataBuffer(String s) {
+    return DefaultDataBufferFactory.sharedInstance.wrap(s.getBytes(StandardCharsets.UTF_8));
+  }
+
   record BadRequestAssert(Consumer<OperationOutcome> operationOutcomeRequirements) implements
       Consumer<Throwable> {
 
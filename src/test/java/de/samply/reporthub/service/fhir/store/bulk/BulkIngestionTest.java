@@ -0,0 +1,131 @@
+package de.samply.reporthub.service.fhir.store.bulk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.samply.reporthub.Util;
+import de.samply.reporthub.service.fhir.store.DataStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException.InternalServerError;
+import reactor.test.StepVerifier;
+
+class BulkIngestionTest {
+
+  private MockWebServer server;
+
+  private BulkIngestion ingestion;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+
+    var dataStore = new DataStore(WebClient.create("http://localhost:%d".formatted(
+        server.getPort())), new SimpleMeterRegistry());
+    ingestion = new BulkIngestion(dataStore, Util.mapper(), Duration.ofMillis(10),
+        Duration.ofSeconds(10), 16);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  void ingest() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(202)
+        .setHeader("Content-Location", server.url("/status/1")));
+    server.enqueue(new MockResponse().setResponseCode(202).setHeader("Retry-After", "0"));
+    server.enqueue(new MockResponse().setResponseCode(202));
+    server.enqueue(new MockResponse().setResponseCode(200)
+        .setHeader("Content-Type", "application/json")
+        .setBody("""
+            {"transactionTime": "2022-07-26T12:00:00Z",
+             "output": [{"type": "Patient", "url": "%s"},
+                        {"type": "Specimen", "url": "%s", "count": 1}]}
+            """.formatted(server.url("/output/1.ndjson"), server.url("/output/2.ndjson"))));
+    server.enqueue(new MockResponse().setResponseCode(200)
+        .setHeader("Content-Type", "application/fhir+ndjson")
+        .setBody("""
+            {"resourceType": "Patient", "id": "0"}
+            {"resourceType": "Patient", "id": "1"}
+            """));
+    server.enqueue(new MockResponse().setResponseCode(200)
+        .setHeader("Content-Type", "application/fhir+ndjson")
+        .setBody("""
+            {"resourceType": "Specimen", "id": "0"}"""));
+    server.enqueue(new MockResponse().setResponseCode(202));
+
+    var result = ingestion.ingest(List.of("Patient", "Specimen"), JsonNode.class,
+        Collectors.groupingBy(node -> node.get("resourceType").asText(), Collectors.counting()));
+
+    StepVerifier.create(result)
+        .expectNext(Map.of("Patient", 2L, "Specimen", 1L))
+        .verifyComplete();
+    assertThat(server.takeRequest().getPath()).isEqualTo("/$export?_type=Patient,Specimen");
+    assertThat(server.takeRequest().getPath()).isEqualTo("/status/1");
+    assertThat(server.takeRequest().getPath()).isEqualTo("/status/1");
+    assertThat(server.takeRequest().getPath()).isEqualTo("/status/1");
+    assertThat(server.takeRequest().getHeader("Accept")).isEqualTo("application/fhir+ndjson");
+    assertThat(server.takeRequest().getPath()).isEqualTo("/output/2.ndjson");
+    assertThat(server.takeRequest().getMethod()).isEqualTo("DELETE");
+  }
+
+  /**
+   * Deletes the export also if reading an output file fails.
+   */
+  @Test
+  void ingest_outputError() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(202)
+        .setHeader("Content-Location", server.url("/status/1")));
+    server.enqueue(new MockResponse().setResponseCode(200)
+        .setHeader("Content-Type", "application/json")
+        .setBody("""
+            {"transactionTime": "2022-07-26T12:00:00Z",
+             "output": [{"type": "Patient", "url": "%s"}]}
+            """.formatted(server.url("/output/1.ndjson"))));
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse().setResponseCode(202));
+
+    var result = ingestion.resources(List.of(), JsonNode.class);
+
+    StepVerifier.create(result).expectError(InternalServerError.class).verify();
+    server.takeRequest();
+    server.takeRequest();
+    server.takeRequest();
+    var request = server.takeRequest();
+    assertThat(request.getMethod()).isEqualTo("DELETE");
+    assertThat(request.getPath()).isEqualTo("/status/1");
+  }
+
+  @Test
+  void ingest_kickOffError() {
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    var result = ingestion.resources(List.of(), JsonNode.class);
+
+    StepVerifier.create(result).expectError(InternalServerError.class).verify();
+  }
+
+  @Test
+  void ingest_missingContentLocation() {
+    server.enqueue(new MockResponse().setResponseCode(202));
+
+    var result = ingestion.resources(List.of(), JsonNode.class);
+
+    StepVerifier.create(result)
+        .expectErrorMessage("Missing Content-Location header in bulk export kick-off response.")
+        .verify();
+  }
+}
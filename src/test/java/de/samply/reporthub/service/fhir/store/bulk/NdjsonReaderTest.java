@@ -0,0 +1,63 @@
+package de.samply.reporthub.service.fhir.store.bulk;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import reactor.test.StepVerifier;
+
+class NdjsonReaderTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void lines_empty() throws IOException {
+    var file = write("");
+
+    var lines = NdjsonReader.lines(file, NdjsonReader.DEFAULT_CHUNK_SIZE);
+
+    StepVerifier.create(lines).verifyComplete();
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 2, 3, 7, 1024})
+  void lines_acrossChunkBoundaries(int chunkSize) throws IOException {
+    var file = write("{\"a\":1}\n\n{\"b\":\"äöü\"}\r\n{\"c\":3}");
+
+    var lines = NdjsonReader.lines(file, chunkSize);
+
+    StepVerifier.create(lines)
+        .expectNext("{\"a\":1}", "{\"b\":\"äöü\"}", "{\"c\":3}")
+        .verifyComplete();
+  }
+
+  @Test
+  void lines_trailingNewline() throws IOException {
+    var file = write("{\"a\":1}\n");
+
+    var lines = NdjsonReader.lines(file, 4);
+
+    StepVerifier.create(lines).expectNext("{\"a\":1}").verifyComplete();
+  }
+
+  @Test
+  void lines_longLine() throws IOException {
+    var line = "x".repeat(10_000);
+    var file = write(line + "\n" + line);
+
+    var lines = NdjsonReader.lines(file, 100).collectList().block();
+
+    assertThat(lines).containsExactly(line, line);
+  }
+
+  private Path write(String content) throws IOException {
+    return Files.write(dir.resolve("file.ndjson"), content.getBytes(UTF_8));
+  }
+}
@@ -0,0 +1,183 @@
+package de.samply.reporthub.service.provisioning;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.samply.reporthub.Util;
+import de.samply.reporthub.model.fhir.ActivityDefinition;
+import de.samply.reporthub.model.fhir.Bundle;
+import de.samply.reporthub.model.fhir.CanonicalResource;
+import de.samply.reporthub.model.fhir.Bundle.Entry.Request;
+import de.samply.reporthub.model.fhir.Code;
+import de.samply.reporthub.model.fhir.Library;
+import de.samply.reporthub.model.fhir.Measure;
+import de.samply.reporthub.model.fhir.Meta;
+import de.samply.reporthub.service.fhir.store.DataStore;
+import de.samply.reporthub.service.fhir.store.TaskStore;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactProvisionerTest {
+
+  private static final String LOCATION = "classpath*:de/samply/reporthub/exliquid/";
+  private static final String ACTIVITY_DEFINITION_URL =
+      "https://dktk.dkfz.de/fhir/ActivityDefinition/generate-exliquid-dashboard-report";
+  private static final String LIBRARY_URL = "https://dktk.dkfz.de/fhir/Library/exliquid-dashboard";
+  private static final String MEASURE_URL = "https://dktk.dkfz.de/fhir/Measure/exliquid-dashboard";
+
+  @Mock
+  private TaskStore taskStore;
+
+  @Mock
+  private DataStore dataStore;
+
+  private ArtifactProvisioner provisioner;
+  private List<Artifact<?>> artifacts;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    var mapper = Util.mapper();
+    provisioner = new ArtifactProvisioner(taskStore, dataStore, mapper, LOCATION);
+    artifacts = new ArtifactLoader(new PathMatchingResourcePatternResolver(), mapper,
+        new ArtifactHasher(mapper)).load(LOCATION);
+  }
+
+  @Test
+  void load() {
+    assertThat(artifacts).extracting(Artifact::url)
+        .containsExactly(ACTIVITY_DEFINITION_URL, LIBRARY_URL, MEASURE_URL);
+    assertThat(artifact(Library.class).content()).hasSize(1);
+    assertThat(artifact(ActivityDefinition.class).version()).contains("0.1.0");
+  }
+
+  @Test
+  void provision_allNew() {
+    when(taskStore.findByUrl(ActivityDefinition.class, ACTIVITY_DEFINITION_URL, "0.1.0"))
+        .thenReturn(Mono.empty());
+    when(dataStore.findByUrl(Library.class, LIBRARY_URL)).thenReturn(Mono.empty());
+    when(dataStore.findByUrl(Measure.class, MEASURE_URL)).thenReturn(Mono.empty());
+    when(taskStore.transact(any())).thenReturn(Mono.just(Bundle.transaction().build()));
+    when(dataStore.transact(any())).thenReturn(Mono.just(Bundle.transaction().build()));
+
+    StepVerifier.create(provisioner.provision()).verifyComplete();
+
+    assertThat(requests(taskStore)).containsExactly(Request.builder()
+        .withMethod(Code.valueOf("POST"))
+        .withUrl("ActivityDefinition")
+        .withIfNoneExist("url=%s&version=0.1.0".formatted(ACTIVITY_DEFINITION_URL))
+        .build());
+    assertThat(requests(dataStore)).extracting(Request::url)
+        .containsExactlyInAnyOrder("Library", "Measure");
+  }
+
+  @Test
+  void provision_upToDate() {
+    when(taskStore.findByUrl(ActivityDefinition.class, ACTIVITY_DEFINITION_URL, "0.1.0"))
+        .thenReturn(Mono.just(stored(artifact(ActivityDefinition.class))));
+    when(dataStore.findByUrl(Library.class, LIBRARY_URL))
+        .thenReturn(Mono.just(stored(artifact(Library.class))));
+    when(dataStore.findByUrl(Measure.class, MEASURE_URL))
+        .thenReturn(Mono.just(stored(artifact(Measure.class))));
+
+    StepVerifier.create(provisioner.provision()).verifyComplete();
+
+    verify(taskStore, never()).transact(any());
+    verify(dataStore, never()).transact(any());
+  }
+
+  @Test
+  void provision_changedLibrary() {
+    when(taskStore.findByUrl(ActivityDefinition.class, ACTIVITY_DEFINITION_URL, "0.1.0"))
+        .thenReturn(Mono.just(stored(artifact(ActivityDefinition.class))));
+    when(dataStore.findByUrl(Library.class, LIBRARY_URL))
+        .thenReturn(Mono.just(Library.builder(Code.valueOf("active"))
+            .withType(artifact(Library.class).type())
+            .withUrl(LIBRARY_URL)
+            .withId("id-1")
+            .withMeta(new Meta(Optional.of("42"), Optional.empty()))
+            .build()));
+    when(dataStore.findByUrl(Measure.class, MEASURE_URL))
+        .thenReturn(Mono.just(stored(artifact(Measure.class))));
+    when(dataStore.transact(any())).thenReturn(Mono.just(Bundle.transaction().build()));
+
+    StepVerifier.create(provisioner.provision()).verifyComplete();
+
+    verify(taskStore, never()).transact(any());
+    var bundle = transaction(dataStore);
+    assertThat(bundle.entry()).hasSize(1);
+    assertThat(bundle.entry().get(0).request()).contains(Request.builder()
+        .withMethod(Code.valueOf("PUT"))
+        .withUrl("Library/id-1")
+        .withIfMatch("W/\"42\"")
+        .build());
+    assertThat(bundle.entry().get(0).resource()).contains(artifact(Library.class).withId("id-1"));
+  }
+
+  @Test
+  void provision_nonTransientError() {
+    // the TaskStore may be cancelled before its transaction is started
+    lenient().when(taskStore.findByUrl(ActivityDefinition.class, ACTIVITY_DEFINITION_URL,
+        "0.1.0")).thenReturn(Mono.empty());
+    when(dataStore.findByUrl(Library.class, LIBRARY_URL)).thenReturn(Mono.empty());
+    when(dataStore.findByUrl(Measure.class, MEASURE_URL)).thenReturn(Mono.empty());
+    lenient().when(taskStore.transact(any()))
+        .thenReturn(Mono.just(Bundle.transaction().build()));
+    when(dataStore.transact(any())).thenReturn(Mono.error(
+        WebClientResponseException.create(400, "Bad Request", null, null, null)));
+
+    StepVerifier.create(provisioner.provision())
+        .expectError(WebClientResponseException.BadRequest.class)
+        .verify();
+  }
+
+  @Test
+  void isTransient() {
+    assertThat(ArtifactProvisioner.isTransient(
+        WebClientResponseException.create(503, "Service Unavailable", null, null, null))).isTrue();
+    assertThat(ArtifactProvisioner.isTransient(
+        WebClientResponseException.create(412, "Precondition Failed", null, null, null))).isTrue();
+    assertThat(ArtifactProvisioner.isTransient(
+        WebClientResponseException.create(400, "Bad Request", null, null, null))).isFalse();
+    assertThat(ArtifactProvisioner.isTransient(new Exception())).isFalse();
+  }
+
+  private <T extends CanonicalResource<T>> T artifact(
+      Class<T> type) {
+    return artifacts.stream().filter(a -> a.type() == type).findFirst()
+        .map(a -> type.cast(a.resource())).orElseThrow();
+  }
+
+  private static <T extends CanonicalResource<T>> T stored(
+      T resource) {
+    return resource.withId("id-0");
+  }
+
+  private static Bundle transaction(Object store) {
+    var captor = ArgumentCaptor.forClass(Bundle.class);
+    if (store instanceof TaskStore taskStore) {
+      verify(taskStore).transact(captor.capture());
+    } else {
+      verify((DataStore) store).transact(captor.capture());
+    }
+    return captor.getValue();
+  }
+
+  private static List<Request> requests(Object store) {
+    return transaction(store).entry().stream().flatMap(e -> e.request().stream()).toList();
+  }
+}
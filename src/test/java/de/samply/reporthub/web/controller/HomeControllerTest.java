@@ -1,32 +1,47 @@
 package de.samply.reporthub.web.controller;
 
 import static de.samply.reporthub.web.controller.ServerResponseAssert.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.SEE_OTHER;
 
-import de.samply.reporthub.dktk.model.fhir.TaskCode;
 import de.samply.reporthub.model.fhir.ActivityDefinition;
-import de.samply.reporthub.model.fhir.CodeableConcept;
 import de.samply.reporthub.model.fhir.Task;
 import de.samply.reporthub.service.TaskCreator;
+import de.samply.reporthub.service.TaskReadModel;
+import de.samply.reporthub.service.TaskReadModel.Page;
+import de.samply.reporthub.service.TaskReadModel.TaskSummary;
 import de.samply.reporthub.service.fhir.store.TaskStore;
 import de.samply.reporthub.web.model.Link;
 import de.samply.reporthub.web.model.TaskLineItem;
 import java.net.URI;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.http.MediaType;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.thymeleaf.spring6.context.webflux.ReactiveDataDriverContextVariable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -42,21 +57,45 @@ class HomeControllerTest {
       .withUrl(ACTIVITY_DEFINITION_URL)
       .build();
   public static final Task TASK = Task.draft().build();
+  private static final int MAX_BULK_TASKS = 4;
 
   @Mock
   private TaskStore taskStore;
 
+  @Mock
+  private TaskReadModel taskReadModel;
+
   @Mock
   private GenericApplicationContext applicationContext;
 
-  @InjectMocks
   private HomeController controller;
 
+  @BeforeEach
+  void setUp() {
+    controller = new HomeController(taskStore, taskReadModel, applicationContext,
+        Duration.ofMinutes(1), MAX_BULK_TASKS);
+  }
+
+  @Test
+  void handle_notReady() {
+    var request = mock(ServerRequest.class);
+
+    var response = controller.handle(request).block();
+
+    assertThat(response)
+        .hasStatusCode(OK)
+        .isRendering()
+        .hasName("home")
+        .containsModelEntry("error", "Tasks are not loaded yet. Please reload this site.");
+  }
+
   @Test
   void handle_empty() {
     var request = mock(ServerRequest.class);
+    when(taskReadModel.isReady()).thenReturn(true);
+    when(taskReadModel.page(0, HomeController.PAGE_SIZE, Optional.empty(), Optional.empty()))
+        .thenReturn(new Page(List.of(), 0, HomeController.PAGE_SIZE, 0));
     when(taskStore.listAllActivityDefinitions()).thenReturn(Flux.empty());
-    when(taskStore.listNewestTasks()).thenReturn(Flux.empty());
 
     var response = controller.handle(request).block();
 
@@ -64,19 +103,21 @@ class HomeControllerTest {
         .hasStatusCode(OK)
         .isRendering()
         .hasName("home")
-        .containsModelEntry("taskLineItems", List.of());
+        .containsModelEntry("hasTasks", false)
+        .hasModelEntrySatisfying("taskLineItems", ReactiveDataDriverContextVariable.class,
+            taskLineItems -> StepVerifier.create(
+                    taskLineItems.getDataStream(ReactiveAdapterRegistry.getSharedInstance()))
+                .verifyComplete());
   }
 
   @Test
   void handle_oneOneTask() {
     var request = mock(ServerRequest.class);
-    var task = Task.ready()
-        .withId(TASK_ID)
-        .withCode(CodeableConcept.coding(TaskCode.EVALUATE_MEASURE.coding()))
-        .withLastModified(LAST_MODIFIED)
-        .build();
+    var task = new TaskSummary(TASK_ID, "evaluate-measure", "ready", LAST_MODIFIED);
+    when(taskReadModel.isReady()).thenReturn(true);
+    when(taskReadModel.page(0, HomeController.PAGE_SIZE, Optional.empty(), Optional.empty()))
+        .thenReturn(new Page(List.of(task), 0, HomeController.PAGE_SIZE, 1));
     when(taskStore.listAllActivityDefinitions()).thenReturn(Flux.empty());
-    when(taskStore.listNewestTasks()).thenReturn(Flux.just(task));
 
     var response = controller.handle(request).block();
 
@@ -84,9 +125,110 @@ class HomeControllerTest {
         .hasStatusCode(OK)
         .isRendering()
         .hasName("home")
-        .containsModelEntry("taskLineItems", List.of(new TaskLineItem(LAST_MODIFIED,
+        .containsModelEntry("hasTasks", true)
+        .hasModelEntrySatisfying("taskLineItems", ReactiveDataDriverContextVariable.class,
+            taskLineItems -> StepVerifier.create(
+                    taskLineItems.getDataStream(ReactiveAdapterRegistry.getSharedInstance()))
+                .expectNext(new TaskLineItem(LAST_MODIFIED,
+                    new Link(URI.create("/task/evaluate-measure/" + TASK_ID), TASK_ID),
+                    "evaluate-measure", "ready"))
+                .verifyComplete());
+  }
+
+  @Test
+  void handle_filteredSecondPage() {
+    var request = mock(ServerRequest.class);
+    when(request.queryParam("status")).thenReturn(Optional.of("ready"));
+    when(request.queryParam("code")).thenReturn(Optional.of(""));
+    when(request.queryParam("page")).thenReturn(Optional.of("1"));
+    when(taskReadModel.isReady()).thenReturn(true);
+    when(taskReadModel.page(1, HomeController.PAGE_SIZE, Optional.of("ready"), Optional.empty()))
+        .thenReturn(new Page(List.of(), 1, HomeController.PAGE_SIZE, 200));
+    when(taskReadModel.statuses()).thenReturn(List.of("completed", "ready"));
+    when(taskStore.listAllActivityDefinitions()).thenReturn(Flux.empty());
+
+    var response = controller.handle(request).block();
+
+    assertThat(response)
+        .hasStatusCode(OK)
+        .isRendering()
+        .hasName("home")
+        .containsModelEntry("status", "ready")
+        .containsModelEntry("code", "all")
+        .containsModelEntry("previousPageLink", Link.of(URI.create("/?status=ready"), "Previous"))
+        .containsModelEntry("nextPageLink", Link.of(URI.create("/?status=ready&page=2"), "Next"))
+        .containsModelEntry("statusFilterLinks", List.of(
+            Link.of(URI.create("/?status=completed"), "completed"),
+            Link.of(URI.create("/?status=ready"), "ready")))
+        .containsModelEntry("allStatusLink", Link.of(URI.create("/"), "all"));
+  }
+
+  @Test
+  void handle_invalidPage() {
+    var request = mock(ServerRequest.class);
+    when(request.queryParam("status")).thenReturn(Optional.empty());
+    when(request.queryParam("code")).thenReturn(Optional.empty());
+    when(request.queryParam("page")).thenReturn(Optional.of("a"));
+    when(taskReadModel.isReady()).thenReturn(true);
+    when(taskReadModel.page(0, HomeController.PAGE_SIZE, Optional.empty(), Optional.empty()))
+        .thenReturn(new Page(List.of(), 0, HomeController.PAGE_SIZE, 0));
+    when(taskStore.listAllActivityDefinitions()).thenReturn(Flux.empty());
+
+    var response = controller.handle(request).block();
+
+    assertThat(response).hasStatusCode(OK);
+  }
+
+  @Test
+  void handle_cachesActivityDefinitions() {
+    var request = mock(ServerRequest.class);
+    when(taskReadModel.isReady()).thenReturn(true);
+    when(taskReadModel.page(0, HomeController.PAGE_SIZE, Optional.empty(), Optional.empty()))
+        .thenReturn(new Page(List.of(), 0, HomeController.PAGE_SIZE, 0));
+    when(taskStore.listAllActivityDefinitions()).thenReturn(Flux.just(ACTIVITY_DEFINITION));
+
+    controller.handle(request).block();
+    controller.handle(request).block();
+
+    verify(taskStore, times(1)).listAllActivityDefinitions();
+  }
+
+  @Test
+  void taskEvents() {
+    var request = mock(ServerRequest.class);
+    when(request.queryParam("id")).thenReturn(Optional.empty());
+    when(taskReadModel.changes()).thenReturn(Flux.empty());
+
+    var response = controller.taskEvents(request).block();
+
+    assertThat(response)
+        .hasStatusCode(OK)
+        .isRendering()
+        .hasName("task-events");
+    assertThat(response.headers().getContentType()).isEqualTo(MediaType.TEXT_EVENT_STREAM);
+  }
+
+  @Test
+  void taskEvents_filteredById() {
+    var task = new TaskSummary(TASK_ID, "evaluate-measure", "ready", LAST_MODIFIED);
+    var otherTask = new TaskSummary("other-id", "evaluate-measure", "ready", LAST_MODIFIED);
+    when(taskReadModel.changes()).thenReturn(Flux.just(otherTask, task));
+
+    var result = controller.taskEvents(Optional.of(TASK_ID));
+
+    StepVerifier.create(result)
+        .expectNext(new TaskLineItem(LAST_MODIFIED,
             new Link(URI.create("/task/evaluate-measure/" + TASK_ID), TASK_ID), "evaluate-measure",
-            "ready")));
+            "ready"))
+        .verifyComplete();
+  }
+
+  @Test
+  void homeUri() {
+    assertThat(HomeController.homeUri(0, Optional.empty(), Optional.empty()))
+        .isEqualTo(URI.create("/"));
+    assertThat(HomeController.homeUri(2, Optional.of("in-progress"), Optional.of("a b")))
+        .isEqualTo(URI.create("/?status=in-progress&code=a%20b&page=2"));
   }
 
   /*@Test
@@ -122,4 +264,131 @@ class HomeControllerTest {
 
     StepVerifier.create(result).expectNext(TASK).verifyComplete();
   }
+
+  /**
+   * Resolves the ActivityDefinition and the TaskCreator only once for all Tasks created.
+   */
+  @Test
+  void formTasks() {
+    var otherUrl = "url-113024";
+    var otherActivityDefinition = ActivityDefinition.active().withUrl(otherUrl).build();
+    var otherTask = Task.ready().build();
+    var formData = new LinkedMultiValueMap<>(Map.of("instantiates",
+        List.of(ACTIVITY_DEFINITION_URL, otherUrl), "count", List.of("2")));
+    when(taskStore.findByUrl(ActivityDefinition.class, ACTIVITY_DEFINITION_URL))
+        .thenReturn(Mono.just(ACTIVITY_DEFINITION));
+    when(taskStore.findByUrl(ActivityDefinition.class, otherUrl))
+        .thenReturn(Mono.just(otherActivityDefinition));
+    var taskCreator = mock(TaskCreator.class);
+    when(applicationContext.getBean(ACTIVITY_DEFINITION_URL, TaskCreator.class))
+        .thenReturn(taskCreator);
+    when(applicationContext.getBean(otherUrl, TaskCreator.class)).thenReturn(taskCreator);
+    when(taskCreator.create(ACTIVITY_DEFINITION)).thenReturn(Mono.just(TASK));
+    when(taskCreator.create(otherActivityDefinition)).thenReturn(Mono.just(otherTask));
+
+    var result = controller.formTasks(formData);
+
+    StepVerifier.create(result)
+        .expectNext(List.of(TASK, TASK, otherTask, otherTask))
+        .verifyComplete();
+    StepVerifier.create(controller.formTask(formData)).expectNext(TASK).verifyComplete();
+    verify(taskStore, times(1)).findByUrl(ActivityDefinition.class, ACTIVITY_DEFINITION_URL);
+    verify(applicationContext, times(1)).getBean(ACTIVITY_DEFINITION_URL, TaskCreator.class);
+  }
+
+  @Test
+  void formTasks_tooMany() {
+    var formData = new LinkedMultiValueMap<>(Map.of("instantiates",
+        List.of(ACTIVITY_DEFINITION_URL), "count", List.of("5")));
+
+    var result = controller.formTasks(formData);
+
+    StepVerifier.create(result)
+        .expectErrorMessage("Between 1 and 4 Tasks can be created at once.")
+        .verify();
+  }
+
+  @Test
+  void formTasks_invalidCount() {
+    var formData = new LinkedMultiValueMap<>(Map.of("instantiates",
+        List.of(ACTIVITY_DEFINITION_URL), "count", List.of("a")));
+
+    var result = controller.formTasks(formData);
+
+    StepVerifier.create(result).expectErrorMessage("Invalid count `a`.").verify();
+  }
+
+  /**
+   * Doesn't cache unknown ActivityDefinitions, so they can be created later.
+   */
+  @Test
+  void formTasks_unknownActivityDefinition() {
+    var formData = new LinkedMultiValueMap<>(Map.of("instantiates",
+        List.of(ACTIVITY_DEFINITION_URL)));
+    when(taskStore.findByUrl(ActivityDefinition.class, ACTIVITY_DEFINITION_URL))
+        .thenReturn(Mono.empty());
+
+    StepVerifier.create(controller.formTasks(formData))
+        .expectErrorMessage("Unknown ActivityDefinition `%s`.".formatted(ACTIVITY_DEFINITION_URL))
+        .verify();
+    StepVerifier.create(controller.formTasks(formData))
+        .expectError(IllegalArgumentException.class)
+        .verify();
+
+    verify(taskStore, times(2)).findByUrl(ActivityDefinition.class, ACTIVITY_DEFINITION_URL);
+  }
+
+  @Test
+  void createTasks() {
+    var request = mock(ServerRequest.class);
+    var formData = new LinkedMultiValueMap<>(Map.of("instantiates",
+        List.of(ACTIVITY_DEFINITION_URL), "count", List.of("2")));
+    when(request.formData()).thenReturn(Mono.just(formData));
+    when(request.uriBuilder()).thenAnswer(
+        invocation -> UriComponentsBuilder.fromUriString("/create-tasks"));
+    when(taskStore.findByUrl(ActivityDefinition.class, ACTIVITY_DEFINITION_URL))
+        .thenReturn(Mono.just(ACTIVITY_DEFINITION));
+    var taskCreator = mock(TaskCreator.class);
+    when(applicationContext.getBean(ACTIVITY_DEFINITION_URL, TaskCreator.class))
+        .thenReturn(taskCreator);
+    when(taskCreator.create(ACTIVITY_DEFINITION)).thenReturn(Mono.just(TASK));
+    var createdTask = TASK.withId(TASK_ID);
+    when(taskStore.createTasks(List.of(TASK, TASK)))
+        .thenReturn(Flux.just(createdTask, createdTask));
+
+    var response = controller.createTasks(request).block();
+
+    assertThat(response)
+        .hasStatusCode(SEE_OTHER)
+        .hasLocation(URI.create("/create-tasks/.."));
+    verify(taskReadModel, times(2)).put(createdTask);
+  }
+
+  @Test
+  void createTasks_missingTaskCreator() {
+    var request = mock(ServerRequest.class);
+    when(request.formData()).thenReturn(Mono.just(new LinkedMultiValueMap<>(Map.of("instantiates",
+        List.of(ACTIVITY_DEFINITION_URL)))));
+    when(taskStore.findByUrl(ActivityDefinition.class, ACTIVITY_DEFINITION_URL))
+        .thenReturn(Mono.just(ACTIVITY_DEFINITION));
+    when(applicationContext.getBean(ACTIVITY_DEFINITION_URL, TaskCreator.class))
+        .thenThrow(new NoSuchBeanDefinitionException(ACTIVITY_DEFINITION_URL));
+
+    var response = controller.createTasks(request).block();
+
+    assertThat(response).hasStatusCode(BAD_REQUEST);
+    assertThat(response).body().isEqualTo("No Task creator for ActivityDefinition `%s`."
+        .formatted(ACTIVITY_DEFINITION_URL));
+    verify(taskStore, never()).createTasks(any());
+  }
+
+  @Test
+  void createTasks_badRequest() {
+    var request = mock(ServerRequest.class);
+    when(request.formData()).thenReturn(Mono.just(new LinkedMultiValueMap<>()));
+
+    var response = controller.createTasks(request).block();
+
+    assertThat(response).hasStatusCode(BAD_REQUEST);
+  }
 }
@@ -0,0 +1,179 @@
+package de.samply.reporthub.web.controller;
+
+import static de.samply.reporthub.web.controller.ServerResponseAssert.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.OK;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.samply.reporthub.model.fhir.Canonical;
+import de.samply.reporthub.model.fhir.CodeableConcept;
+import de.samply.reporthub.model.fhir.Coding;
+import de.samply.reporthub.model.fhir.MeasureReport;
+import de.samply.reporthub.model.fhir.MeasureReport.Group;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Population;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum;
+import de.samply.reporthub.model.fhir.MeasureReportStatus;
+import de.samply.reporthub.model.fhir.MeasureReportType;
+import de.samply.reporthub.service.fhir.store.ResourceNotFoundException;
+import de.samply.reporthub.service.fhir.store.TaskStore;
+import de.samply.reporthub.web.model.MeasureReportRow;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+class MeasureReportExportControllerTest {
+
+  private static final String ID = "id-110436";
+  private static final String SYSTEM = "system-110451";
+  private static final CodeableConcept INITIAL_POPULATION = concept("initial-population");
+  private static final MeasureReport MEASURE_REPORT = MeasureReport.builder(
+          MeasureReportStatus.COMPLETE.code(), MeasureReportType.SUMMARY.code(),
+          Canonical.valueOf("foo"))
+      .withGroup(List.of(Group.builder()
+          .withCode(concept("patient"))
+          .withPopulation(List.of(Population.of(INITIAL_POPULATION, 23)))
+          .withStratifier(List.of(Stratifier.builder()
+              .withCode(List.of(concept("diagnosis")))
+              .withStratum(List.of(Stratum.builder()
+                  .withValue(CodeableConcept.text("C34, lung"))
+                  .withPopulation(List.of(Stratum.Population.of(INITIAL_POPULATION, 5)))
+                  .build()))
+              .build()))
+          .build()))
+      .build();
+
+  @Mock
+  private TaskStore taskStore;
+
+  private MeasureReportExportController controller;
+
+  @BeforeEach
+  void setUp() {
+    controller = new MeasureReportExportController(taskStore, new ObjectMapper());
+  }
+
+  @Test
+  void handle_json() {
+    when(taskStore.fetchMeasureReport(ID)).thenReturn(Mono.just(MEASURE_REPORT));
+
+    var response = controller.handle(request()).block();
+
+    assertThat(response).hasStatusCode(OK);
+    assertThat(response.headers().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+    assertThat(response).body().isEqualTo("""
+        [{"group":"patient","stratifier":"","stratum":"","population":"initial-population",\
+        "count":23},{"group":"patient","stratifier":"diagnosis","stratum":"C34, lung",\
+        "population":"initial-population","count":5}]
+        """);
+  }
+
+  @Test
+  void handle_ndjson() {
+    when(taskStore.fetchMeasureReport(ID)).thenReturn(Mono.just(MEASURE_REPORT));
+
+    var response = controller.handle(request("ndjson")).block();
+
+    assertThat(response).hasStatusCode(OK);
+    assertThat(response.headers().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+    assertThat(response).body().isEqualTo("""
+        {"group":"patient","stratifier":"","stratum":"","population":"initial-population",\
+        "count":23}
+        {"group":"patient","stratifier":"diagnosis","stratum":"C34, lung",\
+        "population":"initial-population","count":5}
+        """);
+  }
+
+  @Test
+  void handle_csv() {
+    when(taskStore.fetchMeasureReport(ID)).thenReturn(Mono.just(MEASURE_REPORT));
+
+    var response = controller.handle(request("csv")).block();
+
+    assertThat(response).hasStatusCode(OK);
+    assertThat(response.headers().getContentType()).hasToString("text/csv;charset=UTF-8");
+    assertThat(response.headers().getContentDisposition().getFilename())
+        .isEqualTo("measure-report-id-110436.csv");
+    assertThat(response).body().isEqualTo("""
+        group,stratifier,stratum,population,count\r
+        patient,,,initial-population,23\r
+        patient,diagnosis,"C34, lung",initial-population,5\r
+        """);
+  }
+
+  @Test
+  void handle_emptyReport() {
+    when(taskStore.fetchMeasureReport(ID)).thenReturn(Mono.just(MeasureReport.builder(
+            MeasureReportStatus.PENDING.code(), MeasureReportType.SUMMARY.code(),
+            Canonical.valueOf("foo"))
+        .build()));
+
+    var response = controller.handle(request()).block();
+
+    assertThat(response).body().isEqualTo("[]\n");
+  }
+
+  @Test
+  void handle_unknownFormat() {
+    var response = controller.handle(request("xml")).block();
+
+    assertThat(response).hasStatusCode(BAD_REQUEST);
+    assertThat(response).body()
+        .isEqualTo("Unknown format `xml`. Supported formats are: json, csv, ndjson.");
+  }
+
+  @Test
+  void handle_notFound() {
+    when(taskStore.fetchMeasureReport(ID))
+        .thenReturn(Mono.error(new ResourceNotFoundException("MeasureReport", ID)));
+
+    var response = controller.handle(request()).block();
+
+    assertThat(response).hasStatusCode(NOT_FOUND);
+  }
+
+  @Test
+  void write_chunks() {
+    var rows = Flux.range(0, 1000)
+        .map(i -> new MeasureReportRow("patient", "diagnosis", "C" + i, "initial-population", i));
+
+    var buffers = controller.write(MeasureReportExportController.Format.CSV, rows)
+        .collectList().block();
+
+    assertThat(buffers).hasSizeBetween(2, 10);
+    assertThat(buffers.subList(0, buffers.size() - 1)).allSatisfy(buffer ->
+        assertThat(buffer.readableByteCount())
+            .isGreaterThanOrEqualTo(MeasureReportExportController.CHUNK_SIZE));
+    var csv = buffers.stream().map(buffer -> buffer.toString(UTF_8)).collect(joining());
+    assertThat(csv.lines()).hasSize(1001).contains("patient,diagnosis,C999,initial-population,999");
+  }
+
+  private static ServerRequest request() {
+    return MockServerRequest.builder().pathVariable("id", ID).build();
+  }
+
+  private static ServerRequest request(String format) {
+    return MockServerRequest.builder()
+        .pathVariable("id", ID)
+        .queryParam("format", format)
+        .build();
+  }
+
+  private static CodeableConcept concept(String code) {
+    return CodeableConcept.coding(Coding.of(SYSTEM, code));
+  }
+}
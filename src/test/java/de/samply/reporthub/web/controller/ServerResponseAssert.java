@@ -1,11 +1,20 @@
 package de.samply.reporthub.web.controller;
 
 import java.net.URI;
+import java.util.List;
 import java.util.Objects;
 import org.assertj.core.api.AbstractAssert;
+import org.assertj.core.api.AbstractStringAssert;
+import org.assertj.core.api.Assertions;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
 import org.springframework.web.reactive.function.server.RenderingResponse;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.function.server.ServerResponse.Context;
+import org.springframework.web.reactive.result.view.ViewResolver;
 
 public class ServerResponseAssert extends AbstractAssert<ServerResponseAssert, ServerResponse> {
 
@@ -36,6 +45,38 @@ public class ServerResponseAssert extends AbstractAssert<ServerResponseAssert, S
     return this;
   }
 
+  /**
+   * Writes the response and returns an assert on its body as string.
+   *
+   * @return an assert on the body
+   */
+  public AbstractStringAssert<?> body() {
+    isNotNull();
+    return Assertions.assertThat(bodyAsString(actual));
+  }
+
+  /**
+   * Writes {@code response} and returns its body as string.
+   *
+   * @param response the response to write
+   * @return the body
+   */
+  public static String bodyAsString(ServerResponse response) {
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+    response.writeTo(exchange, new Context() {
+      @Override
+      public List<HttpMessageWriter<?>> messageWriters() {
+        return HandlerStrategies.withDefaults().messageWriters();
+      }
+
+      @Override
+      public List<ViewResolver> viewResolvers() {
+        return List.of();
+      }
+    }).block();
+    return exchange.getResponse().getBodyAsString().block();
+  }
+
   public RenderingResponseAssert isRendering() {
     objects.assertIsInstanceOf(info, actual, RenderingResponse.class);
     return new RenderingResponseAssert((RenderingResponse) actual);
@@ -4,13 +4,19 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import de.samply.reporthub.model.fhir.CapabilityStatement;
 import de.samply.reporthub.model.fhir.CapabilityStatement.Software;
+import de.samply.reporthub.service.StoreHealthService.Status;
+import de.samply.reporthub.service.StoreHealthService.StoreHealth;
+import de.samply.reporthub.web.model.StoreConfig;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.Optional;
 import org.junit.jupiter.api.Test;
 
 class ConfigConverterTest {
 
+  private static final String BASE_URL = "http://localhost:8083/fhir";
   private static final String SOFTWARE_NAME = "software-name-103620";
   private static final String SOFTWARE_VERSION = "software-version-103703";
   private static final OffsetDateTime SOFTWARE_RELEASE_DATE =
@@ -71,4 +77,33 @@ class ConfigConverterTest {
 
     assertThat(software).isEqualTo("%s (%s) (1970-01-01)", SOFTWARE_NAME, SOFTWARE_VERSION);
   }
+
+  @Test
+  void convert_notProbedYet() {
+    var health = new StoreHealth("taskStore", BASE_URL, Status.UNKNOWN, Optional.empty(),
+        Optional.empty(), 0, Optional.empty(), Optional.empty());
+
+    var config = ConfigConverter.convert(health);
+
+    assertThat(config).isEqualTo(new StoreConfig(BASE_URL, "Unknown", "UNKNOWN",
+        Optional.empty(), 0));
+  }
+
+  /**
+   * Shows the software of the cached CapabilityStatement even if the store is down.
+   */
+  @Test
+  void convert_down() {
+    var health = new StoreHealth("taskStore", BASE_URL, Status.DOWN,
+        Optional.of(CapabilityStatement.builder()
+            .withSoftware(Software.builder(SOFTWARE_NAME).build())
+            .build()),
+        Optional.of(Duration.ofMillis(12)), 0.25, Optional.of("error-msg-160522"),
+        Optional.of(Instant.EPOCH));
+
+    var config = ConfigConverter.convert(health);
+
+    assertThat(config).isEqualTo(new StoreConfig(BASE_URL, SOFTWARE_NAME, "ERROR",
+        Optional.of(Duration.ofMillis(12)), 0.25));
+  }
 }
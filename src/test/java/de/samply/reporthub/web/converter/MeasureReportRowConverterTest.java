@@ -0,0 +1,102 @@
+package de.samply.reporthub.web.converter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.samply.reporthub.model.fhir.Canonical;
+import de.samply.reporthub.model.fhir.CodeableConcept;
+import de.samply.reporthub.model.fhir.Coding;
+import de.samply.reporthub.model.fhir.MeasureReport;
+import de.samply.reporthub.model.fhir.MeasureReport.Group;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Population;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum;
+import de.samply.reporthub.model.fhir.MeasureReport.Group.Stratifier.Stratum.Component;
+import de.samply.reporthub.model.fhir.MeasureReportStatus;
+import de.samply.reporthub.model.fhir.MeasureReportType;
+import de.samply.reporthub.web.model.MeasureReportRow;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+class MeasureReportRowConverterTest {
+
+  private static final String SYSTEM = "system-104112";
+  private static final CodeableConcept PATIENT = concept("patient");
+  private static final CodeableConcept INITIAL_POPULATION = concept("initial-population");
+  private static final CodeableConcept GENDER = concept("gender");
+  private static final CodeableConcept AGE = concept("age");
+
+  @Test
+  void rows_empty() {
+    StepVerifier.create(MeasureReportRowConverter.rows(measureReport(List.of())))
+        .verifyComplete();
+  }
+
+  @Test
+  void rows() {
+    var measureReport = measureReport(List.of(Group.builder()
+        .withCode(PATIENT)
+        .withPopulation(List.of(Population.of(INITIAL_POPULATION, 23)))
+        .withStratifier(List.of(
+            Stratifier.builder()
+                .withCode(List.of(GENDER))
+                .withStratum(List.of(
+                    Stratum.builder()
+                        .withValue(concept("female"))
+                        .withPopulation(List.of(Stratum.Population.of(INITIAL_POPULATION, 13)))
+                        .build(),
+                    Stratum.builder()
+                        .withValue(CodeableConcept.text("male"))
+                        .withPopulation(List.of(Stratum.Population.of(INITIAL_POPULATION, 10)))
+                        .build()))
+                .build(),
+            Stratifier.builder()
+                .withCode(List.of(GENDER, AGE))
+                .withStratum(List.of(Stratum.builder()
+                    .withComponent(List.of(Component.of(GENDER, concept("female")),
+                        Component.of(AGE, concept("42"))))
+                    .withPopulation(List.of(Stratum.Population.of(INITIAL_POPULATION, 1)))
+                    .build()))
+                .build()))
+        .build()));
+
+    StepVerifier.create(MeasureReportRowConverter.rows(measureReport))
+        .expectNext(new MeasureReportRow("patient", "", "", "initial-population", 23))
+        .expectNext(new MeasureReportRow("patient", "gender", "female", "initial-population", 13))
+        .expectNext(new MeasureReportRow("patient", "gender", "male", "initial-population", 10))
+        .expectNext(new MeasureReportRow("patient", "gender|age", "gender=female|age=42",
+            "initial-population", 1))
+        .verifyComplete();
+  }
+
+  @Test
+  void rows_skipsPopulationsWithoutCount() {
+    var measureReport = measureReport(List.of(Group.builder()
+        .withCode(PATIENT)
+        .withPopulation(List.of(Population.builder().withCode(INITIAL_POPULATION).build()))
+        .build()));
+
+    StepVerifier.create(MeasureReportRowConverter.rows(measureReport)).verifyComplete();
+  }
+
+  @Test
+  void code_text() {
+    assertThat(MeasureReportRowConverter.code(CodeableConcept.text("foo"))).isEqualTo("foo");
+  }
+
+  @Test
+  void code_empty() {
+    assertThat(MeasureReportRowConverter.code(CodeableConcept.builder().build())).isEmpty();
+  }
+
+  private static MeasureReport measureReport(List<Group> groups) {
+    return MeasureReport.builder(MeasureReportStatus.COMPLETE.code(),
+            MeasureReportType.SUMMARY.code(), Canonical.valueOf("foo"))
+        .withGroup(groups)
+        .build();
+  }
+
+  private static CodeableConcept concept(String code) {
+    return CodeableConcept.coding(Coding.of(SYSTEM, code));
+  }
+}